@@ -0,0 +1,113 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.benchmark;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.synthetic.bymodel.GeneratorMain;
+import de.lmu.ifi.dbs.elki.data.synthetic.bymodel.GeneratorSingleCluster;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.datasource.MultipleObjectsBundleDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.index.IndexFactory;
+import de.lmu.ifi.dbs.elki.math.statistics.distribution.NormalDistribution;
+import de.lmu.ifi.dbs.elki.math.statistics.distribution.UniformDistribution;
+
+/**
+ * Synthetic data sets for the benchmarks.
+ * <p>
+ * All data sets are generated with a fixed seed, so that every benchmark run
+ * uses the same data.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public final class BenchmarkData {
+  /**
+   * Fake constructor: do not instantiate.
+   */
+  private BenchmarkData() {
+    // Do not instantiate
+  }
+
+  /**
+   * Generate Gaussian clusters of equal size, with random centers in the unit
+   * cube.
+   *
+   * @param size Total number of objects
+   * @param dim Dimensionality
+   * @param clusters Number of clusters
+   * @param seed Random seed
+   * @return Data bundle
+   */
+  public static MultipleObjectsBundle gaussianClusters(int size, int dim, int clusters, long seed) {
+    Random rnd = new Random(seed);
+    GeneratorMain gen = new GeneratorMain();
+    gen.setTestAgainstModel(false); // Allow overlapping clusters.
+    for(int c = 0; c < clusters; c++) {
+      final int csize = size / clusters + (c < size % clusters ? 1 : 0);
+      GeneratorSingleCluster cluster = new GeneratorSingleCluster("Cluster" + c, csize, 1., rnd);
+      final double stddev = 0.01 + 0.1 * rnd.nextDouble();
+      for(int d = 0; d < dim; d++) {
+        cluster.addGenerator(new NormalDistribution(rnd.nextDouble(), stddev, rnd));
+      }
+      gen.addCluster(cluster);
+    }
+    return gen.generate();
+  }
+
+  /**
+   * Generate uniformly distributed data in the unit cube.
+   *
+   * @param size Number of objects
+   * @param dim Dimensionality
+   * @param seed Random seed
+   * @return Data bundle
+   */
+  public static MultipleObjectsBundle uniform(int size, int dim, long seed) {
+    Random rnd = new Random(seed);
+    GeneratorSingleCluster cluster = new GeneratorSingleCluster("Uniform", size, 1., rnd);
+    for(int d = 0; d < dim; d++) {
+      cluster.addGenerator(new UniformDistribution(0., 1., rnd));
+    }
+    GeneratorMain gen = new GeneratorMain();
+    gen.setTestAgainstModel(false);
+    gen.addCluster(cluster);
+    return gen.generate();
+  }
+
+  /**
+   * Load a data bundle into a new database.
+   *
+   * @param bundle Data bundle
+   * @param index Index factory, may be {@code null}
+   * @return Initialized database
+   */
+  public static Database makeDatabase(MultipleObjectsBundle bundle, IndexFactory<?> index) {
+    Collection<IndexFactory<?>> indexes = index != null ? Collections.<IndexFactory<?>> singletonList(index) : null;
+    Database db = new StaticArrayDatabase(new MultipleObjectsBundleDatabaseConnection(bundle), indexes);
+    db.initialize();
+    return db;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.benchmark.dbids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+
+/**
+ * Benchmark of kNN heap insertions, which dominate the cost of many kNN
+ * searches. For integer DBIDs, the heap is a
+ * {@link de.lmu.ifi.dbs.elki.database.ids.integer.DoubleIntegerDBIDKNNHeap}.
+ * <p>
+ * The reported time is per insertion.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KNNHeapBenchmark {
+  /**
+   * Number of candidates inserted.
+   */
+  private static final int SIZE = 10000;
+
+  /**
+   * Heap size.
+   */
+  @Param({ "1", "10", "100" })
+  public int k;
+
+  /**
+   * Candidate distances.
+   */
+  private double[] dists;
+
+  /**
+   * Candidate ids.
+   */
+  private DBIDRange ids;
+
+  /**
+   * Generate the candidates.
+   */
+  @Setup
+  public void setup() {
+    Random rnd = new Random(0L);
+    dists = new double[SIZE];
+    for(int i = 0; i < SIZE; i++) {
+      dists[i] = rnd.nextDouble();
+    }
+    ids = DBIDUtil.generateStaticDBIDRange(SIZE);
+  }
+
+  /**
+   * Insert all candidates into a new heap.
+   *
+   * @return kNN list
+   */
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public KNNList insert() {
+    KNNHeap heap = DBIDUtil.newHeap(k);
+    int i = 0;
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance(), i++) {
+      heap.insert(dists[i], it);
+    }
+    return heap.toKNNList();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.benchmark.distance;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.FloatVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+
+/**
+ * Benchmark of Euclidean distance computations on dense vectors.
+ * <p>
+ * Each invocation computes the distances of consecutive pairs in an array of
+ * random vectors; the reported time is per distance computation.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceFunctionBenchmark {
+  /**
+   * Number of vectors, must be a power of two.
+   */
+  private static final int SIZE = 1024;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "10", "100" })
+  public int dim;
+
+  /**
+   * Vector type.
+   */
+  @Param({ "double", "float" })
+  public String type;
+
+  /**
+   * Data vectors.
+   */
+  private NumberVector[] data;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    Random rnd = new Random(0L);
+    data = new NumberVector[SIZE];
+    for(int i = 0; i < SIZE; i++) {
+      double[] v = new double[dim];
+      for(int d = 0; d < dim; d++) {
+        v[d] = rnd.nextDouble();
+      }
+      data[i] = "float".equals(type) ? FloatVector.FACTORY.newNumberVector(v) : DoubleVector.wrap(v);
+    }
+  }
+
+  /**
+   * Euclidean distance.
+   *
+   * @return Sum of distances
+   */
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public double euclidean() {
+    final EuclideanDistanceFunction df = EuclideanDistanceFunction.STATIC;
+    double sum = 0.;
+    for(int i = 0; i < SIZE; i++) {
+      sum += df.distance(data[i], data[(i + 1) & (SIZE - 1)]);
+    }
+    return sum;
+  }
+
+  /**
+   * Squared Euclidean distance.
+   *
+   * @return Sum of distances
+   */
+  @Benchmark
+  @OperationsPerInvocation(SIZE)
+  public double squaredEuclidean() {
+    final SquaredEuclideanDistanceFunction df = SquaredEuclideanDistanceFunction.STATIC;
+    double sum = 0.;
+    for(int i = 0; i < SIZE; i++) {
+      sum += df.distance(data[i], data[(i + 1) & (SIZE - 1)]);
+    }
+    return sum;
+  }
+}
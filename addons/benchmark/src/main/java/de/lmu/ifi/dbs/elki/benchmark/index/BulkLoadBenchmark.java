@@ -0,0 +1,136 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.benchmark.index;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import de.lmu.ifi.dbs.elki.benchmark.BenchmarkData;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeIndex;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk.*;
+import de.lmu.ifi.dbs.elki.math.spacefillingcurves.HilbertSpatialSorter;
+import de.lmu.ifi.dbs.elki.math.spacefillingcurves.ZCurveSpatialSorter;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Benchmark of R*-tree construction with different bulk-load strategies, and
+ * with incremental insertion for comparison.
+ * <p>
+ * The reported time is for building the index of the whole data set; loading
+ * the data into the database is not included.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkLoadBenchmark {
+  /**
+   * Bulk load strategy.
+   */
+  @Param({ "none", "file-order", "one-dim-sort", "max-extension", "str", "adaptive-str", "max-extension-str", "zcurve", "hilbert" })
+  public String strategy;
+
+  /**
+   * Data set size.
+   */
+  @Param({ "100000" })
+  public int size;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "8" })
+  public int dim;
+
+  /**
+   * Data relation.
+   */
+  private Relation<NumberVector> relation;
+
+  /**
+   * Index factory.
+   */
+  private RStarTreeFactory<NumberVector> factory;
+
+  /**
+   * Generate the data.
+   */
+  @Setup
+  public void setup() {
+    relation = BenchmarkData.makeDatabase(BenchmarkData.gaussianClusters(size, dim, 10, 0L), null).getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    ELKIBuilder<RStarTreeFactory<NumberVector>> builder = new ELKIBuilder<>(RStarTreeFactory.class);
+    switch(strategy){
+    case "none":
+      break;
+    case "file-order":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, FileOrderBulkSplit.class);
+      break;
+    case "one-dim-sort":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, OneDimSortBulkSplit.class);
+      break;
+    case "max-extension":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, MaxExtensionBulkSplit.class);
+      break;
+    case "str":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SortTileRecursiveBulkSplit.class);
+      break;
+    case "adaptive-str":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, AdaptiveSortTileRecursiveBulkSplit.class);
+      break;
+    case "max-extension-str":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, MaxExtensionSortTileRecursiveBulkSplit.class);
+      break;
+    case "zcurve":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SpatialSortBulkSplit.class) //
+          .with(SpatialSortBulkSplit.Parameterizer.SORTER_ID, ZCurveSpatialSorter.class);
+      break;
+    case "hilbert":
+      builder.with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SpatialSortBulkSplit.class) //
+          .with(SpatialSortBulkSplit.Parameterizer.SORTER_ID, HilbertSpatialSorter.class);
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown strategy: " + strategy);
+    }
+    factory = builder.build();
+  }
+
+  /**
+   * Build the index.
+   *
+   * @return Index
+   */
+  @Benchmark
+  public RStarTreeIndex<NumberVector> build() {
+    RStarTreeIndex<NumberVector> index = factory.instantiate(relation);
+    index.initialize();
+    return index;
+  }
+}
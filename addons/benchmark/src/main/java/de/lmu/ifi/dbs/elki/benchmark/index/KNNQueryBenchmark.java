@@ -0,0 +1,145 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.benchmark.index;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.lmu.ifi.dbs.elki.benchmark.BenchmarkData;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.index.IndexFactory;
+import de.lmu.ifi.dbs.elki.index.tree.metrical.covertree.CoverTree;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.strategies.bulk.SortTileRecursiveBulkSplit;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Benchmark of kNN queries using a linear scan, a bulk-loaded R*-tree, and a
+ * cover tree, on clustered data.
+ * <p>
+ * The reported time is per query; index construction is not included.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KNNQueryBenchmark {
+  /**
+   * Number of query points per invocation.
+   */
+  private static final int QUERIES = 100;
+
+  /**
+   * Index to use.
+   */
+  @Param({ "linear", "rstar", "covertree" })
+  public String index;
+
+  /**
+   * Data set size.
+   */
+  @Param({ "10000", "100000" })
+  public int size;
+
+  /**
+   * Dimensionality.
+   */
+  @Param({ "2", "8" })
+  public int dim;
+
+  /**
+   * Number of neighbors.
+   */
+  @Param({ "10" })
+  public int k;
+
+  /**
+   * kNN query.
+   */
+  private KNNQuery<NumberVector> knnq;
+
+  /**
+   * Query points.
+   */
+  private DBIDs queries;
+
+  /**
+   * Generate the data and build the index.
+   */
+  @Setup
+  public void setup() {
+    Database db = BenchmarkData.makeDatabase(BenchmarkData.gaussianClusters(size, dim, 10, 0L), makeIndex(index));
+    Relation<NumberVector> relation = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> distq = db.getDistanceQuery(relation, EuclideanDistanceFunction.STATIC);
+    knnq = db.getKNNQuery(distq, k);
+    queries = DBIDUtil.randomSample(relation.getDBIDs(), QUERIES, 0L);
+  }
+
+  /**
+   * Make the index factory.
+   *
+   * @param name Index name
+   * @return Index factory, or {@code null} for a linear scan
+   */
+  private static IndexFactory<?> makeIndex(String name) {
+    switch(name){
+    case "linear":
+      return null;
+    case "rstar":
+      return new ELKIBuilder<>(RStarTreeFactory.class) //
+          .with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SortTileRecursiveBulkSplit.class) //
+          .build();
+    case "covertree":
+      return new CoverTree.Factory<>(EuclideanDistanceFunction.STATIC, 1.3, 10);
+    default:
+      throw new IllegalArgumentException("Unknown index: " + name);
+    }
+  }
+
+  /**
+   * Run the kNN queries.
+   *
+   * @param bh Blackhole
+   */
+  @Benchmark
+  @OperationsPerInvocation(QUERIES)
+  public void knn(Blackhole bh) {
+    for(DBIDIter iter = queries.iter(); iter.valid(); iter.advance()) {
+      bh.consume(knnq.getKNNForDBID(iter, k));
+    }
+  }
+}
@@ -76,12 +76,12 @@ public class XTreeIndex<O extends NumberVector> extends XTree implements RangeIn
 
   @Override
   public final void insertAll(DBIDs ids) {
-    if(ids.isEmpty() || (ids.size() == 1)) {
+    if(ids.isEmpty()) {
       return;
     }
 
     // Make an example leaf
-    if(canBulkLoad()) {
+    if(ids.size() > 1 && canBulkLoad()) {
       List<SpatialEntry> leafs = new ArrayList<>(ids.size());
       for(DBIDIter id = ids.iter(); id.valid(); id.advance()) {
         leafs.add(createNewLeafEntry(id));
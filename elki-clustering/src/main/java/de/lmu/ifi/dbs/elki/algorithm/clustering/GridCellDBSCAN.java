@@ -0,0 +1,723 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.DistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.ClusterModel;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.data.type.CombinedTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.LPNormDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.unionfind.WeightedQuickUnionInteger;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+
+/**
+ * Exact DBSCAN for low-dimensional numerical data and Lp-norms, using a grid
+ * of cells with a diagonal of at most epsilon.
+ * <p>
+ * All objects within the same cell are neighbors of each other. Hence, all
+ * objects in a cell with at least minPts objects are core points, without any
+ * distance computations. Cells containing core points are connected if a
+ * bichromatic closest pair search finds two core points within epsilon, and
+ * the connected cells are merged with a union-find data structure. Border
+ * points are assigned to the first cluster that {@link DBSCAN} would expand,
+ * so the result is the same as with DBSCAN.
+ * <p>
+ * Core point detection, cell connection and border point assignment are
+ * performed in parallel. Because the number of neighbor cells grows
+ * exponentially with the dimensionality, this is only useful for
+ * low-dimensional data such as geographic coordinates.
+ * <p>
+ * Reference:
+ * <p>
+ * J. Gan, Y. Tao<br>
+ * DBSCAN Revisited: Mis-Claim, Un-Fixability, and Approximation<br>
+ * Proc. ACM SIGMOD Int. Conf. on Management of Data (SIGMOD 2015)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - Instance
+ *
+ * @param <V> the type of vector the algorithm is applied to
+ */
+@Title("Grid-based exact DBSCAN")
+@Reference(authors = "J. Gan, Y. Tao", //
+    title = "DBSCAN Revisited: Mis-Claim, Un-Fixability, and Approximation", //
+    booktitle = "Proc. ACM SIGMOD Int. Conf. on Management of Data (SIGMOD 2015)", //
+    url = "https://doi.org/10.1145/2723372.2737792", //
+    bibkey = "DBLP:conf/sigmod/GanT15")
+public class GridCellDBSCAN<V extends NumberVector> extends AbstractDistanceBasedAlgorithm<V, Clustering<Model>> implements ClusteringAlgorithm<Clustering<Model>> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(GridCellDBSCAN.class);
+
+  /**
+   * Holds the epsilon radius threshold.
+   */
+  protected double epsilon;
+
+  /**
+   * Holds the minimum cluster size.
+   */
+  protected int minpts;
+
+  /**
+   * Constructor with parameters.
+   *
+   * @param distanceFunction Distance function
+   * @param epsilon Epsilon value
+   * @param minpts Minpts parameter
+   */
+  public GridCellDBSCAN(LPNormDistanceFunction distanceFunction, double epsilon, int minpts) {
+    super(distanceFunction);
+    this.epsilon = epsilon;
+    this.minpts = minpts;
+  }
+
+  /**
+   * Performs the DBSCAN algorithm on the given database.
+   */
+  public Clustering<Model> run(Relation<V> relation) {
+    final DBIDs ids = relation.getDBIDs();
+
+    // Degenerate result:
+    if(ids.size() < minpts) {
+      Clustering<Model> result = new Clustering<>("DBSCAN Clustering", "dbscan-clustering");
+      result.addToplevelCluster(new Cluster<Model>(ids, true, ClusterModel.CLUSTER));
+      return result;
+    }
+    return new Instance<V>((LPNormDistanceFunction) getDistanceFunction(), epsilon, minpts).run(relation);
+  }
+
+  /**
+   * Instance, for a single run.
+   *
+   * @author Erich Schubert
+   *
+   * @param <V> Vector type
+   */
+  protected static class Instance<V extends NumberVector> {
+    /**
+     * Marker for noise and unassigned core points.
+     */
+    private static final int NOISE = -1, CORE = -2;
+
+    /**
+     * Relative amount by which the cells are shrunk, to be robust against
+     * rounding errors.
+     */
+    private static final double SLACK = 1e-6;
+
+    /**
+     * Distance function used.
+     */
+    protected LPNormDistanceFunction distanceFunction;
+
+    /**
+     * Holds the epsilon radius threshold.
+     */
+    protected double epsilon;
+
+    /**
+     * Holds the minimum cluster size.
+     */
+    protected int minpts;
+
+    /**
+     * Distance query.
+     */
+    protected DistanceQuery<V> distq;
+
+    /**
+     * Dimensionality.
+     */
+    protected int dim;
+
+    /**
+     * Width of the grid cells.
+     */
+    protected double width;
+
+    /**
+     * Map from cell coordinates to cell number.
+     */
+    protected Object2IntOpenCustomHashMap<long[]> cellmap;
+
+    /**
+     * Cell coordinates, by cell number.
+     */
+    protected List<long[]> keys;
+
+    /**
+     * Members of each cell.
+     */
+    protected List<ArrayModifiableDBIDs> cells;
+
+    /**
+     * Core points of each cell, {@code null} if there are none.
+     */
+    protected ArrayModifiableDBIDs[] cores;
+
+    /**
+     * Cluster number of each cell, {@code NOISE} if it has no core points.
+     */
+    protected int[] cellclus;
+
+    /**
+     * Offsets of all neighbor cells that may contain neighbors.
+     */
+    protected long[][] offsets;
+
+    /**
+     * Cell number of each object.
+     */
+    protected WritableIntegerDataStore cellid;
+
+    /**
+     * Cluster assignment of each object.
+     */
+    protected WritableIntegerDataStore assignment;
+
+    /**
+     * Constructor.
+     *
+     * @param distanceFunction Distance function
+     * @param epsilon Epsilon
+     * @param minpts MinPts
+     */
+    public Instance(LPNormDistanceFunction distanceFunction, double epsilon, int minpts) {
+      this.distanceFunction = distanceFunction;
+      this.epsilon = epsilon;
+      this.minpts = minpts;
+    }
+
+    /**
+     * Performs the DBSCAN algorithm on the given database.
+     *
+     * @param relation Relation to process
+     * @return Clustering result
+     */
+    public Clustering<Model> run(Relation<V> relation) {
+      final DBIDs ids = relation.getDBIDs();
+      distq = distanceFunction.instantiate(relation);
+      dim = RelationUtil.dimensionality(relation);
+      // The diagonal of a cell must not exceed epsilon:
+      width = epsilon / Math.pow(dim, 1. / distanceFunction.getP()) * (1. - SLACK);
+      offsets = neighborOffsets();
+
+      buildGrid(relation);
+      findCorePoints(ids);
+      int numclusters = connectCells(relation);
+      assignPoints(ids);
+
+      // Build the clusters, in the order of DBSCAN.
+      ModifiableDBIDs[] clusters = new ModifiableDBIDs[numclusters];
+      for(int i = 0; i < numclusters; i++) {
+        clusters[i] = DBIDUtil.newArray();
+      }
+      ModifiableDBIDs noise = DBIDUtil.newArray();
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        final int c = assignment.intValue(it);
+        (c >= 0 ? clusters[c] : noise).add(it);
+      }
+      Clustering<Model> result = new Clustering<>("DBSCAN Clustering", "dbscan-clustering");
+      for(ModifiableDBIDs res : clusters) {
+        result.addToplevelCluster(new Cluster<Model>(res, ClusterModel.CLUSTER));
+      }
+      result.addToplevelCluster(new Cluster<Model>(noise, true, ClusterModel.CLUSTER));
+      return result;
+    }
+
+    /**
+     * Enumerate the offsets of all cells that can contain neighbors, except
+     * the cell itself.
+     *
+     * @return Offsets
+     */
+    private long[][] neighborOffsets() {
+      final int r = (int) Math.floor(1 + epsilon / width);
+      final double p = distanceFunction.getP();
+      List<long[]> offs = new ArrayList<>();
+      long[] cur = new long[dim];
+      Arrays.fill(cur, -r);
+      while(true) {
+        // Minimum distance of two points in these cells:
+        double agg = 0.;
+        boolean zero = true;
+        for(int d = 0; d < dim; d++) {
+          final long o = cur[d];
+          zero &= o == 0;
+          final double gap = Math.max(Math.abs(o) - 1, 0) * width;
+          agg = p == Double.POSITIVE_INFINITY ? Math.max(agg, gap) : agg + Math.pow(gap, p);
+        }
+        final double mindist = p == Double.POSITIVE_INFINITY ? agg : Math.pow(agg, 1. / p);
+        if(!zero && mindist <= epsilon * (1. + SLACK)) {
+          offs.add(cur.clone());
+        }
+        // Advance to the next offset.
+        int d = 0;
+        while(d < dim && cur[d] == r) {
+          cur[d++] = -r;
+        }
+        if(d == dim) {
+          break;
+        }
+        ++cur[d];
+      }
+      return offs.toArray(new long[offs.size()][]);
+    }
+
+    /**
+     * Assign all objects to grid cells.
+     *
+     * @param relation Data relation
+     */
+    private void buildGrid(Relation<V> relation) {
+      final DBIDs ids = relation.getDBIDs();
+      cellid = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT);
+      cellmap = new Object2IntOpenCustomHashMap<>(CELL_HASH_STRATEGY);
+      cellmap.defaultReturnValue(-1);
+      keys = new ArrayList<>();
+      cells = new ArrayList<>();
+      long[] key = new long[dim];
+      int dense = 0;
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        V vec = relation.get(it);
+        for(int d = 0; d < dim; d++) {
+          key[d] = (long) Math.floor(vec.doubleValue(d) / width);
+        }
+        int c = cellmap.getInt(key);
+        if(c < 0) {
+          c = keys.size();
+          long[] k = key.clone();
+          cellmap.put(k, c);
+          keys.add(k);
+          cells.add(DBIDUtil.newArray());
+        }
+        ArrayModifiableDBIDs members = cells.get(c);
+        members.add(it);
+        dense += members.size() == minpts ? 1 : 0;
+        cellid.putInt(it, c);
+      }
+      LOG.statistics(new LongStatistic(GridCellDBSCAN.class.getName() + ".cells", cells.size()));
+      LOG.statistics(new LongStatistic(GridCellDBSCAN.class.getName() + ".dense-cells", dense));
+    }
+
+    /**
+     * Find the neighbor cells of a cell.
+     *
+     * @param c Cell number
+     * @param buf Buffer for cell coordinates
+     * @param out Output array for neighbor cells
+     * @return Number of neighbor cells
+     */
+    private int neighbors(int c, long[] buf, int[] out) {
+      final long[] key = keys.get(c);
+      int k = 0;
+      for(long[] off : offsets) {
+        for(int d = 0; d < dim; d++) {
+          buf[d] = key[d] + off[d];
+        }
+        final int nc = cellmap.getInt(buf);
+        if(nc >= 0) {
+          out[k++] = nc;
+        }
+      }
+      return k;
+    }
+
+    /**
+     * Find the core points, in parallel.
+     *
+     * @param ids Object ids
+     */
+    private void findCorePoints(DBIDs ids) {
+      assignment = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, NOISE);
+      ParallelExecutor.run(ids, new Processor() {
+        @Override
+        public Processor.Instance instantiate(Executor executor) {
+          return new CoreWorker();
+        }
+
+        @Override
+        public void cleanup(Processor.Instance inst) {
+          // Nothing to do.
+        }
+      });
+      cores = new ArrayModifiableDBIDs[cells.size()];
+      int corecells = 0;
+      for(int c = 0; c < cores.length; c++) {
+        for(DBIDIter it = cells.get(c).iter(); it.valid(); it.advance()) {
+          if(assignment.intValue(it) == CORE) {
+            if(cores[c] == null) {
+              cores[c] = DBIDUtil.newArray();
+              ++corecells;
+            }
+            cores[c].add(it);
+          }
+        }
+      }
+      LOG.statistics(new LongStatistic(GridCellDBSCAN.class.getName() + ".core-cells", corecells));
+    }
+
+    /**
+     * Connect neighboring cells of core points, and number the resulting
+     * clusters in the order DBSCAN would find them.
+     *
+     * @param relation Data relation
+     * @return Number of clusters
+     */
+    private int connectCells(Relation<V> relation) {
+      // Use the first core point to represent each cell.
+      ArrayModifiableDBIDs reps = DBIDUtil.newArray();
+      for(ArrayModifiableDBIDs core : cores) {
+        if(core != null) {
+          reps.add(core.iter());
+        }
+      }
+      final IntArrayList edges = new IntArrayList();
+      ParallelExecutor.run(reps, new Processor() {
+        @Override
+        public Processor.Instance instantiate(Executor executor) {
+          return new ConnectWorker();
+        }
+
+        @Override
+        public void cleanup(Processor.Instance inst) {
+          IntArrayList found = ((GridCellDBSCAN.Instance<?>.ConnectWorker) inst).edges;
+          synchronized(edges) {
+            edges.addAll(found);
+          }
+        }
+      });
+      WeightedQuickUnionInteger uf = new WeightedQuickUnionInteger();
+      for(int c = 0; c < cores.length; c++) {
+        uf.nextIndex(1);
+      }
+      for(int i = 0; i < edges.size(); i += 2) {
+        uf.union(edges.getInt(i), edges.getInt(i + 1));
+      }
+      // DBSCAN starts a cluster at its first core point.
+      int[] rank = new int[cores.length];
+      Arrays.fill(rank, NOISE);
+      int numclusters = 0;
+      for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+        if(assignment.intValue(it) == CORE) {
+          final int root = uf.find(cellid.intValue(it));
+          if(rank[root] == NOISE) {
+            rank[root] = numclusters++;
+          }
+        }
+      }
+      cellclus = new int[cores.length];
+      for(int c = 0; c < cores.length; c++) {
+        cellclus[c] = cores[c] != null ? rank[uf.find(c)] : NOISE;
+      }
+      return numclusters;
+    }
+
+    /**
+     * Assign core and border points to clusters, in parallel.
+     *
+     * @param ids Object ids
+     */
+    private void assignPoints(DBIDs ids) {
+      ParallelExecutor.run(ids, new Processor() {
+        @Override
+        public Processor.Instance instantiate(Executor executor) {
+          return new AssignWorker();
+        }
+
+        @Override
+        public void cleanup(Processor.Instance inst) {
+          // Nothing to do.
+        }
+      });
+    }
+
+    /**
+     * Test if any pair of points is within epsilon.
+     *
+     * @param a First set
+     * @param b Second set
+     * @return {@code true} when there is such a pair.
+     */
+    private boolean connected(DBIDs a, DBIDs b) {
+      for(DBIDIter ia = a.iter(); ia.valid(); ia.advance()) {
+        if(anyWithin(ia, b)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Test if any point of a set is within epsilon of an object.
+     *
+     * @param id Object
+     * @param b Set of points
+     * @return {@code true} when there is a neighbor in b
+     */
+    private boolean anyWithin(DBIDRef id, DBIDs b) {
+      for(DBIDIter ib = b.iter(); ib.valid(); ib.advance()) {
+        if(distq.distance(id, ib) <= epsilon) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Worker for finding core points.
+     *
+     * @author Erich Schubert
+     */
+    private class CoreWorker implements Processor.Instance {
+      /**
+       * Buffer for cell coordinates.
+       */
+      private long[] buf = new long[dim];
+
+      /**
+       * Neighbor cells.
+       */
+      private int[] ncells = new int[offsets.length];
+
+      @Override
+      public void map(DBIDRef id) {
+        final int c = cellid.intValue(id);
+        // All objects in the same cell are neighbors, including the object.
+        int count = cells.get(c).size();
+        if(count < minpts) {
+          final int n = neighbors(c, buf, ncells);
+          cells: for(int i = 0; i < n; i++) {
+            for(DBIDIter it = cells.get(ncells[i]).iter(); it.valid(); it.advance()) {
+              if(distq.distance(id, it) <= epsilon && ++count >= minpts) {
+                break cells;
+              }
+            }
+          }
+        }
+        if(count >= minpts) {
+          assignment.putInt(id, CORE);
+        }
+      }
+    }
+
+    /**
+     * Worker for finding connected cells.
+     *
+     * @author Erich Schubert
+     */
+    private class ConnectWorker implements Processor.Instance {
+      /**
+       * Buffer for cell coordinates.
+       */
+      private long[] buf = new long[dim];
+
+      /**
+       * Neighbor cells.
+       */
+      private int[] ncells = new int[offsets.length];
+
+      /**
+       * Pairs of connected cells found.
+       */
+      private IntArrayList edges = new IntArrayList();
+
+      @Override
+      public void map(DBIDRef id) {
+        final int c = cellid.intValue(id);
+        final int n = neighbors(c, buf, ncells);
+        for(int i = 0; i < n; i++) {
+          final int nc = ncells[i];
+          // Check each pair only once.
+          if(nc > c && cores[nc] != null && connected(cores[c], cores[nc])) {
+            edges.add(c);
+            edges.add(nc);
+          }
+        }
+      }
+    }
+
+    /**
+     * Worker for assigning points to clusters.
+     *
+     * @author Erich Schubert
+     */
+    private class AssignWorker implements Processor.Instance {
+      /**
+       * Buffer for cell coordinates.
+       */
+      private long[] buf = new long[dim];
+
+      /**
+       * Neighbor cells.
+       */
+      private int[] ncells = new int[offsets.length];
+
+      @Override
+      public void map(DBIDRef id) {
+        final int c = cellid.intValue(id);
+        if(assignment.intValue(id) == CORE) {
+          assignment.putInt(id, cellclus[c]);
+          return;
+        }
+        // Border points belong to the first cluster expanded by DBSCAN.
+        int best = cellclus[c] >= 0 ? cellclus[c] : Integer.MAX_VALUE;
+        final int n = neighbors(c, buf, ncells);
+        for(int i = 0; i < n; i++) {
+          final int nc = ncells[i], r = cellclus[nc];
+          if(r >= 0 && r < best && anyWithin(id, cores[nc])) {
+            best = r;
+          }
+        }
+        assignment.putInt(id, best < Integer.MAX_VALUE ? best : NOISE);
+      }
+    }
+  }
+
+  /**
+   * Hashing strategy for cell coordinates.
+   */
+  private static final Hash.Strategy<long[]> CELL_HASH_STRATEGY = new Hash.Strategy<long[]>() {
+    @Override
+    public int hashCode(long[] o) {
+      long hash = 0L;
+      for(long x : o) {
+        hash = (hash + x) * 0x9E3779B97F4A7C15L;
+      }
+      return (int) ((hash >>> 32) ^ hash);
+    }
+
+    @Override
+    public boolean equals(long[] a, long[] b) {
+      return Arrays.equals(a, b);
+    }
+  };
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    // We strictly need a vector field of fixed dimensionality!
+    TypeInformation type = new CombinedTypeInformation(TypeUtil.NUMBER_VECTOR_FIELD, getDistanceFunction().getInputTypeRestriction());
+    return TypeUtil.array(type);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Vector type to use
+   */
+  public static class Parameterizer<O extends NumberVector> extends AbstractParameterizer {
+    /**
+     * Distance function, only Lp norms are supported.
+     */
+    protected LPNormDistanceFunction distanceFunction;
+
+    /**
+     * Holds the epsilon radius threshold.
+     */
+    protected double epsilon;
+
+    /**
+     * Holds the minimum cluster size.
+     */
+    protected int minpts;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      ObjectParameter<LPNormDistanceFunction> distanceFunctionP = new ObjectParameter<>(DistanceBasedAlgorithm.DISTANCE_FUNCTION_ID, LPNormDistanceFunction.class, EuclideanDistanceFunction.class);
+      if(config.grab(distanceFunctionP)) {
+        distanceFunction = distanceFunctionP.instantiateClass(config);
+      }
+
+      DoubleParameter epsilonP = new DoubleParameter(DBSCAN.Parameterizer.EPSILON_ID) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      if(config.grab(epsilonP)) {
+        epsilon = epsilonP.getValue();
+      }
+
+      IntParameter minptsP = new IntParameter(DBSCAN.Parameterizer.MINPTS_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(minptsP)) {
+        minpts = minptsP.getValue();
+        if(minpts <= 2) {
+          LOG.warning("DBSCAN with minPts <= 2 is equivalent to single-link clustering at a single height. Consider using larger values of minPts.");
+        }
+      }
+    }
+
+    @Override
+    protected GridCellDBSCAN<O> makeInstance() {
+      return new GridCellDBSCAN<>(distanceFunction, epsilon, minpts);
+    }
+  }
+}
@@ -205,6 +205,17 @@ public class AffinityPropagationClusteringAlgorithm<O> extends AbstractAlgorithm
       aprog.setProcessed(aprog.getTotal(), LOG);
     }
     LOG.setCompleted(prog);
+    return buildClustering(ids, assignment);
+  }
+
+  /**
+   * Build the clustering from the exemplar assignment.
+   *
+   * @param ids Object ids
+   * @param assignment Exemplar of each object, by offset
+   * @return Clustering result
+   */
+  static Clustering<MedoidModel> buildClustering(ArrayDBIDs ids, int[] assignment) {
     // Cluster map, by lead object
     Int2ObjectOpenHashMap<ModifiableDBIDs> map = new Int2ObjectOpenHashMap<>();
     DBIDArrayIter i1 = ids.iter();
@@ -0,0 +1,606 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.affinitypropagation;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.DistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.model.MedoidModel;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.progress.MutableProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.parallel.processor.WriteDataStoreProcessor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.QuickSelect;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Affinity propagation on a sparse similarity graph.
+ * <p>
+ * Instead of the full similarity matrix, only the k nearest neighbors of each
+ * object (and the reverse neighbors, to keep the graph symmetric) are used as
+ * candidate exemplars. The similarities, responsibilities and availabilities
+ * are stored in primitive arrays in compressed sparse row format, so memory
+ * is linear in the number of objects, and the messages of each row and column
+ * are updated in parallel.
+ * <p>
+ * The similarity is the negative distance, the preference (the diagonal of the
+ * similarity matrix) is the given quantile of the sparse similarities. Because
+ * only near neighbors are kept, this is higher than the quantile of all pairs,
+ * and more clusters are found than with
+ * {@link AffinityPropagationClusteringAlgorithm} using the same quantile.
+ * <p>
+ * Reference:
+ * <p>
+ * B. J. Frey, D. Dueck<br>
+ * Clustering by Passing Messages Between Data Points<br>
+ * Science Vol 315
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> object type
+ */
+@Reference(title = "Clustering by Passing Messages Between Data Points", //
+    authors = "B. J. Frey, D. Dueck", //
+    booktitle = "Science Vol 315", //
+    url = "https://doi.org/10.1126/science.1136800", //
+    bibkey = "doi:10.1126/science.1136800")
+public class SparseAffinityPropagation<O> extends AbstractDistanceBasedAlgorithm<O, Clustering<MedoidModel>> implements ClusteringAlgorithm<Clustering<MedoidModel>> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(SparseAffinityPropagation.class);
+
+  /**
+   * Number of neighbors to use.
+   */
+  int k;
+
+  /**
+   * Quantile to use for the preference.
+   */
+  double quantile;
+
+  /**
+   * Damping factor lambda.
+   */
+  double lambda = 0.5;
+
+  /**
+   * Terminate after 10 iterations with no changes.
+   */
+  int convergence = 10;
+
+  /**
+   * Maximum number of iterations.
+   */
+  int maxiter = 1000;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param k Number of neighbors
+   * @param quantile Quantile for the preference
+   * @param lambda Damping factor
+   * @param convergence Termination threshold (Number of stable iterations)
+   * @param maxiter Maximum number of iterations
+   */
+  public SparseAffinityPropagation(DistanceFunction<? super O> distanceFunction, int k, double quantile, double lambda, int convergence, int maxiter) {
+    super(distanceFunction);
+    this.k = k;
+    this.quantile = quantile;
+    this.lambda = lambda;
+    this.convergence = convergence;
+    this.maxiter = maxiter;
+  }
+
+  /**
+   * Perform affinity propagation clustering.
+   *
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering result
+   */
+  public Clustering<MedoidModel> run(Database db, Relation<O> relation) {
+    ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+    final int size = ids.size();
+    WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT);
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      offsets.putInt(it, it.getOffset());
+    }
+    Graph g = buildGraph(db, relation, ids, offsets);
+    LOG.statistics(new LongStatistic(SparseAffinityPropagation.class.getName() + ".edges", g.col.length));
+
+    int[] assignment = new int[size];
+    Arrays.fill(assignment, -1);
+    IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("Affinity Propagation Iteration", LOG) : null;
+    MutableProgress aprog = LOG.isVerbose() ? new MutableProgress("Stable assignments", size + 1, LOG) : null;
+
+    Updater upd = new Updater(g, offsets, assignment);
+    int inactive = 0;
+    for(int iteration = 0; iteration < maxiter && inactive < convergence; iteration++) {
+      upd.phase = Updater.RESPONSIBILITY;
+      ParallelExecutor.run(ids, upd);
+      upd.phase = Updater.AVAILABILITY;
+      ParallelExecutor.run(ids, upd);
+      upd.phase = Updater.ASSIGNMENT;
+      upd.changed = 0;
+      ParallelExecutor.run(ids, upd);
+      final int changed = upd.changed;
+      inactive = (changed > 0) ? 0 : (inactive + 1);
+      LOG.incrementProcessed(prog);
+      if(aprog != null) {
+        aprog.setProcessed(size - changed, LOG);
+      }
+    }
+    if(aprog != null) {
+      aprog.setProcessed(aprog.getTotal(), LOG);
+    }
+    LOG.setCompleted(prog);
+    return AffinityPropagationClusteringAlgorithm.buildClustering(ids, assignment);
+  }
+
+  /**
+   * Build the symmetric k nearest neighbor graph, in compressed sparse row
+   * format with sorted rows.
+   *
+   * @param db Database
+   * @param relation Relation
+   * @param ids Object ids
+   * @param offsets Object offsets
+   * @return Graph
+   */
+  private Graph buildGraph(Database db, Relation<O> relation, ArrayDBIDs ids, WritableIntegerDataStore offsets) {
+    final int size = ids.size();
+    // Compute the kNN in parallel:
+    DistanceQuery<O> distq = db.getDistanceQuery(relation, getDistanceFunction());
+    KNNQuery<O> knnq = db.getKNNQuery(distq, k + 1);
+    WritableDataStore<KNNList> knns = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_TEMP, KNNList.class);
+    KNNProcessor<O> knnm = new KNNProcessor<>(k + 1, knnq);
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    WriteDataStoreProcessor<KNNList> storek = new WriteDataStoreProcessor<>(knns);
+    knnm.connectKNNOutput(knnv);
+    storek.connectInput(knnv);
+    ParallelExecutor.run(ids, knnm, storek);
+
+    // Count candidate edges in both directions, and the diagonal.
+    int[] start = new int[size + 1];
+    int total = 0;
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      final int i = it.getOffset();
+      start[i + 1]++;
+      for(DoubleDBIDListIter nn = knns.get(it).iter(); nn.valid(); nn.advance()) {
+        final int j = offsets.intValue(nn);
+        if(j != i) {
+          start[i + 1]++;
+          start[j + 1]++;
+          total += 2;
+        }
+      }
+    }
+    for(int i = 0; i < size; i++) {
+      start[i + 1] += start[i];
+    }
+    // Fill, encoding the column and the index of the similarity in a long.
+    long[] ent = new long[total + size];
+    double[] tmpsim = new double[(total >>> 1) + size];
+    int[] pos = Arrays.copyOf(start, size);
+    int t = 0;
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      final int i = it.getOffset();
+      for(DoubleDBIDListIter nn = knns.get(it).iter(); nn.valid(); nn.advance()) {
+        final int j = offsets.intValue(nn);
+        if(j != i) {
+          tmpsim[t] = -nn.doubleValue();
+          ent[pos[i]++] = (((long) j) << 32) | t;
+          ent[pos[j]++] = (((long) i) << 32) | t;
+          ++t;
+        }
+      }
+    }
+    knns.destroy();
+    // Similarities for the preference:
+    final double pref = t > 0 ? QuickSelect.quantile(Arrays.copyOf(tmpsim, t), quantile) : 0.;
+    for(int i = 0; i < size; i++) {
+      tmpsim[t] = pref;
+      ent[pos[i]++] = (((long) i) << 32) | t;
+      ++t;
+    }
+    // Sort each row, remove duplicates, and copy.
+    int m = 0;
+    for(int i = 0; i < size; i++) {
+      Arrays.sort(ent, start[i], start[i + 1]);
+      for(int e = start[i]; e < start[i + 1]; e++) {
+        if(e == start[i] || (ent[e] >>> 32) != (ent[e - 1] >>> 32)) {
+          ent[m++] = ent[e];
+        }
+      }
+      pos[i] = m; // End of row i
+    }
+    Graph g = new Graph(size, m);
+    for(int i = 0, e = 0; i < size; i++) {
+      g.start[i] = e;
+      for(; e < pos[i]; e++) {
+        g.col[e] = (int) (ent[e] >>> 32);
+        g.s[e] = tmpsim[(int) ent[e]];
+      }
+      g.diag[i] = -1;
+    }
+    g.start[size] = m;
+    // Index of the transposed entries: rows are sorted, so the next unmatched
+    // entry of row j is the entry of the current row i.
+    System.arraycopy(g.start, 0, pos, 0, size);
+    for(int i = 0; i < size; i++) {
+      for(int e = g.start[i]; e < g.start[i + 1]; e++) {
+        final int j = g.col[e];
+        g.rev[e] = pos[j]++;
+        if(j == i) {
+          g.diag[i] = e;
+        }
+      }
+    }
+    return g;
+  }
+
+  /**
+   * Sparse graph with messages, in compressed sparse row format.
+   *
+   * @author Erich Schubert
+   */
+  private static class Graph {
+    /**
+     * Start of each row, with an extra entry for the end.
+     */
+    int[] start;
+
+    /**
+     * Column of each entry.
+     */
+    int[] col;
+
+    /**
+     * Position of the transposed entry.
+     */
+    int[] rev;
+
+    /**
+     * Position of the diagonal entry of each row.
+     */
+    int[] diag;
+
+    /**
+     * Similarities, responsibilities, and availabilities.
+     */
+    double[] s, r, a;
+
+    /**
+     * Constructor.
+     *
+     * @param size Number of objects
+     * @param m Number of entries
+     */
+    Graph(int size, int m) {
+      start = new int[size + 1];
+      diag = new int[size];
+      col = new int[m];
+      rev = new int[m];
+      s = new double[m];
+      r = new double[m];
+      a = new double[m];
+    }
+  }
+
+  /**
+   * Parallel update of the messages.
+   *
+   * @author Erich Schubert
+   */
+  private class Updater implements Processor {
+    /**
+     * Update phases.
+     */
+    static final int RESPONSIBILITY = 0, AVAILABILITY = 1, ASSIGNMENT = 2;
+
+    /**
+     * Sparse graph.
+     */
+    Graph g;
+
+    /**
+     * Object offsets.
+     */
+    WritableIntegerDataStore offsets;
+
+    /**
+     * Current exemplar of each object.
+     */
+    int[] assignment;
+
+    /**
+     * Current phase.
+     */
+    int phase;
+
+    /**
+     * Number of changed assignments.
+     */
+    int changed;
+
+    /**
+     * Constructor.
+     *
+     * @param g Graph
+     * @param offsets Object offsets
+     * @param assignment Assignment output
+     */
+    Updater(Graph g, WritableIntegerDataStore offsets, int[] assignment) {
+      this.g = g;
+      this.offsets = offsets;
+      this.assignment = assignment;
+    }
+
+    @Override
+    public Processor.Instance instantiate(Executor executor) {
+      return new Worker();
+    }
+
+    @Override
+    public synchronized void cleanup(Processor.Instance inst) {
+      changed += ((SparseAffinityPropagation<?>.Updater.Worker) inst).changed;
+    }
+
+    /**
+     * Worker for one block of rows (or columns).
+     *
+     * @author Erich Schubert
+     */
+    private class Worker implements Processor.Instance {
+      /**
+       * Number of changed assignments.
+       */
+      int changed;
+
+      @Override
+      public void map(DBIDRef id) {
+        final int i = offsets.intValue(id);
+        switch(phase){
+        case RESPONSIBILITY:
+          updateResponsibility(i);
+          break;
+        case AVAILABILITY:
+          updateAvailability(i);
+          break;
+        default:
+          updateAssignment(i);
+        }
+      }
+
+      /**
+       * Update the responsibilities of a row.
+       *
+       * @param i Row
+       */
+      private void updateResponsibility(int i) {
+        final int begin = g.start[i], end = g.start[i + 1];
+        final double[] a = g.a, s = g.s, r = g.r;
+        // Find the two largest values
+        double max1 = Double.NEGATIVE_INFINITY, max2 = Double.NEGATIVE_INFINITY;
+        int maxe = -1;
+        for(int e = begin; e < end; e++) {
+          double val = a[e] + s[e];
+          if(val > max1) {
+            max2 = max1;
+            max1 = val;
+            maxe = e;
+          }
+          else if(val > max2) {
+            max2 = val;
+          }
+        }
+        // With the maximum value known, update r:
+        for(int e = begin; e < end; e++) {
+          double val = s[e] - ((e != maxe) ? max1 : max2);
+          r[e] = r[e] * lambda + val * (1. - lambda);
+        }
+      }
+
+      /**
+       * Update the availabilities of a column.
+       *
+       * @param k Column
+       */
+      private void updateAvailability(int k) {
+        // The entries of column k are the transposed entries of row k.
+        final int begin = g.start[k], end = g.start[k + 1], diag = g.diag[k];
+        final int[] rev = g.rev;
+        final double[] a = g.a, r = g.r;
+        // Compute sum of max(0, r_ik) for all i.
+        // For r_kk, don't apply the max.
+        double colposum = 0.;
+        for(int f = begin; f < end; f++) {
+          final int e = rev[f];
+          if(e == diag || r[e] > 0.) {
+            colposum += r[e];
+          }
+        }
+        for(int f = begin; f < end; f++) {
+          final int e = rev[f];
+          double val = colposum;
+          // Adjust column sum by the one extra term.
+          if(e == diag || r[e] > 0.) {
+            val -= r[e];
+          }
+          if(e != diag && val > 0.) { // min
+            val = 0.;
+          }
+          a[e] = a[e] * lambda + val * (1 - lambda);
+        }
+      }
+
+      /**
+       * Update the exemplar of an object.
+       *
+       * @param i Object
+       */
+      private void updateAssignment(int i) {
+        final int begin = g.start[i], end = g.start[i + 1], diag = g.diag[i];
+        final double[] a = g.a, r = g.r;
+        double max = Double.NEGATIVE_INFINITY;
+        int maxj = -1;
+        for(int e = begin; e < end; e++) {
+          double v = a[e] + r[e];
+          if(v > max || (e == diag && v >= max)) {
+            max = v;
+            maxj = g.col[e];
+          }
+        }
+        if(assignment[i] != maxj) {
+          changed += 1;
+          assignment[i] = maxj;
+        }
+      }
+    }
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> object type
+   */
+  public static class Parameterizer<O> extends AbstractDistanceBasedAlgorithm.Parameterizer<O> {
+    /**
+     * Parameter for the number of neighbors.
+     */
+    public static final OptionID K_ID = new OptionID("ap.knn", "Number of nearest neighbors to use as candidate exemplars.");
+
+    /**
+     * Number of neighbors.
+     */
+    int k;
+
+    /**
+     * Quantile to use.
+     */
+    double quantile;
+
+    /**
+     * Dampening parameter.
+     */
+    double lambda = .5;
+
+    /**
+     * Number of stable iterations for convergence.
+     */
+    int convergence;
+
+    /**
+     * Maximum number of iterations.
+     */
+    int maxiter;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      // Disabled: super.makeOptions(config);
+      // Because we want a different default distance:
+      ObjectParameter<DistanceFunction<? super O>> distanceFunctionP = new ObjectParameter<>(DistanceBasedAlgorithm.DISTANCE_FUNCTION_ID, DistanceFunction.class, SquaredEuclideanDistanceFunction.class);
+      if(config.grab(distanceFunctionP)) {
+        distanceFunction = distanceFunctionP.instantiateClass(config);
+      }
+      IntParameter kP = new IntParameter(K_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(kP)) {
+        k = kP.intValue();
+      }
+      DoubleParameter quantileP = new DoubleParameter(AffinityPropagationInitialization.QUANTILE_ID, .5);
+      if(config.grab(quantileP)) {
+        quantile = quantileP.doubleValue();
+      }
+      final DoubleParameter lambdaP = new DoubleParameter(AffinityPropagationClusteringAlgorithm.Parameterizer.LAMBDA_ID, .5) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE) //
+          .addConstraint(CommonConstraints.LESS_THAN_ONE_DOUBLE);
+      if(config.grab(lambdaP)) {
+        lambda = lambdaP.doubleValue();
+      }
+      final IntParameter convergenceP = new IntParameter(AffinityPropagationClusteringAlgorithm.Parameterizer.CONVERGENCE_ID, 15) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(convergenceP)) {
+        convergence = convergenceP.intValue();
+      }
+      final IntParameter maxiterP = new IntParameter(AffinityPropagationClusteringAlgorithm.Parameterizer.MAXITER_ID, 1000);
+      if(config.grab(maxiterP)) {
+        maxiter = maxiterP.intValue();
+      }
+    }
+
+    @Override
+    protected SparseAffinityPropagation<O> makeInstance() {
+      return new SparseAffinityPropagation<>(distanceFunction, k, quantile, lambda, convergence, maxiter);
+    }
+  }
+}
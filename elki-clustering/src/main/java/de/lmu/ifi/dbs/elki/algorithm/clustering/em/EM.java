@@ -20,9 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.em;
 
-import static de.lmu.ifi.dbs.elki.math.linearalgebra.VMath.argmax;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
@@ -37,10 +36,15 @@ import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreIDMap;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
@@ -48,6 +52,10 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanD
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.VMath;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.Priority;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
@@ -67,6 +75,11 @@ import net.jafama.FastMath;
  * Clustering by expectation maximization (EM-Algorithm), also known as Gaussian
  * Mixture Modeling (GMM), with optional MAP regularization.
  * <p>
+ * Both steps are processed in parallel: the cluster probabilities are
+ * computed for blocks of objects, and the models are updated using one
+ * accumulator per block that is merged afterwards (if the models support
+ * this, see {@link EMClusterModel#newAccumulator()}).
+ * <p>
  * Reference:
  * <p>
  * A. P. Dempster, N. M. Laird, D. B. Rubin:<br>
@@ -214,10 +227,15 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
     if(relation.size() == 0) {
       throw new IllegalArgumentException("database empty: must contain elements");
     }
+    if((long) relation.size() * k > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many objects and clusters to store all cluster probabilities.");
+    }
     // initial models
     List<? extends EMClusterModel<M>> models = mfactory.buildInitialModels(database, relation, k, SquaredEuclideanDistanceFunction.STATIC);
-    WritableDataStore<double[]> probClusterIGivenX = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, double[].class);
-    double loglikelihood = assignProbabilitiesToInstances(relation, models, probClusterIGivenX);
+    DataStoreIDMap idmap = offsetMap(relation.getDBIDs());
+    // Cluster probabilities of each object, k consecutive values per object.
+    double[] probClusterIGivenX = new double[relation.size() * k];
+    double loglikelihood = assignProbabilitiesToInstances(relation, idmap, models, probClusterIGivenX);
     DoubleStatistic likestat = LOG.isStatistics() ? new DoubleStatistic(this.getClass().getName() + ".loglikelihood") : null;
     if(LOG.isStatistics()) {
       LOG.statistics(likestat.setDouble(loglikelihood));
@@ -228,9 +246,9 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
     double bestloglikelihood = loglikelihood; // For detecting instabilities.
     for(++it; it < maxiter || maxiter < 0; it++) {
       final double oldloglikelihood = loglikelihood;
-      recomputeCovarianceMatrices(relation, probClusterIGivenX, models, prior);
+      recomputeCovarianceMatrices(relation, idmap, probClusterIGivenX, models, prior);
       // reassign probabilities
-      loglikelihood = assignProbabilitiesToInstances(relation, models, probClusterIGivenX);
+      loglikelihood = assignProbabilitiesToInstances(relation, idmap, models, probClusterIGivenX);
 
       if(LOG.isStatistics()) {
         LOG.statistics(likestat.setDouble(loglikelihood));
@@ -255,7 +273,12 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
 
     // provide a hard clustering
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      hardClusters.get(argmax(probClusterIGivenX.get(iditer))).add(iditer);
+      final int off = idmap.mapDBIDToOffset(iditer) * k;
+      int best = 0;
+      for(int i = 1; i < k; i++) {
+        best = probClusterIGivenX[off + i] > probClusterIGivenX[off + best] ? i : best;
+      }
+      hardClusters.get(best).add(iditer);
     }
     Clustering<M> result = new Clustering<>("EM Clustering", "em-clustering");
     // provide models within the result
@@ -263,14 +286,187 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
       result.addToplevelCluster(new Cluster<>(hardClusters.get(i), models.get(i).finalizeCluster()));
     }
     if(isSoft()) {
-      result.addChildResult(new MaterializedRelation<>("cluster assignments", "em-soft-score", SOFT_TYPE, probClusterIGivenX, relation.getDBIDs()));
-    }
-    else {
-      probClusterIGivenX.destroy();
+      WritableDataStore<double[]> soft = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_SORTED, double[].class);
+      for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
+        final int off = idmap.mapDBIDToOffset(iditer) * k;
+        soft.put(iditer, Arrays.copyOfRange(probClusterIGivenX, off, off + k));
+      }
+      result.addChildResult(new MaterializedRelation<>("cluster assignments", "em-soft-score", SOFT_TYPE, soft, relation.getDBIDs()));
     }
     return result;
   }
 
+  /**
+   * Map the objects to consecutive offsets.
+   *
+   * @param ids Object ids
+   * @return Offset map
+   */
+  private static DataStoreIDMap offsetMap(DBIDs ids) {
+    if(ids instanceof DBIDRange) {
+      return (DBIDRange) ids;
+    }
+    WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT);
+    int i = 0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      offsets.putInt(iter, i++);
+    }
+    return offsets::intValue;
+  }
+
+  /**
+   * Recompute the covariance matrixes, in parallel if the models support
+   * accumulators (see {@link EMClusterModel#newAccumulator()}).
+   *
+   * @param relation Vector data
+   * @param idmap Map of objects to offsets
+   * @param probClusterIGivenX Object probabilities, k per object
+   * @param models Cluster models to update
+   * @param prior MAP prior (use 0 for MLE)
+   */
+  private static <M extends MeanModel> void recomputeCovarianceMatrices(Relation<? extends NumberVector> relation, DataStoreIDMap idmap, double[] probClusterIGivenX, List<? extends EMClusterModel<M>> models, double prior) {
+    final int k = models.size();
+    boolean needsTwoPass = false;
+    for(EMClusterModel<?> m : models) {
+      m.beginEStep();
+      needsTwoPass |= m.needsTwoPass();
+    }
+    // First pass, only for two-pass models.
+    if(needsTwoPass) {
+      processObjects(relation, idmap, probClusterIGivenX, models, true, null);
+      for(EMClusterModel<?> m : models) {
+        m.finalizeFirstPassE();
+      }
+    }
+    double[] wsum = new double[k];
+    processObjects(relation, idmap, probClusterIGivenX, models, false, wsum);
+    for(int i = 0; i < models.size(); i++) {
+      // MLE / MAP
+      final double weight = prior <= 0. ? wsum[i] / relation.size() : (wsum[i] + prior - 1) / (relation.size() + prior * k - k);
+      models.get(i).finalizeEStep(weight, prior);
+    }
+  }
+
+  /**
+   * Perform one pass of updating the models, using one accumulator per
+   * worker that is merged into the models afterwards.
+   *
+   * @param relation Vector data
+   * @param idmap Map of objects to offsets
+   * @param probClusterIGivenX Object probabilities, k per object
+   * @param models Cluster models to update
+   * @param firstPass First pass of a two-pass model
+   * @param wsum Output array for the weight sums (only for the second pass)
+   */
+  private static <M extends MeanModel> void processObjects(Relation<? extends NumberVector> relation, DataStoreIDMap idmap, double[] probClusterIGivenX, List<? extends EMClusterModel<M>> models, boolean firstPass, double[] wsum) {
+    // Accumulators are created from templates, as the models are modified
+    // while merging.
+    final List<EMClusterModel<M>> templates = newAccumulators(models);
+    if(templates == null) {
+      // Not supported by all models, update the models sequentially.
+      ModelUpdater<M> updater = new ModelUpdater<>(relation, idmap, probClusterIGivenX, models, firstPass, wsum);
+      for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
+        updater.map(iditer);
+      }
+      return;
+    }
+    ParallelExecutor.run(relation.getDBIDs(), new Processor() {
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        return new ModelUpdater<>(relation, idmap, probClusterIGivenX, newAccumulators(templates), firstPass, wsum != null ? new double[wsum.length] : null);
+      }
+
+      @Override
+      public synchronized void cleanup(Processor.Instance inst) {
+        @SuppressWarnings("unchecked")
+        ModelUpdater<M> updater = (ModelUpdater<M>) inst;
+        for(int i = 0; i < models.size(); i++) {
+          if(firstPass) {
+            models.get(i).mergeFirstPassE(updater.models.get(i));
+          }
+          else {
+            models.get(i).mergeE(updater.models.get(i));
+          }
+        }
+        if(wsum != null) {
+          VMath.plusEquals(wsum, updater.wsum);
+        }
+      }
+    });
+  }
+
+  /**
+   * Create accumulators for all models.
+   *
+   * @param models Models
+   * @return Accumulators, or {@code null} if not supported by all models.
+   */
+  private static <M extends MeanModel> List<EMClusterModel<M>> newAccumulators(List<? extends EMClusterModel<M>> models) {
+    List<EMClusterModel<M>> accumulators = new ArrayList<>(models.size());
+    for(EMClusterModel<M> m : models) {
+      EMClusterModel<M> acc = m.newAccumulator();
+      if(acc == null) {
+        return null;
+      }
+      accumulators.add(acc);
+    }
+    return accumulators;
+  }
+
+  /**
+   * Assign the current probability values to the instances in parallel, and
+   * compute the expectation value of the current mixture of distributions.
+   *
+   * @param relation the database used for assignment to instances
+   * @param idmap Map of objects to offsets
+   * @param models Cluster models
+   * @param probClusterIGivenX Output array for cluster probabilities
+   * @return the expectation value of the current mixture of distributions
+   */
+  private static double assignProbabilitiesToInstances(Relation<? extends NumberVector> relation, DataStoreIDMap idmap, List<? extends EMClusterModel<?>> models, double[] probClusterIGivenX) {
+    final int k = models.size();
+    final double[] emSum = new double[1];
+    ParallelExecutor.run(relation.getDBIDs(), new Processor() {
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        return new ProbabilityWorker();
+      }
+
+      @Override
+      public synchronized void cleanup(Processor.Instance inst) {
+        emSum[0] += ((ProbabilityWorker) inst).emSum;
+      }
+
+      /**
+       * Worker, computing the probabilities of a block of objects.
+       *
+       * @author Erich Schubert
+       */
+      final class ProbabilityWorker implements Processor.Instance {
+        /**
+         * Partial sum of log likelihoods.
+         */
+        double emSum;
+
+        @Override
+        public void map(DBIDRef id) {
+          final NumberVector vec = relation.get(id);
+          final int off = idmap.mapDBIDToOffset(id) * k;
+          for(int i = 0; i < k; i++) {
+            double v = models.get(i).estimateLogDensity(vec);
+            probClusterIGivenX[off + i] = v > MIN_LOGLIKELIHOOD ? v : MIN_LOGLIKELIHOOD;
+          }
+          final double logP = logSumExp(probClusterIGivenX, off, off + k);
+          for(int i = off, e = off + k; i < e; i++) {
+            probClusterIGivenX[i] = FastMath.exp(probClusterIGivenX[i] - logP);
+          }
+          emSum += logP;
+        }
+      }
+    });
+    return emSum[0] / relation.size();
+  }
+
   /**
    * Recompute the covariance matrixes.
    * 
@@ -361,14 +557,27 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
    * @return Result
    */
   private static double logSumExp(double[] x) {
-    double max = x[0];
-    for(int i = 1; i < x.length; i++) {
+    return logSumExp(x, 0, x.length);
+  }
+
+  /**
+   * Compute log(sum(exp(x_i)), with attention to numerical issues, for a range
+   * of an array.
+   * 
+   * @param x Input
+   * @param begin First index
+   * @param end End index (exclusive)
+   * @return Result
+   */
+  private static double logSumExp(double[] x, int begin, int end) {
+    double max = x[begin];
+    for(int i = begin + 1; i < end; i++) {
       final double v = x[i];
       max = v > max ? v : max;
     }
     final double cutoff = max - 35.350506209; // log_e(2**51)
     double acc = 0.;
-    for(int i = 0; i < x.length; i++) {
+    for(int i = begin; i < end; i++) {
       final double v = x[i];
       if(v > cutoff) {
         acc += v < max ? FastMath.exp(v - max) : 1.;
@@ -377,6 +586,85 @@ public class EM<V extends NumberVector, M extends MeanModel> extends AbstractAlg
     return acc > 1. ? (max + FastMath.log(acc)) : max;
   }
 
+  /**
+   * Worker, updating (accumulators of) the models with a block of objects.
+   *
+   * @author Erich Schubert
+   *
+   * @param <M> Model type
+   */
+  private static class ModelUpdater<M extends MeanModel> implements Processor.Instance {
+    /**
+     * Vector data.
+     */
+    private final Relation<? extends NumberVector> relation;
+
+    /**
+     * Map of objects to offsets.
+     */
+    private final DataStoreIDMap idmap;
+
+    /**
+     * Object probabilities, k per object.
+     */
+    private final double[] probClusterIGivenX;
+
+    /**
+     * Models or accumulators to update.
+     */
+    final List<? extends EMClusterModel<M>> models;
+
+    /**
+     * First pass of a two-pass model.
+     */
+    private final boolean firstPass;
+
+    /**
+     * Weight sums (may be {@code null}).
+     */
+    final double[] wsum;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Vector data
+     * @param idmap Map of objects to offsets
+     * @param probClusterIGivenX Object probabilities, k per object
+     * @param models Models or accumulators to update
+     * @param firstPass First pass of a two-pass model
+     * @param wsum Weight sums (may be {@code null})
+     */
+    ModelUpdater(Relation<? extends NumberVector> relation, DataStoreIDMap idmap, double[] probClusterIGivenX, List<? extends EMClusterModel<M>> models, boolean firstPass, double[] wsum) {
+      this.relation = relation;
+      this.idmap = idmap;
+      this.probClusterIGivenX = probClusterIGivenX;
+      this.models = models;
+      this.firstPass = firstPass;
+      this.wsum = wsum;
+    }
+
+    @Override
+    public void map(DBIDRef id) {
+      final int k = models.size();
+      final int off = idmap.mapDBIDToOffset(id) * k;
+      final NumberVector instance = relation.get(id);
+      for(int i = 0; i < k; i++) {
+        final double prob = probClusterIGivenX[off + i];
+        if(prob > 1e-10) {
+          if(firstPass) {
+            models.get(i).firstPassE(instance, prob);
+          }
+          else {
+            models.get(i).updateE(instance, prob);
+          }
+        }
+        if(wsum != null) {
+          wsum[i] += prob;
+        }
+      }
+    }
+  }
+
   @Override
   public TypeInformation[] getInputTypeRestriction() {
     return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
@@ -65,6 +65,43 @@ public interface EMClusterModel<M extends MeanModel> {
     // empty.
   }
 
+  /**
+   * Create an accumulator for the E step, to aggregate the statistics of a
+   * subset of the data (e.g., in a separate thread).
+   * <p>
+   * The accumulator is created after {@link #beginEStep()} for the first pass,
+   * or after {@link #finalizeFirstPassE()} for the second pass, receives the
+   * same update calls as this model, and is then combined into this model with
+   * {@link #mergeFirstPassE} or {@link #mergeE}, respectively. Only the
+   * statistics of the accumulator are used, not its density estimates.
+   *
+   * @return Accumulator, or {@code null} if not supported.
+   */
+  default EMClusterModel<M> newAccumulator() {
+    return null;
+  }
+
+  /**
+   * Merge the first pass statistics of an accumulator into this model.
+   *
+   * By default, this is not used (c.f. {@link #needsTwoPass()}.
+   *
+   * @param other Accumulator, from {@link #newAccumulator()}
+   */
+  default void mergeFirstPassE(EMClusterModel<M> other) {
+    // empty.
+  }
+
+  /**
+   * Merge the statistics of an accumulator into this model, before
+   * {@link #finalizeEStep}.
+   *
+   * @param other Accumulator, from {@link #newAccumulator()}
+   */
+  default void mergeE(EMClusterModel<M> other) {
+    throw new UnsupportedOperationException("Accumulators are not supported by " + getClass().getName());
+  }
+
   /**
    * Process one data point in the E step
    * 
@@ -119,6 +119,17 @@ public class TwoPassMultivariateGaussianModel implements EMClusterModel<EMModel>
     updateCholesky();
   }
 
+  /**
+   * Constructor for accumulators, only allocating the statistics.
+   *
+   * @param mean Mean of the first pass (or zero)
+   */
+  private TwoPassMultivariateGaussianModel(double[] mean) {
+    this.mean = mean;
+    this.tmp = new double[mean.length];
+    this.covariance = new double[mean.length][mean.length];
+  }
+
   @Override
   public void beginEStep() {
     wsum = 0.;
@@ -186,6 +197,35 @@ public class TwoPassMultivariateGaussianModel implements EMClusterModel<EMModel>
     // Should we assert that the weight sum matches the first step?
   }
 
+  /**
+   * Create an accumulator; in the second pass, this uses the mean from the
+   * first pass.
+   */
+  @Override
+  public TwoPassMultivariateGaussianModel newAccumulator() {
+    return new TwoPassMultivariateGaussianModel(mean.clone());
+  }
+
+  @Override
+  public void mergeFirstPassE(EMClusterModel<EMModel> other) {
+    final TwoPassMultivariateGaussianModel o = (TwoPassMultivariateGaussianModel) other;
+    for(int i = 0; i < mean.length; i++) {
+      mean[i] += o.mean[i];
+    }
+    wsum += o.wsum;
+  }
+
+  @Override
+  public void mergeE(EMClusterModel<EMModel> other) {
+    final TwoPassMultivariateGaussianModel o = (TwoPassMultivariateGaussianModel) other;
+    for(int i = 0; i < covariance.length; i++) {
+      final double[] cov_i = covariance[i], ocov_i = o.covariance[i];
+      for(int j = 0; j <= i; j++) {
+        cov_i[j] += ocov_i[j];
+      }
+    }
+  }
+
   @Override
   public void finalizeEStep(double weight, double prior) {
     this.weight = weight;
@@ -20,8 +20,6 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
 
-import java.util.Arrays;
-
 import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.DistanceBasedAlgorithm;
 import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.linkage.Linkage;
@@ -42,6 +40,7 @@ import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.utilities.Priority;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 
 /**
@@ -88,6 +87,11 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    */
   Linkage linkage = WardLinkage.STATIC;
 
+  /**
+   * Store the distance matrix with single precision.
+   */
+  boolean single = false;
+
   /**
    * Constructor.
    *
@@ -95,8 +99,20 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param linkage Linkage method
    */
   public AnderbergHierarchicalClustering(DistanceFunction<? super O> distanceFunction, Linkage linkage) {
+    this(distanceFunction, linkage, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function to use
+   * @param linkage Linkage method
+   * @param single Store the distance matrix with single precision
+   */
+  public AnderbergHierarchicalClustering(DistanceFunction<? super O> distanceFunction, Linkage linkage, boolean single) {
     super(distanceFunction);
     this.linkage = linkage;
+    this.single = single;
   }
 
   /**
@@ -112,7 +128,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     }
     DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
     final DBIDs ids = relation.getDBIDs();
-    MatrixParadigm mat = new MatrixParadigm(ids);
+    MatrixParadigm mat = new MatrixParadigm(ids, single);
     final int size = ids.size();
 
     // Position counter - must agree with computeOffset!
@@ -121,7 +137,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     // Arrays used for caching:
     double[] bestd = new double[size];
     int[] besti = new int[size];
-    initializeNNCache(mat.matrix, bestd, besti);
+    mat.nearestNeighbors(bestd, besti);
 
     // Initialize space for result:
     PointerHierarchyRepresentationBuilder builder = new PointerHierarchyRepresentationBuilder(ids, dq.getDistanceFunction().isSquared());
@@ -139,37 +155,6 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     return builder.complete();
   }
 
-  /**
-   * Initialize the NN cache.
-   *
-   * @param scratch Scratch space
-   * @param bestd Best distance
-   * @param besti Best index
-   */
-  private static void initializeNNCache(double[] scratch, double[] bestd, int[] besti) {
-    final int size = bestd.length;
-    Arrays.fill(bestd, Double.POSITIVE_INFINITY);
-    Arrays.fill(besti, -1);
-    for(int x = 0, p = 0; x < size; x++) {
-      assert (p == MatrixParadigm.triangleSize(x));
-      double bestdx = Double.POSITIVE_INFINITY;
-      int bestix = -1;
-      for(int y = 0; y < x; y++, p++) {
-        final double v = scratch[p];
-        if(v < bestd[y]) {
-          bestd[y] = v;
-          besti[y] = x;
-        }
-        if(v < bestdx) {
-          bestdx = v;
-          bestix = y;
-        }
-      }
-      bestd[x] = bestdx;
-      besti[x] = bestix;
-    }
-  }
-
   /**
    * Perform the next merge step.
    *
@@ -235,9 +220,9 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     besti[x] = -1;
 
     // Note: this changes iy.
-    updateMatrix(size, mat.matrix, iy, bestd, besti, builder, mindist, x, y, sizex, sizey);
+    updateMatrix(size, mat, iy, bestd, besti, builder, mindist, x, y, sizex, sizey);
     if(besti[y] == x) {
-      findBest(size, mat.matrix, bestd, besti, y);
+      findBest(size, mat, bestd, besti, y);
     }
   }
 
@@ -245,7 +230,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * Update the scratch distance matrix.
    *
    * @param size Data set size
-   * @param scratch Scratch matrix.
+   * @param mat Matrix paradigm
    * @param ij Iterator to reuse
    * @param bestd Best distance
    * @param besti Index of best distance
@@ -256,10 +241,10 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param sizex Old size of first cluster
    * @param sizey Old size of second cluster
    */
-  protected void updateMatrix(int size, double[] scratch, DBIDArrayIter ij, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
+  protected void updateMatrix(int size, MatrixParadigm mat, DBIDArrayIter ij, double[] bestd, int[] besti, PointerHierarchyRepresentationBuilder builder, double mindist, int x, int y, final int sizex, final int sizey) {
     // Update distance matrix. Note: miny < minx
-    final int xbase = MatrixParadigm.triangleSize(x);
-    final int ybase = MatrixParadigm.triangleSize(y);
+    final long xbase = MatrixParadigm.triangleSize(x);
+    final long ybase = MatrixParadigm.triangleSize(y);
 
     // Write to (y, j), with j < y
     int j = 0;
@@ -268,21 +253,21 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
         continue;
       }
       final int sizej = builder.getSize(ij);
-      final int yb = ybase + j;
-      final double d = scratch[yb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[yb], sizej, mindist);
-      updateCache(size, scratch, bestd, besti, x, y, j, d);
+      final long yb = ybase + j;
+      mat.set(yb, linkage.combine(sizex, mat.get(xbase + j), sizey, mat.get(yb), sizej, mindist));
+      updateCache(size, mat, bestd, besti, x, y, j, mat.get(yb));
     }
     j++; // Skip y
     // Write to (j, y), with y < j < x
-    int jbase = MatrixParadigm.triangleSize(j);
+    long jbase = MatrixParadigm.triangleSize(j);
     for(; j < x; jbase += j++) {
       if(builder.isLinked(ij.seek(j))) {
         continue;
       }
       final int sizej = builder.getSize(ij);
-      final int jb = jbase + y;
-      final double d = scratch[jb] = linkage.combine(sizex, scratch[xbase + j], sizey, scratch[jb], sizej, mindist);
-      updateCache(size, scratch, bestd, besti, x, y, j, d);
+      final long jb = jbase + y;
+      mat.set(jb, linkage.combine(sizex, mat.get(xbase + j), sizey, mat.get(jb), sizej, mindist));
+      updateCache(size, mat, bestd, besti, x, y, j, mat.get(jb));
     }
     jbase += j++; // Skip x
     // Write to (j, y), with y < x < j
@@ -291,9 +276,9 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
         continue;
       }
       final int sizej = builder.getSize(ij);
-      final int jb = jbase + y;
-      final double d = scratch[jb] = linkage.combine(sizex, scratch[jbase + x], sizey, scratch[jb], sizej, mindist);
-      updateCache(size, scratch, bestd, besti, x, y, j, d);
+      final long jb = jbase + y;
+      mat.set(jb, linkage.combine(sizex, mat.get(jbase + x), sizey, mat.get(jb), sizej, mindist));
+      updateCache(size, mat, bestd, besti, x, y, j, mat.get(jb));
     }
   }
 
@@ -301,7 +286,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * Update the cache.
    *
    * @param size Working set size
-   * @param scratch Scratch matrix
+   * @param mat Matrix paradigm
    * @param bestd Best distance
    * @param besti Best index
    * @param x First cluster
@@ -309,7 +294,7 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
    * @param j Updated value d(y, j)
    * @param d New distance
    */
-  private void updateCache(int size, double[] scratch, double[] bestd, int[] besti, int x, int y, int j, double d) {
+  private void updateCache(int size, MatrixParadigm mat, double[] bestd, int[] besti, int x, int y, int j, double d) {
     // New best
     if(d <= bestd[j]) {
       bestd[j] = d;
@@ -318,37 +303,25 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
     }
     // Needs slow update.
     if(besti[j] == x || besti[j] == y) {
-      findBest(size, scratch, bestd, besti, j);
+      findBest(size, mat, bestd, besti, j);
     }
   }
 
-  protected void findBest(int size, double[] scratch, double[] bestd, int[] besti, int j) {
-    final int jbase = MatrixParadigm.triangleSize(j);
+  /**
+   * Find the best merge partner of an object, after its distances increased.
+   * <p>
+   * Long rows are scanned in parallel.
+   *
+   * @param size Working set size
+   * @param mat Matrix paradigm
+   * @param bestd Best distance
+   * @param besti Best index
+   * @param j Object to update
+   */
+  protected void findBest(int size, MatrixParadigm mat, double[] bestd, int[] besti, int j) {
     // The distance has increased, we may no longer be the best merge.
-    double bestdj = Double.POSITIVE_INFINITY;
-    int bestij = -1;
-    for(int i = 0, o = jbase; i < j; i++, o++) {
-      if(besti[i] < 0) {
-        continue;
-      }
-      final double dist = scratch[o];
-      if(dist <= bestdj) {
-        bestdj = dist;
-        bestij = i;
-      }
-    }
-    for(int i = j + 1, o = jbase + j + j; i < size; o += i, i++) {
-      // assert(o == MatrixParadigm.triangleSize(i) + j);
-      if(besti[i] < 0) {
-        continue;
-      }
-      final double dist = scratch[o];
-      if(dist <= bestdj) {
-        bestdj = dist;
-        bestij = i;
-      }
-    }
-    bestd[j] = bestdj;
+    final int bestij = mat.findRowMinimum(j, size, i -> besti[i] >= 0, true);
+    bestd[j] = bestij >= 0 ? mat.get(j, bestij) : Double.POSITIVE_INFINITY;
     besti[j] = bestij;
   }
 
@@ -378,6 +351,11 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
      */
     protected Linkage linkage;
 
+    /**
+     * Store the distance matrix with single precision.
+     */
+    protected boolean single = false;
+
     @Override
     protected void makeOptions(Parameterization config) {
       // We don't call super, because we want a different default distance.
@@ -391,11 +369,16 @@ public class AnderbergHierarchicalClustering<O> extends AbstractDistanceBasedAlg
       if(config.grab(linkageP)) {
         linkage = linkageP.instantiateClass(config);
       }
+
+      Flag singleF = new Flag(AGNES.Parameterizer.SINGLE_PRECISION_ID);
+      if(config.grab(singleF)) {
+        single = singleF.isTrue();
+      }
     }
 
     @Override
     protected AnderbergHierarchicalClustering<O> makeInstance() {
-      return new AnderbergHierarchicalClustering<>(distanceFunction, linkage);
+      return new AnderbergHierarchicalClustering<>(distanceFunction, linkage, single);
     }
   }
 }
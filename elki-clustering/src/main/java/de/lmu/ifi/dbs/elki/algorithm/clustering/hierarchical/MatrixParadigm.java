@@ -20,11 +20,19 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
 
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntPredicate;
+
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 
 /**
@@ -37,20 +45,63 @@ import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
  *
  * While this will usually store (merge-) distances when clustering, it can
  * store arbitrary doubles.
+ * <p>
+ * Filling the matrix and scanning rows for their minimum can be performed in
+ * parallel, using the work-stealing pool of the current {@link ParallelCore}.
+ * <p>
+ * The matrix is stored in segments of at most \(2^{27}\) entries, indexed by
+ * {@code long} offsets, so it is not limited by the maximum Java array size.
+ * Optionally, the values can be stored with single precision, which halves the
+ * memory usage.
  *
  * @author Erich Schubert
  * @since 0.7.5
  */
 public class MatrixParadigm {
+  /**
+   * Default minimum number of matrix entries for a parallel task.
+   */
+  private static final int MIN_PARALLEL = 1 << 14;
+
+  /**
+   * Default number of bits of the segment size.
+   */
+  private static final int SEGMENT_BITS = 27;
+
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(MatrixParadigm.class);
+
+  /**
+   * Minimum number of matrix entries for a parallel task.
+   */
+  private final int minParallel;
+
+  /**
+   * Object ids, for creating additional iterators.
+   */
+  private final ArrayDBIDs ids;
+
   /**
    * Two iterators to reference to objects.
    */
   public final DBIDArrayIter ix, iy;
 
   /**
-   * Distance matrix (<b>modifiable</b>).
+   * Double precision matrix segments, or {@code null}.
+   */
+  private final double[][] dsegs;
+
+  /**
+   * Single precision matrix segments, or {@code null}.
    */
-  public final double[] matrix;
+  private final float[][] fsegs;
+
+  /**
+   * Segment addressing: shift and mask.
+   */
+  private final int shift, mask;
 
   /**
    * Number of rows/columns.
@@ -63,16 +114,55 @@ public class MatrixParadigm {
    * @param ids Database ids.
    */
   public MatrixParadigm(DBIDs ids) {
+    this(ids, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param ids Database ids.
+   * @param single Store the matrix with single precision
+   */
+  public MatrixParadigm(DBIDs ids, boolean single) {
+    this(ids, single, MIN_PARALLEL, SEGMENT_BITS);
+  }
+
+  /**
+   * Constructor, with a custom threshold for parallel processing and segment
+   * size.
+   *
+   * @param ids Database ids.
+   * @param single Store the matrix with single precision
+   * @param minParallel Minimum number of matrix entries for a parallel task
+   * @param segmentBits Number of bits of the segment size
+   */
+  MatrixParadigm(DBIDs ids, boolean single, int minParallel, int segmentBits) {
+    this.minParallel = minParallel;
+    this.shift = segmentBits;
+    this.mask = (1 << segmentBits) - 1;
     size = ids.size();
-    if(size > 0x10000) {
-      throw new AbortException("This implementation does not scale to data sets larger than " + //
-          0x10000 // = 65535
-          + " instances (~16 GB RAM), at which point the Java maximum array size is reached.");
+    this.ids = DBIDUtil.ensureArray(ids);
+    ix = this.ids.iter();
+    iy = this.ids.iter();
+    final long total = triangleSize(size);
+    final long nsegs = (total + mask) >>> shift;
+    if(nsegs > Integer.MAX_VALUE) {
+      throw new AbortException("Too many instances for a distance matrix: " + size);
+    }
+    if(single) {
+      dsegs = null;
+      fsegs = new float[(int) nsegs][];
+      for(int i = 0; i < nsegs; i++) {
+        fsegs[i] = new float[(int) Math.min(mask + 1L, total - ((long) i << shift))];
+      }
+    }
+    else {
+      fsegs = null;
+      dsegs = new double[(int) nsegs][];
+      for(int i = 0; i < nsegs; i++) {
+        dsegs[i] = new double[(int) Math.min(mask + 1L, total - ((long) i << shift))];
+      }
     }
-    ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
-    ix = aids.iter();
-    iy = aids.iter();
-    matrix = new double[triangleSize(size)];
   }
 
   /**
@@ -81,8 +171,35 @@ public class MatrixParadigm {
    * @param x Offset
    * @return Size of complete triangle
    */
-  public static int triangleSize(int x) {
-    return (x * (x - 1)) >>> 1;
+  public static long triangleSize(int x) {
+    return ((long) x * (x - 1)) >>> 1;
+  }
+
+  /**
+   * Get a value by its offset in the (lower triangular) matrix storage.
+   *
+   * @param o Offset, {@code triangleSize(x) + y} for {@code y < x}
+   * @return Value
+   */
+  public double get(long o) {
+    final int s = (int) (o >>> shift), i = (int) o & mask;
+    return dsegs != null ? dsegs[s][i] : fsegs[s][i];
+  }
+
+  /**
+   * Set a value by its offset in the (lower triangular) matrix storage.
+   *
+   * @param o Offset, {@code triangleSize(x) + y} for {@code y < x}
+   * @param v Value
+   */
+  public void set(long o, double v) {
+    final int s = (int) (o >>> shift), i = (int) o & mask;
+    if(dsegs != null) {
+      dsegs[s][i] = v;
+    }
+    else {
+      fsegs[s][i] = (float) v;
+    }
   }
 
   /**
@@ -97,27 +214,272 @@ public class MatrixParadigm {
    */
   public double get(int x, int y) {
     return (x == y) ? 0 : (x < y) //
-        ? matrix[MatrixParadigm.triangleSize(y) + x] //
-        : matrix[MatrixParadigm.triangleSize(x) + y];
+        ? get(triangleSize(y) + x) //
+        : get(triangleSize(x) + y);
   }
 
   /**
-   * Initialize a distance matrix.
+   * Initialize a distance matrix in parallel.
    *
    * @param dq Distance query
    * @return this
    */
   public MatrixParadigm initializeWithDistances(DistanceQuery<?> dq) {
-    final DBIDArrayIter ix = this.ix, iy = this.iy;
-    final double[] matrix = this.matrix;
-    int pos = 0;
-    for(ix.seek(0); ix.valid(); ix.advance()) {
-      final int x = ix.getOffset();
-      assert (pos == triangleSize(x));
-      for(iy.seek(0); iy.getOffset() < x; iy.advance()) {
-        matrix[pos++] = dq.distance(ix, iy);
+    return initializeWithDistances(dq, null);
+  }
+
+  /**
+   * Initialize a distance matrix in parallel, with transformed distances.
+   *
+   * @param dq Distance query
+   * @param transform Transformation of the distances, may be {@code null}
+   * @return this
+   */
+  public MatrixParadigm initializeWithDistances(DistanceQuery<?> dq, DoubleUnaryOperator transform) {
+    FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Distance matrix computation", size, LOG) : null;
+    processRows(0, size, (start, end) -> {
+      final DBIDArrayIter ix = ids.iter(), iy = ids.iter();
+      long pos = triangleSize(start);
+      for(ix.seek(start); ix.getOffset() < end; ix.advance()) {
+        final int x = ix.getOffset();
+        for(iy.seek(0); iy.getOffset() < x; iy.advance()) {
+          final double d = dq.distance(ix, iy);
+          set(pos++, transform != null ? transform.applyAsDouble(d) : d);
+        }
+        LOG.incrementProcessed(prog);
       }
-    }
+    });
+    LOG.ensureCompleted(prog);
     return this;
   }
+
+  /**
+   * Process ranges of rows in parallel. The ranges are balanced by the number
+   * of matrix entries, i.e., later rows are processed in smaller ranges.
+   *
+   * @param start First row
+   * @param end End row (exclusive)
+   * @param proc Processor for row ranges, must be thread-safe
+   */
+  public void processRows(int start, int end, RowRangeProcessor proc) {
+    if(start >= end) {
+      return;
+    }
+    if(triangleSize(end) - triangleSize(start) <= minParallel) {
+      proc.process(start, end);
+      return;
+    }
+    ParallelCore.getCore().invoke(new RowRangeTask(start, end, proc, minParallel));
+  }
+
+  /**
+   * Find the nearest neighbor of every row, in parallel.
+   * <p>
+   * On ties, the smaller index is preferred; rows with only infinite distances
+   * get index -1.
+   *
+   * @param bestd Output: distance to the nearest neighbor
+   * @param besti Output: index of the nearest neighbor, -1 if none
+   */
+  public void nearestNeighbors(double[] bestd, int[] besti) {
+    processRows(0, size, (start, end) -> {
+      for(int x = start; x < end; x++) {
+        final int i = scanRow(x, 0, size, null, false);
+        bestd[x] = i >= 0 ? get(x, i) : Double.POSITIVE_INFINITY;
+        besti[x] = i;
+      }
+    });
+  }
+
+  /**
+   * Find the minimum of a row, including the values stored in the column.
+   * <p>
+   * Long rows are scanned in parallel.
+   *
+   * @param x Row to scan
+   * @param end Number of objects to consider
+   * @param active Filter for objects to consider, must be thread-safe; may be
+   *        {@code null}
+   * @param last On ties, prefer the last instead of the first index. This will
+   *        also accept infinite values.
+   * @return Index of the minimum, -1 if none was found
+   */
+  public int findRowMinimum(int x, int end, IntPredicate active, boolean last) {
+    return end > minParallel ? ParallelCore.getCore().invoke(new RowScanTask(x, 0, end, active, last)) //
+        : scanRow(x, 0, end, active, last);
+  }
+
+  /**
+   * Scan a part of a row for the minimum.
+   *
+   * @param x Row to scan
+   * @param start First object to consider
+   * @param end End of objects (exclusive)
+   * @param active Filter for objects to consider, may be {@code null}
+   * @param last Prefer the last index on ties
+   * @return Index of the minimum, -1 if none was found
+   */
+  private int scanRow(int x, int start, int end, IntPredicate active, boolean last) {
+    double best = Double.POSITIVE_INFINITY;
+    int besti = -1;
+    // Values stored in row x:
+    long o = triangleSize(x) + start;
+    for(int i = start, e = Math.min(x, end); i < e; i++, o++) {
+      if(active == null || active.test(i)) {
+        final double v = get(o);
+        if(v < best || (last && v <= best)) {
+          best = v;
+          besti = i;
+        }
+      }
+    }
+    // Values stored in column x:
+    o = triangleSize(Math.max(start, x + 1)) + x;
+    for(int i = Math.max(start, x + 1); i < end; o += i, i++) {
+      if(active == null || active.test(i)) {
+        final double v = get(o);
+        if(v < best || (last && v <= best)) {
+          best = v;
+          besti = i;
+        }
+      }
+    }
+    return besti;
+  }
+
+  /**
+   * Processor for ranges of rows.
+   *
+   * @author Erich Schubert
+   */
+  @FunctionalInterface
+  public interface RowRangeProcessor {
+    /**
+     * Process a range of rows.
+     *
+     * @param start First row
+     * @param end End row (exclusive)
+     */
+    void process(int start, int end);
+  }
+
+  /**
+   * Fork-join task to process ranges of rows.
+   *
+   * @author Erich Schubert
+   */
+  private static class RowRangeTask extends RecursiveAction {
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Row range.
+     */
+    private int start, end;
+
+    /**
+     * Processor.
+     */
+    private RowRangeProcessor proc;
+
+    /**
+     * Minimum number of matrix entries for a parallel task.
+     */
+    private int minParallel;
+
+    /**
+     * Constructor.
+     *
+     * @param start First row
+     * @param end End row (exclusive)
+     * @param proc Processor
+     * @param minParallel Minimum number of matrix entries for a parallel task
+     */
+    RowRangeTask(int start, int end, RowRangeProcessor proc, int minParallel) {
+      this.start = start;
+      this.end = end;
+      this.proc = proc;
+      this.minParallel = minParallel;
+    }
+
+    @Override
+    protected void compute() {
+      if(end - start <= 1 || triangleSize(end) - triangleSize(start) <= minParallel) {
+        proc.process(start, end);
+        return;
+      }
+      // Split into two halves of about the same number of entries:
+      int mid = (int) Math.sqrt(0.5 * ((double) start * start + (double) end * end));
+      mid = mid <= start ? start + 1 : mid >= end ? end - 1 : mid;
+      invokeAll(new RowRangeTask(start, mid, proc, minParallel), new RowRangeTask(mid, end, proc, minParallel));
+    }
+  }
+
+  /**
+   * Fork-join task to find the minimum of a row.
+   *
+   * @author Erich Schubert
+   */
+  private class RowScanTask extends RecursiveTask<Integer> {
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Row to scan.
+     */
+    private int x;
+
+    /**
+     * Range of objects.
+     */
+    private int start, end;
+
+    /**
+     * Filter for objects.
+     */
+    private IntPredicate active;
+
+    /**
+     * Prefer the last index on ties.
+     */
+    private boolean last;
+
+    /**
+     * Constructor.
+     *
+     * @param x Row to scan
+     * @param start First object
+     * @param end End of objects (exclusive)
+     * @param active Filter for objects, may be {@code null}
+     * @param last Prefer the last index on ties
+     */
+    RowScanTask(int x, int start, int end, IntPredicate active, boolean last) {
+      this.x = x;
+      this.start = start;
+      this.end = end;
+      this.active = active;
+      this.last = last;
+    }
+
+    @Override
+    protected Integer compute() {
+      if(end - start <= minParallel) {
+        return scanRow(x, start, end, active, last);
+      }
+      final int mid = (start + end) >>> 1;
+      RowScanTask right = new RowScanTask(x, mid, end, active, last);
+      right.fork();
+      final int il = new RowScanTask(x, start, mid, active, last).compute();
+      final int ir = right.join();
+      if(il < 0 || ir < 0) {
+        return il < 0 ? ir : il;
+      }
+      final double dl = MatrixParadigm.this.get(x, il), dr = MatrixParadigm.this.get(x, ir);
+      return (dr < dl || (last && dr <= dl)) ? ir : il;
+    }
+  }
 }
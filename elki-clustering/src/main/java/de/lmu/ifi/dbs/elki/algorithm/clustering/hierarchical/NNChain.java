@@ -76,6 +76,17 @@ public class NNChain<O> extends AGNES<O> {
     super(distanceFunction, linkage);
   }
 
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param linkage Linkage method
+   * @param single Store the distance matrix with single precision
+   */
+  public NNChain(DistanceFunction<? super O> distanceFunction, Linkage linkage, boolean single) {
+    super(distanceFunction, linkage, single);
+  }
+
   /**
    * Run the algorithm
    * 
@@ -89,7 +100,7 @@ public class NNChain<O> extends AGNES<O> {
     }
     DistanceQuery<O> dq = db.getDistanceQuery(relation, getDistanceFunction());
     final DBIDs ids = relation.getDBIDs();
-    MatrixParadigm mat = new MatrixParadigm(ids);
+    MatrixParadigm mat = new MatrixParadigm(ids, single);
 
     // Compute the initial (lower triangular) distance matrix.
     initializeDistanceMatrix(mat, dq, linkage);
@@ -110,10 +121,11 @@ public class NNChain<O> extends AGNES<O> {
    */
   private void nnChainCore(MatrixParadigm mat, PointerHierarchyRepresentationBuilder builder) {
     final DBIDArrayIter ix = mat.ix;
-    final double[] distances = mat.matrix;
     final int size = mat.size;
     // The maximum chain size = number of ids + 1
     IntegerArray chain = new IntegerArray(size + 1);
+    // Merged objects, for thread-safe access:
+    boolean[] linked = new boolean[size];
 
     FiniteProgress progress = LOG.isVerbose() ? new FiniteProgress("Running NNChain", size - 1, LOG) : null;
     for(int k = 1, end = size; k < size; k++) {
@@ -144,25 +156,14 @@ public class NNChain<O> extends AGNES<O> {
       // For ties, always prefer the second-last element b:
       double minDist = mat.get(a, b);
       do {
-        int c = b;
-        final int ta = MatrixParadigm.triangleSize(a);
-        for(int i = 0; i < a; i++) {
-          if(i != b && !builder.isLinked(ix.seek(i))) {
-            double dist = distances[ta + i];
-            if(dist < minDist) {
-              minDist = dist;
-              c = i;
-            }
-          }
+        // Nearest neighbor of a, long rows are scanned in parallel:
+        final int b0 = b;
+        int c = mat.findRowMinimum(a, size, i -> i != b0 && !linked[i], false);
+        if(c >= 0 && mat.get(a, c) < minDist) {
+          minDist = mat.get(a, c);
         }
-        for(int i = a + 1; i < size; i++) {
-          if(i != b && !builder.isLinked(ix.seek(i))) {
-            double dist = distances[MatrixParadigm.triangleSize(i) + a];
-            if(dist < minDist) {
-              minDist = dist;
-              c = i;
-            }
-          }
+        else {
+          c = b;
         }
 
         b = a;
@@ -181,6 +182,7 @@ public class NNChain<O> extends AGNES<O> {
       assert (minDist == mat.get(a, b));
       assert (b < a);
       merge(size, mat, builder, minDist, a, b);
+      linked[a] = true;
       end = AGNES.shrinkActiveSet(ix, builder, end, a); // Shrink working set
       LOG.incrementProcessed(progress);
     }
@@ -223,7 +225,7 @@ public class NNChain<O> extends AGNES<O> {
   public static class Parameterizer<O> extends AGNES.Parameterizer<O> {
     @Override
     protected NNChain<O> makeInstance() {
-      return new NNChain<>(distanceFunction, linkage);
+      return new NNChain<>(distanceFunction, linkage, single);
     }
   }
 }
@@ -24,13 +24,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleMeta;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.iterator.Iter;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.io.FormatUtil;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
@@ -47,15 +52,17 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * Important differences:
  * <ol>
  * <li>Leaf nodes and directory nodes have the same capacity</li>
- * <li>Condensing and memory limits are not implemented</li>
+ * <li>The memory limit is given as a maximum number of leaves, not pages</li>
  * <li>Merging refinement (merge-resplit) is not implemented</li>
  * </ol>
- * Because we want to be able to track the cluster assignments of all data
- * points easily, we need to store the point IDs, and it is not possible to
- * implement the originally proposed page size management at the same time.
+ * When the number of leaves exceeds the limit, the threshold is increased and
+ * the tree is rebuilt from its leaf entries, as in the original paper. The tree
+ * does not store the data points, so it can be built from a stream, see
+ * {@link Factory#newTree(BundleStreamSource)}, and the leaf entries can be used
+ * as a compact summary of the data set.
  * <p>
- * Condensing and merging refinement are possible, and improvements to this code
- * are welcome - please send a pull request!
+ * Merging refinement is possible, and improvements to this code are welcome -
+ * please send a pull request!
  * <p>
  * References:
  * <p>
@@ -162,6 +169,24 @@ public class CFTree {
     }
   }
 
+  /**
+   * Get the current number of leaf entries.
+   *
+   * @return Number of leaves
+   */
+  public int numLeaves() {
+    return leaves;
+  }
+
+  /**
+   * Get the current threshold, which may have been increased by rebuilding.
+   *
+   * @return Threshold
+   */
+  public double getThreshold() {
+    return Math.sqrt(thresholdsq);
+  }
+
   /**
    * Rebuild the CFTree to condense it to approximately half the size.
    */
@@ -665,6 +690,61 @@ public class CFTree {
       return tree;
     }
 
+    /**
+     * Make a new tree from a stream of objects, without materializing the data.
+     * <p>
+     * The first numerical vector field of the stream is used. As the size of
+     * the stream is not known in advance, an absolute leaf limit is required
+     * to bound the memory usage.
+     *
+     * @param source Stream source
+     * @return New tree
+     */
+    public CFTree newTree(BundleStreamSource source) {
+      if(maxleaves <= 1) {
+        throw new AbortException("Building a CF-tree from a stream requires an absolute leaf limit (" + Parameterizer.MAXLEAVES_ID.getName() + " > 1), as the stream size is not known in advance.");
+      }
+      CFTree tree = new CFTree(distance, absorption, threshold, branchingFactor);
+      IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("Building tree", LOG) : null;
+      int col = -1;
+      for(BundleStreamSource.Event ev = source.nextEvent(); ev != BundleStreamSource.Event.END_OF_STREAM; ev = source.nextEvent()) {
+        switch(ev){
+        case META_CHANGED:
+          col = findVectorColumn(source.getMeta());
+          break;
+        case NEXT_OBJECT:
+          tree.insert((NumberVector) source.data(col));
+          if(tree.leaves > maxleaves) {
+            if(LOG.isVerbose()) {
+              LOG.verbose("Compacting CF-tree.");
+            }
+            tree.rebuildTree();
+          }
+          LOG.incrementProcessed(prog);
+          break;
+        default:
+          LOG.warning("Unknown event: " + ev);
+        }
+      }
+      LOG.setCompleted(prog);
+      return tree;
+    }
+
+    /**
+     * Find the first numerical vector field in the stream.
+     *
+     * @param meta Stream metadata
+     * @return Column number
+     */
+    private static int findVectorColumn(BundleMeta meta) {
+      for(int i = 0; i < meta.size(); i++) {
+        if(TypeUtil.NUMBER_VECTOR_FIELD.isAssignableFromType(meta.get(i))) {
+          return i;
+        }
+      }
+      throw new AbortException("No numerical vector field found in the input stream.");
+    }
+
     /**
      * Parameterization class for CFTrees.
      *
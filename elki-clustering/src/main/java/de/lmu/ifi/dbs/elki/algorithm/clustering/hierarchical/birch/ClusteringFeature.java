@@ -103,6 +103,15 @@ public class ClusteringFeature {
     return n > 0 ? ls[i] / n : 0.;
   }
 
+  /**
+   * Number of objects summarized by this feature.
+   *
+   * @return Number of objects
+   */
+  public int getWeight() {
+    return n;
+  }
+
   /**
    * Sum over all dimensions of sums of squares.
    *
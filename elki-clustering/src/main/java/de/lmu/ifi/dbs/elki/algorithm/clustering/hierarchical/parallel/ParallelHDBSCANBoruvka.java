@@ -0,0 +1,403 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.parallel;
+
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.AbstractHDBSCAN;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.HDBSCANLinearMemory;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.HierarchicalClusteringAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.PointerDensityHierarchyRepresentationResult;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreIDMap;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDBIDDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongHeap;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleLongMinHeap;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+/**
+ * Parallel linear memory implementation of HDBSCAN clustering.
+ * <p>
+ * The core distances are computed in parallel, then the minimum spanning tree
+ * of the mutual reachability graph is built with Borůvka's algorithm: in each
+ * round, the shortest edge leaving each component is found in parallel, and
+ * all these edges are added at once. Every object remembers its nearest
+ * neighbor outside of its component, which remains valid until the two
+ * components are merged; hence, most objects do not need to be rescanned in
+ * later rounds.
+ * <p>
+ * The result is the same pointer representation as produced by
+ * {@link HDBSCANLinearMemory}, so the same extraction methods can be used.
+ * <p>
+ * Reference:
+ * <p>
+ * R. J. G. B. Campello, D. Moulavi, J. Sander<br>
+ * Density-Based Clustering Based on Hierarchical Density Estimates<br>
+ * Pacific-Asia Conf. Advances in Knowledge Discovery and Data Mining (PAKDD)
+ * <p>
+ * O. Borůvka<br>
+ * O jistém problému minimálním (About a certain minimal problem)<br>
+ * Práce moravské přírodovědecké společnosti, 3
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - PointerDensityHierarchyRepresentationResult
+ *
+ * @param <O> Object type
+ */
+@Reference(authors = "O. Borůvka", //
+    title = "O jistém problému minimálním (About a certain minimal problem)", //
+    booktitle = "Práce moravské přírodovědecké společnosti, 3", //
+    bibkey = "journals/pmps/Boruvka26")
+public class ParallelHDBSCANBoruvka<O> extends AbstractHDBSCAN<O, PointerDensityHierarchyRepresentationResult> implements HierarchicalClusteringAlgorithm {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelHDBSCANBoruvka.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param minPts Minimum number of points for density
+   */
+  public ParallelHDBSCANBoruvka(DistanceFunction<? super O> distanceFunction, int minPts) {
+    super(distanceFunction, minPts);
+  }
+
+  /**
+   * Run the algorithm
+   *
+   * @param db Database
+   * @param relation Relation
+   * @return Clustering hierarchy
+   */
+  public PointerDensityHierarchyRepresentationResult run(Database db, Relation<O> relation) {
+    final DistanceQuery<O> distQ = db.getDistanceQuery(relation, getDistanceFunction());
+    final KNNQuery<O> knnQ = db.getKNNQuery(distQ, minPts);
+    // We need array addressing later.
+    final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+
+    // 1. Compute the core distances
+    final WritableDoubleDataStore coredists = computeCoreDists(ids, knnQ, minPts);
+
+    final int numedges = ids.size() - 1;
+    DoubleLongHeap heap = new DoubleLongMinHeap(numedges);
+    // 2. Build spanning tree.
+    FiniteProgress mprog = LOG.isVerbose() ? new FiniteProgress("Computing minimum spanning tree (n-1 edges)", numedges, LOG) : null;
+    int rounds = new Boruvka(ids, coredists, distQ).run(new HeapMSTCollector(heap, mprog, LOG));
+    LOG.ensureCompleted(mprog);
+    LOG.statistics(new LongStatistic(ParallelHDBSCANBoruvka.class.getName() + ".rounds", rounds));
+    // Storage for pointer representation:
+    WritableDBIDDataStore pi = DataStoreUtil.makeDBIDStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore lambda = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_STATIC, Double.POSITIVE_INFINITY);
+    convertToPointerRepresentation(ids, heap, pi, lambda);
+
+    return new PointerDensityHierarchyRepresentationResult(ids, pi, lambda, distQ.getDistanceFunction().isSquared(), coredists);
+  }
+
+  /**
+   * Compute the core distances for all objects in parallel.
+   *
+   * @param ids Objects
+   * @param knnQ kNN query
+   * @param minPts Minimum neighborhood size
+   * @return Data store with core distances
+   */
+  @Override
+  protected WritableDoubleDataStore computeCoreDists(DBIDs ids, KNNQuery<O> knnQ, int minPts) {
+    final WritableDoubleDataStore coredists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
+    KNNProcessor<O> knnm = new KNNProcessor<>(minPts, knnQ);
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    knnm.connectKNNOutput(knnv);
+    // Note: the kNN distance is infinite if there are less than minPts objects.
+    ParallelExecutor.run(ids, knnm, new Processor() {
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        final SharedObject.Instance<KNNList> knn = executor.getInstance(knnv);
+        return id -> coredists.putDouble(id, knn.get().getKNNDistance());
+      }
+
+      @Override
+      public void cleanup(Processor.Instance inst) {
+        // Nothing to do.
+      }
+    });
+    return coredists;
+  }
+
+  /**
+   * Borůvka's minimum spanning tree algorithm on the mutual reachability graph,
+   * with parallel search for the shortest edge leaving each component.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Boruvka implements Processor {
+    /**
+     * Objects to process.
+     */
+    private ArrayDBIDs ids;
+
+    /**
+     * Map of objects to offsets.
+     */
+    private DataStoreIDMap idmap;
+
+    /**
+     * Core distances, by offset.
+     */
+    private double[] core;
+
+    /**
+     * Distance query.
+     */
+    private DistanceQuery<?> distq;
+
+    /**
+     * Union-find parent pointers.
+     */
+    private int[] parent;
+
+    /**
+     * Component of each object in the current round.
+     */
+    private int[] comp;
+
+    /**
+     * Nearest neighbor outside of the component, -1 if unknown.
+     */
+    private int[] nn;
+
+    /**
+     * Mutual reachability distance to the nearest neighbor.
+     */
+    private double[] nnd;
+
+    /**
+     * Constructor.
+     *
+     * @param ids Objects to process
+     * @param coredists Core distances
+     * @param distq Distance query
+     */
+    public Boruvka(ArrayDBIDs ids, DoubleDataStore coredists, DistanceQuery<?> distq) {
+      final int n = ids.size();
+      this.ids = ids;
+      this.idmap = offsetMap(ids);
+      this.distq = distq;
+      this.core = new double[n];
+      this.parent = new int[n];
+      this.comp = new int[n];
+      this.nn = new int[n];
+      this.nnd = new double[n];
+      for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+        core[it.getOffset()] = coredists.doubleValue(it);
+      }
+    }
+
+    /**
+     * Build the minimum spanning tree.
+     *
+     * @param collector Edge collector
+     * @return Number of rounds
+     */
+    public int run(HeapMSTCollector collector) {
+      final int n = ids.size();
+      for(int i = 0; i < n; i++) {
+        parent[i] = i;
+      }
+      Arrays.fill(nn, -1);
+      int[] cbest = new int[n];
+      int edges = 0, rounds = 0;
+      while(edges < n - 1) {
+        ++rounds;
+        for(int i = 0; i < n; i++) {
+          comp[i] = find(i);
+        }
+        // Find the nearest neighbor in a different component, in parallel.
+        ParallelExecutor.run(ids, this);
+        // Shortest edge leaving each component:
+        Arrays.fill(cbest, -1);
+        for(int i = 0; i < n; i++) {
+          final int c = comp[i], b = cbest[c];
+          if(b < 0 || nnd[i] < nnd[b]) {
+            cbest[c] = i;
+          }
+        }
+        int added = 0;
+        for(int c = 0; c < n; c++) {
+          final int i = cbest[c];
+          if(i < 0) {
+            continue;
+          }
+          final int j = nn[i], ri = find(i), rj = find(j);
+          if(ri == rj) {
+            continue; // Already added from the other component.
+          }
+          parent[ri] = rj;
+          collector.addEdge(nnd[i], i, j);
+          ++added;
+        }
+        if(added == 0) {
+          throw new IllegalStateException("Minimum spanning tree construction did not progress.");
+        }
+        edges += added;
+      }
+      return rounds;
+    }
+
+    /**
+     * Find the component of an object, with path halving.
+     *
+     * @param i Object offset
+     * @return Component representative
+     */
+    private int find(int i) {
+      while(parent[i] != i) {
+        i = parent[i] = parent[parent[i]];
+      }
+      return i;
+    }
+
+    @Override
+    public Processor.Instance instantiate(Executor executor) {
+      return new Worker();
+    }
+
+    @Override
+    public void cleanup(Processor.Instance inst) {
+      // Nothing to do.
+    }
+
+    /**
+     * Worker, finding the nearest neighbors in other components.
+     *
+     * @author Erich Schubert
+     */
+    private class Worker implements Processor.Instance {
+      /**
+       * Iterator over all objects.
+       */
+      private DBIDArrayIter it = ids.iter();
+
+      @Override
+      public void map(DBIDRef id) {
+        final int i = idmap.mapDBIDToOffset(id), ci = comp[i];
+        if(nn[i] >= 0 && comp[nn[i]] != ci) {
+          return; // Still the nearest neighbor in a different component.
+        }
+        final double corei = core[i];
+        double best = Double.POSITIVE_INFINITY;
+        int bestj = -1;
+        for(it.seek(0); it.valid(); it.advance()) {
+          final int j = it.getOffset();
+          if(comp[j] == ci) {
+            continue;
+          }
+          final double lb = corei > core[j] ? corei : core[j];
+          if(bestj >= 0 && lb >= best) {
+            continue; // Cannot be better.
+          }
+          final double d = distq.distance(id, it);
+          final double mrd = d > lb ? d : lb;
+          if(bestj < 0 || mrd < best) {
+            best = mrd;
+            bestj = j;
+          }
+        }
+        nn[i] = bestj;
+        nnd[i] = best;
+      }
+    }
+  }
+
+  /**
+   * Map the objects to their array offsets.
+   *
+   * @param ids Object ids
+   * @return Offset map
+   */
+  private static DataStoreIDMap offsetMap(ArrayDBIDs ids) {
+    if(ids instanceof DBIDRange) {
+      return (DBIDRange) ids;
+    }
+    WritableIntegerDataStore offsets = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT);
+    int i = 0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      offsets.putInt(iter, i++);
+    }
+    return offsets::intValue;
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends AbstractHDBSCAN.Parameterizer<O> {
+    @Override
+    protected ParallelHDBSCANBoruvka<O> makeInstance() {
+      return new ParallelHDBSCANBoruvka<>(distanceFunction, minPts);
+    }
+  }
+}
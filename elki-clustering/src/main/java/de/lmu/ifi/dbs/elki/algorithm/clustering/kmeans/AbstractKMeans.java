@@ -283,6 +283,134 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> ex
     VMath.plusTimesEquals(mean, VMath.minusEquals(vec.toArray(), mean), op / newsize);
   }
 
+  /**
+   * Compute a distance, with a fast path for squared Euclidean distance.
+   *
+   * @param df Distance function
+   * @param x First object
+   * @param y Second object
+   * @return Distance
+   */
+  protected static double distance(NumberVectorDistanceFunction<?> df, NumberVector x, double[] y) {
+    if(df.getClass() == SquaredEuclideanDistanceFunction.class) {
+      if(y.length != x.getDimensionality()) {
+        throw new IllegalArgumentException("Objects do not have the same dimensionality.");
+      }
+      double v = 0;
+      for(int i = 0; i < y.length; i++) {
+        double d = x.doubleValue(i) - y[i];
+        v += d * d;
+      }
+      return v;
+    }
+    return df.distance(x, DoubleVector.wrap(y));
+  }
+
+  /**
+   * Compute a distance, with a fast path for squared Euclidean distance.
+   *
+   * @param df Distance function
+   * @param x First object
+   * @param y Second object
+   * @return Distance
+   */
+  protected static double distance(NumberVectorDistanceFunction<?> df, double[] x, double[] y) {
+    if(df.getClass() == SquaredEuclideanDistanceFunction.class) {
+      if(y.length != x.length) {
+        throw new IllegalArgumentException("Objects do not have the same dimensionality.");
+      }
+      double v = 0;
+      for(int i = 0; i < x.length; i++) {
+        double d = x[i] - y[i];
+        v += d * d;
+      }
+      return v;
+    }
+    return df.distance(DoubleVector.wrap(x), DoubleVector.wrap(y));
+  }
+
+  /**
+   * Compute a mean from a cluster sum by averaging. Empty clusters keep their
+   * previous mean.
+   *
+   * @param dst Output mean
+   * @param sum Input sum
+   * @param size Cluster size
+   * @param prev Previous mean
+   */
+  protected static void meanFromSum(double[] dst, double[] sum, int size, double[] prev) {
+    if(size > 0) {
+      VMath.overwriteTimes(dst, sum, 1. / size);
+    }
+    else if(dst != prev) {
+      System.arraycopy(prev, 0, dst, 0, prev.length);
+    }
+  }
+
+  /**
+   * Copy means
+   *
+   * @param src Source values
+   * @param dst Destination values
+   */
+  protected static void copyMeans(double[][] src, double[][] dst) {
+    for(int i = 0; i < src.length; i++) {
+      System.arraycopy(src[i], 0, dst[i], 0, src[i].length);
+    }
+  }
+
+  /**
+   * Recompute the separation of cluster means, i.e., half the distance to the
+   * nearest other mean. This performs {@code k*(k-1)/2} distance computations.
+   *
+   * @param df Distance function
+   * @param means Cluster means
+   * @param sep Output array of separation
+   * @param cdist Output center-to-center distances (half-sqrt scaled), may be
+   *        {@code null}
+   */
+  protected static void recomputeSeperation(NumberVectorDistanceFunction<?> df, double[][] means, double[] sep, double[][] cdist) {
+    final int k = means.length;
+    final boolean issquared = df.isSquared();
+    assert (sep.length == k);
+    Arrays.fill(sep, Double.POSITIVE_INFINITY);
+    for(int i = 1; i < k; i++) {
+      double[] mi = means[i];
+      for(int j = 0; j < i; j++) {
+        double d = distance(df, mi, means[j]);
+        d = .5 * (issquared ? FastMath.sqrt(d) : d);
+        if(cdist != null) {
+          cdist[i][j] = cdist[j][i] = d;
+        }
+        sep[i] = (d < sep[i]) ? d : sep[i];
+        sep[j] = (d < sep[j]) ? d : sep[j];
+      }
+    }
+  }
+
+  /**
+   * Distance moved by each mean. This performs {@code k} distance
+   * computations.
+   *
+   * @param df Distance function
+   * @param means Old means
+   * @param newmeans New means
+   * @param dists Distances moved (output)
+   * @return Maximum distance moved
+   */
+  protected static double movedDistance(NumberVectorDistanceFunction<?> df, double[][] means, double[][] newmeans, double[] dists) {
+    assert (newmeans.length == means.length);
+    assert (dists.length == means.length);
+    final boolean issquared = df.isSquared();
+    double max = 0.;
+    for(int i = 0; i < means.length; i++) {
+      double d = distance(df, means[i], newmeans[i]);
+      dists[i] = d = issquared ? FastMath.sqrt(d) : d;
+      max = (d > max) ? d : max;
+    }
+    return max;
+  }
+
   @Override
   public void setK(int k) {
     this.k = k;
@@ -398,18 +526,7 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> ex
      */
     protected double distance(NumberVector x, double[] y) {
       ++diststat;
-      if(df.getClass() == SquaredEuclideanDistanceFunction.class) {
-        if(y.length != x.getDimensionality()) {
-          throw new IllegalArgumentException("Objects do not have the same dimensionality.");
-        }
-        double v = 0;
-        for(int i = 0; i < y.length; i++) {
-          double d = x.doubleValue(i) - y[i];
-          v += d * d;
-        }
-        return v;
-      }
-      return df.distance(x, DoubleVector.wrap(y));
+      return AbstractKMeans.distance(df, x, y);
     }
 
     /**
@@ -421,18 +538,7 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> ex
      */
     protected double distance(double[] x, double[] y) {
       ++diststat;
-      if(df.getClass() == SquaredEuclideanDistanceFunction.class) {
-        if(y.length != x.length) {
-          throw new IllegalArgumentException("Objects do not have the same dimensionality.");
-        }
-        double v = 0;
-        for(int i = 0; i < x.length; i++) {
-          double d = x[i] - y[i];
-          v += d * d;
-        }
-        return v;
-      }
-      return df.distance(DoubleVector.wrap(x), DoubleVector.wrap(y));
+      return AbstractKMeans.distance(df, x, y);
     }
 
     /**
@@ -472,26 +578,15 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> ex
     protected abstract int iterate(int iteration);
 
     /**
-     * Compute means from cluster sums by averaging.
+     * Compute means from cluster sums by averaging. Empty clusters keep their
+     * previous mean.
      * 
      * @param dst Output means
      * @param sums Input sums
      */
     protected void meansFromSums(double[][] dst, double[][] sums) {
       for(int i = 0; i < k; i++) {
-        VMath.overwriteTimes(dst[i], sums[i], 1. / clusters.get(i).size());
-      }
-    }
-
-    /**
-     * Copy means
-     *
-     * @param src Source values
-     * @param dst Destination values
-     */
-    protected void copyMeans(double[][] src, double[][] dst) {
-      for(int i = 0; i < k; i++) {
-        System.arraycopy(src[i], 0, dst[i], 0, src[i].length);
+        meanFromSum(dst[i], sums[i], clusters.get(i).size(), means[i]);
       }
     }
 
@@ -537,20 +632,8 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> ex
      * @param cdist Center-to-Center distances (half-sqrt scaled)
      */
     protected void recomputeSeperation(double[] sep, double[][] cdist) {
-      final int k = means.length;
-      final boolean issquared = df.isSquared();
-      assert (sep.length == k);
-      Arrays.fill(sep, Double.POSITIVE_INFINITY);
-      for(int i = 1; i < k; i++) {
-        double[] mi = means[i];
-        for(int j = 0; j < i; j++) {
-          double d = distance(mi, means[j]);
-          d = .5 * (issquared ? FastMath.sqrt(d) : d);
-          cdist[i][j] = cdist[j][i] = d;
-          sep[i] = (d < sep[i]) ? d : sep[i];
-          sep[j] = (d < sep[j]) ? d : sep[j];
-        }
-      }
+      diststat += (means.length * (means.length - 1)) >>> 1;
+      AbstractKMeans.recomputeSeperation(df, means, sep, cdist);
     }
 
     /**
@@ -564,16 +647,8 @@ public abstract class AbstractKMeans<V extends NumberVector, M extends Model> ex
      * @return Maximum distance moved
      */
     protected double movedDistance(double[][] means, double[][] newmeans, double[] dists) {
-      assert (newmeans.length == means.length);
-      assert (dists.length == means.length);
-      boolean issquared = df.isSquared();
-      double max = 0.;
-      for(int i = 0; i < means.length; i++) {
-        double d = distance(means[i], newmeans[i]);
-        dists[i] = d = issquared ? FastMath.sqrt(d) : d;
-        max = (d > max) ? d : max;
-      }
-      return max;
+      diststat += means.length;
+      return AbstractKMeans.movedDistance(df, means, newmeans, dists);
     }
 
     /**
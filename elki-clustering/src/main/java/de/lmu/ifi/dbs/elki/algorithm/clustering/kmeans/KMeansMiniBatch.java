@@ -0,0 +1,424 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.KMeansModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Mini-batch k-means, which updates the means from small random samples of the
+ * data set, using a per-center learning rate of 1 / (number of points assigned
+ * to the center so far).
+ * <p>
+ * Each iteration only processes a sample of the given batch size, and no
+ * assignment of the full data set is stored during the iterations; the data
+ * set is only scanned once at the end to produce the final partitioning. With
+ * a batch size of 1, this is the sequential (online) k-means update of
+ * {@link KMeansMacQueen}, without removing points from their previous cluster.
+ * <p>
+ * Because the {@link Instance} only keeps the means and counts, it can also be
+ * used to incrementally update a clustering when new objects are added to the
+ * relation, see {@link #initialize} and {@link Instance#update}.
+ * <p>
+ * Reference:
+ * <p>
+ * D. Sculley<br>
+ * Web-scale k-means clustering<br>
+ * Proc. 19th Int. Conf. on World Wide Web, WWW 2010
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @navassoc - - - KMeansModel
+ * @has - - - Instance
+ *
+ * @param <V> vector type to use
+ */
+@Title("Mini-Batch k-Means")
+@Reference(authors = "D. Sculley", //
+    title = "Web-scale k-means clustering", //
+    booktitle = "Proc. 19th Int. Conf. on World Wide Web, WWW 2010", //
+    url = "https://doi.org/10.1145/1772690.1772862", //
+    bibkey = "DBLP:conf/www/Sculley10")
+public class KMeansMiniBatch<V extends NumberVector> extends AbstractKMeans<V, KMeansModel> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(KMeansMiniBatch.class);
+
+  /**
+   * Size of the mini batches.
+   */
+  protected int batchsize;
+
+  /**
+   * Random generator for sampling.
+   */
+  protected RandomFactory random;
+
+  /**
+   * Compute the final variance statistic.
+   */
+  protected boolean varstat;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Number of mini batches to process
+   * @param initializer Initialization method
+   * @param batchsize Size of each mini batch
+   * @param random Random generator for sampling
+   * @param varstat Compute the variance statistic
+   */
+  public KMeansMiniBatch(NumberVectorDistanceFunction<? super V> distanceFunction, int k, int maxiter, KMeansInitialization initializer, int batchsize, RandomFactory random, boolean varstat) {
+    super(distanceFunction, k, maxiter, initializer);
+    this.batchsize = batchsize;
+    this.random = random;
+    this.varstat = varstat;
+  }
+
+  @Override
+  public Clustering<KMeansModel> run(Database database, Relation<V> relation) {
+    Instance instance = initialize(database, relation);
+    instance.run(maxiter, batchsize, random.getSingleThreadedRandom());
+    return instance.buildResult(relation.getDBIDs(), varstat);
+  }
+
+  /**
+   * Choose the initial means, and prepare an instance that can be updated with
+   * further batches, e.g., when new objects are added to the relation.
+   *
+   * @param database Database
+   * @param relation Data relation
+   * @return Instance
+   */
+  public Instance initialize(Database database, Relation<V> relation) {
+    return new Instance(relation, getDistanceFunction(), initialMeans(database, relation));
+  }
+
+  /**
+   * Instance for a single data set, only storing the current means and the
+   * number of points that contributed to each mean.
+   *
+   * @author Erich Schubert
+   */
+  public static class Instance {
+    /**
+     * Data relation.
+     */
+    protected Relation<? extends NumberVector> relation;
+
+    /**
+     * Distance function.
+     */
+    private final NumberVectorDistanceFunction<?> df;
+
+    /**
+     * Current means.
+     */
+    protected double[][] means;
+
+    /**
+     * Number of points used to update each mean so far.
+     */
+    protected long[] counts;
+
+    /**
+     * Number of clusters.
+     */
+    protected final int k;
+
+    /**
+     * Assignment of the current batch (reused).
+     */
+    private int[] batchassign = new int[0];
+
+    /**
+     * Number of distance computations
+     */
+    protected long diststat = 0;
+
+    /**
+     * Key for statistics logging.
+     */
+    protected String key = KMeansMiniBatch.class.getName();
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation to process
+     * @param df Distance function
+     * @param means Initial means
+     */
+    public Instance(Relation<? extends NumberVector> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+      this.relation = relation;
+      this.df = df;
+      this.means = means;
+      this.k = means.length;
+      this.counts = new long[k];
+    }
+
+    /**
+     * Run the given number of mini batches, sampled from the relation.
+     *
+     * @param maxiter Number of batches
+     * @param batchsize Batch size
+     * @param rnd Random generator
+     */
+    protected void run(int maxiter, int batchsize, Random rnd) {
+      final ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+      final int size = Math.min(batchsize, ids.size());
+      FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Mini batches", maxiter, LOG) : null;
+      for(int iteration = 1; iteration <= maxiter; iteration++) {
+        update(DBIDUtil.randomSample(ids, size, rnd));
+        LOG.incrementProcessed(prog);
+      }
+      LOG.ensureCompleted(prog);
+      LOG.statistics(new LongStatistic(key + ".iterations", maxiter));
+    }
+
+    /**
+     * Update the means with a single batch of objects.
+     * <p>
+     * All objects of the batch are assigned using the means before the update,
+     * then each mean is moved towards its objects with a decreasing learning
+     * rate. The objects do not need to be part of the relation at construction
+     * time, which allows feeding newly added objects without restarting.
+     *
+     * @param batch Batch of objects
+     */
+    public void update(DBIDs batch) {
+      final int size = batch.size();
+      if(batchassign.length < size) {
+        batchassign = new int[size];
+      }
+      // Assign using the old means first, then update.
+      int i = 0;
+      for(DBIDIter it = batch.iter(); it.valid(); it.advance(), i++) {
+        batchassign[i] = nearest(relation.get(it));
+      }
+      i = 0;
+      for(DBIDIter it = batch.iter(); it.valid(); it.advance(), i++) {
+        final int c = batchassign[i];
+        final double eta = 1. / ++counts[c];
+        final NumberVector fv = relation.get(it);
+        final double[] mean = means[c];
+        for(int d = 0; d < mean.length; d++) {
+          mean[d] += eta * (fv.doubleValue(d) - mean[d]);
+        }
+      }
+    }
+
+    /**
+     * Find the nearest mean of an object.
+     *
+     * @param fv Object
+     * @return Index of the nearest mean
+     */
+    public int nearest(NumberVector fv) {
+      double mindist = Double.POSITIVE_INFINITY;
+      int minIndex = 0;
+      for(int i = 0; i < k; i++) {
+        double dist = distance(fv, means[i]);
+        if(dist < mindist) {
+          minIndex = i;
+          mindist = dist;
+        }
+      }
+      return minIndex;
+    }
+
+    /**
+     * Get the current means.
+     *
+     * @return Means
+     */
+    public double[][] getMeans() {
+      return means;
+    }
+
+    /**
+     * Build a clustering by assigning each object to the nearest mean.
+     * <p>
+     * The logged number of distance computations includes this final pass.
+     *
+     * @param ids Objects to assign
+     * @param varstat Compute the variance sums
+     * @return Clustering result
+     */
+    public Clustering<KMeansModel> buildResult(DBIDs ids, boolean varstat) {
+      List<ArrayModifiableDBIDs> clusters = new ArrayList<>(k);
+      for(int i = 0; i < k; i++) {
+        clusters.add(DBIDUtil.newArray((int) (ids.size() * 2. / k)));
+      }
+      double[] varsum = new double[k];
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        final NumberVector fv = relation.get(it);
+        double mindist = Double.POSITIVE_INFINITY;
+        int minIndex = 0;
+        for(int i = 0; i < k; i++) {
+          double dist = distance(fv, means[i]);
+          if(dist < mindist) {
+            minIndex = i;
+            mindist = dist;
+          }
+        }
+        clusters.get(minIndex).add(it);
+        varsum[minIndex] += mindist;
+      }
+      Clustering<KMeansModel> result = new Clustering<>("k-Means Clustering", "kmeans-clustering");
+      double totalvariance = 0.;
+      for(int i = 0; i < k; i++) {
+        DBIDs cids = clusters.get(i);
+        if(cids.isEmpty()) {
+          continue;
+        }
+        totalvariance += varsum[i];
+        result.addToplevelCluster(new Cluster<>(cids, new KMeansModel(means[i], varstat ? varsum[i] : Double.NaN)));
+      }
+      if(varstat && LOG.isStatistics()) {
+        LOG.statistics(new DoubleStatistic(key + ".variance-sum", totalvariance));
+      }
+      LOG.statistics(new LongStatistic(key + ".distance-computations", diststat));
+      return result;
+    }
+
+    /**
+     * Compute a distance (and count the distance computations).
+     *
+     * @param x First object
+     * @param y Second object
+     * @return Distance
+     */
+    protected double distance(NumberVector x, double[] y) {
+      ++diststat;
+      if(df.getClass() == SquaredEuclideanDistanceFunction.class) {
+        if(y.length != x.getDimensionality()) {
+          throw new IllegalArgumentException("Objects do not have the same dimensionality.");
+        }
+        double v = 0;
+        for(int i = 0; i < y.length; i++) {
+          double d = x.doubleValue(i) - y[i];
+          v += d * d;
+        }
+        return v;
+      }
+      return df.distance(x, DoubleVector.wrap(y));
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractKMeans.Parameterizer<V> {
+    /**
+     * Parameter for the size of the mini batches.
+     */
+    public static final OptionID BATCHSIZE_ID = new OptionID("kmeans.batchsize", "Number of objects sampled in each mini batch.");
+
+    /**
+     * Parameter for the number of mini batches.
+     */
+    public static final OptionID BATCHES_ID = new OptionID("kmeans.batches", "Number of mini batches to process.");
+
+    /**
+     * Random generator seed for sampling the batches.
+     */
+    public static final OptionID RANDOM_ID = new OptionID("kmeans.batchseed", "Random generator seed for sampling the mini batches.");
+
+    /**
+     * Size of the mini batches.
+     */
+    protected int batchsize;
+
+    /**
+     * Random generator for sampling.
+     */
+    protected RandomFactory random;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter batchsizeP = new IntParameter(BATCHSIZE_ID, 1000) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(batchsizeP)) {
+        batchsize = batchsizeP.intValue();
+      }
+      RandomParameter randomP = new RandomParameter(RANDOM_ID);
+      if(config.grab(randomP)) {
+        random = randomP.getValue();
+      }
+      getParameterVarstat(config);
+    }
+
+    @Override
+    protected void getParameterMaxIter(Parameterization config) {
+      IntParameter maxiterP = new IntParameter(BATCHES_ID, 100) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(maxiterP)) {
+        maxiter = maxiterP.intValue();
+      }
+    }
+
+    @Override
+    protected KMeansMiniBatch<V> makeInstance() {
+      return new KMeansMiniBatch<>(distanceFunction, k, maxiter, initializer, batchsize, random, varstat);
+    }
+  }
+}
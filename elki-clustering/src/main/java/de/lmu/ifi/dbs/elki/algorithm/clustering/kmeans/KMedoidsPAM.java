@@ -199,27 +199,27 @@ public class KMedoidsPAM<V> extends AbstractDistanceBasedAlgorithm<V, Clustering
     /**
      * Ids to process.
      */
-    DBIDs ids;
+    protected DBIDs ids;
 
     /**
      * Distance function to use.
      */
-    DistanceQuery<?> distQ;
+    protected DistanceQuery<?> distQ;
 
     /**
      * Distance to the nearest medoid of each point.
      */
-    WritableDoubleDataStore nearest;
+    protected WritableDoubleDataStore nearest;
 
     /**
      * Distance to the second nearest medoid.
      */
-    WritableDoubleDataStore second;
+    protected WritableDoubleDataStore second;
 
     /**
      * Cluster mapping.
      */
-    WritableIntegerDataStore assignment;
+    protected WritableIntegerDataStore assignment;
 
     /**
      * Constructor.
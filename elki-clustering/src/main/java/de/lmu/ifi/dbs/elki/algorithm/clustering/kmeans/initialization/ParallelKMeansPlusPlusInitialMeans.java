@@ -0,0 +1,201 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.LoggingUtil;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Multi-threaded K-Means++ initialization for k-means.
+ * <p>
+ * The seeding is the same as in {@link KMeansPlusPlusInitialMeans}, but the
+ * update of the distances to the nearest chosen mean after each step is
+ * performed in parallel. Choosing the next mean only needs a sequential scan
+ * over the weights, which is cheap compared to the distance computations.
+ * <p>
+ * Reference:
+ * <p>
+ * D. Arthur, S. Vassilvitskii<br>
+ * k-means++: the advantages of careful seeding<br>
+ * Proc. 18th Annual ACM-SIAM Symposium on Discrete Algorithms (SODA 2007)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@Reference(authors = "D. Arthur, S. Vassilvitskii", //
+    title = "k-means++: the advantages of careful seeding", //
+    booktitle = "Proc. 18th Annual ACM-SIAM Symposium on Discrete Algorithms (SODA 2007)", //
+    url = "http://dl.acm.org/citation.cfm?id=1283383.1283494", //
+    bibkey = "DBLP:conf/soda/ArthurV07")
+public class ParallelKMeansPlusPlusInitialMeans extends AbstractKMeansInitialization {
+  /**
+   * Constructor.
+   *
+   * @param rnd Random generator.
+   */
+  public ParallelKMeansPlusPlusInitialMeans(RandomFactory rnd) {
+    super(rnd);
+  }
+
+  @Override
+  public double[][] chooseInitialMeans(Database database, Relation<? extends NumberVector> relation, int k, NumberVectorDistanceFunction<?> distanceFunction) {
+    if(relation.size() < k) {
+      throw new IllegalArgumentException("Cannot choose k=" + k + " means from N=" + relation.size() + " < k objects.");
+    }
+    DBIDs ids = relation.getDBIDs();
+
+    // Chose first mean
+    Random random = rnd.getSingleThreadedRandom();
+    List<NumberVector> means = new ArrayList<>(k);
+    means.add(relation.get(DBIDUtil.randomSample(ids, random)));
+
+    WritableDoubleDataStore weights = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, Double.POSITIVE_INFINITY);
+    double weightsum = updateWeights(relation, distanceFunction, means, 0, weights, null);
+    while(means.size() < k) {
+      if(weightsum > Double.MAX_VALUE) {
+        throw new IllegalStateException("Could not choose a reasonable mean - too many data points, too large distance sum?");
+      }
+      if(weightsum < Double.MIN_NORMAL) {
+        LoggingUtil.warning("Could not choose a reasonable mean - to few data points?");
+      }
+      double r = random.nextDouble() * weightsum;
+      while(r <= 0 && weightsum > Double.MIN_NORMAL) {
+        r = random.nextDouble() * weightsum; // Try harder to not choose 0.
+      }
+      DBIDIter it = ids.iter();
+      while(it.valid()) {
+        if((r -= weights.doubleValue(it)) < 0) {
+          break;
+        }
+        it.advance();
+      }
+      if(!it.valid()) { // Rare case, but happens due to floating math
+        weightsum -= r; // Decrease
+        continue; // Retry
+      }
+      means.add(relation.get(it));
+      weights.putDouble(it, 0.);
+      weightsum = updateWeights(relation, distanceFunction, means, means.size() - 1, weights, null);
+    }
+    weights.destroy();
+    return unboxVectors(means);
+  }
+
+  /**
+   * Update the distances to the nearest mean in parallel, for the means
+   * starting at the given offset.
+   * <p>
+   * Objects with a weight of 0 (chosen means and their duplicates) are not
+   * updated anymore.
+   *
+   * @param relation Data relation
+   * @param df Distance function
+   * @param means Chosen means
+   * @param start Index of the first new mean
+   * @param weights Weights, initialized to infinity
+   * @param nearest Index of the nearest mean (optional, may be {@code null})
+   * @return Sum of weights
+   */
+  static double updateWeights(Relation<? extends NumberVector> relation, NumberVectorDistanceFunction<?> df, List<? extends NumberVector> means, int start, WritableDoubleDataStore weights, WritableIntegerDataStore nearest) {
+    final int end = means.size();
+    ParallelExecutor.run(relation.getDBIDs(), new Processor() {
+      @Override
+      public Processor.Instance instantiate(Executor executor) {
+        return new WeightWorker();
+      }
+
+      @Override
+      public void cleanup(Processor.Instance inst) {
+        // Nothing to do.
+      }
+
+      /**
+       * Worker, updating the weights of a block of objects.
+       *
+       * @author Erich Schubert
+       */
+      final class WeightWorker implements Processor.Instance {
+        @Override
+        public void map(DBIDRef id) {
+          double weight = weights.doubleValue(id);
+          if(weight <= 0.) {
+            return; // Duplicate, or already chosen.
+          }
+          final NumberVector fv = relation.get(id);
+          int best = -1;
+          for(int i = start; i < end; i++) {
+            // Distance will usually already be squared
+            double newweight = df.distance(means.get(i), fv);
+            if(newweight < weight) {
+              weight = newweight;
+              best = i;
+            }
+          }
+          if(best >= 0) {
+            weights.putDouble(id, weight);
+            if(nearest != null) {
+              nearest.putInt(id, best);
+            }
+          }
+        }
+      }
+    });
+    // Sum sequentially, as the order of partial sums of the threads is not
+    // deterministic, and would change the rounding.
+    double weightsum = 0.;
+    for(DBIDIter it = relation.iterDBIDs(); it.valid(); it.advance()) {
+      weightsum += weights.doubleValue(it);
+    }
+    return weightsum;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer extends AbstractKMeansInitialization.Parameterizer {
+    @Override
+    protected ParallelKMeansPlusPlusInitialMeans makeInstance() {
+      return new ParallelKMeansPlusPlusInitialMeans(rnd);
+    }
+  }
+}
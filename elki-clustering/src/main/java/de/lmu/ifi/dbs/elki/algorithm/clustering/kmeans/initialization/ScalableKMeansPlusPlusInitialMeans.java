@@ -0,0 +1,249 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.LoggingUtil;
+import de.lmu.ifi.dbs.elki.utilities.Alias;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Scalable K-Means++ (k-means||) initialization for k-means.
+ * <p>
+ * Instead of choosing one mean per pass over the data as k-means++, this
+ * samples about {@code l = oversampling * k} candidates in each of a few
+ * rounds, with probability proportional to their distance to the nearest
+ * candidate so far. The candidates are then weighted by the number of objects
+ * closest to them, and reduced to k means with weighted k-means++ in memory.
+ * The distance updates of each round run in parallel.
+ * <p>
+ * Reference:
+ * <p>
+ * B. Bahmani, B. Moseley, A. Vattani, R. Kumar, S. Vassilvitskii<br>
+ * Scalable K-Means++<br>
+ * Proc. VLDB Endowment 5(7)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+@Reference(authors = "B. Bahmani, B. Moseley, A. Vattani, R. Kumar, S. Vassilvitskii", //
+    title = "Scalable K-Means++", //
+    booktitle = "Proc. VLDB Endowment 5(7)", //
+    url = "https://doi.org/10.14778/2180912.2180915", //
+    bibkey = "DBLP:journals/pvldb/BahmaniMVKV12")
+@Alias({ "kmeans||", "k-means||" })
+public class ScalableKMeansPlusPlusInitialMeans extends AbstractKMeansInitialization {
+  /**
+   * Number of sampling rounds.
+   */
+  protected int rounds;
+
+  /**
+   * Oversampling factor, relative to k.
+   */
+  protected double oversampling;
+
+  /**
+   * Constructor.
+   *
+   * @param rnd Random generator.
+   * @param rounds Number of sampling rounds
+   * @param oversampling Oversampling factor, relative to k
+   */
+  public ScalableKMeansPlusPlusInitialMeans(RandomFactory rnd, int rounds, double oversampling) {
+    super(rnd);
+    this.rounds = rounds;
+    this.oversampling = oversampling;
+  }
+
+  @Override
+  public double[][] chooseInitialMeans(Database database, Relation<? extends NumberVector> relation, int k, NumberVectorDistanceFunction<?> distanceFunction) {
+    if(relation.size() < k) {
+      throw new IllegalArgumentException("Cannot choose k=" + k + " means from N=" + relation.size() + " < k objects.");
+    }
+    DBIDs ids = relation.getDBIDs();
+    Random random = rnd.getSingleThreadedRandom();
+    List<NumberVector> cands = new ArrayList<>();
+    cands.add(relation.get(DBIDUtil.randomSample(ids, random)));
+
+    WritableDoubleDataStore weights = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, Double.POSITIVE_INFINITY);
+    WritableIntegerDataStore nearest = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, 0);
+    double psi = ParallelKMeansPlusPlusInitialMeans.updateWeights(relation, distanceFunction, cands, 0, weights, nearest);
+    final double l = oversampling * k;
+    // Continue beyond the given number of rounds if we have too few candidates.
+    for(int round = 0; (round < rounds || cands.size() < k) && psi >= Double.MIN_NORMAL; round++) {
+      final int start = cands.size();
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        final double weight = weights.doubleValue(it);
+        if(weight > 0. && random.nextDouble() * psi < l * weight) {
+          nearest.putInt(it, cands.size());
+          weights.putDouble(it, 0.);
+          cands.add(relation.get(it));
+        }
+      }
+      if(cands.size() > start) {
+        psi = ParallelKMeansPlusPlusInitialMeans.updateWeights(relation, distanceFunction, cands, start, weights, nearest);
+      }
+    }
+    weights.destroy();
+    if(cands.size() <= k) {
+      nearest.destroy();
+      if(cands.size() < k) {
+        LoggingUtil.warning("Could only choose " + cands.size() + " distinct means, fewer than k=" + k);
+      }
+      return unboxVectors(cands);
+    }
+    // Weight the candidates by the number of objects nearest to them:
+    double[] cweight = new double[cands.size()];
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      cweight[nearest.intValue(it)] += 1.;
+    }
+    nearest.destroy();
+    return unboxVectors(weightedKMeansPlusPlus(cands, cweight, k, distanceFunction, random));
+  }
+
+  /**
+   * Choose k of the weighted candidates using k-means++.
+   *
+   * @param cands Candidates
+   * @param cweight Candidate weights
+   * @param k Number of means to choose
+   * @param df Distance function
+   * @param random Random generator
+   * @return Chosen means
+   */
+  private static List<NumberVector> weightedKMeansPlusPlus(List<NumberVector> cands, double[] cweight, int k, NumberVectorDistanceFunction<?> df, Random random) {
+    final int m = cands.size();
+    double[] mindist = new double[m];
+    Arrays.fill(mindist, Double.POSITIVE_INFINITY);
+    double[] prob = cweight.clone();
+    List<NumberVector> means = new ArrayList<>(k);
+    int chosen = choose(prob, random);
+    while(true) {
+      final NumberVector latest = cands.get(chosen);
+      means.add(latest);
+      if(means.size() >= k) {
+        return means;
+      }
+      for(int i = 0; i < m; i++) {
+        if(mindist[i] > 0.) {
+          mindist[i] = Math.min(mindist[i], df.distance(latest, cands.get(i)));
+        }
+        prob[i] = cweight[i] * mindist[i];
+      }
+      prob[chosen] = mindist[chosen] = 0.;
+      chosen = choose(prob, random);
+    }
+  }
+
+  /**
+   * Choose an index with probability proportional to the given weights.
+   *
+   * @param prob Weights
+   * @param random Random generator
+   * @return Chosen index
+   */
+  private static int choose(double[] prob, Random random) {
+    double sum = 0.;
+    for(double p : prob) {
+      sum += p;
+    }
+    double r = random.nextDouble() * sum;
+    int last = 0;
+    for(int i = 0; i < prob.length; i++) {
+      if(prob[i] > 0.) {
+        last = i;
+        if((r -= prob[i]) < 0) {
+          return i;
+        }
+      }
+    }
+    return last; // Due to floating point math
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer extends AbstractKMeansInitialization.Parameterizer {
+    /**
+     * Number of sampling rounds.
+     */
+    public static final OptionID ROUNDS_ID = new OptionID("kmeans.scalable.rounds", "Number of oversampling rounds.");
+
+    /**
+     * Oversampling factor, relative to k.
+     */
+    public static final OptionID OVERSAMPLING_ID = new OptionID("kmeans.scalable.oversampling", "Expected number of candidates sampled per round, as a multiple of k.");
+
+    /**
+     * Number of sampling rounds.
+     */
+    protected int rounds;
+
+    /**
+     * Oversampling factor, relative to k.
+     */
+    protected double oversampling;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter roundsP = new IntParameter(ROUNDS_ID, 5) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(roundsP)) {
+        rounds = roundsP.intValue();
+      }
+      DoubleParameter oversamplingP = new DoubleParameter(OVERSAMPLING_ID, 2.) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE);
+      if(config.grab(oversamplingP)) {
+        oversampling = oversamplingP.doubleValue();
+      }
+    }
+
+    @Override
+    protected ScalableKMeansPlusPlusInitialMeans makeInstance() {
+      return new ScalableKMeansPlusPlusInitialMeans(rnd, rounds, oversampling);
+    }
+  }
+}
@@ -0,0 +1,473 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.ClusteringAlgorithmUtil;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.AbstractKMeans;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.model.KMeansModel;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.VMath;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+
+/**
+ * Abstract base class for parallel k-means variants that maintain bounds for
+ * each object, such as Hamerly's and Elkan's algorithms.
+ * <p>
+ * In each iteration, the objects are partitioned across threads. Each worker
+ * updates the bounds of its own objects, reassigns them, and accumulates the
+ * changes of the cluster sums and sizes locally. Workers are reused for
+ * multiple blocks, and their partial sums are merged once per iteration, so
+ * the threads do not contend for shared state.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - Instance
+ *
+ * @param <V> Vector type
+ */
+public abstract class AbstractParallelKMeans<V extends NumberVector> extends AbstractKMeans<V, KMeansModel> {
+  /**
+   * Flag whether to compute the final variance statistic.
+   */
+  protected boolean varstat = false;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Maxiter parameter
+   * @param initializer Initialization method
+   * @param varstat Compute the variance statistic
+   */
+  public AbstractParallelKMeans(NumberVectorDistanceFunction<? super V> distanceFunction, int k, int maxiter, KMeansInitialization initializer, boolean varstat) {
+    super(distanceFunction, k, maxiter, initializer);
+    this.varstat = varstat;
+  }
+
+  @Override
+  public Clustering<KMeansModel> run(Database database, Relation<V> relation) {
+    Instance instance = makeInstance(relation, getDistanceFunction(), initialMeans(database, relation));
+    instance.run(maxiter);
+    return instance.buildResult(varstat);
+  }
+
+  /**
+   * Make the instance for a data set.
+   *
+   * @param relation Data relation
+   * @param df Distance function
+   * @param means Initial means
+   * @return Instance
+   */
+  protected abstract Instance makeInstance(Relation<V> relation, NumberVectorDistanceFunction<?> df, double[][] means);
+
+  /**
+   * Inner instance, storing state for a single data set.
+   *
+   * @author Erich Schubert
+   *
+   * @has - - - Worker
+   */
+  protected abstract static class Instance implements Processor {
+    /**
+     * Data relation.
+     */
+    protected final Relation<? extends NumberVector> relation;
+
+    /**
+     * Distance function.
+     */
+    private final NumberVectorDistanceFunction<?> df;
+
+    /**
+     * Indicates whether the distance function is squared.
+     */
+    protected final boolean isSquared;
+
+    /**
+     * Number of clusters.
+     */
+    protected final int k;
+
+    /**
+     * Dimensionality.
+     */
+    protected final int dim;
+
+    /**
+     * Cluster means.
+     */
+    protected final double[][] means;
+
+    /**
+     * Cluster sums.
+     */
+    protected final double[][] sums;
+
+    /**
+     * Cluster sizes.
+     */
+    protected final int[] sizes;
+
+    /**
+     * A mapping of elements to cluster ids.
+     */
+    protected final WritableIntegerDataStore assignment;
+
+    /**
+     * Current iteration, beginning at 1.
+     */
+    protected int iteration;
+
+    /**
+     * Number of distance computations.
+     */
+    protected long diststat = 0;
+
+    /**
+     * Workers not currently in use.
+     */
+    private final ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Key for statistics logging.
+     */
+    protected String key;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation to process
+     * @param df Distance function
+     * @param means Initial means
+     */
+    public Instance(Relation<? extends NumberVector> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+      this.relation = relation;
+      this.df = df;
+      this.isSquared = df.isSquared();
+      this.means = means;
+      this.k = means.length;
+      this.dim = means[0].length;
+      this.sums = new double[k][dim];
+      this.sizes = new int[k];
+      this.assignment = DataStoreUtil.makeIntegerStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, -1);
+      this.key = this.getClass().getName().replace("$Instance", "");
+    }
+
+    /**
+     * Run the clustering.
+     *
+     * @param maxiter Maximum number of iterations
+     */
+    protected void run(int maxiter) {
+      final Logging log = getLogger();
+      IndefiniteProgress prog = log.isVerbose() ? new IndefiniteProgress("Iteration") : null;
+      iteration = 0;
+      while(++iteration <= maxiter) {
+        log.incrementProcessed(prog);
+        if(iteration > 1) {
+          updateMeans();
+        }
+        ParallelExecutor.run(relation.getDBIDs(), this);
+        int changed = mergeWorkers();
+        if(changed == 0) {
+          break;
+        }
+        if(log.isStatistics()) {
+          log.statistics(new LongStatistic(key + "." + iteration + ".reassignments", changed));
+        }
+      }
+      log.setCompleted(prog);
+      log.statistics(new LongStatistic(key + ".iterations", iteration));
+    }
+
+    /**
+     * Compute the new means from the cluster sums, and prepare the next
+     * iteration. Called before each iteration except the first.
+     */
+    protected abstract void updateMeans();
+
+    /**
+     * Create a new worker.
+     *
+     * @return Worker
+     */
+    protected abstract Worker makeWorker();
+
+    @Override
+    public Processor.Instance instantiate(Executor executor) {
+      Worker w = idle.poll();
+      return w != null ? w : makeWorker();
+    }
+
+    @Override
+    public void cleanup(Processor.Instance inst) {
+      idle.add((Worker) inst);
+    }
+
+    /**
+     * Merge the partial results of all workers.
+     *
+     * @return Number of reassigned objects
+     */
+    private int mergeWorkers() {
+      int changed = 0;
+      for(Worker w : idle) {
+        changed += w.changed;
+        diststat += w.diststat;
+        for(int i = 0; i < k; i++) {
+          sizes[i] += w.dsizes[i];
+          double[] dsum = w.dsums[i];
+          if(dsum != null) {
+            VMath.plusEquals(sums[i], dsum);
+            Arrays.fill(dsum, 0.);
+          }
+        }
+        Arrays.fill(w.dsizes, 0);
+        w.changed = 0;
+        w.diststat = 0;
+      }
+      return changed;
+    }
+
+    /**
+     * Compute means from cluster sums by averaging. Empty clusters keep their
+     * previous mean.
+     *
+     * @param dst Output means
+     */
+    protected void meansFromSums(double[][] dst) {
+      for(int i = 0; i < k; i++) {
+        meanFromSum(dst[i], sums[i], sizes[i], means[i]);
+      }
+    }
+
+    /**
+     * Distance moved by each mean.
+     *
+     * @param newmeans New means
+     * @param dists Distances moved (output)
+     * @return Maximum distance moved
+     */
+    protected double movedDistance(double[][] newmeans, double[] dists) {
+      diststat += k;
+      return AbstractKMeans.movedDistance(df, means, newmeans, dists);
+    }
+
+    /**
+     * Recompute the separation of cluster means, i.e., half the distance to
+     * the nearest other mean.
+     *
+     * @param sep Output array of separation
+     * @param cdist Output center-to-center distances (half-sqrt scaled), may
+     *        be {@code null}
+     */
+    protected void recomputeSeperation(double[] sep, double[][] cdist) {
+      diststat += (k * (k - 1)) >>> 1;
+      AbstractKMeans.recomputeSeperation(df, means, sep, cdist);
+    }
+
+    /**
+     * Build the clustering result.
+     *
+     * @param varstat Compute the cluster variances
+     * @return Clustering result
+     */
+    protected Clustering<KMeansModel> buildResult(boolean varstat) {
+      double[] varsum = varstat ? varianceSums() : null;
+      ArrayModifiableDBIDs[] clusters = ClusteringAlgorithmUtil.partitionsFromIntegerLabels(relation.getDBIDs(), assignment, k);
+      Clustering<KMeansModel> result = new Clustering<>("k-Means Clustering", "kmeans-clustering");
+      for(int i = 0; i < k; i++) {
+        if(clusters[i].isEmpty()) {
+          continue;
+        }
+        result.addToplevelCluster(new Cluster<>(clusters[i], new KMeansModel(means[i], varstat ? varsum[i] : Double.NaN)));
+      }
+      Logging log = getLogger();
+      if(log.isStatistics()) {
+        if(varstat) {
+          log.statistics(new DoubleStatistic(key + ".variance-sum", VMath.sum(varsum)));
+        }
+        // Logged once, including the distances of the variance pass.
+        log.statistics(new LongStatistic(key + ".distance-computations", diststat));
+      }
+      return result;
+    }
+
+    /**
+     * Compute the sum of distances of each cluster, in parallel.
+     *
+     * @return Variance sums
+     */
+    private double[] varianceSums() {
+      final double[] varsum = new double[k];
+      ParallelExecutor.run(relation.getDBIDs(), new Processor() {
+        @Override
+        public Processor.Instance instantiate(Executor executor) {
+          return new VarianceWorker();
+        }
+
+        @Override
+        public synchronized void cleanup(Processor.Instance inst) {
+          VarianceWorker w = (VarianceWorker) inst;
+          VMath.plusEquals(varsum, w.varsum);
+          diststat += w.diststat;
+        }
+      });
+      return varsum;
+    }
+
+    /**
+     * Get the class logger.
+     *
+     * @return Logger
+     */
+    protected abstract Logging getLogger();
+
+    /**
+     * Worker, processing blocks of objects.
+     *
+     * @author Erich Schubert
+     */
+    protected abstract class Worker implements Processor.Instance {
+      /**
+       * Changes of the cluster sums, allocated on demand.
+       */
+      final double[][] dsums = new double[k][];
+
+      /**
+       * Changes of the cluster sizes.
+       */
+      final int[] dsizes = new int[k];
+
+      /**
+       * Number of reassigned objects.
+       */
+      int changed = 0;
+
+      /**
+       * Number of distance computations.
+       */
+      long diststat = 0;
+
+      /**
+       * Compute a distance (and count the distance computations).
+       *
+       * @param x First object
+       * @param y Mean
+       * @return Distance
+       */
+      protected double distance(NumberVector x, double[] y) {
+        ++diststat;
+        return AbstractKMeans.distance(df, x, y);
+      }
+
+      /**
+       * Assign an object to a different cluster.
+       *
+       * @param id Object
+       * @param fv Object vector
+       * @param from Previous cluster, or -1
+       * @param to New cluster
+       */
+      protected void reassign(DBIDRef id, NumberVector fv, int from, int to) {
+        assignment.putInt(id, to);
+        plusEquals(dsum(to), fv);
+        ++dsizes[to];
+        if(from >= 0) {
+          minusEquals(dsum(from), fv);
+          --dsizes[from];
+        }
+        ++changed;
+      }
+
+      /**
+       * Get the local sum changes of a cluster.
+       *
+       * @param i Cluster
+       * @return Sum changes
+       */
+      private double[] dsum(int i) {
+        double[] dsum = dsums[i];
+        return dsum != null ? dsum : (dsums[i] = new double[dim]);
+      }
+    }
+
+    /**
+     * Worker to compute the cluster variances.
+     *
+     * @author Erich Schubert
+     */
+    private class VarianceWorker extends Worker {
+      /**
+       * Partial variance sums.
+       */
+      final double[] varsum = new double[k];
+
+      @Override
+      public void map(DBIDRef id) {
+        final int a = assignment.intValue(id);
+        varsum[a] += distance(relation.get(id), means[a]);
+      }
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public abstract static class Parameterizer<V extends NumberVector> extends AbstractKMeans.Parameterizer<V> {
+    @Override
+    protected boolean needsMetric() {
+      return true;
+    }
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      super.getParameterVarstat(config);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansElkan;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+/**
+ * Parallel version of Elkan's fast k-means by exploiting the triangle
+ * inequality.
+ * <p>
+ * This variant needs O(n*k) additional memory to store bounds. See
+ * {@link KMeansElkan} for the serial version.
+ * <p>
+ * Reference:
+ * <p>
+ * C. Elkan<br>
+ * Using the triangle inequality to accelerate k-means<br>
+ * Proc. 20th International Conference on Machine Learning, ICML 2003
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @navassoc - - - KMeansModel
+ *
+ * @param <V> vector datatype
+ */
+@Reference(authors = "C. Elkan", //
+    title = "Using the triangle inequality to accelerate k-means", //
+    booktitle = "Proc. 20th International Conference on Machine Learning, ICML 2003", //
+    url = "http://www.aaai.org/Library/ICML/2003/icml03-022.php", //
+    bibkey = "DBLP:conf/icml/Elkan03")
+public class ParallelKMeansElkan<V extends NumberVector> extends ParallelKMeansSimplifiedElkan<V> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelKMeansElkan.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Maxiter parameter
+   * @param initializer Initialization method
+   * @param varstat Compute the variance statistic
+   */
+  public ParallelKMeansElkan(NumberVectorDistanceFunction<? super V> distanceFunction, int k, int maxiter, KMeansInitialization initializer, boolean varstat) {
+    super(distanceFunction, k, maxiter, initializer, varstat);
+  }
+
+  @Override
+  protected Instance makeInstance(Relation<V> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+    return new Instance(relation, df, means);
+  }
+
+  /**
+   * Inner instance, storing state for a single data set.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Instance extends ParallelKMeansSimplifiedElkan.Instance {
+    /**
+     * Cluster separation
+     */
+    double[] sep;
+
+    /**
+     * Cluster center distances
+     */
+    double[][] cdist;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation
+     * @param df Distance function
+     * @param means Initial means
+     */
+    public Instance(Relation<? extends NumberVector> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+      super(relation, df, means);
+      sep = new double[k];
+      cdist = new double[k][k];
+    }
+
+    @Override
+    protected void updateMeans() {
+      super.updateMeans();
+      recomputeSeperation(sep, cdist); // #1
+    }
+
+    @Override
+    protected Worker makeWorker() {
+      return new Worker();
+    }
+
+    @Override
+    protected Logging getLogger() {
+      return LOG;
+    }
+
+    /**
+     * Worker, processing blocks of objects.
+     *
+     * @author Erich Schubert
+     */
+    protected class Worker extends ParallelKMeansSimplifiedElkan.Instance.Worker {
+      @Override
+      protected boolean skip(int cur, double u) {
+        return u <= sep[cur]; // #2
+      }
+
+      @Override
+      protected boolean prune(int cur, int j, double u) {
+        return u <= cdist[cur][j];
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractParallelKMeans.Parameterizer<V> {
+    @Override
+    protected ParallelKMeansElkan<V> makeInstance() {
+      return new ParallelKMeansElkan<>(distanceFunction, k, maxiter, initializer, varstat);
+    }
+  }
+}
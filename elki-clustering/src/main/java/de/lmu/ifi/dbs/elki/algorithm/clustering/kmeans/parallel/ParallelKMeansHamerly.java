@@ -0,0 +1,286 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansHamerly;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+import net.jafama.FastMath;
+
+/**
+ * Parallel version of Hamerly's fast k-means by exploiting the triangle
+ * inequality.
+ * <p>
+ * See {@link KMeansHamerly} for the serial version.
+ * <p>
+ * Reference:
+ * <p>
+ * G. Hamerly<br>
+ * Making k-means even faster<br>
+ * Proc. 2010 SIAM International Conference on Data Mining
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @navassoc - - - KMeansModel
+ *
+ * @param <V> vector datatype
+ */
+@Reference(authors = "G. Hamerly", //
+    title = "Making k-means even faster", //
+    booktitle = "Proc. 2010 SIAM International Conference on Data Mining", //
+    url = "https://doi.org/10.1137/1.9781611972801.12", //
+    bibkey = "DBLP:conf/sdm/Hamerly10")
+public class ParallelKMeansHamerly<V extends NumberVector> extends AbstractParallelKMeans<V> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelKMeansHamerly.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Maxiter parameter
+   * @param initializer Initialization method
+   * @param varstat Compute the variance statistic
+   */
+  public ParallelKMeansHamerly(NumberVectorDistanceFunction<? super V> distanceFunction, int k, int maxiter, KMeansInitialization initializer, boolean varstat) {
+    super(distanceFunction, k, maxiter, initializer, varstat);
+  }
+
+  @Override
+  protected Instance makeInstance(Relation<V> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+    return new Instance(relation, df, means);
+  }
+
+  /**
+   * Inner instance, storing state for a single data set.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Instance extends AbstractParallelKMeans.Instance {
+    /**
+     * Temporary storage for the new means.
+     */
+    double[][] newmeans;
+
+    /**
+     * Separation of means.
+     */
+    double[] sep;
+
+    /**
+     * Distance moved by each mean.
+     */
+    double[] move;
+
+    /**
+     * Maximum distance moved.
+     */
+    double maxmove;
+
+    /**
+     * Upper bounding distance
+     */
+    WritableDoubleDataStore upper;
+
+    /**
+     * Lower bounding distance
+     */
+    WritableDoubleDataStore lower;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation
+     * @param df Distance function
+     * @param means Initial means
+     */
+    public Instance(Relation<? extends NumberVector> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+      super(relation, df, means);
+      upper = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, Double.POSITIVE_INFINITY);
+      lower = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, 0.);
+      newmeans = new double[k][dim];
+      sep = new double[k];
+      move = new double[k];
+    }
+
+    @Override
+    protected void updateMeans() {
+      meansFromSums(newmeans);
+      maxmove = movedDistance(newmeans, move);
+      copyMeans(newmeans, means);
+      recomputeSeperation(sep, null);
+    }
+
+    @Override
+    protected Worker makeWorker() {
+      return new Worker();
+    }
+
+    @Override
+    protected Logging getLogger() {
+      return LOG;
+    }
+
+    /**
+     * Worker, processing blocks of objects.
+     *
+     * @author Erich Schubert
+     */
+    protected class Worker extends AbstractParallelKMeans.Instance.Worker {
+      @Override
+      public void map(DBIDRef id) {
+        NumberVector fv = relation.get(id);
+        if(iteration == 1) {
+          initialAssign(id, fv);
+          return;
+        }
+        final int cur = assignment.intValue(id);
+        // Update the bounds for the moved means:
+        double u = upper.doubleValue(id) + move[cur];
+        final double z = lower.doubleValue(id) - maxmove;
+        final double sa = sep[cur];
+        if(u <= z || u <= sa) {
+          upper.putDouble(id, u);
+          lower.putDouble(id, z);
+          return;
+        }
+        // Update the upper bound
+        final double curd2 = distance(fv, means[cur]);
+        u = isSquared ? FastMath.sqrt(curd2) : curd2;
+        if(u <= z || u <= sa) {
+          upper.putDouble(id, u);
+          lower.putDouble(id, z);
+          return;
+        }
+        search(id, fv, cur, curd2, u);
+      }
+
+      /**
+       * Perform the initial cluster assignment of an object.
+       *
+       * @param id Object
+       * @param fv Object vector
+       */
+      protected void initialAssign(DBIDRef id, NumberVector fv) {
+        // Find closest center, and distance to two closest centers
+        double min1 = Double.POSITIVE_INFINITY, min2 = Double.POSITIVE_INFINITY;
+        int minIndex = -1;
+        for(int i = 0; i < k; i++) {
+          double dist = distance(fv, means[i]);
+          if(dist < min1) {
+            minIndex = i;
+            min2 = min1;
+            min1 = dist;
+          }
+          else if(dist < min2) {
+            min2 = dist;
+          }
+        }
+        reassign(id, fv, -1, minIndex);
+        upper.putDouble(id, isSquared ? FastMath.sqrt(min1) : min1);
+        lower.putDouble(id, isSquared ? FastMath.sqrt(min2) : min2);
+      }
+
+      /**
+       * Find the two nearest centers of an object, whose bounds do not
+       * allow skipping, and update its bounds.
+       *
+       * @param id Object
+       * @param fv Object vector
+       * @param cur Current cluster
+       * @param curd2 Distance to the current center
+       * @param u Upper bound (distance to the current center)
+       */
+      protected void search(DBIDRef id, NumberVector fv, int cur, double curd2, double u) {
+        double min1 = curd2, min2 = Double.POSITIVE_INFINITY;
+        int minIndex = cur;
+        for(int i = 0; i < k; i++) {
+          if(i == cur) {
+            continue;
+          }
+          double dist = distance(fv, means[i]);
+          if(dist < min1) {
+            minIndex = i;
+            min2 = min1;
+            min1 = dist;
+          }
+          else if(dist < min2) {
+            min2 = dist;
+          }
+        }
+        updateBounds(id, fv, cur, curd2, u, minIndex, min1, min2);
+      }
+
+      /**
+       * Reassign an object if necessary, and store the new bounds.
+       *
+       * @param id Object
+       * @param fv Object vector
+       * @param cur Current cluster
+       * @param curd2 Distance to the current center
+       * @param u Upper bound (distance to the current center)
+       * @param minIndex Nearest center
+       * @param min1 Distance to the nearest center
+       * @param min2 Distance to the second nearest center
+       */
+      protected void updateBounds(DBIDRef id, NumberVector fv, int cur, double curd2, double u, int minIndex, double min1, double min2) {
+        if(minIndex != cur) {
+          reassign(id, fv, cur, minIndex);
+          upper.putDouble(id, min1 == curd2 ? u : isSquared ? FastMath.sqrt(min1) : min1);
+        }
+        else {
+          upper.putDouble(id, u);
+        }
+        lower.putDouble(id, min2 == curd2 ? u : isSquared ? FastMath.sqrt(min2) : min2);
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractParallelKMeans.Parameterizer<V> {
+    @Override
+    protected ParallelKMeansHamerly<V> makeInstance() {
+      return new ParallelKMeansHamerly<>(distanceFunction, k, maxiter, initializer, varstat);
+    }
+  }
+}
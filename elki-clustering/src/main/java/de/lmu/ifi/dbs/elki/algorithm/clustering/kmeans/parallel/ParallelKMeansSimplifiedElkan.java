@@ -0,0 +1,263 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMeansSimplifiedElkan;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMeansInitialization;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.NumberVectorDistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.linearalgebra.VMath;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+
+import net.jafama.FastMath;
+
+/**
+ * Parallel version of the simplified Elkan's k-means by exploiting the
+ * triangle inequality.
+ * <p>
+ * See {@link KMeansSimplifiedElkan} for the serial version.
+ * <p>
+ * Reference:
+ * <p>
+ * J. Newling<br>
+ * Fast k-means with accurate bounds<br>
+ * Proc. 33nd Int. Conf. on Machine Learning, ICML 2016
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @navassoc - - - KMeansModel
+ *
+ * @param <V> vector datatype
+ */
+@Reference(authors = "J. Newling", //
+    title = "Fast k-means with accurate bounds", //
+    booktitle = "Proc. 33nd Int. Conf. on Machine Learning, ICML 2016", //
+    url = "http://jmlr.org/proceedings/papers/v48/newling16.html", //
+    bibkey = "DBLP:conf/icml/NewlingF16")
+public class ParallelKMeansSimplifiedElkan<V extends NumberVector> extends AbstractParallelKMeans<V> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelKMeansSimplifiedElkan.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Maxiter parameter
+   * @param initializer Initialization method
+   * @param varstat Compute the variance statistic
+   */
+  public ParallelKMeansSimplifiedElkan(NumberVectorDistanceFunction<? super V> distanceFunction, int k, int maxiter, KMeansInitialization initializer, boolean varstat) {
+    super(distanceFunction, k, maxiter, initializer, varstat);
+  }
+
+  @Override
+  protected Instance makeInstance(Relation<V> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+    return new Instance(relation, df, means);
+  }
+
+  /**
+   * Inner instance, storing state for a single data set.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Instance extends AbstractParallelKMeans.Instance {
+    /**
+     * Upper bounds
+     */
+    WritableDoubleDataStore upper;
+
+    /**
+     * Lower bounds
+     */
+    WritableDataStore<double[]> lower;
+
+    /**
+     * Scratch space for new means.
+     */
+    double[][] newmeans;
+
+    /**
+     * Distance moved by each mean.
+     */
+    double[] move;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Relation
+     * @param df Distance function
+     * @param means Initial means
+     */
+    public Instance(Relation<? extends NumberVector> relation, NumberVectorDistanceFunction<?> df, double[][] means) {
+      super(relation, df, means);
+      upper = DataStoreUtil.makeDoubleStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, Double.POSITIVE_INFINITY);
+      lower = DataStoreUtil.makeStorage(relation.getDBIDs(), DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, double[].class);
+      newmeans = new double[k][dim];
+      move = new double[k];
+    }
+
+    @Override
+    protected void updateMeans() {
+      meansFromSums(newmeans);
+      movedDistance(newmeans, move);
+      copyMeans(newmeans, means);
+    }
+
+    @Override
+    protected Worker makeWorker() {
+      return new Worker();
+    }
+
+    @Override
+    protected Logging getLogger() {
+      return LOG;
+    }
+
+    /**
+     * Worker, processing blocks of objects.
+     *
+     * @author Erich Schubert
+     */
+    protected class Worker extends AbstractParallelKMeans.Instance.Worker {
+      @Override
+      public void map(DBIDRef id) {
+        NumberVector fv = relation.get(id);
+        if(iteration == 1) {
+          initialAssign(id, fv);
+          return;
+        }
+        final int orig = assignment.intValue(id);
+        // Update the bounds for the moved means:
+        double u = upper.doubleValue(id) + move[orig];
+        upper.putDouble(id, u);
+        double[] l = lower.get(id);
+        VMath.minusEquals(l, move);
+        if(skip(orig, u)) {
+          return;
+        }
+        boolean recompute_u = true; // Elkan's r(x)
+        // Check all (other) means:
+        int cur = orig;
+        for(int j = 0; j < k; j++) {
+          if(orig == j || u <= l[j] || prune(cur, j, u)) {
+            continue; // Condition #3 i-iii not satisfied
+          }
+          if(recompute_u) { // Need to update bound? #3a
+            u = distance(fv, means[cur]);
+            u = isSquared ? FastMath.sqrt(u) : u;
+            upper.putDouble(id, u);
+            recompute_u = false; // Once only
+            if(u <= l[j] || prune(cur, j, u)) { // #3b
+              continue;
+            }
+          }
+          double dist = distance(fv, means[j]);
+          dist = isSquared ? FastMath.sqrt(dist) : dist;
+          l[j] = dist;
+          if(dist < u) {
+            cur = j;
+            u = dist;
+          }
+        }
+        // Object is to be reassigned.
+        if(cur != orig) {
+          upper.putDouble(id, u); // Remember bound.
+          reassign(id, fv, orig, cur);
+        }
+      }
+
+      /**
+       * Perform the initial cluster assignment of an object.
+       *
+       * @param id Object
+       * @param fv Object vector
+       */
+      protected void initialAssign(DBIDRef id, NumberVector fv) {
+        double[] l = new double[k];
+        double best = Double.POSITIVE_INFINITY;
+        int minIndex = -1;
+        for(int j = 0; j < k; j++) {
+          double dist = distance(fv, means[j]);
+          dist = isSquared ? FastMath.sqrt(dist) : dist;
+          l[j] = dist;
+          if(dist < best) {
+            minIndex = j;
+            best = dist;
+          }
+        }
+        lower.put(id, l);
+        upper.putDouble(id, best);
+        reassign(id, fv, -1, minIndex);
+      }
+
+      /**
+       * Test whether an object can skip all other means.
+       *
+       * @param cur Current cluster
+       * @param u Upper bound
+       * @return {@code true} if the object cannot be reassigned
+       */
+      protected boolean skip(int cur, double u) {
+        return false;
+      }
+
+      /**
+       * Test whether a mean can be skipped.
+       *
+       * @param cur Current cluster
+       * @param j Other cluster
+       * @param u Upper bound
+       * @return {@code true} if the object cannot be reassigned to j
+       */
+      protected boolean prune(int cur, int j, double u) {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractParallelKMeans.Parameterizer<V> {
+    @Override
+    protected ParallelKMeansSimplifiedElkan<V> makeInstance() {
+      return new ParallelKMeansSimplifiedElkan<>(distanceFunction, k, maxiter, initializer, varstat);
+    }
+  }
+}
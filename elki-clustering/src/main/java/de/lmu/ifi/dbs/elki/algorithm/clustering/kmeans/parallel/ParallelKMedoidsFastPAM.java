@@ -0,0 +1,425 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.RecursiveTask;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.KMedoidsFastPAM;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.initialization.KMedoidsInitialization;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.*;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.progress.IndefiniteProgress;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.DoubleParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Parallel version of {@link KMedoidsFastPAM}, for large data sets.
+ * <p>
+ * The SWAP phase, which evaluates all (medoid, non-medoid) pairs and needs
+ * O((n-k)²) distance computations per iteration, is split into blocks of
+ * candidate non-medoids. Each block keeps its own best loss change for every
+ * medoid, and the blocks are merged in order. Without sampling, the result is
+ * therefore identical to the sequential FastPAM.
+ * <p>
+ * Optionally, only a random subset of the non-medoids is evaluated in each
+ * iteration, similar to the neighbor sampling of {@link
+ * de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.FastCLARANS}. Only swaps
+ * that reduce the total deviation are executed, so the algorithm terminates.
+ * When a sample does not contain an improving swap, all candidates are
+ * evaluated before stopping. Hence, the final result is a local optimum with
+ * respect to all swaps, with the same guarantee as PAM; only the path taken
+ * (and hence the particular local optimum) can differ.
+ * <p>
+ * Reference:
+ * <p>
+ * Erich Schubert, Peter J. Rousseeuw<br>
+ * Faster k-Medoids Clustering: Improving the PAM, CLARA, and CLARANS
+ * Algorithms<br>
+ * preprint, to appear
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <V> vector datatype
+ */
+public class ParallelKMedoidsFastPAM<V> extends KMedoidsFastPAM<V> {
+  /**
+   * The logger for this class.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelKMedoidsFastPAM.class);
+
+  /**
+   * Key for statistics logging.
+   */
+  private static final String KEY = ParallelKMedoidsFastPAM.class.getName();
+
+  /**
+   * Number of candidates to evaluate per iteration (absolute or relative), 0
+   * to evaluate all.
+   */
+  protected double samplesize;
+
+  /**
+   * Random generator for sampling.
+   */
+  protected RandomFactory random;
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction distance function
+   * @param k k parameter
+   * @param maxiter Maxiter parameter
+   * @param initializer Function to generate the initial means
+   * @param fasttol Tolerance for fast swapping
+   * @param samplesize Candidates per iteration (absolute or relative), 0 for
+   *        all
+   * @param random Random generator for sampling
+   */
+  public ParallelKMedoidsFastPAM(DistanceFunction<? super V> distanceFunction, int k, int maxiter, KMedoidsInitialization<V> initializer, double fasttol, double samplesize, RandomFactory random) {
+    super(distanceFunction, k, maxiter, initializer, fasttol);
+    this.samplesize = samplesize;
+    this.random = random;
+  }
+
+  @Override
+  protected void run(DistanceQuery<V> distQ, DBIDs ids, ArrayModifiableDBIDs medoids, WritableIntegerDataStore assignment) {
+    final int size = ids.size();
+    final int sample = samplesize <= 0 ? size : samplesize < 1 ? (int) Math.ceil(samplesize * size) : (int) samplesize;
+    new Instance(distQ, ids, assignment, fasttol, sample, random.getSingleThreadedRandom()).run(medoids, maxiter);
+  }
+
+  /**
+   * Instance for a single dataset.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Instance extends KMedoidsFastPAM.Instance {
+    /**
+     * Swap candidates, shuffled for sampling.
+     */
+    ArrayModifiableDBIDs candidates;
+
+    /**
+     * Number of candidates to evaluate per iteration.
+     */
+    int samplesize;
+
+    /**
+     * Random generator.
+     */
+    Random rnd;
+
+    /**
+     * Constructor.
+     *
+     * @param distQ Distance query
+     * @param ids IDs to process
+     * @param assignment Cluster assignment
+     * @param fasttol Tolerance for fast swapping
+     * @param samplesize Number of candidates per iteration
+     * @param rnd Random generator
+     */
+    public Instance(DistanceQuery<?> distQ, DBIDs ids, WritableIntegerDataStore assignment, double fasttol, int samplesize, Random rnd) {
+      super(distQ, ids, assignment, fasttol);
+      this.candidates = DBIDUtil.newArray(ids);
+      this.samplesize = samplesize;
+      this.rnd = rnd;
+    }
+
+    @Override
+    protected double run(ArrayModifiableDBIDs medoids, int maxiter) {
+      // Initial assignment to nearest medoids
+      double tc = assignToNearestCluster(medoids);
+      if(LOG.isStatistics()) {
+        LOG.statistics(new DoubleStatistic(KEY + ".iteration-" + 0 + ".cost", tc));
+      }
+
+      IndefiniteProgress prog = LOG.isVerbose() ? new IndefiniteProgress("PAM iteration", LOG) : null;
+      int fastswaps = 0, fullscans = 0; // For statistics
+      // Swap phase
+      DBIDArrayIter m = medoids.iter();
+      DBIDVar bestid = DBIDUtil.newVar();
+      final int size = candidates.size();
+      int iteration = 1;
+      for(; maxiter <= 0 || iteration <= maxiter; iteration++) {
+        LOG.incrementProcessed(prog);
+        BestSwaps swaps = null;
+        int min = -1;
+        if(samplesize < size) {
+          // Draw a random sample, by partially shuffling the candidates.
+          for(int i = 0; i < samplesize; i++) {
+            candidates.swap(i, i + rnd.nextInt(size - i));
+          }
+          swaps = findBestSwaps(medoids, samplesize);
+          min = argmin(swaps.best);
+        }
+        // Never stop on a sample, only when no swap improves at all:
+        if(min < 0 || !(swaps.best[min] < -1e-12 * tc)) {
+          ++fullscans;
+          swaps = findBestSwaps(medoids, size);
+          min = argmin(swaps.best);
+          if(min < 0 || !(swaps.best[min] < -1e-12 * tc)) {
+            break; // Converged
+          }
+        }
+        // Update values for new medoid.
+        final double[] best = swaps.best;
+        while(min >= 0 && best[min] < -1e-12 * tc) {
+          updateAssignment(medoids, m, candidates.assignVar(swaps.pos[min], bestid), min);
+          tc += best[min];
+          best[min] = Double.POSITIVE_INFINITY; // Deactivate
+          // Find next candidate:
+          while((min = argmin(best)) >= 0 && best[min] < -1e-12 * tc) {
+            candidates.assignVar(swaps.pos[min], bestid);
+            // Compare object to its own medoid.
+            if(DBIDUtil.equal(m.seek(assignment.intValue(bestid) & 0x7FFF), bestid)) {
+              best[min] = Double.POSITIVE_INFINITY; // Deactivate
+              continue; // This is a medoid.
+            }
+            final double hdist = nearest.doubleValue(bestid); // Current cost
+            // hdist is the cost we get back by making the non-medoid h medoid.
+            double c = computeReassignmentCost(bestid, min) - hdist;
+            if(c <= best[min] * fastswap) {
+              best[min] = c;
+              ++fastswaps;
+              break;
+            }
+            best[min] = Double.POSITIVE_INFINITY; // Deactivate
+          }
+        }
+        if(LOG.isStatistics()) {
+          LOG.statistics(new DoubleStatistic(KEY + ".iteration-" + iteration + ".cost", tc));
+        }
+      }
+      LOG.setCompleted(prog);
+      if(LOG.isStatistics()) {
+        LOG.statistics(new LongStatistic(KEY + ".iterations", iteration));
+        LOG.statistics(new LongStatistic(KEY + ".fast-swaps", fastswaps));
+        LOG.statistics(new LongStatistic(KEY + ".full-scans", fullscans));
+      }
+      // Cleanup
+      for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+        assignment.putInt(it, assignment.intValue(it) & 0x7FFF);
+      }
+      return tc;
+    }
+
+    /**
+     * Find the best swaps among the first candidates, in parallel.
+     *
+     * @param medoids Medoids
+     * @param end Number of candidates to evaluate
+     * @return Best swap for each medoid
+     */
+    protected BestSwaps findBestSwaps(ArrayDBIDs medoids, int end) {
+      final int grain = Math.max(1, end / (ParallelCore.getCore().getParallelism() << 3));
+      return ParallelCore.getCore().invoke(new SwapTask(medoids, 0, end, grain));
+    }
+
+    /**
+     * Fork-join task to find the best swaps in a range of candidates.
+     *
+     * @author Erich Schubert
+     */
+    private class SwapTask extends RecursiveTask<BestSwaps> {
+      /**
+       * Serialization version.
+       */
+      private static final long serialVersionUID = 1L;
+
+      /**
+       * Current medoids.
+       */
+      private ArrayDBIDs medoids;
+
+      /**
+       * Candidate range, and minimum task size.
+       */
+      private int start, end, grain;
+
+      /**
+       * Constructor.
+       *
+       * @param medoids Current medoids
+       * @param start First candidate
+       * @param end End of candidates (exclusive)
+       * @param grain Minimum task size
+       */
+      SwapTask(ArrayDBIDs medoids, int start, int end, int grain) {
+        this.medoids = medoids;
+        this.start = start;
+        this.end = end;
+        this.grain = grain;
+      }
+
+      @Override
+      protected BestSwaps compute() {
+        if(end - start > grain) {
+          final int mid = (start + end) >>> 1;
+          SwapTask right = new SwapTask(medoids, mid, end, grain);
+          right.fork();
+          BestSwaps left = new SwapTask(medoids, start, mid, grain).compute();
+          return left.merge(right.join());
+        }
+        final int k = medoids.size();
+        BestSwaps swaps = new BestSwaps(k);
+        double[] cost = new double[k];
+        DBIDArrayIter h = candidates.iter(), m = medoids.iter();
+        for(int i = start; i < end; i++) {
+          h.seek(i);
+          // Compare object to its own medoid.
+          if(DBIDUtil.equal(m.seek(assignment.intValue(h) & 0x7FFF), h)) {
+            continue; // This is a medoid.
+          }
+          // The cost we get back by making the non-medoid h medoid.
+          Arrays.fill(cost, -nearest.doubleValue(h));
+          computeReassignmentCost(h, cost);
+          swaps.update(cost, i);
+        }
+        return swaps;
+      }
+    }
+  }
+
+  /**
+   * Best swap for each medoid, as found by one thread.
+   *
+   * @author Erich Schubert
+   */
+  protected static class BestSwaps {
+    /**
+     * Best loss change for each medoid.
+     */
+    double[] best;
+
+    /**
+     * Candidate position of the best swap for each medoid.
+     */
+    int[] pos;
+
+    /**
+     * Constructor.
+     *
+     * @param k Number of medoids
+     */
+    BestSwaps(int k) {
+      Arrays.fill(best = new double[k], Double.POSITIVE_INFINITY);
+      Arrays.fill(pos = new int[k], -1);
+    }
+
+    /**
+     * Update with the costs of one candidate.
+     *
+     * @param cost Loss change for each medoid
+     * @param p Candidate position
+     */
+    void update(double[] cost, int p) {
+      for(int i = 0; i < cost.length; i++) {
+        if(cost[i] < best[i]) {
+          best[i] = cost[i];
+          pos[i] = p;
+        }
+      }
+    }
+
+    /**
+     * Merge with the result of the subsequent candidates, keeping the earlier
+     * candidate on ties as in the sequential version.
+     *
+     * @param other Result for the subsequent candidates
+     * @return {@code this}
+     */
+    BestSwaps merge(BestSwaps other) {
+      for(int i = 0; i < best.length; i++) {
+        if(other.best[i] < best[i]) {
+          best[i] = other.best[i];
+          pos[i] = other.pos[i];
+        }
+      }
+      return this;
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer<V> extends KMedoidsFastPAM.Parameterizer<V> {
+    /**
+     * Number of swap candidates to evaluate per iteration.
+     */
+    public static final OptionID SAMPLE_ID = new OptionID("pam.sample", "Number of non-medoids to evaluate as swap candidates in each iteration (absolute, or relative if less than 1). By default, all are evaluated.");
+
+    /**
+     * Random generator seed for sampling.
+     */
+    public static final OptionID RANDOM_ID = new OptionID("pam.sample.seed", "Random generator seed for sampling swap candidates.");
+
+    /**
+     * Candidates per iteration, 0 for all.
+     */
+    protected double samplesize = 0.;
+
+    /**
+     * Random generator for sampling.
+     */
+    protected RandomFactory random = RandomFactory.DEFAULT;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      DoubleParameter sampleP = new DoubleParameter(SAMPLE_ID) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ZERO_DOUBLE) //
+          .setOptional(true);
+      if(config.grab(sampleP)) {
+        samplesize = sampleP.doubleValue();
+        RandomParameter randomP = new RandomParameter(RANDOM_ID);
+        if(config.grab(randomP)) {
+          random = randomP.getValue();
+        }
+      }
+    }
+
+    @Override
+    protected ParallelKMedoidsFastPAM<V> makeInstance() {
+      return new ParallelKMedoidsFastPAM<>(distanceFunction, k, maxiter, initializer, fasttol, samplesize, random);
+    }
+  }
+}
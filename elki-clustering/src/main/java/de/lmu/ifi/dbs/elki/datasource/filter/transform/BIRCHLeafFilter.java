@@ -0,0 +1,181 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.filter.transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.birch.CFTree;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.birch.ClusteringFeature;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleMeta;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.datasource.filter.AbstractStreamFilter;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+
+/**
+ * Condense a data stream into the leaf entries of a BIRCH {@link CFTree}.
+ * <p>
+ * The input is streamed into the tree, so the data set does not need to fit
+ * into memory; only the tree is kept, and rebuilt with a larger threshold
+ * whenever the leaf limit is exceeded. The output has one object per leaf: the
+ * centroid, and the number of objects summarized by this leaf as integer
+ * weight. Other input columns such as labels cannot be aggregated and are
+ * dropped. The centroids can then be clustered with, e.g., k-means or EM.
+ * <p>
+ * Note that k-means and EM do not use the weight column: every centroid
+ * counts as a single object, so sparse regions summarized by many small
+ * leaves get more influence than in the original data. Use the weights when
+ * evaluating or postprocessing the result.
+ * <p>
+ * As the stream size is not known, the tree requires an absolute leaf limit
+ * ({@code -cftree.maxleaves} greater than 1).
+ * <p>
+ * Reference:
+ * <p>
+ * T. Zhang, R. Ramakrishnan, M. Livny<br>
+ * BIRCH: An Efficient Data Clustering Method for Very Large Databases
+ * Proc. 1996 ACM SIGMOD International Conference on Management of Data
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - CFTree.Factory
+ */
+@Reference(authors = "T. Zhang, R. Ramakrishnan, M. Livny", //
+    title = "BIRCH: An Efficient Data Clustering Method for Very Large Databases", //
+    booktitle = "Proc. 1996 ACM SIGMOD International Conference on Management of Data", //
+    url = "https://doi.org/10.1145/233269.233324", //
+    bibkey = "DBLP:conf/sigmod/ZhangRL96")
+public class BIRCHLeafFilter extends AbstractStreamFilter {
+  /**
+   * CFTree factory.
+   */
+  CFTree.Factory cffactory;
+
+  /**
+   * Stream of leaf entries, built on first access.
+   */
+  BundleStreamSource leaves = null;
+
+  /**
+   * Constructor.
+   *
+   * @param cffactory CFTree factory
+   */
+  public BIRCHLeafFilter(CFTree.Factory cffactory) {
+    super();
+    this.cffactory = cffactory;
+  }
+
+  @Override
+  public BundleStreamSource init(BundleStreamSource source) {
+    leaves = null;
+    return super.init(source);
+  }
+
+  /**
+   * Consume the input stream, and build the output stream.
+   *
+   * @return Leaf stream
+   */
+  private BundleStreamSource leaves() {
+    if(leaves == null) {
+      leaves = summarize(cffactory.newTree(source)).asStream();
+    }
+    return leaves;
+  }
+
+  /**
+   * Convert the leaves of a tree into a bundle.
+   *
+   * @param tree CF-Tree
+   * @return Bundle with centroids and weights
+   */
+  protected static MultipleObjectsBundle summarize(CFTree tree) {
+    List<DoubleVector> centroids = new ArrayList<>(tree.numLeaves());
+    List<Integer> weights = new ArrayList<>(tree.numLeaves());
+    int dim = 0;
+    for(CFTree.LeafIterator it = tree.leafIterator(); it.valid(); it.advance()) {
+      ClusteringFeature leaf = it.get();
+      double[] center = new double[dim = leaf.getDimensionality()];
+      for(int i = 0; i < dim; i++) {
+        center[i] = leaf.centroid(i);
+      }
+      centroids.add(DoubleVector.wrap(center));
+      weights.add(leaf.getWeight());
+    }
+    return MultipleObjectsBundle.makeSimple(new VectorFieldTypeInformation<>(DoubleVector.FACTORY, dim), centroids, TypeUtil.INTEGER, weights);
+  }
+
+  @Override
+  public BundleMeta getMeta() {
+    return leaves().getMeta();
+  }
+
+  @Override
+  public Object data(int rnum) {
+    return leaves().data(rnum);
+  }
+
+  @Override
+  public Event nextEvent() {
+    return leaves().nextEvent();
+  }
+
+  @Override
+  public boolean hasDBIDs() {
+    return false;
+  }
+
+  @Override
+  public boolean assignDBID(DBIDVar var) {
+    return false;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * CFTree factory.
+     */
+    CFTree.Factory cffactory;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      cffactory = config.tryInstantiate(CFTree.Factory.class);
+    }
+
+    @Override
+    protected BIRCHLeafFilter makeInstance() {
+      return new BIRCHLeafFilter(cffactory);
+    }
+  }
+}
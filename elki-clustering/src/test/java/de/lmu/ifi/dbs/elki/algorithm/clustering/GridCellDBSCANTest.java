@@ -0,0 +1,89 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.model.Model;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Regression test for grid-based DBSCAN, which must give the same result as
+ * DBSCAN.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class GridCellDBSCANTest extends AbstractClusterAlgorithmTest {
+  @Test
+  public void testGridCellDBSCANResults() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Clustering<Model> result = new ELKIBuilder<GridCellDBSCAN<DoubleVector>>(GridCellDBSCAN.class) //
+        .with(DBSCAN.Parameterizer.EPSILON_ID, 0.04) //
+        .with(DBSCAN.Parameterizer.MINPTS_ID, 20) //
+        .build().run(db);
+    testFMeasure(db, result, 0.996413);
+    testClusterSizes(result, new int[] { 29, 50, 101, 150 });
+  }
+
+  @Test
+  public void testGridCellDBSCANOnSingleLinkDataset() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Clustering<Model> result = new ELKIBuilder<GridCellDBSCAN<DoubleVector>>(GridCellDBSCAN.class) //
+        .with(DBSCAN.Parameterizer.EPSILON_ID, 11.5) //
+        .with(DBSCAN.Parameterizer.MINPTS_ID, 120) //
+        .build().run(db);
+    testFMeasure(db, result, 0.954382);
+    testClusterSizes(result, new int[] { 11, 200, 203, 224 });
+  }
+
+  @Test
+  public void testSameAsDBSCANFourThreads() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    Clustering<Model> expected = new ELKIBuilder<DBSCAN<DoubleVector>>(DBSCAN.class) //
+        .with(DBSCAN.Parameterizer.EPSILON_ID, 0.02) //
+        .with(DBSCAN.Parameterizer.MINPTS_ID, 5) //
+        .build().run(db);
+    withThreads(4, () -> {
+      Clustering<Model> result = new ELKIBuilder<GridCellDBSCAN<DoubleVector>>(GridCellDBSCAN.class) //
+          .with(DBSCAN.Parameterizer.EPSILON_ID, 0.02) //
+          .with(DBSCAN.Parameterizer.MINPTS_ID, 5) //
+          .build().run(db);
+      List<? extends Cluster<Model>> a = expected.getAllClusters(), b = result.getAllClusters();
+      assertEquals("Number of clusters differs.", a.size(), b.size());
+      for(int i = 0; i < a.size(); i++) {
+        assertEquals("Noise flag differs.", a.get(i).isNoise(), b.get(i).isNoise());
+        assertEquals("Cluster size differs.", a.get(i).size(), b.get(i).size());
+        assertTrue("Cluster members differ.", DBIDUtil.intersectionSize(a.get(i).getIDs(), b.get(i).getIDs()) == a.get(i).size());
+      }
+    });
+  }
+}
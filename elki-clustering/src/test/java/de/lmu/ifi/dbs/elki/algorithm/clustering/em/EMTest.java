@@ -43,12 +43,16 @@ public class EMTest extends AbstractClusterAlgorithmTest {
   @Test
   public void testEMMLEMultivariate() {
     Database db = makeSimpleDatabase(UNITTEST + "hierarchical-2d.ascii", 710);
-    Clustering<?> result = new ELKIBuilder<EM<DoubleVector, ?>>(EM.class) //
-        .with(KMeans.SEED_ID, 0) //
-        .with(EM.Parameterizer.K_ID, 6) //
-        .build().run(db);
-    testFMeasure(db, result, 0.967410486);
-    testClusterSizes(result, new int[] { 3, 5, 91, 98, 200, 313 });
+    for(int threads : new int[] { 1, 4 }) {
+      withThreads(threads, () -> {
+        Clustering<?> result = new ELKIBuilder<EM<DoubleVector, ?>>(EM.class) //
+            .with(KMeans.SEED_ID, 0) //
+            .with(EM.Parameterizer.K_ID, 6) //
+            .build().run(db);
+        testFMeasure(db, result, 0.967410486);
+        testClusterSizes(result, new int[] { 3, 5, 91, 98, 200, 313 });
+      });
+    }
   }
 
   @Test
@@ -0,0 +1,100 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.IntPredicate;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+
+/**
+ * Test the parallel matrix operations against the sequential ones, using a
+ * threshold small enough to split into many tasks.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MatrixParadigmTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testParallelOperations() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Relation<NumberVector> relation = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(relation, EuclideanDistanceFunction.STATIC);
+    MatrixParadigm seq = new MatrixParadigm(relation.getDBIDs(), false, Integer.MAX_VALUE, 27);
+    seq.initializeWithDistances(dq);
+    final int size = seq.size;
+    withThreads(4, () -> {
+      // Use small segments, to also test the segment addressing.
+      MatrixParadigm par = new MatrixParadigm(relation.getDBIDs(), false, 16, 10);
+      par.initializeWithDistances(dq);
+      for(long i = 0; i < MatrixParadigm.triangleSize(size); i++) {
+        assertEquals("Matrix differs.", seq.get(i), par.get(i), 0.);
+      }
+
+      // Coarse values, to produce many ties, and some infinite values:
+      for(long i = 0; i < MatrixParadigm.triangleSize(size); i++) {
+        final double v = (i % 97 == 0) ? Double.POSITIVE_INFINITY : Math.floor(seq.get(i) * 2);
+        seq.set(i, v);
+        par.set(i, v);
+      }
+      double[] bestd1 = new double[size], bestd2 = new double[size];
+      int[] besti1 = new int[size], besti2 = new int[size];
+      seq.nearestNeighbors(bestd1, besti1);
+      par.nearestNeighbors(bestd2, besti2);
+      assertArrayEquals("Nearest neighbor distances differ.", bestd1, bestd2, 0.);
+      assertArrayEquals("Nearest neighbors differ.", besti1, besti2);
+
+      IntPredicate active = i -> i % 3 != 0;
+      for(int x = 0; x < size; x++) {
+        for(boolean last : new boolean[] { false, true }) {
+          assertEquals("Row minimum differs.", seq.findRowMinimum(x, size, null, last), par.findRowMinimum(x, size, null, last));
+          assertEquals("Row minimum differs.", seq.findRowMinimum(x, size, active, last), par.findRowMinimum(x, size, active, last));
+          assertEquals("Row minimum differs.", seq.findRowMinimum(x, x + 1, active, last), par.findRowMinimum(x, x + 1, active, last));
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testSinglePrecision() {
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638);
+    Relation<NumberVector> relation = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    DistanceQuery<NumberVector> dq = db.getDistanceQuery(relation, EuclideanDistanceFunction.STATIC);
+    MatrixParadigm dbl = new MatrixParadigm(relation.getDBIDs(), false).initializeWithDistances(dq);
+    MatrixParadigm sgl = new MatrixParadigm(relation.getDBIDs(), true, Integer.MAX_VALUE, 12).initializeWithDistances(dq);
+    final int size = dbl.size;
+    for(int x = 0; x < size; x++) {
+      for(int y = 0; y < size; y++) {
+        assertEquals("Matrix differs.", (float) dbl.get(x, y), sgl.get(x, y), 0.);
+      }
+    }
+  }
+}
@@ -23,6 +23,7 @@ package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans;
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel.ParallelKMeansElkan;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.database.Database;
@@ -46,4 +47,20 @@ public class KMeansElkanTest extends AbstractClusterAlgorithmTest {
     testFMeasure(db, result, 0.998005);
     testClusterSizes(result, new int[] { 199, 200, 200, 200, 201 });
   }
+
+  @Test
+  public void testParallelKMeansElkan() {
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d-no-noise.ascii", 1000);
+    for(int threads : new int[] { 1, 4 }) {
+      withThreads(threads, () -> {
+        Clustering<?> result = new ELKIBuilder<ParallelKMeansElkan<DoubleVector>>(ParallelKMeansElkan.class) //
+            .with(KMeans.K_ID, 5) //
+            .with(KMeans.SEED_ID, 7) //
+            .with(KMeans.VARSTAT_ID) //
+            .build().run(db);
+        testFMeasure(db, result, 0.998005);
+        testClusterSizes(result, new int[] { 199, 200, 200, 200, 201 });
+      });
+    }
+  }
 }
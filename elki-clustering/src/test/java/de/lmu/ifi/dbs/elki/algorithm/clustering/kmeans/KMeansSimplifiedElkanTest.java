@@ -23,6 +23,7 @@ package de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans;
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.clustering.AbstractClusterAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.kmeans.parallel.ParallelKMeansSimplifiedElkan;
 import de.lmu.ifi.dbs.elki.data.Clustering;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.database.Database;
@@ -45,4 +46,20 @@ public class KMeansSimplifiedElkanTest extends AbstractClusterAlgorithmTest {
     testFMeasure(db, result, 0.998005);
     testClusterSizes(result, new int[] { 199, 200, 200, 200, 201 });
   }
+
+  @Test
+  public void testParallelKMeansSimplifiedElkan() {
+    Database db = makeSimpleDatabase(UNITTEST + "different-densities-2d-no-noise.ascii", 1000);
+    for(int threads : new int[] { 1, 4 }) {
+      withThreads(threads, () -> {
+        Clustering<?> result = new ELKIBuilder<ParallelKMeansSimplifiedElkan<DoubleVector>>(ParallelKMeansSimplifiedElkan.class) //
+            .with(KMeans.K_ID, 5) //
+            .with(KMeans.SEED_ID, 7) //
+            .with(KMeans.VARSTAT_ID) //
+            .build().run(db);
+        testFMeasure(db, result, 0.998005);
+        testClusterSizes(result, new int[] { 199, 200, 200, 200, 201 });
+      });
+    }
+  }
 }
@@ -0,0 +1,84 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.filter.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.hierarchical.birch.CFTree;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.AbstractDatabaseConnection;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Test the BIRCH leaf filter.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class BIRCHLeafFilterTest extends AbstractSimpleAlgorithmTest {
+  @Test
+  public void testLeafLimit() {
+    final int maxleaves = 20;
+    ListParameterization params = new ListParameterization();
+    params.addParameter(AbstractDatabaseConnection.Parameterizer.FILTERS_ID, BIRCHLeafFilter.class);
+    params.addParameter(CFTree.Factory.Parameterizer.MAXLEAVES_ID, maxleaves);
+    Database db = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", -1, params);
+    Relation<NumberVector> centroids = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    Relation<Integer> weights = db.getRelation(TypeUtil.INTEGER);
+    assertTrue("Too many leaves: " + centroids.size(), centroids.size() <= maxleaves);
+    int total = 0;
+    double sumx = 0., sumy = 0.;
+    for(DBIDIter it = centroids.iterDBIDs(); it.valid(); it.advance()) {
+      final int w = weights.get(it);
+      assertTrue("Empty leaf.", w > 0);
+      total += w;
+      sumx += w * centroids.get(it).doubleValue(0);
+      sumy += w * centroids.get(it).doubleValue(1);
+    }
+    assertEquals("Not all objects were summarized.", 638, total);
+    // The weighted centroids must preserve the data mean.
+    Relation<NumberVector> data = makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", 638).getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    double dx = 0., dy = 0.;
+    for(DBIDIter it = data.iterDBIDs(); it.valid(); it.advance()) {
+      dx += data.get(it).doubleValue(0);
+      dy += data.get(it).doubleValue(1);
+    }
+    assertEquals("Mean not preserved.", dx / 638, sumx / total, 1e-10);
+    assertEquals("Mean not preserved.", dy / 638, sumy / total, 1e-10);
+  }
+
+  @Test(expected = AbortException.class)
+  public void testRelativeLeafLimit() {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(AbstractDatabaseConnection.Parameterizer.FILTERS_ID, BIRCHLeafFilter.class);
+    params.addParameter(CFTree.Factory.Parameterizer.MAXLEAVES_ID, 0.1);
+    makeSimpleDatabase(UNITTEST + "single-link-effect.ascii", -1, params);
+  }
+}
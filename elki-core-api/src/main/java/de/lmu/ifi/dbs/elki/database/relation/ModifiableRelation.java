@@ -20,7 +20,11 @@
  */
 package de.lmu.ifi.dbs.elki.database.relation;
 
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 
 /**
  * Relations that allow modification.
@@ -42,6 +46,23 @@ public interface ModifiableRelation<O> extends Relation<O> {
    */
   void insert(DBIDRef id, O val);
 
+  /**
+   * Set (or insert) the representations of a batch of objects.
+   * <p>
+   * Implementations should update their indexes once for the whole batch,
+   * rather than once per object.
+   *
+   * @param ids Object IDs
+   * @param vals Values, in the order of the object IDs
+   */
+  default void insertAll(DBIDs ids, List<? extends O> vals) {
+    assert (ids.size() == vals.size());
+    int i = 0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+      insert(iter, vals.get(i));
+    }
+  }
+
   /**
    * Delete an objects values.
    * 
@@ -20,6 +20,7 @@
  */
 package de.lmu.ifi.dbs.elki.datasource;
 
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
 import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 
 /**
@@ -42,6 +43,18 @@ public interface DatabaseConnection {
    * 
    * @return a database object bundle
    */
-  // TODO: streaming load?
   MultipleObjectsBundle loadData();
+
+  /**
+   * Returns the initial data for a database as a stream.
+   * <p>
+   * Connections that parse incrementally should override this, so that the
+   * consumer can process each object as it arrives, instead of holding all of
+   * them in a bundle first.
+   * 
+   * @return a stream of database objects
+   */
+  default BundleStreamSource loadStream() {
+    return loadData().asStream();
+  }
 }
\ No newline at end of file
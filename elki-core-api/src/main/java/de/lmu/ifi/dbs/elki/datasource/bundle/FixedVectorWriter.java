@@ -0,0 +1,196 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.datasource.bundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Write the numeric vectors of a bundle stream to a file with fixed-width
+ * records, which can be memory-mapped for random access.
+ * <p>
+ * File layout (little endian): a header of {@link #HEADER_SIZE} bytes
+ * containing the magic number, the value type ({@link #TYPE_DOUBLE} or
+ * {@link #TYPE_FLOAT}), the dimensionality and the number of records (as
+ * long), followed by the values of all vectors in row-major order.
+ * <p>
+ * In contrast to the {@link BundleWriter}, only the first numeric vector
+ * column is written; labels and other columns are discarded.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - reads - BundleStreamSource
+ * @assoc - writes - FileChannel
+ */
+public class FixedVectorWriter {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(FixedVectorWriter.class);
+
+  /**
+   * Random magic number.
+   */
+  public static final int MAGIC = 0xa8123b13;
+
+  /**
+   * Size of the file header, chosen to keep the data aligned.
+   */
+  public static final int HEADER_SIZE = 64;
+
+  /**
+   * Value type: double precision.
+   */
+  public static final int TYPE_DOUBLE = 0;
+
+  /**
+   * Value type: single precision.
+   */
+  public static final int TYPE_FLOAT = 1;
+
+  /**
+   * Byte order of the file.
+   */
+  public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /**
+   * Write buffer size.
+   */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /**
+   * Use single precision.
+   */
+  private boolean single;
+
+  /**
+   * Constructor.
+   *
+   * @param single Store single precision values only
+   */
+  public FixedVectorWriter(boolean single) {
+    super();
+    this.single = single;
+  }
+
+  /**
+   * Write a bundle stream to a file output channel.
+   *
+   * @param source Data source
+   * @param output Output channel, must be positioned at the file start
+   * @return Number of vectors written
+   * @throws IOException on IO errors
+   */
+  public long writeStream(BundleStreamSource source, FileChannel output) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ORDER);
+    // Reserve space for the header, which is written last.
+    buffer.put(new byte[HEADER_SIZE]);
+    int col = -1, dim = -1;
+    long count = 0;
+    loop: while(true) {
+      BundleStreamSource.Event ev = source.nextEvent();
+      switch(ev){
+      case NEXT_OBJECT: {
+        if(col < 0) {
+          col = findColumn(source.getMeta());
+          dim = ((VectorFieldTypeInformation<?>) source.getMeta().get(col)).getDimensionality();
+        }
+        NumberVector vec = (NumberVector) source.data(col);
+        if(vec.getDimensionality() != dim) {
+          throw new AbortException("Vectors must have the same dimensionality: " + dim + " != " + vec.getDimensionality());
+        }
+        for(int d = 0; d < dim; d++) {
+          if(buffer.remaining() < 8) {
+            flushBuffer(buffer, output);
+          }
+          if(single) {
+            buffer.putFloat(vec.floatValue(d));
+          }
+          else {
+            buffer.putDouble(vec.doubleValue(d));
+          }
+        }
+        ++count;
+        break; // switch
+      }
+      case META_CHANGED:
+        if(col >= 0) {
+          throw new AbortException("Meta changes are not supported, once the first vector has been written.");
+        }
+        break; // switch
+      case END_OF_STREAM:
+        break loop;
+      default:
+        LOG.warning("Unknown bundle stream event. API inconsistent? " + ev);
+        break; // switch
+      }
+    }
+    flushBuffer(buffer, output);
+    // Write the header.
+    buffer.putInt(MAGIC).putInt(single ? TYPE_FLOAT : TYPE_DOUBLE).putInt(Math.max(dim, 0)).putLong(count);
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      output.write(buffer, buffer.position());
+    }
+    return count;
+  }
+
+  /**
+   * Find the first column with numeric vectors of fixed dimensionality.
+   *
+   * @param meta Metadata
+   * @return Column number
+   */
+  private static int findColumn(BundleMeta meta) {
+    for(int i = 0; i < meta.size(); i++) {
+      SimpleTypeInformation<?> type = meta.get(i);
+      if(type instanceof VectorFieldTypeInformation && NumberVector.class.isAssignableFrom(type.getRestrictionClass()) //
+          && ((VectorFieldTypeInformation<?>) type).getDimensionality() > 0) {
+        return i;
+      }
+    }
+    throw new AbortException("No numeric vector column of fixed dimensionality found.");
+  }
+
+  /**
+   * Flush the current write buffer to disk.
+   *
+   * @param buffer Buffer to write
+   * @param output Output channel
+   * @throws IOException on IO errors
+   */
+  private static void flushBuffer(ByteBuffer buffer, FileChannel output) throws IOException {
+    buffer.flip();
+    while(buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+    buffer.clear();
+  }
+}
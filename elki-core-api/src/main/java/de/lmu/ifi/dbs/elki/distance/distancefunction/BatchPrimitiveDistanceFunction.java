@@ -0,0 +1,151 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.distance.distancefunction;
+
+import java.util.List;
+
+/**
+ * Primitive distance function that can compute the distances of whole blocks
+ * of objects at once, more efficiently than pair by pair.
+ * <p>
+ * The batch results may deviate from {@link #distance} by rounding errors,
+ * bounded relative to the distance by {@link #BATCH_TOLERANCE}. Callers that
+ * need bit-identical results (e.g., for tie-breaking) should recompute the
+ * candidates with {@link #distance}.
+ * <p>
+ * Blocks that are used repeatedly should be prepared only once with
+ * {@link #prepareBlock}, e.g., copied to contiguous memory with precomputed
+ * norms, and then be passed to {@link #distanceBlock(Block, Block, double[])}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ *
+ * @has - - - Block
+ */
+public interface BatchPrimitiveDistanceFunction<O> extends PrimitiveDistanceFunction<O> {
+  /**
+   * Maximum relative deviation of batch results from {@link #distance}.
+   */
+  double BATCH_TOLERANCE = 1e-8;
+
+  /**
+   * Number of objects per block when filling a distance matrix.
+   */
+  int BLOCK_SIZE = 256;
+
+  /**
+   * Prepare a block of objects for repeated use. The prepared block does not
+   * depend on later modifications of the list.
+   *
+   * @param objs Objects
+   * @return Prepared block
+   */
+  Block prepareBlock(List<? extends O> objs);
+
+  /**
+   * Compute the distances of all pairs of two prepared blocks.
+   *
+   * @param xs First objects (rows), from {@link #prepareBlock}
+   * @param ys Second objects (columns), from {@link #prepareBlock}
+   * @param out Output array, of size at least {@code xs.size() * ys.size()},
+   *        in row-major order.
+   */
+  void distanceBlock(Block xs, Block ys, double[] out);
+
+  /**
+   * Compute the distances of all pairs of two blocks of objects.
+   * <p>
+   * This prepares both blocks on every call; use
+   * {@link #distanceBlock(Block, Block, double[])} to reuse blocks.
+   *
+   * @param xs First objects (rows)
+   * @param ys Second objects (columns)
+   * @param out Output array, of size at least {@code xs.size() * ys.size()},
+   *        in row-major order.
+   */
+  default void distanceBlock(List<? extends O> xs, List<? extends O> ys, double[] out) {
+    distanceBlock(prepareBlock(xs), prepareBlock(ys), out);
+  }
+
+  /**
+   * Fill a lower-triangular distance matrix (without the diagonal) as used by
+   * distance matrixes: the distance of objects {@code x > y} is stored at
+   * position {@code x * (x - 1) / 2 + y}.
+   *
+   * @param objs Objects
+   * @param matrix Output matrix
+   */
+  default void lowerTriangle(List<? extends O> objs, double[] matrix) {
+    lowerTriangle(objs, matrix, 0, objs.size());
+  }
+
+  /**
+   * Fill the rows {@code start} to {@code end} (exclusive) of a
+   * lower-triangular distance matrix, see
+   * {@link #lowerTriangle(List, double[])}.
+   *
+   * @param objs Objects
+   * @param matrix Output matrix
+   * @param start First row
+   * @param end End row (exclusive)
+   */
+  default void lowerTriangle(List<? extends O> objs, double[] matrix, int start, int end) {
+    final double[] buf = new double[BLOCK_SIZE * BLOCK_SIZE];
+    // Column blocks, each prepared once on first use.
+    final Block[] cols = new Block[(end + BLOCK_SIZE - 1) / BLOCK_SIZE];
+    for(int x0 = start; x0 < end; x0 += BLOCK_SIZE) {
+      final int x1 = Math.min(x0 + BLOCK_SIZE, end);
+      final Block xs = prepareBlock(objs.subList(x0, x1));
+      // Columns y < x, i.e., up to x1 - 2:
+      for(int y0 = 0; y0 < x1 - 1; y0 += BLOCK_SIZE) {
+        final int y1 = Math.min(y0 + BLOCK_SIZE, x1 - 1), c = y0 / BLOCK_SIZE;
+        if(cols[c] == null) {
+          cols[c] = prepareBlock(objs.subList(y0, Math.min(y0 + BLOCK_SIZE, end)));
+        }
+        // Row stride is the full column block, which may extend beyond y1.
+        final int ny = cols[c].size();
+        distanceBlock(xs, cols[c], buf);
+        for(int x = x0; x < x1; x++) {
+          final int ymax = Math.min(x, y1), off = (x * (x - 1)) >>> 1;
+          for(int y = y0, p = (x - x0) * ny; y < ymax; y++) {
+            matrix[off + y] = buf[p++];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Block of objects, prepared for batch distance computations.
+   *
+   * @author Erich Schubert
+   */
+  interface Block {
+    /**
+     * Number of objects in the block.
+     *
+     * @return Size
+     */
+    int size();
+  }
+}
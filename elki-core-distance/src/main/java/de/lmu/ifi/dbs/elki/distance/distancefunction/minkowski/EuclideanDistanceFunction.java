@@ -20,8 +20,11 @@
  */
 package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
 
+import java.util.List;
+
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.BatchPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.Priority;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
@@ -39,7 +42,7 @@ import net.jafama.FastMath;
 @Priority(300) // Everybody expects Euclidean to come first.
 @Alias({ "euclidean", "euclid", "l2", //
     "de.lmu.ifi.dbs.elki.distance.distancefunction.EuclideanDistanceFunction" })
-public class EuclideanDistanceFunction extends LPIntegerNormDistanceFunction {
+public class EuclideanDistanceFunction extends LPIntegerNormDistanceFunction implements BatchPrimitiveDistanceFunction<NumberVector> {
   /**
    * Static instance. Use this!
    */
@@ -129,6 +132,19 @@ public class EuclideanDistanceFunction extends LPIntegerNormDistanceFunction {
     return FastMath.sqrt(preNorm(v, 0, v.getDimensionality()));
   }
 
+  @Override
+  public Block prepareBlock(List<? extends NumberVector> vs) {
+    return SquaredEuclideanDistanceFunction.STATIC.prepareBlock(vs);
+  }
+
+  @Override
+  public void distanceBlock(Block xs, Block ys, double[] out) {
+    SquaredEuclideanDistanceFunction.STATIC.distanceBlock(xs, ys, out);
+    for(int i = 0, e = xs.size() * ys.size(); i < e; i++) {
+      out[i] = FastMath.sqrt(out[i]);
+    }
+  }
+
   @Override
   public double minDist(SpatialComparable mbr1, SpatialComparable mbr2) {
     final int dim1 = mbr1.getDimensionality(), dim2 = mbr2.getDimensionality();
@@ -20,6 +20,9 @@
  */
 package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.lmu.ifi.dbs.elki.data.NumberVector;
 import de.lmu.ifi.dbs.elki.data.SparseNumberVector;
 import de.lmu.ifi.dbs.elki.data.spatial.SpatialComparable;
@@ -40,7 +43,7 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
  * @since 0.1
  */
 @Alias({ "squaredeuclidean", "de.lmu.ifi.dbs.elki.distance.distancefunction.SquaredEuclideanDistanceFunction" })
-public class SquaredEuclideanDistanceFunction extends AbstractNumberVectorDistanceFunction implements SpatialPrimitiveDistanceFunction<NumberVector>, Norm<NumberVector> {
+public class SquaredEuclideanDistanceFunction extends AbstractNumberVectorDistanceFunction implements SpatialPrimitiveDistanceFunction<NumberVector>, Norm<NumberVector>, BatchPrimitiveDistanceFunction<NumberVector> {
   /**
    * Static instance. Use this!
    */
@@ -108,7 +111,7 @@ public class SquaredEuclideanDistanceFunction extends AbstractNumberVectorDistan
     return agg;
   }
 
-  private double preNorm(double[] v, int start, int end) {
+  private static double preNorm(double[] v, int start, int end) {
     double agg = 0.;
     for(int d = start; d < end; d++) {
       final double xd = v[d];
@@ -186,6 +189,160 @@ public class SquaredEuclideanDistanceFunction extends AbstractNumberVectorDistan
     return agg;
   }
 
+  /**
+   * Prepare a block of vectors: dense vectors are copied into a contiguous
+   * row-major array, and their squared norms are precomputed.
+   *
+   * @param vs Vectors
+   * @return Prepared block
+   */
+  @Override
+  public VectorBlock prepareBlock(List<? extends NumberVector> vs) {
+    return new VectorBlock(vs);
+  }
+
+  /**
+   * Compute the squared distances of two blocks of vectors.
+   * <p>
+   * This uses the expansion \(\|x-y\|^2=\|x\|^2+\|y\|^2-2\langle x,y\rangle\)
+   * with the precomputed squared norms, and computes the dot products on the
+   * contiguous copies of the vectors, tile by tile. Because this is prone to
+   * numerical cancellation when the distance is small compared to the norms,
+   * such distances are recomputed exactly in a correction pass.
+   * <p>
+   * Sparse vectors are processed pair by pair.
+   *
+   * @param xs First vectors (rows)
+   * @param ys Second vectors (columns)
+   * @param out Output array, row-major
+   */
+  @Override
+  public void distanceBlock(Block xs, Block ys, double[] out) {
+    final VectorBlock bx = (VectorBlock) xs, by = (VectorBlock) ys;
+    final int nx = bx.size(), ny = by.size();
+    if(nx == 0 || ny == 0) {
+      return;
+    }
+    if(bx.data == null || by.data == null) {
+      for(int i = 0, p = 0; i < nx; i++) {
+        final NumberVector x = bx.vecs.get(i);
+        for(int j = 0; j < ny; j++) {
+          out[p++] = distance(x, by.vecs.get(j));
+        }
+      }
+      return;
+    }
+    final double[] dx = bx.data, dy = by.data, normx = bx.norms, normy = by.norms;
+    final int dimx = bx.dim, dimy = by.dim, dim = dimx < dimy ? dimx : dimy;
+    // Relative cancellation error of the expansion, see above.
+    final double correct = 2.3e-16 * (dim + 2) * 2 / BATCH_TOLERANCE;
+    // Two tiles of rows should fit into a 32 KB L1 cache.
+    final int tile = Math.max(1, Math.min(64, 2048 / Math.max(dim, 1)));
+    for(int i0 = 0; i0 < nx; i0 += tile) {
+      final int i1 = Math.min(i0 + tile, nx);
+      for(int j0 = 0; j0 < ny; j0 += tile) {
+        final int j1 = Math.min(j0 + tile, ny);
+        for(int i = i0; i < i1; i++) {
+          final int ioff = i * dimx, p = i * ny;
+          final double ni = normx[i];
+          for(int j = j0; j < j1; j++) {
+            final int joff = j * dimy;
+            double dot = 0.;
+            for(int d = 0; d < dim; d++) {
+              dot += dx[ioff + d] * dy[joff + d];
+            }
+            final double n = ni + normy[j], v = n - 2 * dot;
+            out[p + j] = v > correct * n ? v : preDistance(dx, ioff, dimx, dy, joff, dimy);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Exact squared distance of two rows of flattened blocks.
+   *
+   * @param bx First block
+   * @param ioff Offset in first block
+   * @param dimx Dimensionality of the first block
+   * @param by Second block
+   * @param joff Offset in second block
+   * @param dimy Dimensionality of the second block
+   * @return Squared distance
+   */
+  private static double preDistance(double[] bx, int ioff, int dimx, double[] by, int joff, int dimy) {
+    final int dim = dimx < dimy ? dimx : dimy;
+    double agg = 0.;
+    for(int d = 0; d < dim; d++) {
+      final double delta = bx[ioff + d] - by[joff + d];
+      agg += delta * delta;
+    }
+    return agg + preNorm(bx, ioff + dim, ioff + dimx) + preNorm(by, joff + dim, joff + dimy);
+  }
+
+  /**
+   * Block of vectors, prepared for batch distance computations.
+   *
+   * @author Erich Schubert
+   */
+  public static class VectorBlock implements Block {
+    /**
+     * The vectors.
+     */
+    private final List<NumberVector> vecs;
+
+    /**
+     * Dimensionality of the flattened rows.
+     */
+    private final int dim;
+
+    /**
+     * Flattened vectors, row-major and padded with zeros; {@code null} for
+     * sparse vectors.
+     */
+    private final double[] data;
+
+    /**
+     * Squared norms of the vectors.
+     */
+    private final double[] norms;
+
+    /**
+     * Constructor.
+     *
+     * @param vs Vectors
+     */
+    public VectorBlock(List<? extends NumberVector> vs) {
+      this.vecs = new ArrayList<>(vs);
+      final int n = vecs.size();
+      if(n == 0 || vecs.get(0) instanceof SparseNumberVector) {
+        this.dim = 0;
+        this.data = this.norms = null;
+        return;
+      }
+      int dim = 0;
+      for(NumberVector v : vecs) {
+        final int d = v.getDimensionality();
+        dim = d > dim ? d : dim;
+      }
+      this.dim = dim;
+      this.data = new double[n * dim];
+      this.norms = new double[n];
+      for(int i = 0, off = 0; i < n; i++, off += dim) {
+        final NumberVector v = vecs.get(i);
+        for(int d = 0, vd = v.getDimensionality(); d < vd; d++) {
+          data[off + d] = v.doubleValue(d);
+        }
+        norms[i] = preNorm(data, off, off + dim);
+      }
+    }
+
+    @Override
+    public int size() {
+      return vecs.size();
+    }
+  }
+
   @Override
   public boolean isSquared() {
     return true;
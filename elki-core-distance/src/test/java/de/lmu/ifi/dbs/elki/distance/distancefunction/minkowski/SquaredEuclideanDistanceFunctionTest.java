@@ -20,9 +20,18 @@
  */
 package de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.AbstractDistanceFunctionTest;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.BatchPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
 
 /**
@@ -41,4 +50,60 @@ public class SquaredEuclideanDistanceFunctionTest extends AbstractDistanceFuncti
     spatialConsistency(dist);
     nonnegativeSpatialConsistency(dist);
   }
+
+  @Test
+  public void testBatchDistances() {
+    SquaredEuclideanDistanceFunction dist = SquaredEuclideanDistanceFunction.STATIC;
+    Random r = new Random(0L);
+    List<DoubleVector> xs = new ArrayList<>(), ys = new ArrayList<>();
+    for(int i = 0; i < 300; i++) {
+      // Far from the origin, to provoke cancellation; varying length.
+      double[] v = new double[5 + (i & 1)];
+      for(int d = 0; d < v.length; d++) {
+        v[d] = 1e4 + r.nextDouble();
+      }
+      (i < 100 ? xs : ys).add(DoubleVector.wrap(v));
+    }
+    ys.add(xs.get(0)); // Duplicate must have distance 0.
+    double[] out = new double[xs.size() * ys.size()];
+    dist.distanceBlock(xs, ys, out);
+    for(int i = 0, p = 0; i < xs.size(); i++) {
+      for(int j = 0; j < ys.size(); j++, p++) {
+        double exp = dist.distance(xs.get(i), ys.get(j));
+        assertEquals(exp, out[p], exp * BatchPrimitiveDistanceFunction.BATCH_TOLERANCE);
+      }
+    }
+    assertEquals(0., out[ys.size() - 1], 0.);
+    // Prepared blocks can be reused, also with different dimensionality:
+    List<DoubleVector> zs = new ArrayList<>();
+    for(int i = 0; i < 50; i++) {
+      zs.add(DoubleVector.wrap(new double[] { 1e4 + r.nextDouble(), 1e4 + r.nextDouble() }));
+    }
+    BatchPrimitiveDistanceFunction.Block bx = dist.prepareBlock(xs), bz = dist.prepareBlock(zs);
+    double[] out2 = new double[xs.size() * zs.size()];
+    for(int rep = 0; rep < 2; rep++) {
+      dist.distanceBlock(bx, bz, out2);
+      for(int i = 0, p = 0; i < xs.size(); i++) {
+        for(int j = 0; j < zs.size(); j++, p++) {
+          double exp = dist.distance(xs.get(i), zs.get(j));
+          assertEquals(exp, out2[p], exp * BatchPrimitiveDistanceFunction.BATCH_TOLERANCE);
+        }
+      }
+    }
+    // Lower triangular matrix, spanning multiple blocks:
+    ys.addAll(xs);
+    double[] matrix = new double[(ys.size() * (ys.size() - 1)) >>> 1];
+    dist.lowerTriangle(ys, matrix);
+    for(int x = 0, p = 0; x < ys.size(); x++) {
+      for(int y = 0; y < x; y++, p++) {
+        double exp = dist.distance(ys.get(x), ys.get(y));
+        assertEquals(exp, matrix[p], exp * BatchPrimitiveDistanceFunction.BATCH_TOLERANCE);
+      }
+    }
+    // Filling the rows in unaligned ranges must give the same matrix:
+    double[] matrix2 = new double[matrix.length];
+    dist.lowerTriangle(ys, matrix2, 0, 100);
+    dist.lowerTriangle(ys, matrix2, 100, ys.size());
+    assertArrayEquals(matrix, matrix2, 0.);
+  }
 }
@@ -20,32 +20,81 @@
  */
 package de.lmu.ifi.dbs.elki.parallel;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.concurrent.*;
 
+import de.lmu.ifi.dbs.elki.logging.Logging;
+
 /**
  * Core for parallel processing in ELKI, based on {@link ThreadPoolExecutor}.
  * <p>
- * TODO: make configurable how many threads are used.
+ * Alternatively, a work-stealing {@link ForkJoinPool} can be used, which
+ * balances the load better when the cost per object varies a lot (e.g., kNN
+ * queries in dense and sparse regions of the data set).
+ * <p>
+ * By default, a process-wide core is used. Its size can be set with the
+ * system property {@code elki.parallel.processors}, and otherwise respects
+ * CPU quotas imposed by Linux control groups (e.g., in containers).
+ * To run multiple tasks side by side with a fixed number of threads each,
+ * create a separate core and make it the current core of the calling thread
+ * (the worker threads of a core use this core as their current core, too, so
+ * nested parallel operations run on the same threads):
+ *
+ * <pre>
+ * ParallelCore core = new ParallelCore(8);
+ * try(ParallelCore.Scope scope = core.enter()) {
+ *   // Run algorithms here
+ * }
+ * finally {
+ *   core.shutdown();
+ * }
+ * </pre>
  * 
  * @author Erich Schubert
  * @since 0.7.0
+ *
+ * @has - - - Scope
  */
 public class ParallelCore {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelCore.class);
+
   /**
    * The number of CPUs to use.
    */
-  public static final int ALL_PROCESSORS = Runtime.getRuntime().availableProcessors();
+  public static final int ALL_PROCESSORS = getDefaultProcessors();
 
   /**
    * Static core
    */
   private static final ParallelCore STATIC = new ParallelCore(ALL_PROCESSORS);
 
+  /**
+   * Core used by the current thread, if different from the static core.
+   */
+  private static final ThreadLocal<ParallelCore> CURRENT = new ThreadLocal<>();
+
   /**
    * Executor service.
    */
   private volatile ThreadPoolExecutor executor;
 
+  /**
+   * Work-stealing pool.
+   */
+  private volatile ForkJoinPool forkjoin;
+
+  /**
+   * Use work stealing.
+   */
+  private volatile boolean workstealing = true;
+
   /**
    * Number of connected submitters.
    */
@@ -58,19 +107,125 @@ public class ParallelCore {
 
   /**
    * Constructor.
+   *
+   * @param processors Number of threads to use
    */
-  protected ParallelCore(int processors) {
+  public ParallelCore(int processors) {
     super();
+    if(processors < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
     this.processors = processors;
   }
 
   /**
-   * Get the static core object.
+   * Get the core object of the current thread, i.e., the innermost entered
+   * scope, the core of the worker thread, or the static core.
    * 
    * @return Core
    */
   public static ParallelCore getCore() {
-    return STATIC;
+    ParallelCore core = CURRENT.get();
+    return core != null ? core : STATIC;
+  }
+
+  /**
+   * Get the default number of processors to use.
+   * <p>
+   * This is the value of the system property {@code elki.parallel.processors}
+   * if set, otherwise the number of available processors, reduced to the CPU
+   * quota of the control group (Linux containers) if there is one.
+   *
+   * @return Number of processors
+   */
+  private static int getDefaultProcessors() {
+    String sprocs = System.getProperty("elki.parallel.processors");
+    if(sprocs != null) {
+      try {
+        return Math.max(1, Integer.parseInt(sprocs.trim()));
+      }
+      catch(NumberFormatException e) {
+        LOG.warning("Invalid value for elki.parallel.processors, using the number of available processors: " + sprocs);
+      }
+    }
+    int cpus = Runtime.getRuntime().availableProcessors();
+    double quota = getCGroupQuota();
+    return quota > 0 ? Math.max(1, Math.min(cpus, (int) Math.ceil(quota))) : cpus;
+  }
+
+  /**
+   * Read the CPU quota from the Linux control groups (v2, then v1).
+   *
+   * @return Quota in number of CPUs, or -1 if not available or unlimited.
+   */
+  private static double getCGroupQuota() {
+    try {
+      // cgroup v2: "quota period", quota may be "max"
+      String[] v2 = readFirstLine("/sys/fs/cgroup/cpu.max");
+      if(v2 != null && v2.length == 2) {
+        return "max".equals(v2[0]) ? -1 : Long.parseLong(v2[0]) / (double) Long.parseLong(v2[1]);
+      }
+      // cgroup v1: separate files, quota of -1 means unlimited
+      String[] quota = readFirstLine("/sys/fs/cgroup/cpu/cpu.cfs_quota_us");
+      String[] period = readFirstLine("/sys/fs/cgroup/cpu/cpu.cfs_period_us");
+      if(quota != null && period != null) {
+        long q = Long.parseLong(quota[0]), p = Long.parseLong(period[0]);
+        return q > 0 && p > 0 ? q / (double) p : -1;
+      }
+    }
+    catch(IOException | NumberFormatException | SecurityException e) {
+      // Ignore, use the default.
+    }
+    return -1;
+  }
+
+  /**
+   * Read the first line of a file, split at whitespace.
+   *
+   * @param fname File name
+   * @return Tokens, or {@code null} if the file does not exist or is empty.
+   * @throws IOException on read errors
+   */
+  private static String[] readFirstLine(String fname) throws IOException {
+    if(!Files.isReadable(Paths.get(fname))) {
+      return null;
+    }
+    try (BufferedReader r = Files.newBufferedReader(Paths.get(fname), StandardCharsets.US_ASCII)) {
+      String line = r.readLine();
+      return line != null && !line.isEmpty() ? line.trim().split("\\s+") : null;
+    }
+  }
+
+  /**
+   * Make this core the current core of the calling thread, until the returned
+   * scope is closed. Scopes can be nested.
+   *
+   * @return Scope, to be closed after use
+   */
+  public Scope enter() {
+    Scope scope = new Scope(CURRENT.get());
+    CURRENT.set(this);
+    return scope;
+  }
+
+  /**
+   * Stop all threads of this core. The core can still be used afterwards, but
+   * will start new threads then.
+   * <p>
+   * Do not call this on the static core.
+   */
+  public synchronized void shutdown() {
+    if(connected > 0) {
+      throw new IllegalStateException("Parallel core is still in use.");
+    }
+    if(executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+    if(forkjoin != null) {
+      forkjoin.shutdown();
+      forkjoin = null;
+    }
   }
 
   /**
@@ -79,7 +234,41 @@ public class ParallelCore {
    * @return Number of threads to run in parallel
    */
   public int getParallelism() {
-    return executor != null ? executor.getMaximumPoolSize() : processors;
+    return getParallelism(workstealing);
+  }
+
+  /**
+   * Get desired level of parallelism, for the given execution mode.
+   *
+   * @param workstealing Work stealing mode, as returned by {@link #connect()}
+   * @return Number of threads to run in parallel
+   */
+  int getParallelism(boolean workstealing) {
+    final ForkJoinPool pool = forkjoin;
+    final ThreadPoolExecutor exec = executor;
+    return workstealing ? (pool != null ? pool.getParallelism() : processors) : //
+        (exec != null ? exec.getMaximumPoolSize() : processors);
+  }
+
+  /**
+   * Test whether the work-stealing fork-join pool is used.
+   *
+   * @return {@code true} when work stealing is enabled
+   */
+  public boolean isWorkStealing() {
+    return workstealing;
+  }
+
+  /**
+   * Choose between the work-stealing fork-join pool and the classic thread
+   * pool with fixed block partitioning.
+   * <p>
+   * The change only affects executions started after this call.
+   *
+   * @param workstealing {@code true} to use work stealing
+   */
+  public synchronized void setWorkStealing(boolean workstealing) {
+    this.workstealing = workstealing;
   }
 
   /**
@@ -93,27 +282,121 @@ public class ParallelCore {
     return executor.submit(task);
   }
 
+  /**
+   * Run a fork-join task on the work-stealing pool, and wait for its
+   * completion.
+   *
+   * @param task Task to run
+   * @return Task result
+   */
+  public <T> T invoke(ForkJoinTask<T> task) {
+    ForkJoinPool pool = forkjoin;
+    if(pool == null) {
+      synchronized(this) {
+        // Idle workers of the fork-join pool time out automatically.
+        pool = forkjoin = forkjoin != null ? forkjoin : new ForkJoinPool(processors, p -> new Worker(p, this), null, false);
+      }
+    }
+    return pool.invoke(task);
+  }
+
   /**
    * Connect to the executor.
+   * <p>
+   * The execution mode may be changed concurrently; callers must use the
+   * returned mode rather than {@link #isWorkStealing()}, as only the executor
+   * of the returned mode is guaranteed to be available.
+   *
+   * @return {@code true} if the work-stealing pool is to be used
    */
-  public synchronized void connect() {
+  public synchronized boolean connect() {
+    ++connected;
+    if(workstealing) {
+      return true; // The fork-join pool is started on demand.
+    }
     if(executor == null) {
-      executor = new ThreadPoolExecutor(0, processors, 10L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+      final ThreadFactory factory = Executors.defaultThreadFactory();
+      executor = new ThreadPoolExecutor(0, processors, 10L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), //
+          r -> factory.newThread(() -> {
+            CURRENT.set(this);
+            r.run();
+          }));
       executor.allowCoreThreadTimeOut(true);
     }
-    if(++connected == 1) {
+    if(executor.getCorePoolSize() < executor.getMaximumPoolSize()) {
       executor.allowCoreThreadTimeOut(false);
       executor.setCorePoolSize(executor.getMaximumPoolSize());
     }
+    return false;
   }
 
   /**
    * Disconnect to the executor.
    */
   public synchronized void disconnect() {
-    if(--connected == 0) {
+    if(--connected == 0 && executor != null) {
       executor.allowCoreThreadTimeOut(true);
       executor.setCorePoolSize(0);
     }
   }
+
+  /**
+   * Worker thread of the fork-join pool, using its core as current core.
+   *
+   * @author Erich Schubert
+   */
+  private static final class Worker extends ForkJoinWorkerThread {
+    /**
+     * Core of this worker.
+     */
+    private final ParallelCore core;
+
+    /**
+     * Constructor.
+     *
+     * @param pool Fork-join pool
+     * @param core Core of this worker
+     */
+    private Worker(ForkJoinPool pool, ParallelCore core) {
+      super(pool);
+      this.core = core;
+    }
+
+    @Override
+    protected void onStart() {
+      super.onStart();
+      CURRENT.set(core);
+    }
+  }
+
+  /**
+   * Scope of a parallel core, restores the previous core when closed.
+   *
+   * @author Erich Schubert
+   */
+  public static final class Scope implements AutoCloseable {
+    /**
+     * Previous core, may be {@code null}.
+     */
+    private ParallelCore previous;
+
+    /**
+     * Constructor.
+     *
+     * @param previous Previous core
+     */
+    private Scope(ParallelCore previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if(previous != null) {
+        CURRENT.set(previous);
+      }
+      else {
+        CURRENT.remove();
+      }
+    }
+  }
 }
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
@@ -37,6 +38,11 @@ import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable.Instance;
 
 /**
  * Class to run processors in parallel, on all available cores.
+ * <p>
+ * If the {@link ParallelCore} uses work stealing, the data is split
+ * recursively into halves: blocks are split further while other workers are
+ * starving, so that skewed workloads still keep all cores busy until the end.
+ * Otherwise, the data is partitioned into a fixed number of blocks.
  *
  * TODO: add progress
  *
@@ -44,9 +50,25 @@ import de.lmu.ifi.dbs.elki.parallel.variables.SharedVariable.Instance;
  * @since 0.7.0
  *
  * @has - - - BlockArrayRunner
+ * @has - - - BlockArrayTask
  * @assoc - - - ParallelCore
  */
 public final class ParallelExecutor {
+  /**
+   * Minimum block size when splitting recursively.
+   */
+  private static final int MIN_BLOCKSIZE = 16;
+
+  /**
+   * Number of blocks per thread to produce at least in work stealing mode.
+   */
+  private static final int BLOCKS_PER_THREAD = 16;
+
+  /**
+   * Number of queued tasks below which we keep splitting the remaining blocks.
+   */
+  private static final int SURPLUS_THRESHOLD = 2;
+
   /**
    * Private constructor. Static methods only.
    */
@@ -62,12 +84,18 @@ public final class ParallelExecutor {
    */
   public static void run(DBIDs ids, Processor... procs) {
     ParallelCore core = ParallelCore.getCore();
-    core.connect();
+    // Read the mode only once, it may be changed concurrently.
+    final boolean workstealing = core.connect();
     try {
       // TODO: try different strategies anyway!
       ArrayDBIDs aids = DBIDUtil.ensureArray(ids);
       final int size = aids.size();
-      int numparts = core.getParallelism();
+      if(workstealing) {
+        final int maxblock = Math.max(MIN_BLOCKSIZE, size / (core.getParallelism(true) * BLOCKS_PER_THREAD));
+        core.invoke(new BlockArrayTask(aids, 0, size, maxblock, procs));
+        return;
+      }
+      int numparts = core.getParallelism(false);
       // TODO: are there better heuristics for choosing this?
       numparts = (size > numparts * numparts * 16) ? numparts * Math.max(1, numparts - 1) : numparts;
 
@@ -95,6 +123,90 @@ public final class ParallelExecutor {
     }
   }
 
+  /**
+   * Recursively split array parts, for use with a work-stealing pool.
+   * <p>
+   * Blocks larger than the maximum block size are always split. Smaller blocks
+   * are only split (down to a minimum size) while few tasks are queued, i.e.,
+   * when other workers are likely to be idle. This is similar to the lazy
+   * binary splitting used by Java parallel streams.
+   *
+   * @author Erich Schubert
+   *
+   * @has - - - BlockArrayRunner
+   */
+  protected static class BlockArrayTask extends RecursiveAction {
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Array IDs to process
+     */
+    private ArrayDBIDs ids;
+
+    /**
+     * Start position
+     */
+    private int start;
+
+    /**
+     * End position
+     */
+    private int end;
+
+    /**
+     * Maximum block size
+     */
+    private int maxblock;
+
+    /**
+     * The processor masters that own the instances.
+     */
+    private Processor[] procs;
+
+    /**
+     * Next forked sibling, to join.
+     */
+    private BlockArrayTask next;
+
+    /**
+     * Constructor.
+     *
+     * @param ids IDs to process
+     * @param start Starting position
+     * @param end End position
+     * @param maxblock Maximum block size
+     * @param procs Processors to run
+     */
+    protected BlockArrayTask(ArrayDBIDs ids, int start, int end, int maxblock, Processor[] procs) {
+      super();
+      this.ids = ids;
+      this.start = start;
+      this.end = end;
+      this.maxblock = maxblock;
+      this.procs = procs;
+    }
+
+    @Override
+    protected void compute() {
+      int e = end;
+      BlockArrayTask forked = null;
+      while(e - start > MIN_BLOCKSIZE && (e - start > maxblock || getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD)) {
+        final int mid = (start + e) >>> 1;
+        BlockArrayTask right = new BlockArrayTask(ids, mid, e, maxblock, procs);
+        right.next = forked;
+        (forked = right).fork();
+        e = mid;
+      }
+      new BlockArrayRunner(ids, start, e, procs).call();
+      for(; forked != null; forked = forked.next) {
+        forked.join();
+      }
+    }
+  }
+
   /**
    * Run for an array part, without step size.
    *
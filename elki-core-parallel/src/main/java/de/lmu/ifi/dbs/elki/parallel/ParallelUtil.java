@@ -0,0 +1,148 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.parallel;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.parallel.processor.DoubleFunctionProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.DoubleMinMaxProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+import de.lmu.ifi.dbs.elki.parallel.processor.WriteDataStoreProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.WriteDoubleDataStoreProcessor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedDouble;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
+
+/**
+ * Common stages of parallel algorithms, such as materializing the k nearest
+ * neighbors, or computing a value for every object, built from processors.
+ * <p>
+ * Typical pipelines, e.g., for local outlier detection, first materialize the
+ * neighbors, then compute a density for each object, then a score based on
+ * the densities of the neighbors. Each stage reads the results of the
+ * previous stages only, and can be run with {@link ParallelExecutor}.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - ParallelExecutor
+ */
+public final class ParallelUtil {
+  /**
+   * Private constructor. Static methods only.
+   */
+  private ParallelUtil() {
+    // Do not use.
+  }
+
+  /**
+   * Materialize the k nearest neighbors of all objects.
+   *
+   * @param ids Objects to process
+   * @param knnq kNN query
+   * @param k Number of neighbors
+   * @return Stored neighbor lists
+   */
+  public static WritableDataStore<KNNList> materializeKNN(DBIDs ids, KNNQuery<?> knnq, int k) {
+    WritableDataStore<KNNList> knns = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, KNNList.class);
+    KNNProcessor<?> knnm = new KNNProcessor<>(k, knnq);
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    WriteDataStoreProcessor<KNNList> storek = new WriteDataStoreProcessor<>(knns);
+    knnm.connectKNNOutput(knnv);
+    storek.connectInput(knnv);
+    ParallelExecutor.run(ids, knnm, storek);
+    return knns;
+  }
+
+  /**
+   * Compute a value for every object in parallel.
+   * <p>
+   * The function must be thread safe.
+   *
+   * @param ids Objects to process
+   * @param function Function to compute
+   * @param output Output storage
+   * @return Minimum and maximum of the computed values
+   */
+  public static DoubleMinMax map(DBIDs ids, ToDoubleFunction<? super DBIDRef> function, WritableDoubleDataStore output) {
+    return mapThreadLocal(ids, () -> function, output);
+  }
+
+  /**
+   * Compute a value for every object in parallel, with a separate function
+   * instance for each block of objects, e.g., to reuse scratch buffers.
+   *
+   * @param ids Objects to process
+   * @param factory Function factory
+   * @param output Output storage
+   * @return Minimum and maximum of the computed values
+   */
+  public static DoubleMinMax mapThreadLocal(DBIDs ids, Supplier<? extends ToDoubleFunction<? super DBIDRef>> factory, WritableDoubleDataStore output) {
+    DoubleFunctionProcessor funm = new DoubleFunctionProcessor(factory);
+    SharedDouble funv = new SharedDouble();
+    WriteDoubleDataStoreProcessor storem = new WriteDoubleDataStoreProcessor(output);
+    DoubleMinMaxProcessor mmm = new DoubleMinMaxProcessor();
+    funm.connectOutput(funv);
+    storem.connectInput(funv);
+    mmm.connectInput(funv);
+    ParallelExecutor.run(ids, funm, storem, mmm);
+    return mmm.getMinMax();
+  }
+
+  /**
+   * Compute an object for every object in parallel, with a separate function
+   * instance for each block of objects, e.g., to reuse scratch buffers.
+   *
+   * @param ids Objects to process
+   * @param factory Function factory
+   * @param hints Storage hints
+   * @param cls Class of the stored objects
+   * @param <T> Object type
+   * @return Storage with the computed objects
+   */
+  public static <T> WritableDataStore<T> mapObjects(DBIDs ids, Supplier<? extends Function<? super DBIDRef, ? extends T>> factory, int hints, Class<? super T> cls) {
+    final WritableDataStore<T> output = DataStoreUtil.makeStorage(ids, hints, cls);
+    ParallelExecutor.run(ids, new Processor() {
+      @Override
+      public Instance instantiate(Executor executor) {
+        final Function<? super DBIDRef, ? extends T> function = factory.get();
+        return id -> output.put(id, function.apply(id));
+      }
+
+      @Override
+      public void cleanup(Instance inst) {
+        // Nothing to do.
+      }
+    });
+    return output;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.parallel.processor;
+
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.parallel.Executor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedDouble;
+
+/**
+ * Processor computing a double value for each object with a function.
+ * <p>
+ * The function is obtained from a factory once for each block of objects, so
+ * it may keep scratch buffers, but it must only read shared data structures.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class DoubleFunctionProcessor extends AbstractDoubleProcessor {
+  /**
+   * Function factory.
+   */
+  private Supplier<? extends ToDoubleFunction<? super DBIDRef>> factory;
+
+  /**
+   * Constructor.
+   *
+   * @param factory Factory for per-thread functions
+   */
+  public DoubleFunctionProcessor(Supplier<? extends ToDoubleFunction<? super DBIDRef>> factory) {
+    super();
+    this.factory = factory;
+  }
+
+  @Override
+  public Instance instantiate(Executor executor) {
+    return new Instance(executor.getInstance(output), factory.get());
+  }
+
+  /**
+   * Instance for a block of objects.
+   *
+   * @author Erich Schubert
+   */
+  private static class Instance extends AbstractDoubleProcessor.Instance {
+    /**
+     * Function to apply.
+     */
+    private ToDoubleFunction<? super DBIDRef> function;
+
+    /**
+     * Constructor.
+     *
+     * @param output Output variable
+     * @param function Function to apply
+     */
+    protected Instance(SharedDouble.Instance output, ToDoubleFunction<? super DBIDRef> function) {
+      super(output);
+      this.function = function;
+    }
+
+    @Override
+    public void map(DBIDRef id) {
+      output.set(function.applyAsDouble(id));
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.parallel;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RecursiveTask;
+
+import org.junit.Test;
+
+/**
+ * Test that worker threads use the core they belong to.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ParallelCoreTest {
+  @Test
+  public void testForkJoinWorkerCore() {
+    ParallelCore core = new ParallelCore(2);
+    try {
+      // Not entered: the workers must use their own core anyway.
+      assertSame(core, core.invoke(new RecursiveTask<ParallelCore>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected ParallelCore compute() {
+          return ParallelCore.getCore();
+        }
+      }));
+    }
+    finally {
+      core.shutdown();
+    }
+  }
+
+  @Test
+  public void testExecutorWorkerCore() throws InterruptedException, ExecutionException {
+    ParallelCore core = new ParallelCore(2);
+    core.setWorkStealing(false);
+    core.connect();
+    try {
+      assertSame(core, core.submit(ParallelCore::getCore).get());
+    }
+    finally {
+      core.disconnect();
+      core.shutdown();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.parallel.processor.Processor;
+
+/**
+ * Test the parallel executor, with a skewed workload.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ParallelExecutorTest {
+  /**
+   * Number of objects, and number of expensive objects at the beginning.
+   */
+  private static final int SIZE = 1024, EXPENSIVE = 128;
+
+  @Test
+  public void testSkewedWorkStealing() {
+    SkewedProcessor proc = run(true);
+    assertTrue("Expensive objects were not shared by multiple threads.", proc.threads.size() > 1);
+  }
+
+  @Test
+  public void testSkewedBlocks() {
+    run(false);
+  }
+
+  /**
+   * Run the skewed workload on four threads.
+   *
+   * @param workstealing Use work stealing
+   * @return Processor used
+   */
+  private static SkewedProcessor run(boolean workstealing) {
+    DBIDRange ids = DBIDUtil.generateStaticDBIDRange(SIZE);
+    SkewedProcessor proc = new SkewedProcessor(ids);
+    ParallelCore core = new ParallelCore(4);
+    core.setWorkStealing(workstealing);
+    ParallelCore.Scope scope = core.enter();
+    try {
+      ParallelExecutor.run(ids, proc);
+    }
+    finally {
+      scope.close();
+      core.shutdown();
+    }
+    for(int i = 0; i < SIZE; i++) {
+      assertEquals("Object not processed exactly once: " + i, 1, proc.counts.get(i));
+    }
+    return proc;
+  }
+
+  /**
+   * Processor where the first objects are much more expensive, as when a kNN
+   * query hits a dense region of the data.
+   *
+   * @author Erich Schubert
+   */
+  private static class SkewedProcessor implements Processor {
+    /**
+     * Object ids.
+     */
+    DBIDRange ids;
+
+    /**
+     * Number of times each object was processed.
+     */
+    AtomicIntegerArray counts = new AtomicIntegerArray(SIZE);
+
+    /**
+     * Threads that processed expensive objects.
+     */
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructor.
+     *
+     * @param ids Object ids
+     */
+    SkewedProcessor(DBIDRange ids) {
+      this.ids = ids;
+    }
+
+    @Override
+    public Processor.Instance instantiate(Executor executor) {
+      return new Processor.Instance() {
+        @Override
+        public void map(DBIDRef id) {
+          final int off = ids.getOffset(id);
+          counts.incrementAndGet(off);
+          if(off < EXPENSIVE) {
+            threads.add(Thread.currentThread());
+            // Busy wait for one millisecond.
+            final long end = System.nanoTime() + 1000000L;
+            while(System.nanoTime() < end) {
+              Thread.yield();
+            }
+          }
+        }
+      };
+    }
+
+    @Override
+    public void cleanup(Processor.Instance inst) {
+      // Nothing to do.
+    }
+  }
+}
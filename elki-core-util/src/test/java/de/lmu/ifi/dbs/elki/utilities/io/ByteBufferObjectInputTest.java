@@ -0,0 +1,82 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.utilities.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test the ByteBuffer object input and output adapters.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ByteBufferObjectInputTest {
+  @Test
+  public void testRoundtrip() throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(100);
+    ByteBufferObjectOutput out = new ByteBufferObjectOutput(buf);
+    out.writeBoolean(true);
+    out.writeByte(-3);
+    out.writeShort(-1234);
+    out.writeChar('x');
+    out.writeInt(123456789);
+    out.writeLong(-1234567890123L);
+    out.writeFloat(1.5f);
+    out.writeDouble(Math.PI);
+    out.writeUTF("Schöne Grüße");
+    buf.flip();
+    ByteBufferObjectInput in = new ByteBufferObjectInput(buf);
+    assertEquals(true, in.readBoolean());
+    assertEquals(-3, in.readByte());
+    assertEquals(-1234, in.readShort());
+    assertEquals('x', in.readChar());
+    assertEquals(123456789, in.readInt());
+    assertEquals(-1234567890123L, in.readLong());
+    assertEquals(1.5f, in.readFloat(), 0.f);
+    assertEquals(Math.PI, in.readDouble(), 0.);
+    assertEquals("Schöne Grüße", in.readUTF());
+    assertEquals(0, in.available());
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testReadLine() throws IOException {
+    byte[] data = "first\nsecond\r\nthird\r\rfünf\n\nlast".getBytes(StandardCharsets.ISO_8859_1);
+    ByteBufferObjectInput in = new ByteBufferObjectInput(ByteBuffer.wrap(data));
+    DataInputStream exp = new DataInputStream(new ByteArrayInputStream(data));
+    String line;
+    do {
+      line = exp.readLine();
+      assertEquals(line, in.readLine());
+    }
+    while(line != null);
+    assertNull(in.readLine());
+  }
+}
@@ -238,7 +238,8 @@ public final class DatabaseUtil {
     DistanceQuery<O> dq = database.getDistanceQuery(relation, distf, DatabaseQuery.HINT_HEAVY_USE, DatabaseQuery.HINT_OPTIMIZED_ONLY);
     if(dq == null) {
       DBIDs ids = relation.getDBIDs();
-      if(ids instanceof DBIDRange) {
+      // Larger matrixes exceed the Java array size limit.
+      if(ids instanceof DBIDRange && ids.size() <= 65536) {
         log.verbose("Precomputing a distance matrix for acceleration.");
         PrecomputedDistanceMatrix<O> idx = new PrecomputedDistanceMatrix<O>(relation, (DBIDRange) ids, distf);
         idx.initialize();
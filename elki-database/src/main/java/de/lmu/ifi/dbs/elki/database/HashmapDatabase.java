@@ -22,6 +22,7 @@ package de.lmu.ifi.dbs.elki.database;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
@@ -136,7 +137,7 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
 
     DBIDVar var = DBIDUtil.newVar();
     for(int j = 0; j < objpackages.dataLength(); j++) {
-      // insert object
+      // assign object id
       if(!objpackages.assignDBID(j, var)) {
         var.set(DBIDUtil.generateSingleDBID());
       }
@@ -144,16 +145,22 @@ public class HashmapDatabase extends AbstractDatabase implements UpdatableDataba
         throw new AbortException("Duplicate DBID conflict.");
       }
       ids.add(var);
-      for(int i = 0; i < targets.length; i++) {
-        if(!(targets[i] instanceof ModifiableRelation)) {
-          throw new AbortException("Non-modifiable relations have been added to the database.");
-        }
-        @SuppressWarnings("unchecked")
-        final ModifiableRelation<Object> relation = (ModifiableRelation<Object>) targets[i];
-        relation.insert(var, objpackages.data(j, i));
-      }
       newids.add(var);
     }
+    // insert objects, one batch per relation to update each index only once
+    List<Object> column = new ArrayList<>(objpackages.dataLength());
+    for(int i = 0; i < targets.length; i++) {
+      if(!(targets[i] instanceof ModifiableRelation)) {
+        throw new AbortException("Non-modifiable relations have been added to the database.");
+      }
+      @SuppressWarnings("unchecked")
+      final ModifiableRelation<Object> relation = (ModifiableRelation<Object>) targets[i];
+      column.clear();
+      for(int j = 0; j < objpackages.dataLength(); j++) {
+        column.add(objpackages.data(j, i));
+      }
+      relation.insertAll(newids, column);
+    }
 
     // fire insertion event
     eventManager.fireObjectsInserted(newids);
@@ -0,0 +1,173 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.relation.DBIDView;
+import de.lmu.ifi.dbs.elki.database.relation.MappedVectorRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.FixedVectorWriter;
+import de.lmu.ifi.dbs.elki.index.Index;
+import de.lmu.ifi.dbs.elki.index.IndexFactory;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.FileParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectListParameter;
+
+/**
+ * Static database serving numeric vectors from a memory-mapped file written by
+ * {@link FixedVectorWriter}, without loading the data into the Java heap.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - MappedVectorRelation
+ */
+@Description("Database serving numeric vectors from a memory-mapped file, for data sets larger than the heap.")
+public class MappedVectorDatabase extends AbstractDatabase {
+  /**
+   * Our logger
+   */
+  private static final Logging LOG = Logging.getLogger(MappedVectorDatabase.class);
+
+  /**
+   * Input file, {@code null} once initialized.
+   */
+  private File file;
+
+  /**
+   * Constructor.
+   *
+   * @param file Input file
+   * @param indexFactories Indexes to add
+   */
+  public MappedVectorDatabase(File file, Collection<? extends IndexFactory<?>> indexFactories) {
+    super();
+    this.file = file;
+    if(indexFactories != null) {
+      this.indexFactories.addAll(indexFactories);
+    }
+  }
+
+  @Override
+  public void initialize() {
+    if(file == null) {
+      return; // Supposedly we initialized already.
+    }
+    final MappedVectorRelation relation;
+    // The mappings remain valid after closing the channel.
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long count = MappedVectorRelation.countVectors(channel);
+      if(count > Integer.MAX_VALUE) {
+        throw new AbortException("Too many vectors: " + count);
+      }
+      DBIDRange ids = DBIDUtil.generateStaticDBIDRange((int) count);
+      relation = new MappedVectorRelation(ids, channel, file.getName());
+    }
+    catch(IOException e) {
+      throw new AbortException("Cannot map input file: " + file, e);
+    }
+    // Run at most once.
+    file = null;
+
+    DBIDView idrep = new DBIDView(relation.getDBIDs());
+    relations.add(idrep);
+    getHierarchy().add(this, idrep);
+    relations.add(relation);
+    getHierarchy().add(this, relation);
+
+    // Try to add indexes where appropriate
+    for(IndexFactory<?> factory : indexFactories) {
+      if(factory.getInputTypeRestriction().isAssignableFromType(relation.getDataTypeInformation())) {
+        @SuppressWarnings("unchecked")
+        final IndexFactory<Object> ofact = (IndexFactory<Object>) factory;
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final Relation<Object> orep = (Relation) relation;
+        final Index index = ofact.instantiate(orep);
+        Duration duration = LOG.isStatistics() ? LOG.newDuration(index.getClass().getName() + ".construction").begin() : null;
+        index.initialize();
+        if(duration != null) {
+          LOG.statistics(duration.end());
+        }
+        getHierarchy().add(relation, index);
+      }
+    }
+
+    // fire insertion event
+    eventManager.fireObjectsInserted(relation.getDBIDs());
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer extends AbstractDatabase.Parameterizer {
+    /**
+     * Input file, in the format written by {@link FixedVectorWriter}.
+     */
+    public static final OptionID FILE_ID = new OptionID("db.mapped.file", "File containing fixed-width numeric vectors, to be memory-mapped.");
+
+    /**
+     * Input file.
+     */
+    private File file;
+
+    /**
+     * Indexes to add.
+     */
+    private Collection<? extends IndexFactory<?>> indexFactories;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      final FileParameter fileP = new FileParameter(FILE_ID, FileParameter.FileType.INPUT_FILE);
+      if(config.grab(fileP)) {
+        file = fileP.getValue();
+      }
+      final ObjectListParameter<IndexFactory<?>> indexFactoryP = new ObjectListParameter<>(INDEX_ID, IndexFactory.class, true);
+      if(config.grab(indexFactoryP)) {
+        indexFactories = indexFactoryP.instantiateClasses(config);
+      }
+    }
+
+    @Override
+    protected MappedVectorDatabase makeInstance() {
+      return new MappedVectorDatabase(file, indexFactories);
+    }
+  }
+}
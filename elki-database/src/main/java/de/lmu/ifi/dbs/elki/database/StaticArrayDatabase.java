@@ -20,28 +20,44 @@
  */
 package de.lmu.ifi.dbs.elki.database;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.SparseNumberVector;
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.ArrayStaticDBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDFactory;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDVar;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.relation.DBIDView;
 import de.lmu.ifi.dbs.elki.database.relation.MaterializedRelation;
+import de.lmu.ifi.dbs.elki.database.relation.PackedVectorRelation;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.DatabaseConnection;
 import de.lmu.ifi.dbs.elki.datasource.FileBasedDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleMeta;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
 import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.index.Index;
 import de.lmu.ifi.dbs.elki.index.IndexFactory;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.statistics.Duration;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.EnumParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectListParameter;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 
@@ -80,6 +96,37 @@ public class StaticArrayDatabase extends AbstractDatabase {
    */
   protected DatabaseConnection databaseConnection;
 
+  /**
+   * Storage layout for dense numeric vectors.
+   */
+  protected Packing packing = Packing.NONE;
+
+  /**
+   * Storage layouts for dense numeric vector relations.
+   *
+   * @author Erich Schubert
+   */
+  public enum Packing {
+    /** Store the vector objects as loaded. */
+    NONE,
+    /** Pack into double precision arrays. */
+    DOUBLE,
+    /** Pack into single precision arrays. */
+    FLOAT,
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param databaseConnection Database connection to get the initial data from.
+   * @param indexFactories Indexes to add
+   * @param packing Storage layout for dense numeric vectors
+   */
+  public StaticArrayDatabase(DatabaseConnection databaseConnection, Collection<? extends IndexFactory<?>> indexFactories, Packing packing) {
+    this(databaseConnection, indexFactories);
+    this.packing = packing != null ? packing : Packing.NONE;
+  }
+
   /**
    * Constructor.
    *
@@ -119,64 +166,250 @@ public class StaticArrayDatabase extends AbstractDatabase {
     if(LOG.isDebugging()) {
       LOG.debugFine("Loading data from database connection.");
     }
-    MultipleObjectsBundle bundle = databaseConnection.loadData();
-    // Run at most once.
-    databaseConnection = null;
-
-    // Find DBIDs for bundle
-    {
-      DBIDs bids = bundle.getDBIDs();
-      if(bids instanceof ArrayStaticDBIDs) {
-        this.ids = (ArrayStaticDBIDs) bids;
-      }
-      else if(bids == null) {
-        this.ids = DBIDUtil.generateStaticDBIDRange(bundle.dataLength());
-      }
-      else {
-        this.ids = (ArrayStaticDBIDs) DBIDUtil.makeUnmodifiable(DBIDUtil.ensureArray(bids));
+    if(packing != Packing.NONE) {
+      BundleStreamSource source = databaseConnection.loadStream();
+      // Run at most once.
+      databaseConnection = null;
+      loadPacked(source);
+    }
+    else {
+      MultipleObjectsBundle bundle = databaseConnection.loadData();
+      // Run at most once.
+      databaseConnection = null;
+      initializeIDs(bundle.getDBIDs(), bundle.dataLength());
+      for(int i = 0; i < bundle.metaLength(); i++) {
+        addRelation(materialize(bundle.meta(i), bundle.getColumn(i)));
       }
     }
+
+    // fire insertion event
+    eventManager.fireObjectsInserted(ids);
+  }
+
+  /**
+   * Set up the DBIDs of this database.
+   *
+   * @param bids DBIDs of the data, may be {@code null}
+   * @param size Number of objects
+   */
+  private void initializeIDs(DBIDs bids, int size) {
+    if(bids instanceof ArrayStaticDBIDs) {
+      this.ids = (ArrayStaticDBIDs) bids;
+    }
+    else if(bids == null) {
+      this.ids = DBIDUtil.generateStaticDBIDRange(size);
+    }
+    else {
+      this.ids = (ArrayStaticDBIDs) DBIDUtil.makeUnmodifiable(DBIDUtil.ensureArray(bids));
+    }
     // Replace id representation (it would be nicer if we would not need
     // DBIDView at all)
     this.idrep = new DBIDView(this.ids);
     relations.add(this.idrep);
     getHierarchy().add(this, idrep);
+  }
+
+  /**
+   * Store a column of objects in a materialized relation.
+   *
+   * @param meta Type information
+   * @param data Objects, in the order of the DBIDs
+   * @return Relation
+   */
+  private Relation<?> materialize(SimpleTypeInformation<?> meta, List<?> data) {
+    @SuppressWarnings("unchecked")
+    SimpleTypeInformation<Object> ometa = (SimpleTypeInformation<Object>) meta;
+    WritableDataStore<Object> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, ometa.getRestrictionClass());
+    for(DBIDArrayIter it = ids.iter(); it.valid(); it.advance()) {
+      store.put(it, data.get(it.getOffset()));
+    }
+    return new MaterializedRelation<>(ometa, ids, null, store);
+  }
 
-    DBIDArrayIter it = this.ids.iter();
+  /**
+   * Add a relation, and build the indexes applicable to it.
+   *
+   * @param relation Relation
+   */
+  private void addRelation(Relation<?> relation) {
+    final SimpleTypeInformation<?> rtype = relation.getDataTypeInformation();
+    relations.add(relation);
+    getHierarchy().add(this, relation);
 
-    int numrel = bundle.metaLength();
-    for(int i = 0; i < numrel; i++) {
-      SimpleTypeInformation<?> meta = bundle.meta(i);
-      @SuppressWarnings("unchecked")
-      SimpleTypeInformation<Object> ometa = (SimpleTypeInformation<Object>) meta;
-      WritableDataStore<Object> store = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_DB, ometa.getRestrictionClass());
-      for(it.seek(0); it.valid(); it.advance()) {
-        store.put(it, bundle.data(it.getOffset(), i));
+    // Try to add indexes where appropriate
+    for(IndexFactory<?> factory : indexFactories) {
+      if(factory.getInputTypeRestriction().isAssignableFromType(rtype)) {
+        @SuppressWarnings("unchecked")
+        final IndexFactory<Object> ofact = (IndexFactory<Object>) factory;
+        @SuppressWarnings("unchecked")
+        final Relation<Object> orep = (Relation<Object>) relation;
+        final Index index = ofact.instantiate(orep);
+        Duration duration = LOG.isStatistics() ? LOG.newDuration(index.getClass().getName() + ".construction").begin() : null;
+        index.initialize();
+        if(duration != null) {
+          LOG.statistics(duration.end());
+        }
+        getHierarchy().add(relation, index);
       }
-      Relation<?> relation = new MaterializedRelation<>(ometa, ids, null, store);
-      relations.add(relation);
-      getHierarchy().add(this, relation);
+    }
+  }
 
-      // Try to add indexes where appropriate
-      for(IndexFactory<?> factory : indexFactories) {
-        if(factory.getInputTypeRestriction().isAssignableFromType(ometa)) {
-          @SuppressWarnings("unchecked")
-          final IndexFactory<Object> ofact = (IndexFactory<Object>) factory;
-          @SuppressWarnings("unchecked")
-          final Relation<Object> orep = (Relation<Object>) relation;
-          final Index index = ofact.instantiate(orep);
-          Duration duration = LOG.isStatistics() ? LOG.newDuration(index.getClass().getName() + ".construction").begin() : null;
-          index.initialize();
-          if(duration != null) {
-            LOG.statistics(duration.end());
+  /**
+   * Load the data from a stream, packing dense numeric vectors as they arrive
+   * so that the vector objects are not kept.
+   * <p>
+   * A column that turns out not to be packable (e.g., because the
+   * dimensionality changes) is converted back to vector objects. With single
+   * precision packing, the values have been rounded to float at this point.
+   *
+   * @param source Data source
+   */
+  private void loadPacked(BundleStreamSource source) {
+    final boolean single = packing == Packing.FLOAT;
+    List<SimpleTypeInformation<?>> metas = new ArrayList<>();
+    // Either a list of objects, or a builder for packed vectors.
+    List<Object> columns = new ArrayList<>();
+    DBIDVar var = null;
+    ArrayModifiableDBIDs bids = null;
+    int size = 0;
+    stream: while(true) {
+      BundleStreamSource.Event ev = source.nextEvent();
+      switch(ev){
+      case END_OF_STREAM:
+        break stream;
+      case META_CHANGED:
+        BundleMeta smeta = source.getMeta();
+        for(int i = 0; i < smeta.size(); i++) {
+          final SimpleTypeInformation<?> meta = smeta.get(i);
+          final int dim = packedDimensionality(meta);
+          if(i == columns.size()) {
+            columns.add(dim > 0 && size == 0 ? new PackedVectorRelation.Builder(dim, single) : new ArrayList<>(Collections.nCopies(size, null)));
+            metas.add(meta);
+            continue;
+          }
+          Object col = columns.get(i);
+          if(col instanceof PackedVectorRelation.Builder && ((PackedVectorRelation.Builder) col).getDimensionality() != dim) {
+            columns.set(i, unpack((PackedVectorRelation.Builder) col, metas.get(i)));
+          }
+          metas.set(i, meta);
+        }
+        if(var == null && source.hasDBIDs()) {
+          var = DBIDUtil.newVar();
+          bids = DBIDUtil.newArray();
+        }
+        continue;
+      case NEXT_OBJECT:
+        if(var != null && source.assignDBID(var)) {
+          bids.add(var);
+        }
+        for(int i = 0; i < columns.size(); i++) {
+          Object col = columns.get(i), o = source.data(i);
+          if(col instanceof PackedVectorRelation.Builder) {
+            PackedVectorRelation.Builder b = (PackedVectorRelation.Builder) col;
+            if(o instanceof NumberVector && !(o instanceof SparseNumberVector) && ((NumberVector) o).getDimensionality() == b.getDimensionality()) {
+              b.add((NumberVector) o);
+              continue;
+            }
+            columns.set(i, col = unpack(b, metas.get(i)));
           }
-          getHierarchy().add(relation, index);
+          @SuppressWarnings("unchecked")
+          List<Object> ocol = (List<Object>) col;
+          ocol.add(o);
         }
+        ++size;
+        continue;
+      default:
+        LOG.warning("Unknown event: " + ev);
+        continue;
       }
     }
+    if(bids != null && bids.size() != size) {
+      LOG.warning("Not every object had an DBID - discarding DBIDs: " + size + " != " + bids.size());
+      bids = null;
+    }
+    initializeIDs(bids != null ? asRange(bids) : null, size);
 
-    // fire insertion event
-    eventManager.fireObjectsInserted(ids);
+    for(int i = 0; i < columns.size(); i++) {
+      final Object col = columns.get(i);
+      columns.set(i, null); // Release memory early.
+      final SimpleTypeInformation<?> meta = metas.get(i);
+      if(col instanceof PackedVectorRelation.Builder) {
+        PackedVectorRelation.Builder b = (PackedVectorRelation.Builder) col;
+        addRelation(ids instanceof DBIDRange ? b.build((DBIDRange) ids, labels(meta), null) : materialize(meta, unpack(b, meta)));
+      }
+      else {
+        addRelation(materialize(meta, (List<?>) col));
+      }
+    }
+  }
+
+  /**
+   * Get the dimensionality of a column, if it can be packed.
+   *
+   * @param meta Column type
+   * @return Dimensionality, or -1 if the column cannot be packed
+   */
+  private static int packedDimensionality(SimpleTypeInformation<?> meta) {
+    // Only pack dense data of constant dimensionality.
+    if(!(meta instanceof VectorFieldTypeInformation) //
+        || !NumberVector.class.isAssignableFrom(meta.getRestrictionClass()) //
+        || SparseNumberVector.class.isAssignableFrom(meta.getRestrictionClass()) //
+        || !(((VectorFieldTypeInformation<?>) meta).getFactory() instanceof NumberVector.Factory)) {
+      return -1;
+    }
+    final int dim = ((VectorFieldTypeInformation<?>) meta).getDimensionality();
+    return dim >= 1 ? dim : -1;
+  }
+
+  /**
+   * Convert packed vectors back to vector objects.
+   *
+   * @param b Packed vectors
+   * @param meta Column type, must be packable
+   * @return Vector objects
+   */
+  private static List<Object> unpack(PackedVectorRelation.Builder b, SimpleTypeInformation<?> meta) {
+    NumberVector.Factory<?> factory = (NumberVector.Factory<?>) ((VectorFieldTypeInformation<?>) meta).getFactory();
+    List<Object> data = new ArrayList<>(b.size() + 1);
+    for(int j = 0; j < b.size(); j++) {
+      data.add(factory.newNumberVector(b.get(j)));
+    }
+    return data;
+  }
+
+  /**
+   * Get the column labels of a vector column.
+   *
+   * @param meta Column type
+   * @return Labels
+   */
+  private static String[] labels(SimpleTypeInformation<?> meta) {
+    VectorFieldTypeInformation<?> vmeta = (VectorFieldTypeInformation<?>) meta;
+    String[] labels = new String[vmeta.getDimensionality()];
+    for(int d = 0; d < labels.length; d++) {
+      labels[d] = vmeta.getLabel(d);
+    }
+    return labels;
+  }
+
+  /**
+   * Use a DBID range for consecutive DBIDs.
+   *
+   * @param bids DBIDs
+   * @return DBID range, or the DBIDs
+   */
+  private static DBIDs asRange(ArrayDBIDs bids) {
+    DBIDArrayIter it = bids.iter();
+    if(!it.valid()) {
+      return bids;
+    }
+    final int start = DBIDUtil.asInteger(it);
+    for(; it.valid(); it.advance()) {
+      if(DBIDUtil.asInteger(it) != start + it.getOffset()) {
+        return bids;
+      }
+    }
+    return DBIDFactory.FACTORY.generateStaticDBIDRange(start, bids.size());
   }
 
   @Override
@@ -200,6 +433,16 @@ public class StaticArrayDatabase extends AbstractDatabase {
      */
     private Collection<? extends IndexFactory<?>> indexFactories;
 
+    /**
+     * Option to store dense numeric vectors in packed primitive arrays.
+     */
+    public static final OptionID PACKING_ID = new OptionID("db.packed", "Store dense numeric vectors in packed primitive arrays, with double or float precision, instead of individual objects.");
+
+    /**
+     * Storage layout for dense numeric vectors.
+     */
+    protected Packing packing = Packing.NONE;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
@@ -213,11 +456,15 @@ public class StaticArrayDatabase extends AbstractDatabase {
       if(config.grab(indexFactoryP)) {
         indexFactories = indexFactoryP.instantiateClasses(config);
       }
+      final EnumParameter<Packing> packingP = new EnumParameter<>(PACKING_ID, Packing.class, Packing.NONE);
+      if(config.grab(packingP)) {
+        packing = packingP.getValue();
+      }
     }
 
     @Override
     protected StaticArrayDatabase makeInstance() {
-      return new StaticArrayDatabase(databaseConnection, indexFactories);
+      return new StaticArrayDatabase(databaseConnection, indexFactories, packing);
     }
   }
 }
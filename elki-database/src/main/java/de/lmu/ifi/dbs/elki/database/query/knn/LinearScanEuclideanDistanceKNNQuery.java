@@ -121,19 +121,9 @@ public class LinearScanEuclideanDistanceKNNQuery<O extends NumberVector> extends
    */
   @Override
   protected void linearScanBatchKNN(List<O> objs, List<KNNHeap> heaps) {
-    final SquaredEuclideanDistanceFunction squared = SquaredEuclideanDistanceFunction.STATIC;
-    final Relation<? extends O> relation = getRelation();
-    final int size = objs.size();
-    // Linear scan style KNN.
-    for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
-      O candidate = relation.get(iter);
-      for(int index = 0; index < size; index++) {
-        final KNNHeap heap = heaps.get(index);
-        final double dist = squared.distance(objs.get(index), candidate);
-        if(dist <= heap.getKNNDistance()) {
-          heap.insert(dist, iter);
-        }
-      }
-    }
+    // Size the data blocks to fit the cache, with some object overhead.
+    final int bytes = objs.isEmpty() ? 0 : (objs.get(0).getDimensionality() << 3) + 64;
+    final int datablock = bytes > 0 ? Math.max(16, (CACHE_SIZE >> 1) / bytes) : DEFAULT_DATA_BLOCK;
+    blockedBatchKNN(objs, heaps, SquaredEuclideanDistanceFunction.STATIC, datablock);
   }
-}
\ No newline at end of file
+}
@@ -22,8 +22,10 @@ package de.lmu.ifi.dbs.elki.database.query.knn;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RecursiveAction;
 
 import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDArrayIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
@@ -32,7 +34,9 @@ import de.lmu.ifi.dbs.elki.database.ids.KNNList;
 import de.lmu.ifi.dbs.elki.database.query.LinearScanQuery;
 import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.BatchPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.PrimitiveDistanceFunction;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 
 /**
  * Instance of this query for a particular database.
@@ -122,19 +126,223 @@ public class LinearScanPrimitiveDistanceKNNQuery<O> extends AbstractDistanceKNNQ
    * @param heaps Heaps array
    */
   protected void linearScanBatchKNN(List<O> objs, List<KNNHeap> heaps) {
-    final PrimitiveDistanceFunction<? super O> rawdist = this.rawdist;
+    blockedBatchKNN(objs, heaps, rawdist, DEFAULT_DATA_BLOCK);
+  }
+
+  /**
+   * Minimum number of distance computations to use multiple threads.
+   */
+  private static final long PARALLEL_THRESHOLD = 1L << 16;
+
+  /**
+   * Minimum number of queries per block.
+   */
+  private static final int MIN_QUERY_BLOCK = 8;
+
+  /**
+   * Maximum number of queries per block.
+   */
+  private static final int MAX_QUERY_BLOCK = 256;
+
+  /**
+   * Data block size if the object size is not known.
+   */
+  protected static final int DEFAULT_DATA_BLOCK = 1024;
+
+  /**
+   * Assumed size of the per-core cache in bytes, for choosing block sizes.
+   */
+  protected static final int CACHE_SIZE = 256 << 10;
+
+  /**
+   * Cache-blocked batch kNN search, multi-threaded for large batches.
+   * <p>
+   * The queries are partitioned into blocks that are processed in parallel,
+   * each on its own heaps. Within a query block, the data is scanned in blocks
+   * small enough to remain in the cache while all queries of the block are
+   * compared to them. Because every heap sees the data in the original order,
+   * the result is the same as for a sequential scan.
+   * <p>
+   * If the distance function supports batch computations, these are used to
+   * filter the candidates, which are then verified with the exact distance.
+   *
+   * @param objs Query objects
+   * @param heaps Output heaps, one per query
+   * @param dist Distance function
+   * @param datablock Number of data objects per block
+   */
+  protected void blockedBatchKNN(List<O> objs, List<KNNHeap> heaps, PrimitiveDistanceFunction<? super O> dist, int datablock) {
     final Relation<? extends O> relation = getRelation();
+    final ArrayDBIDs data = DBIDUtil.ensureArray(relation.getDBIDs());
     final int size = objs.size();
-    // Linear scan style KNN.
-    for(DBIDIter iter = relation.getDBIDs().iter(); iter.valid(); iter.advance()) {
-      O candidate = relation.get(iter);
-      for(int index = 0; index < size; index++) {
-        final KNNHeap heap = heaps.get(index);
-        final double dist = rawdist.distance(objs.get(index), candidate);
-        if(dist <= heap.getKNNDistance()) {
-          heap.insert(dist, iter);
+    final ParallelCore core = ParallelCore.getCore();
+    final int parallelism = core.getParallelism();
+    if(parallelism <= 1 || size < 2 * MIN_QUERY_BLOCK || (long) size * data.size() < PARALLEL_THRESHOLD) {
+      new BatchKNNTask<O>(relation, data, objs, heaps, dist, 0, size, size, datablock).compute();
+      return;
+    }
+    final int queryblock = Math.max(MIN_QUERY_BLOCK, Math.min(MAX_QUERY_BLOCK, size / (parallelism << 2)));
+    core.invoke(new BatchKNNTask<O>(relation, data, objs, heaps, dist, 0, size, queryblock, datablock));
+  }
+
+  /**
+   * Task for the blocked batch kNN search, splitting the queries recursively.
+   *
+   * @author Erich Schubert
+   *
+   * @param <O> Object type
+   */
+  protected static class BatchKNNTask<O> extends RecursiveAction {
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Number of queries per call of the batch distance function.
+     */
+    private static final int BATCH_QUERIES = 32;
+
+    /**
+     * Data relation.
+     */
+    private final Relation<? extends O> relation;
+
+    /**
+     * Data object IDs.
+     */
+    private final ArrayDBIDs data;
+
+    /**
+     * Query objects.
+     */
+    private final List<O> objs;
+
+    /**
+     * Query heaps.
+     */
+    private final List<KNNHeap> heaps;
+
+    /**
+     * Distance function.
+     */
+    private final PrimitiveDistanceFunction<? super O> dist;
+
+    /**
+     * Query range.
+     */
+    private final int start, end;
+
+    /**
+     * Block sizes.
+     */
+    private final int queryblock, datablock;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param data Data object IDs
+     * @param objs Query objects
+     * @param heaps Query heaps
+     * @param dist Distance function
+     * @param start First query
+     * @param end Query end (exclusive)
+     * @param queryblock Maximum number of queries to process at once
+     * @param datablock Number of data objects per block
+     */
+    protected BatchKNNTask(Relation<? extends O> relation, ArrayDBIDs data, List<O> objs, List<KNNHeap> heaps, PrimitiveDistanceFunction<? super O> dist, int start, int end, int queryblock, int datablock) {
+      super();
+      this.relation = relation;
+      this.data = data;
+      this.objs = objs;
+      this.heaps = heaps;
+      this.dist = dist;
+      this.start = start;
+      this.end = end;
+      this.queryblock = queryblock;
+      this.datablock = datablock;
+    }
+
+    @Override
+    protected void compute() {
+      if(end - start > queryblock) {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new BatchKNNTask<O>(relation, data, objs, heaps, dist, start, mid, queryblock, datablock), //
+            new BatchKNNTask<O>(relation, data, objs, heaps, dist, mid, end, queryblock, datablock));
+        return;
+      }
+      if(dist instanceof BatchPrimitiveDistanceFunction) {
+        computeBatch();
+        return;
+      }
+      final PrimitiveDistanceFunction<? super O> dist = this.dist;
+      final int size = data.size(), bsize = Math.min(datablock, size);
+      @SuppressWarnings("unchecked")
+      final O[] block = (O[]) new Object[bsize];
+      DBIDArrayIter iter = data.iter();
+      for(int bstart = 0; bstart < size; bstart += bsize) {
+        final int bend = Math.min(bstart + bsize, size);
+        // Fetch the data block only once for all queries.
+        for(int j = bstart; j < bend; j++) {
+          block[j - bstart] = relation.get(iter.seek(j));
+        }
+        for(int index = start; index < end; index++) {
+          final KNNHeap heap = heaps.get(index);
+          final O obj = objs.get(index);
+          for(int j = bstart; j < bend; j++) {
+            final double d = dist.distance(obj, block[j - bstart]);
+            if(d <= heap.getKNNDistance()) {
+              heap.insert(d, iter.seek(j));
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Process the queries using the batch distance function to filter the
+     * candidates.
+     */
+    private void computeBatch() {
+      @SuppressWarnings("unchecked")
+      final BatchPrimitiveDistanceFunction<? super O> dist = (BatchPrimitiveDistanceFunction<? super O>) this.dist;
+      final double slack = 1. + 2 * BatchPrimitiveDistanceFunction.BATCH_TOLERANCE;
+      final int size = data.size(), bsize = Math.min(datablock, size);
+      // Prepare the query batches only once.
+      final BatchPrimitiveDistanceFunction.Block[] queries = new BatchPrimitiveDistanceFunction.Block[(end - start + BATCH_QUERIES - 1) / BATCH_QUERIES];
+      for(int q0 = start, b = 0; q0 < end; q0 += BATCH_QUERIES, b++) {
+        queries[b] = dist.prepareBlock(objs.subList(q0, Math.min(q0 + BATCH_QUERIES, end)));
+      }
+      final List<O> block = new ArrayList<>(bsize);
+      final double[] buf = new double[Math.min(BATCH_QUERIES, end - start) * bsize];
+      DBIDArrayIter iter = data.iter();
+      for(int bstart = 0; bstart < size; bstart += bsize) {
+        final int bend = Math.min(bstart + bsize, size), blen = bend - bstart;
+        block.clear();
+        for(iter.seek(bstart); iter.getOffset() < bend; iter.advance()) {
+          block.add(relation.get(iter));
+        }
+        // Prepare each data block once, for all query batches.
+        final BatchPrimitiveDistanceFunction.Block prepared = dist.prepareBlock(block);
+        for(int q0 = start, b = 0; q0 < end; q0 += BATCH_QUERIES, b++) {
+          final int q1 = Math.min(q0 + BATCH_QUERIES, end);
+          dist.distanceBlock(queries[b], prepared, buf);
+          for(int index = q0, p = 0; index < q1; index++) {
+            final KNNHeap heap = heaps.get(index);
+            final O obj = objs.get(index);
+            for(int j = 0; j < blen; j++) {
+              // Verify candidates with the exact distance.
+              if(buf[p++] <= heap.getKNNDistance() * slack) {
+                final double d = dist.distance(obj, block.get(j));
+                if(d <= heap.getKNNDistance()) {
+                  heap.insert(d, iter.seek(bstart + j));
+                }
+              }
+            }
+          }
         }
       }
     }
   }
-}
\ No newline at end of file
+}
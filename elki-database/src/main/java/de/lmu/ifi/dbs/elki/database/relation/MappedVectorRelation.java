@@ -0,0 +1,379 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.relation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.StaticDBIDs;
+import de.lmu.ifi.dbs.elki.datasource.bundle.FixedVectorWriter;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.ArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.NumberArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferSerializer;
+
+/**
+ * Relation serving numeric vectors directly from a memory-mapped file in the
+ * format written by {@link FixedVectorWriter}.
+ * <p>
+ * The data is not loaded into the Java heap; the operating system page cache
+ * holds the recently used parts, and is reused across runs. This allows
+ * processing data sets larger than the heap, as long as the algorithms used
+ * do not materialize the data themselves.
+ * <p>
+ * Because of the 2 GB limit of Java buffers, the file is mapped in segments.
+ * A vector never spans two segments.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - DBIDRange
+ * @has - - - View
+ */
+public class MappedVectorRelation extends AbstractRelation<NumberVector> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(MappedVectorRelation.class);
+
+  /**
+   * Maximum segment size in bytes.
+   */
+  private static final int SEGMENT_SIZE = 1 << 30;
+
+  /**
+   * Type information of the view objects.
+   */
+  private final SimpleTypeInformation<NumberVector> type;
+
+  /**
+   * The DBIDs this is defined for.
+   */
+  private final DBIDRange ids;
+
+  /**
+   * Dimensionality.
+   */
+  private final int dim;
+
+  /**
+   * Use single precision.
+   */
+  private final boolean single;
+
+  /**
+   * Number of vectors per segment.
+   */
+  private final int persegment;
+
+  /**
+   * Mapped segments.
+   */
+  private final ByteBuffer[] segments;
+
+  /**
+   * The relation name.
+   */
+  private String name;
+
+  /**
+   * Constructor.
+   *
+   * @param ids IDs, must match the number of vectors in the file
+   * @param file File to map (read-only)
+   * @param name Relation name, may be {@code null}
+   * @throws IOException on IO errors
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public MappedVectorRelation(DBIDRange ids, FileChannel file, String name) throws IOException {
+    super();
+    ByteBuffer header = file.map(MapMode.READ_ONLY, 0, FixedVectorWriter.HEADER_SIZE).order(FixedVectorWriter.ORDER);
+    if(header.getInt() != FixedVectorWriter.MAGIC) {
+      throw new AbortException("File does not start with expected magic.");
+    }
+    final int vtype = header.getInt();
+    if(vtype != FixedVectorWriter.TYPE_DOUBLE && vtype != FixedVectorWriter.TYPE_FLOAT) {
+      throw new AbortException("Unsupported value type: " + vtype);
+    }
+    this.single = vtype == FixedVectorWriter.TYPE_FLOAT;
+    this.dim = header.getInt();
+    final long count = header.getLong();
+    if(count != ids.size()) {
+      throw new AbortException("File contains " + count + " vectors, but " + ids.size() + " DBIDs were given.");
+    }
+    // Check as long, to avoid integer overflows with corrupted headers:
+    final long lrecsize = dim * (long) (single ? ByteArrayUtil.SIZE_FLOAT : ByteArrayUtil.SIZE_DOUBLE);
+    if(dim < 1 || lrecsize > SEGMENT_SIZE) {
+      throw new AbortException("Unsupported dimensionality: " + dim);
+    }
+    final int recsize = (int) lrecsize;
+    if(count < 0 || count > (file.size() - FixedVectorWriter.HEADER_SIZE) / recsize) {
+      throw new AbortException("File is truncated.");
+    }
+    this.ids = ids;
+    this.name = name;
+    this.persegment = SEGMENT_SIZE / recsize;
+    final int nseg = count > 0 ? (int) ((count - 1) / persegment + 1) : 0;
+    this.segments = new ByteBuffer[nseg];
+    for(int i = 0; i < nseg; i++) {
+      final long start = FixedVectorWriter.HEADER_SIZE + i * (long) persegment * recsize;
+      final long len = Math.min(persegment, count - i * (long) persegment) * recsize;
+      segments[i] = file.map(MapMode.READ_ONLY, start, len).order(FixedVectorWriter.ORDER);
+    }
+    this.type = (SimpleTypeInformation) new VectorFieldTypeInformation<>(View.FACTORY, dim);
+  }
+
+  /**
+   * Get the number of vectors stored in a file.
+   *
+   * @param file File
+   * @return Number of vectors
+   * @throws IOException on IO errors
+   */
+  public static long countVectors(FileChannel file) throws IOException {
+    ByteBuffer header = file.map(MapMode.READ_ONLY, 0, FixedVectorWriter.HEADER_SIZE).order(FixedVectorWriter.ORDER);
+    if(header.getInt(0) != FixedVectorWriter.MAGIC) {
+      throw new AbortException("File does not start with expected magic.");
+    }
+    return header.getLong(12);
+  }
+
+  @Override
+  public NumberVector get(DBIDRef id) {
+    final int off = ids.getOffset(id), seg = off / persegment;
+    final int pos = (off - seg * persegment) * dim * (single ? ByteArrayUtil.SIZE_FLOAT : ByteArrayUtil.SIZE_DOUBLE);
+    return new View(segments[seg], pos, dim, single);
+  }
+
+  /**
+   * Get the dimensionality of the stored vectors.
+   *
+   * @return Dimensionality
+   */
+  public int getDimensionality() {
+    return dim;
+  }
+
+  @Override
+  public StaticDBIDs getDBIDs() {
+    return ids;
+  }
+
+  @Override
+  public DBIDIter iterDBIDs() {
+    return ids.iter();
+  }
+
+  @Override
+  public int size() {
+    return ids.size();
+  }
+
+  @Override
+  public SimpleTypeInformation<NumberVector> getDataTypeInformation() {
+    return type;
+  }
+
+  @Override
+  public String getLongName() {
+    return (name != null) ? name : type.toString();
+  }
+
+  @Override
+  public String getShortName() {
+    return "relation";
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * View of a vector stored in a byte buffer.
+   * <p>
+   * Only absolute reads are used, so the views are safe to use concurrently.
+   *
+   * @author Erich Schubert
+   */
+  public static class View implements NumberVector {
+    /**
+     * Static factory instance.
+     */
+    public static final Factory FACTORY = new Factory();
+
+    /**
+     * Serializer for variable length vectors.
+     */
+    public static final ByteBufferSerializer<View> VARIABLE_SERIALIZER = new VariableSerializer();
+
+    /**
+     * Data buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Byte offset and dimensionality.
+     */
+    private final int off, dim;
+
+    /**
+     * Single precision values.
+     */
+    private final boolean single;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer Data buffer
+     * @param off Byte offset
+     * @param dim Dimensionality
+     * @param single Single precision values
+     */
+    protected View(ByteBuffer buffer, int off, int dim, boolean single) {
+      this.buffer = buffer;
+      this.off = off;
+      this.dim = dim;
+      this.single = single;
+    }
+
+    @Override
+    public int getDimensionality() {
+      return dim;
+    }
+
+    @Override
+    public double doubleValue(int dimension) {
+      return single ? buffer.getFloat(off + (dimension << 2)) : buffer.getDouble(off + (dimension << 3));
+    }
+
+    @Override
+    public float floatValue(int dimension) {
+      return single ? buffer.getFloat(off + (dimension << 2)) : (float) buffer.getDouble(off + (dimension << 3));
+    }
+
+    @Override
+    public long longValue(int dimension) {
+      return (long) doubleValue(dimension);
+    }
+
+    @Override
+    public double[] toArray() {
+      double[] ret = new double[dim];
+      for(int i = 0; i < dim; i++) {
+        ret[i] = doubleValue(i);
+      }
+      return ret;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buf = new StringBuilder(dim * 8);
+      for(int i = 0; i < dim; i++) {
+        buf.append(i > 0 ? ATTRIBUTE_SEPARATOR : "");
+        if(single) {
+          buf.append(buffer.getFloat(off + (i << 2)));
+        }
+        else {
+          buf.append(buffer.getDouble(off + (i << 3)));
+        }
+      }
+      return buf.toString();
+    }
+
+    /**
+     * Factory for vector views, backed by heap buffers.
+     *
+     * @author Erich Schubert
+     */
+    public static class Factory implements NumberVector.Factory<View> {
+      @Override
+      public <A> View newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+        final int dim = adapter.size(array);
+        ByteBuffer buf = ByteBuffer.allocate(dim * ByteArrayUtil.SIZE_DOUBLE);
+        for(int i = 0; i < dim; i++) {
+          buf.putDouble(i << 3, adapter.get(array, i).doubleValue());
+        }
+        return new View(buf, 0, dim, false);
+      }
+
+      @Override
+      public <A> View newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+        final int dim = adapter.size(array);
+        ByteBuffer buf = ByteBuffer.allocate(dim * ByteArrayUtil.SIZE_DOUBLE);
+        for(int i = 0; i < dim; i++) {
+          buf.putDouble(i << 3, adapter.getDouble(array, i));
+        }
+        return new View(buf, 0, dim, false);
+      }
+
+      @Override
+      public ByteBufferSerializer<View> getDefaultSerializer() {
+        return VARIABLE_SERIALIZER;
+      }
+
+      @Override
+      public Class<? super View> getRestrictionClass() {
+        return View.class;
+      }
+    }
+
+    /**
+     * Serialization class using VarInt encoding of the dimensionality.
+     *
+     * @author Erich Schubert
+     */
+    public static class VariableSerializer implements ByteBufferSerializer<View> {
+      @Override
+      public View fromByteBuffer(ByteBuffer buffer) throws IOException {
+        final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+        ByteBuffer buf = ByteBuffer.allocate(dimensionality * ByteArrayUtil.SIZE_DOUBLE);
+        for(int i = 0; i < dimensionality; i++) {
+          buf.putDouble(i << 3, buffer.getDouble());
+        }
+        return new View(buf, 0, dimensionality, false);
+      }
+
+      @Override
+      public void toByteBuffer(ByteBuffer buffer, View vec) throws IOException {
+        ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+        for(int i = 0; i < vec.dim; i++) {
+          buffer.putDouble(vec.doubleValue(i));
+        }
+      }
+
+      @Override
+      public int getByteSize(View vec) {
+        return ByteArrayUtil.getUnsignedVarintSize(vec.dim) + ByteArrayUtil.SIZE_DOUBLE * vec.dim;
+      }
+    }
+  }
+}
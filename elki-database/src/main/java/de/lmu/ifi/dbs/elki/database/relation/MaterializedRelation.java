@@ -20,6 +20,8 @@
  */
 package de.lmu.ifi.dbs.elki.database.relation;
 
+import java.util.List;
+
 import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
@@ -161,6 +163,31 @@ public class MaterializedRelation<O> extends AbstractRelation<O> implements Modi
     }
   }
 
+  @Override
+  public void insertAll(DBIDs ids, List<? extends O> vals) {
+    assert (ids.size() == vals.size());
+    if(!(content instanceof WritableDataStore)) {
+      throw new AbortException("Data is stored in a non-writable data store. Modifications are not possible.");
+    }
+    int i = 0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+      assert (this.ids.contains(iter)) : "Object not yet in DBIDs.";
+      ((WritableDataStore<O>) content).put(iter, vals.get(i));
+    }
+    // Update the indexes only once, with the complete batch.
+    for(It<Index> it = this.getHierarchy().iterDescendants(this).filter(Index.class); it.valid(); it.advance()) {
+      if(!(it.get() instanceof DynamicIndex)) {
+        throw new AbortException("A non-dynamic index was added to this database. Modifications are not allowed, unless this index is removed.");
+      }
+      if(ids.size() == 1) {
+        ((DynamicIndex) it.get()).insert(ids.iter());
+      }
+      else {
+        ((DynamicIndex) it.get()).insertAll(ids);
+      }
+    }
+  }
+
   /**
    * Delete an objects values.
    *
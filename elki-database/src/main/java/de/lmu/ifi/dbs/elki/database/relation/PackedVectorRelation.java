@@ -0,0 +1,722 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database.relation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.SimpleTypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.VectorFieldTypeInformation;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRange;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.StaticDBIDs;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.ArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.arraylike.NumberArrayAdapter;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferSerializer;
+
+/**
+ * Relation storing dense numeric vectors of fixed dimensionality in large
+ * primitive arrays, in row-major layout.
+ * <p>
+ * Compared to a {@link MaterializedRelation} of individual vector objects, this
+ * avoids one object header and one array per vector, and keeps the data
+ * contiguous in memory, which benefits linear scans. The vectors returned by
+ * {@link #get} are lightweight views into the shared storage.
+ * <p>
+ * To support very large data sets, the storage is split into chunks of at most
+ * {@link #CHUNK_SIZE} values each. A vector never spans two chunks.
+ * <p>
+ * The data can optionally be stored with single precision, which halves the
+ * memory usage but reduces precision.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @composed - - - DBIDRange
+ * @has - - - DoubleView
+ * @has - - - FloatView
+ */
+public class PackedVectorRelation extends AbstractRelation<NumberVector> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(PackedVectorRelation.class);
+
+  /**
+   * Maximum number of values per chunk.
+   */
+  public static final int CHUNK_SIZE = 1 << 27;
+
+  /**
+   * Type information of the view objects.
+   */
+  private final SimpleTypeInformation<NumberVector> type;
+
+  /**
+   * The DBIDs this is defined for.
+   */
+  private final DBIDRange ids;
+
+  /**
+   * Dimensionality.
+   */
+  private final int dim;
+
+  /**
+   * Number of vectors per chunk.
+   */
+  private final int perchunk;
+
+  /**
+   * Double precision storage, or {@code null}.
+   */
+  private final double[][] dchunks;
+
+  /**
+   * Single precision storage, or {@code null}.
+   */
+  private final float[][] fchunks;
+
+  /**
+   * The relation name.
+   */
+  private String name;
+
+  /**
+   * Constructor. Data must be added with {@link #set} before use.
+   *
+   * @param ids IDs
+   * @param dim Dimensionality
+   * @param labels Column labels, may be {@code null}
+   * @param single Use single precision (float) storage
+   * @param name Relation name, may be {@code null}
+   */
+  public PackedVectorRelation(DBIDRange ids, int dim, String[] labels, boolean single, String name) {
+    this(ids, dim, labels, single ? null : allocateDouble(ids.size(), dim), single ? allocateFloat(ids.size(), dim) : null, name);
+  }
+
+  /**
+   * Constructor for prepared storage.
+   *
+   * @param ids IDs
+   * @param dim Dimensionality
+   * @param labels Column labels, may be {@code null}
+   * @param dchunks Double precision storage, or {@code null}
+   * @param fchunks Single precision storage, or {@code null}
+   * @param name Relation name, may be {@code null}
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private PackedVectorRelation(DBIDRange ids, int dim, String[] labels, double[][] dchunks, float[][] fchunks, String name) {
+    super();
+    this.ids = ids;
+    this.dim = dim;
+    this.name = name;
+    this.perchunk = CHUNK_SIZE / dim;
+    this.dchunks = dchunks;
+    this.fchunks = fchunks;
+    this.type = dchunks != null ? (SimpleTypeInformation) new VectorFieldTypeInformation<>(DoubleView.FACTORY, dim, labels) //
+        : (SimpleTypeInformation) new VectorFieldTypeInformation<>(FloatView.FACTORY, dim, labels);
+  }
+
+  /**
+   * Check the dimensionality.
+   *
+   * @param dim Dimensionality
+   * @return Number of vectors per chunk
+   */
+  private static int perChunk(int dim) {
+    if(dim < 1 || dim > CHUNK_SIZE) {
+      throw new IllegalArgumentException("Unsupported dimensionality: " + dim);
+    }
+    return CHUNK_SIZE / dim;
+  }
+
+  /**
+   * Allocate double precision storage.
+   *
+   * @param size Number of vectors
+   * @param dim Dimensionality
+   * @return Storage chunks
+   */
+  private static double[][] allocateDouble(int size, int dim) {
+    final int perchunk = perChunk(dim);
+    final int nchunks = size > 0 ? (size - 1) / perchunk + 1 : 0;
+    double[][] chunks = new double[nchunks][];
+    for(int i = 0; i < nchunks; i++) {
+      chunks[i] = new double[Math.min(perchunk, size - i * perchunk) * dim];
+    }
+    return chunks;
+  }
+
+  /**
+   * Allocate single precision storage.
+   *
+   * @param size Number of vectors
+   * @param dim Dimensionality
+   * @return Storage chunks
+   */
+  private static float[][] allocateFloat(int size, int dim) {
+    final int perchunk = perChunk(dim);
+    final int nchunks = size > 0 ? (size - 1) / perchunk + 1 : 0;
+    float[][] chunks = new float[nchunks][];
+    for(int i = 0; i < nchunks; i++) {
+      chunks[i] = new float[Math.min(perchunk, size - i * perchunk) * dim];
+    }
+    return chunks;
+  }
+
+  /**
+   * Store the values of a vector.
+   *
+   * @param id Object id
+   * @param vec Vector, must have the dimensionality of this relation
+   */
+  public void set(DBIDRef id, NumberVector vec) {
+    if(vec.getDimensionality() != dim) {
+      throw new IllegalArgumentException("Vector has dimensionality " + vec.getDimensionality() + ", expected " + dim);
+    }
+    final int off = ids.getOffset(id), chunk = off / perchunk;
+    final int pos = (off - chunk * perchunk) * dim;
+    if(dchunks != null) {
+      final double[] data = dchunks[chunk];
+      for(int d = 0; d < dim; d++) {
+        data[pos + d] = vec.doubleValue(d);
+      }
+    }
+    else {
+      final float[] data = fchunks[chunk];
+      for(int d = 0; d < dim; d++) {
+        data[pos + d] = vec.floatValue(d);
+      }
+    }
+  }
+
+  @Override
+  public NumberVector get(DBIDRef id) {
+    final int off = ids.getOffset(id), chunk = off / perchunk;
+    final int pos = (off - chunk * perchunk) * dim;
+    return dchunks != null ? new DoubleView(dchunks[chunk], pos, dim) : new FloatView(fchunks[chunk], pos, dim);
+  }
+
+  /**
+   * Get a single value, without creating a view object.
+   *
+   * @param id Object id
+   * @param d Dimension
+   * @return Value
+   */
+  public double doubleValue(DBIDRef id, int d) {
+    final int off = ids.getOffset(id), chunk = off / perchunk;
+    final int pos = (off - chunk * perchunk) * dim + d;
+    return dchunks != null ? dchunks[chunk][pos] : fchunks[chunk][pos];
+  }
+
+  /**
+   * Get the dimensionality of the stored vectors.
+   *
+   * @return Dimensionality
+   */
+  public int getDimensionality() {
+    return dim;
+  }
+
+  @Override
+  public StaticDBIDs getDBIDs() {
+    return ids;
+  }
+
+  @Override
+  public DBIDIter iterDBIDs() {
+    return ids.iter();
+  }
+
+  @Override
+  public int size() {
+    return ids.size();
+  }
+
+  @Override
+  public SimpleTypeInformation<NumberVector> getDataTypeInformation() {
+    return type;
+  }
+
+  @Override
+  public String getLongName() {
+    return (name != null) ? name : type.toString();
+  }
+
+  @Override
+  public String getShortName() {
+    return "relation";
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Builder to pack vectors as they arrive, when the number of vectors is not
+   * yet known. The storage grows chunk by chunk; only the last chunk is
+   * resized.
+   *
+   * @author Erich Schubert
+   */
+  public static class Builder {
+    /**
+     * Initial capacity of the first chunk, in vectors.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Dimensionality.
+     */
+    private final int dim;
+
+    /**
+     * Number of vectors per chunk.
+     */
+    private final int perchunk;
+
+    /**
+     * Double precision storage, or {@code null}.
+     */
+    private double[][] dchunks;
+
+    /**
+     * Single precision storage, or {@code null}.
+     */
+    private float[][] fchunks;
+
+    /**
+     * Number of vectors stored.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param dim Dimensionality
+     * @param single Use single precision (float) storage
+     */
+    public Builder(int dim, boolean single) {
+      this.dim = dim;
+      this.perchunk = perChunk(dim);
+      if(single) {
+        this.fchunks = new float[0][];
+      }
+      else {
+        this.dchunks = new double[0][];
+      }
+    }
+
+    /**
+     * Append the values of a vector.
+     *
+     * @param vec Vector, must have the dimensionality of this builder
+     */
+    public void add(NumberVector vec) {
+      if(vec.getDimensionality() != dim) {
+        throw new IllegalArgumentException("Vector has dimensionality " + vec.getDimensionality() + ", expected " + dim);
+      }
+      final int chunk = size / perchunk, pos = (size - chunk * perchunk) * dim;
+      if(dchunks != null) {
+        if(chunk == dchunks.length) {
+          dchunks = Arrays.copyOf(dchunks, chunk + 1);
+          dchunks[chunk] = new double[Math.min(perchunk, INITIAL_CAPACITY) * dim];
+        }
+        else if(pos == dchunks[chunk].length) {
+          dchunks[chunk] = Arrays.copyOf(dchunks[chunk], Math.min(perchunk * dim, pos << 1));
+        }
+        final double[] data = dchunks[chunk];
+        for(int d = 0; d < dim; d++) {
+          data[pos + d] = vec.doubleValue(d);
+        }
+      }
+      else {
+        if(chunk == fchunks.length) {
+          fchunks = Arrays.copyOf(fchunks, chunk + 1);
+          fchunks[chunk] = new float[Math.min(perchunk, INITIAL_CAPACITY) * dim];
+        }
+        else if(pos == fchunks[chunk].length) {
+          fchunks[chunk] = Arrays.copyOf(fchunks[chunk], Math.min(perchunk * dim, pos << 1));
+        }
+        final float[] data = fchunks[chunk];
+        for(int d = 0; d < dim; d++) {
+          data[pos + d] = vec.floatValue(d);
+        }
+      }
+      ++size;
+    }
+
+    /**
+     * Get the dimensionality of the stored vectors.
+     *
+     * @return Dimensionality
+     */
+    public int getDimensionality() {
+      return dim;
+    }
+
+    /**
+     * Number of vectors stored.
+     *
+     * @return Size
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Get a view of a stored vector.
+     *
+     * @param off Vector offset
+     * @return View of the vector
+     */
+    public NumberVector get(int off) {
+      final int chunk = off / perchunk, pos = (off - chunk * perchunk) * dim;
+      return dchunks != null ? new DoubleView(dchunks[chunk], pos, dim) : new FloatView(fchunks[chunk], pos, dim);
+    }
+
+    /**
+     * Build the relation. The builder must not be used afterwards.
+     *
+     * @param ids IDs, must have the size of this builder
+     * @param labels Column labels, may be {@code null}
+     * @param name Relation name, may be {@code null}
+     * @return Packed relation
+     */
+    public PackedVectorRelation build(DBIDRange ids, String[] labels, String name) {
+      if(ids.size() != size) {
+        throw new IllegalArgumentException("Number of ids " + ids.size() + " does not match number of vectors " + size);
+      }
+      // Trim the last chunk.
+      final int last = size > 0 ? (size - 1) / perchunk : -1;
+      if(last >= 0) {
+        final int len = (size - last * perchunk) * dim;
+        if(dchunks != null && dchunks[last].length != len) {
+          dchunks[last] = Arrays.copyOf(dchunks[last], len);
+        }
+        else if(fchunks != null && fchunks[last].length != len) {
+          fchunks[last] = Arrays.copyOf(fchunks[last], len);
+        }
+      }
+      PackedVectorRelation rel = new PackedVectorRelation(ids, dim, labels, dchunks, fchunks, name);
+      dchunks = null;
+      fchunks = null;
+      return rel;
+    }
+  }
+
+  /**
+   * Format a vector for output, in the same format as the regular vectors.
+   *
+   * @param v Vector
+   * @return String representation
+   */
+  private static String format(NumberVector v) {
+    StringBuilder buf = new StringBuilder(v.getDimensionality() * 8);
+    for(int i = 0; i < v.getDimensionality(); i++) {
+      buf.append(i > 0 ? NumberVector.ATTRIBUTE_SEPARATOR : "").append(v instanceof FloatView ? v.floatValue(i) : v.doubleValue(i));
+    }
+    return buf.toString();
+  }
+
+  /**
+   * View of a vector stored in a double array.
+   *
+   * @author Erich Schubert
+   */
+  public static class DoubleView implements NumberVector {
+    /**
+     * Static factory instance.
+     */
+    public static final Factory FACTORY = new Factory();
+
+    /**
+     * Serializer for variable length vectors.
+     */
+    public static final ByteBufferSerializer<DoubleView> VARIABLE_SERIALIZER = new VariableSerializer();
+
+    /**
+     * Data storage.
+     */
+    private final double[] data;
+
+    /**
+     * Offset and dimensionality.
+     */
+    private final int off, dim;
+
+    /**
+     * Constructor.
+     *
+     * @param data Data storage
+     * @param off Offset
+     * @param dim Dimensionality
+     */
+    protected DoubleView(double[] data, int off, int dim) {
+      this.data = data;
+      this.off = off;
+      this.dim = dim;
+    }
+
+    @Override
+    public int getDimensionality() {
+      return dim;
+    }
+
+    @Override
+    public double doubleValue(int dimension) {
+      return data[off + dimension];
+    }
+
+    @Override
+    public long longValue(int dimension) {
+      return (long) data[off + dimension];
+    }
+
+    @Override
+    public double[] toArray() {
+      double[] ret = new double[dim];
+      System.arraycopy(data, off, ret, 0, dim);
+      return ret;
+    }
+
+    @Override
+    public String toString() {
+      return format(this);
+    }
+
+    /**
+     * Factory for double vector views.
+     *
+     * @author Erich Schubert
+     */
+    public static class Factory implements NumberVector.Factory<DoubleView> {
+      @Override
+      public <A> DoubleView newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+        final int dim = adapter.size(array);
+        double[] values = new double[dim];
+        for(int i = 0; i < dim; i++) {
+          values[i] = adapter.get(array, i).doubleValue();
+        }
+        return new DoubleView(values, 0, dim);
+      }
+
+      @Override
+      public <A> DoubleView newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+        final int dim = adapter.size(array);
+        double[] values = new double[dim];
+        for(int i = 0; i < dim; i++) {
+          values[i] = adapter.getDouble(array, i);
+        }
+        return new DoubleView(values, 0, dim);
+      }
+
+      @Override
+      public ByteBufferSerializer<DoubleView> getDefaultSerializer() {
+        return VARIABLE_SERIALIZER;
+      }
+
+      @Override
+      public Class<? super DoubleView> getRestrictionClass() {
+        return DoubleView.class;
+      }
+    }
+
+    /**
+     * Serialization class using VarInt encoding of the dimensionality.
+     *
+     * @author Erich Schubert
+     */
+    public static class VariableSerializer implements ByteBufferSerializer<DoubleView> {
+      @Override
+      public DoubleView fromByteBuffer(ByteBuffer buffer) throws IOException {
+        final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+        final double[] values = new double[dimensionality];
+        for(int i = 0; i < dimensionality; i++) {
+          values[i] = buffer.getDouble();
+        }
+        return new DoubleView(values, 0, dimensionality);
+      }
+
+      @Override
+      public void toByteBuffer(ByteBuffer buffer, DoubleView vec) throws IOException {
+        ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+        for(int i = 0; i < vec.dim; i++) {
+          buffer.putDouble(vec.data[vec.off + i]);
+        }
+      }
+
+      @Override
+      public int getByteSize(DoubleView vec) {
+        return ByteArrayUtil.getUnsignedVarintSize(vec.dim) + ByteArrayUtil.SIZE_DOUBLE * vec.dim;
+      }
+    }
+  }
+
+  /**
+   * View of a vector stored in a float array.
+   *
+   * @author Erich Schubert
+   */
+  public static class FloatView implements NumberVector {
+    /**
+     * Static factory instance.
+     */
+    public static final Factory FACTORY = new Factory();
+
+    /**
+     * Serializer for variable length vectors.
+     */
+    public static final ByteBufferSerializer<FloatView> VARIABLE_SERIALIZER = new VariableSerializer();
+
+    /**
+     * Data storage.
+     */
+    private final float[] data;
+
+    /**
+     * Offset and dimensionality.
+     */
+    private final int off, dim;
+
+    /**
+     * Constructor.
+     *
+     * @param data Data storage
+     * @param off Offset
+     * @param dim Dimensionality
+     */
+    protected FloatView(float[] data, int off, int dim) {
+      this.data = data;
+      this.off = off;
+      this.dim = dim;
+    }
+
+    @Override
+    public int getDimensionality() {
+      return dim;
+    }
+
+    @Override
+    public double doubleValue(int dimension) {
+      return data[off + dimension];
+    }
+
+    @Override
+    public float floatValue(int dimension) {
+      return data[off + dimension];
+    }
+
+    @Override
+    public long longValue(int dimension) {
+      return (long) data[off + dimension];
+    }
+
+    @Override
+    public double[] toArray() {
+      double[] ret = new double[dim];
+      for(int i = 0; i < dim; i++) {
+        ret[i] = data[off + i];
+      }
+      return ret;
+    }
+
+    @Override
+    public String toString() {
+      return format(this);
+    }
+
+    /**
+     * Factory for float vector views.
+     *
+     * @author Erich Schubert
+     */
+    public static class Factory implements NumberVector.Factory<FloatView> {
+      @Override
+      public <A> FloatView newFeatureVector(A array, ArrayAdapter<? extends Number, A> adapter) {
+        final int dim = adapter.size(array);
+        float[] values = new float[dim];
+        for(int i = 0; i < dim; i++) {
+          values[i] = adapter.get(array, i).floatValue();
+        }
+        return new FloatView(values, 0, dim);
+      }
+
+      @Override
+      public <A> FloatView newNumberVector(A array, NumberArrayAdapter<?, ? super A> adapter) {
+        final int dim = adapter.size(array);
+        float[] values = new float[dim];
+        for(int i = 0; i < dim; i++) {
+          values[i] = adapter.getFloat(array, i);
+        }
+        return new FloatView(values, 0, dim);
+      }
+
+      @Override
+      public ByteBufferSerializer<FloatView> getDefaultSerializer() {
+        return VARIABLE_SERIALIZER;
+      }
+
+      @Override
+      public Class<? super FloatView> getRestrictionClass() {
+        return FloatView.class;
+      }
+    }
+
+    /**
+     * Serialization class using VarInt encoding of the dimensionality.
+     *
+     * @author Erich Schubert
+     */
+    public static class VariableSerializer implements ByteBufferSerializer<FloatView> {
+      @Override
+      public FloatView fromByteBuffer(ByteBuffer buffer) throws IOException {
+        final int dimensionality = ByteArrayUtil.readUnsignedVarint(buffer);
+        final float[] values = new float[dimensionality];
+        for(int i = 0; i < dimensionality; i++) {
+          values[i] = buffer.getFloat();
+        }
+        return new FloatView(values, 0, dimensionality);
+      }
+
+      @Override
+      public void toByteBuffer(ByteBuffer buffer, FloatView vec) throws IOException {
+        ByteArrayUtil.writeUnsignedVarint(buffer, vec.dim);
+        for(int i = 0; i < vec.dim; i++) {
+          buffer.putFloat(vec.data[vec.off + i]);
+        }
+      }
+
+      @Override
+      public int getByteSize(FloatView vec) {
+        return ByteArrayUtil.getUnsignedVarintSize(vec.dim) + ByteArrayUtil.SIZE_FLOAT * vec.dim;
+      }
+    }
+  }
+}
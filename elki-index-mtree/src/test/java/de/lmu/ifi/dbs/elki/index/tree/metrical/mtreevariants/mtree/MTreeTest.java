@@ -46,4 +46,14 @@ public class MTreeTest extends AbstractIndexStructureTest {
     testExactEuclidean(factory, MTreeKNNQuery.class, MTreeRangeQuery.class);
     testSinglePoint(factory, MTreeKNNQuery.class, MTreeRangeQuery.class);
   }
+
+  /**
+   * Test concurrent queries on a {@link MTree}.
+   */
+  @Test
+  public void testParallelQueries() {
+    MTreeFactory<DoubleVector> factory = new ELKIBuilder<>(MTreeFactory.class) //
+        .with(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300).build();
+    testParallelKNN(factory, MTreeKNNQuery.class);
+  }
 }
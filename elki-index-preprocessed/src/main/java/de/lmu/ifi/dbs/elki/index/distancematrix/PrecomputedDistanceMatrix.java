@@ -26,9 +26,11 @@ import java.util.List;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.database.ids.*;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.distance.PrimitiveDistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.BatchPrimitiveDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.index.DistanceIndex;
 import de.lmu.ifi.dbs.elki.index.IndexFactory;
@@ -41,6 +43,7 @@ import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
 
 /**
@@ -52,6 +55,11 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
  * in memory, requiring 8 * (n-1) * (n-2) bytes. Since Java has a size limit of
  * arrays of 31 bits (signed integer), we can store at most \(2^16\) objects
  * (precisely, 65536 objects) in a single array, which needs about 16 GB of RAM.
+ * <p>
+ * Optionally, distance functions that support batch computation are used to
+ * fill the matrix block by block. This is faster, but the stored distances
+ * may deviate from the exact distances by rounding errors, see
+ * {@link BatchPrimitiveDistanceFunction#BATCH_TOLERANCE}.
  *
  * @author Erich Schubert
  * @since 0.7.0
@@ -83,6 +91,11 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
    */
   protected DistanceQuery<O> distanceQuery;
 
+  /**
+   * Use batch distance computations, if supported.
+   */
+  protected final boolean batch;
+
   /**
    * Distance matrix.
    */
@@ -106,10 +119,23 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
    * @param distanceFunction Distance function
    */
   public PrecomputedDistanceMatrix(Relation<O> relation, DBIDRange range, DistanceFunction<? super O> distanceFunction) {
+    this(relation, range, distanceFunction, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param relation Data relation
+   * @param range DBID range
+   * @param distanceFunction Distance function
+   * @param batch Use batch distance computations, if supported
+   */
+  public PrecomputedDistanceMatrix(Relation<O> relation, DBIDRange range, DistanceFunction<? super O> distanceFunction, boolean batch) {
     super();
     this.relation = relation;
     this.ids = range;
     this.distanceFunction = distanceFunction;
+    this.batch = batch;
 
     if(!distanceFunction.isSymmetric()) {
       throw new AbortException("Distance matrixes currently only support symmetric distance functions (Patches welcome).");
@@ -130,6 +156,24 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
     DBIDArrayIter ix = ids.iter(), iy = ids.iter();
 
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Precomputing distance matrix", msize, LOG) : null;
+    if(batch && distanceQuery instanceof PrimitiveDistanceQuery && distanceFunction instanceof BatchPrimitiveDistanceFunction) {
+      @SuppressWarnings("unchecked")
+      BatchPrimitiveDistanceFunction<? super O> df = (BatchPrimitiveDistanceFunction<? super O>) distanceFunction;
+      List<O> objs = new ArrayList<>(size);
+      for(ix.seek(0); ix.valid(); ix.advance()) {
+        objs.add(relation.get(ix));
+      }
+      for(int start = 0; start < size; start += BatchPrimitiveDistanceFunction.BLOCK_SIZE) {
+        final int end = Math.min(start + BatchPrimitiveDistanceFunction.BLOCK_SIZE, size);
+        df.lowerTriangle(objs, matrix, start, end);
+        if(prog != null) {
+          prog.setProcessed(triangleSize(end), LOG);
+        }
+      }
+      LOG.ensureCompleted(prog);
+      return;
+    }
+
     int pos = 0;
     for(ix.seek(0); ix.valid(); ix.advance()) {
       // y < x -- must match {@link #getOffset}!
@@ -362,14 +406,30 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
      */
     final protected DistanceFunction<? super O> distanceFunction;
 
+    /**
+     * Use batch distance computations, if supported.
+     */
+    final protected boolean batch;
+
     /**
      * Constructor.
      *
      * @param distanceFunction Distance function
      */
     public Factory(DistanceFunction<? super O> distanceFunction) {
+      this(distanceFunction, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param distanceFunction Distance function
+     * @param batch Use batch distance computations, if supported
+     */
+    public Factory(DistanceFunction<? super O> distanceFunction, boolean batch) {
       super();
       this.distanceFunction = distanceFunction;
+      this.batch = batch;
     }
 
     @Override
@@ -378,7 +438,7 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
       if(!(rids instanceof DBIDRange)) {
         throw new AbortException("Distance matrixes are currently only supported for DBID ranges (as used by static databases; not on modifiable databases) for performance reasons (Patches welcome).");
       }
-      return new PrecomputedDistanceMatrix<>(relation, (DBIDRange) rids, distanceFunction);
+      return new PrecomputedDistanceMatrix<>(relation, (DBIDRange) rids, distanceFunction, batch);
     }
 
     @Override
@@ -401,11 +461,21 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
        */
       public static final OptionID DISTANCE_ID = new OptionID("matrix.distance", "Distance function for the precomputed distance matrix.");
 
+      /**
+       * Flag to use batch distance computations.
+       */
+      public static final OptionID BATCH_ID = new OptionID("matrix.batch", "Use batch distance computations where supported. This is faster, but the distances may deviate by rounding errors.");
+
       /**
        * Nested distance function.
        */
       protected DistanceFunction<? super O> distanceFunction;
 
+      /**
+       * Use batch distance computations, if supported.
+       */
+      protected boolean batch;
+
       @Override
       protected void makeOptions(Parameterization config) {
         super.makeOptions(config);
@@ -413,11 +483,15 @@ public class PrecomputedDistanceMatrix<O> implements DistanceIndex<O>, RangeInde
         if(config.grab(distanceP)) {
           distanceFunction = distanceP.instantiateClass(config);
         }
+        Flag batchF = new Flag(BATCH_ID);
+        if(config.grab(batchF)) {
+          batch = batchF.isTrue();
+        }
       }
 
       @Override
       protected Factory<O> makeInstance() {
-        return new Factory<>(distanceFunction);
+        return new Factory<>(distanceFunction, batch);
       }
     }
   }
@@ -43,6 +43,7 @@ import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialIndexTree;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.SpatialPointLeafEntry;
 import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.util.NodeArrayAdapter;
 import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.AtomicLongCounter;
 import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
 import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
 import de.lmu.ifi.dbs.elki.persistent.PageFile;
@@ -54,6 +55,11 @@ import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
  *
  * Implementation Note: The restriction on NumberVector (as opposed to e.g.
  * FeatureVector) is intentional, because we have spatial requirements.
+ * <p>
+ * Once the tree has been built, kNN and range queries can be run from multiple
+ * threads concurrently (e.g., using the parallel executor), as long as the
+ * tree is not modified at the same time. The page files and caches shipped
+ * with ELKI support concurrent reads.
  *
  * @author Elke Achtert
  * @since 0.1
@@ -817,7 +823,8 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
   }
 
   /**
-   * Class for tracking some statistics.
+   * Class for tracking some statistics. The counters are thread-safe, as
+   * queries may run concurrently.
    *
    * @author Erich Schubert
    *
@@ -846,9 +853,9 @@ public abstract class AbstractRStarTree<N extends AbstractRStarTreeNode<N, E>, E
       super();
       Logging log = getLogger();
       final String prefix = AbstractRStarTree.this.getClass().getName();
-      distanceCalcs = log.isStatistics() ? log.newCounter(prefix + ".distancecalcs") : null;
-      knnQueries = log.isStatistics() ? log.newCounter(prefix + ".knnqueries") : null;
-      rangeQueries = log.isStatistics() ? log.newCounter(prefix + ".rangequeries") : null;
+      distanceCalcs = log.isStatistics() ? new AtomicLongCounter(prefix + ".distancecalcs") : null;
+      knnQueries = log.isStatistics() ? new AtomicLongCounter(prefix + ".knnqueries") : null;
+      rangeQueries = log.isStatistics() ? new AtomicLongCounter(prefix + ".rangequeries") : null;
     }
 
     /**
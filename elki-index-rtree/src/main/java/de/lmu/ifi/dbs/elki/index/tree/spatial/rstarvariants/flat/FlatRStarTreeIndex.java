@@ -110,12 +110,12 @@ public class FlatRStarTreeIndex<O extends NumberVector> extends FlatRStarTree im
    */
   @Override
   public final void insertAll(DBIDs ids) {
-    if(ids.isEmpty() || (ids.size() == 1)) {
+    if(ids.isEmpty()) {
       return;
     }
 
     // Make an example leaf
-    if(canBulkLoad()) {
+    if(ids.size() > 1 && canBulkLoad()) {
       List<SpatialEntry> leafs = new ArrayList<>(ids.size());
       for (DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
         leafs.add(createNewLeafEntry(DBIDUtil.deref(iter)));
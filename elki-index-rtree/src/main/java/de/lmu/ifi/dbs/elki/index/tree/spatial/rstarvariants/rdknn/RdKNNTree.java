@@ -569,12 +569,12 @@ public class RdKNNTree<O extends NumberVector> extends NonFlatRStarTree<RdKNNNod
    */
   @Override
   public final void insertAll(DBIDs ids) {
-    if(ids.isEmpty() || (ids.size() == 1)) {
+    if(ids.isEmpty()) {
       return;
     }
 
     // Make an example leaf
-    if(canBulkLoad()) {
+    if(ids.size() > 1 && canBulkLoad()) {
       List<RdKNNEntry> leafs = new ArrayList<>(ids.size());
       for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
         leafs.add(createNewLeafEntry(DBIDUtil.deref(iter)));
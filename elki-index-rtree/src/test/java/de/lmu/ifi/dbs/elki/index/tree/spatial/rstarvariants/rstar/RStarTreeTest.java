@@ -60,6 +60,29 @@ public class RStarTreeTest extends AbstractIndexStructureTest {
     testSinglePoint(factory, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
   }
 
+  /**
+   * Test inserting a single object into an existing {@link RStarTree}.
+   */
+  @Test
+  public void testSingleInsertion() {
+    RStarTreeFactory<NumberVector> factory = new ELKIBuilder<>(RStarTreeFactory.class) //
+        .with(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300) //
+        .build();
+    testSingleInsertion(factory, RStarTreeRangeQuery.class);
+  }
+
+  /**
+   * Test concurrent queries on a bulk-loaded {@link RStarTree}.
+   */
+  @Test
+  public void testParallelQueries() {
+    RStarTreeFactory<NumberVector> factory = new ELKIBuilder<>(RStarTreeFactory.class) //
+        .with(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300) //
+        .with(RStarTreeFactory.Parameterizer.BULK_SPLIT_ID, SortTileRecursiveBulkSplit.class) //
+        .build();
+    testParallelKNN(factory, RStarTreeKNNQuery.class);
+  }
+
   /**
    * Test {@link RStarTree} using a file based database connection. With "fast"
    * mode enabled on an extreme level (since this should only reduce
@@ -20,7 +20,6 @@
  */
 package de.lmu.ifi.dbs.elki.persistent;
 
-import java.io.Externalizable;
 
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -33,7 +32,7 @@ import java.io.ObjectOutput;
  * @since 0.1
  */
 // todo elke revise comments
-public abstract class AbstractExternalizablePage implements Externalizable, Page {
+public abstract class AbstractExternalizablePage implements ExternalizablePage {
   /**
    * Serial version
    */
@@ -0,0 +1,180 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.application;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import de.lmu.ifi.dbs.elki.datasource.bundle.FixedVectorWriter;
+import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
+import de.lmu.ifi.dbs.elki.datasource.parser.StreamingParser;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.io.FileUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.Flag;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.ObjectParameter;
+
+/**
+ * Convert a text input file to the fixed-width vector format, which can be
+ * memory-mapped by {@code MappedVectorDatabase}.
+ * <p>
+ * The input is streamed, so the data does not need to fit into main memory.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - FixedVectorWriter
+ */
+public class ConvertToFixedVectorsApplication extends AbstractApplication {
+  /**
+   * Logging class.
+   */
+  private static final Logging LOG = Logging.getLogger(ConvertToFixedVectorsApplication.class);
+
+  /**
+   * Input filename.
+   */
+  private File infile;
+
+  /**
+   * Streaming parser.
+   */
+  private StreamingParser parser;
+
+  /**
+   * Output filename.
+   */
+  private File outfile;
+
+  /**
+   * Use single precision.
+   */
+  private boolean single;
+
+  /**
+   * Constructor.
+   *
+   * @param infile Input filename
+   * @param parser Streaming parser
+   * @param outfile Output filename
+   * @param single Use single precision
+   */
+  public ConvertToFixedVectorsApplication(File infile, StreamingParser parser, File outfile, boolean single) {
+    super();
+    this.infile = infile;
+    this.parser = parser;
+    this.outfile = outfile;
+    this.single = single;
+  }
+
+  @Override
+  public void run() {
+    if(LOG.isVerbose()) {
+      LOG.verbose("Converting to output file: " + outfile.toString());
+    }
+    try (InputStream in = new BufferedInputStream(FileUtil.tryGzipInput(new FileInputStream(infile))); //
+        FileChannel channel = FileChannel.open(outfile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      parser.initStream(in);
+      long count = new FixedVectorWriter(single).writeStream(parser, channel);
+      if(LOG.isVerbose()) {
+        LOG.verbose("Vectors written: " + count);
+      }
+    }
+    catch(IOException e) {
+      LOG.exception("IO Error", e);
+    }
+    finally {
+      parser.cleanup();
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   */
+  public static class Parameterizer extends AbstractApplication.Parameterizer {
+    /**
+     * Parser to use.
+     */
+    public static final OptionID PARSER_ID = new OptionID("convert.parser", "Streaming parser for the input file.");
+
+    /**
+     * Flag to store single precision values.
+     */
+    public static final OptionID SINGLE_ID = new OptionID("convert.float", "Store single precision (float) values only.");
+
+    /**
+     * Input filename.
+     */
+    private File infile;
+
+    /**
+     * Streaming parser.
+     */
+    private StreamingParser parser;
+
+    /**
+     * Output filename.
+     */
+    private File outfile;
+
+    /**
+     * Use single precision.
+     */
+    private boolean single;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      infile = super.getParameterInputFile(config, "Text file to convert.");
+      ObjectParameter<StreamingParser> parserP = new ObjectParameter<>(PARSER_ID, StreamingParser.class, NumberVectorLabelParser.class);
+      if(config.grab(parserP)) {
+        parser = parserP.instantiateClass(config);
+      }
+      outfile = super.getParameterOutputFile(config, "File name to write the vectors to.");
+      Flag singleF = new Flag(SINGLE_ID);
+      if(config.grab(singleF)) {
+        single = singleF.isTrue();
+      }
+    }
+
+    @Override
+    protected ConvertToFixedVectorsApplication makeInstance() {
+      return new ConvertToFixedVectorsApplication(infile, parser, outfile, single);
+    }
+  }
+
+  /**
+   * Run command line application.
+   *
+   * @param args Command line parameters
+   */
+  public static void main(String[] args) {
+    runCLIApplication(ConvertToFixedVectorsApplication.class, args);
+  }
+}
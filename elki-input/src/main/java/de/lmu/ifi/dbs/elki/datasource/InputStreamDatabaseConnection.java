@@ -25,7 +25,10 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.function.Supplier;
 
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleMeta;
+import de.lmu.ifi.dbs.elki.datasource.bundle.BundleStreamSource;
 import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.datasource.filter.AbstractStreamFilter;
 import de.lmu.ifi.dbs.elki.datasource.filter.ObjectFilter;
 import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
 import de.lmu.ifi.dbs.elki.datasource.parser.Parser;
@@ -141,6 +144,40 @@ public class InputStreamDatabaseConnection extends AbstractDatabaseConnection im
     }
   }
 
+  @Override
+  public BundleStreamSource loadStream() {
+    if(!(parser instanceof StreamingParser)) {
+      return loadData().asStream();
+    }
+    final StreamingParser streamParser = (StreamingParser) parser;
+    ins = ins != null ? ins : in.get();
+    streamParser.initStream(ins);
+    if(LOG.isDebugging()) {
+      LOG.debugFine("Parsing as stream.");
+    }
+    // Clean up the parser when the consumer reaches the end of the stream.
+    return new AbstractStreamFilter() {
+      @Override
+      public BundleMeta getMeta() {
+        return source.getMeta();
+      }
+
+      @Override
+      public Object data(int rnum) {
+        return source.data(rnum);
+      }
+
+      @Override
+      public Event nextEvent() {
+        Event ev = source.nextEvent();
+        if(ev == Event.END_OF_STREAM) {
+          parser.cleanup();
+        }
+        return ev;
+      }
+    }.init(invokeStreamFilters(streamParser));
+  }
+
   @Override
   public void close() throws IOException {
     if(ins != null) {
@@ -0,0 +1,484 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.anglebased.parallel;
+
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.anglebased.FastABOD;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.IntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableIntegerDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNHeap;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.DatabaseQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.similarity.SimilarityQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.similarityfunction.SimilarityFunction;
+import de.lmu.ifi.dbs.elki.distance.similarityfunction.kernel.LinearKernelFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.math.Mean;
+import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.InvertedOutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+import net.jafama.FastMath;
+
+/**
+ * Parallel implementation of Fast-ABOD, with optional sampling of the angles.
+ * <p>
+ * Instead of materializing the n x n kernel matrix, only the self-similarities
+ * are precomputed, and all other kernel values are computed on demand. Objects
+ * are scored independently in parallel. As in {@link FastABOD}, an optimized
+ * kNN query is used for the linear kernel, if the database has one.
+ * <p>
+ * With all pairs of neighbors, the result is identical to {@link FastABOD}.
+ * Otherwise, the variance of the angles is estimated from the given number of
+ * random pairs of neighbors. The standard error of every estimate is obtained
+ * by splitting the samples into batches, and is reported as a child result,
+ * and as the mean standard error in the statistics log. Objects with too few
+ * pairs to sample are scored exactly, and have a NaN standard error.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <V> Vector type
+ */
+public class ParallelFastABOD<V extends NumberVector> extends FastABOD<V> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelFastABOD.class);
+
+  /**
+   * Number of batches for estimating the standard error.
+   */
+  private static final int BATCHES = 10;
+
+  /**
+   * Number of sampled pairs per object, 0 to use all pairs.
+   */
+  protected int samples;
+
+  /**
+   * Random generator for sampling.
+   */
+  protected RandomFactory rnd;
+
+  /**
+   * Constructor.
+   *
+   * @param kernelFunction kernel function to use
+   * @param k Number of nearest neighbors
+   * @param samples Number of sampled pairs per object, 0 to use all pairs
+   * @param rnd Random generator for sampling
+   */
+  public ParallelFastABOD(SimilarityFunction<? super V> kernelFunction, int k, int samples, RandomFactory rnd) {
+    super(kernelFunction, k);
+    this.samples = samples;
+    this.rnd = rnd;
+  }
+
+  @Override
+  public OutlierResult run(Database db, Relation<V> relation) {
+    DBIDs ids = relation.getDBIDs();
+    SimilarityQuery<V> sq = db.getSimilarityQuery(relation, kernelFunction);
+    // For the linear kernel, we can use the kNN of an index, if available.
+    KNNQuery<V> knnq = null;
+    boolean squared = true;
+    if(kernelFunction.getClass() == LinearKernelFunction.class) {
+      knnq = db.getKNNQuery(db.getDistanceQuery(relation, SquaredEuclideanDistanceFunction.STATIC), DatabaseQuery.HINT_OPTIMIZED_ONLY);
+      if(knnq == null) {
+        knnq = db.getKNNQuery(db.getDistanceQuery(relation, EuclideanDistanceFunction.STATIC), DatabaseQuery.HINT_OPTIMIZED_ONLY);
+        squared = false;
+      }
+    }
+    // Otherwise, we scan all objects, and remember the position of each.
+    WritableIntegerDataStore positions = null;
+    if(knnq == null) {
+      positions = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+      int i = 0;
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance(), i++) {
+        positions.putInt(iter, i);
+      }
+    }
+    final KNNQuery<V> fknnq = knnq;
+    final boolean fsquared = squared;
+    final IntegerDataStore fpositions = positions;
+    // Only the diagonal of the kernel matrix.
+    WritableDoubleDataStore selfsim = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    ParallelUtil.map(ids, id -> sq.similarity(id, id), selfsim);
+    // Draw the seeds in a fixed order, for reproducible results.
+    WritableIntegerDataStore seeds = null;
+    if(samples > 0) {
+      seeds = DataStoreUtil.makeIntegerStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+      Random random = rnd.getSingleThreadedRandom();
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        seeds.putInt(iter, random.nextInt());
+      }
+    }
+    final IntegerDataStore fseeds = seeds;
+
+    WritableDoubleDataStore abodvalues = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore stderrs = seeds != null ? DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_STATIC) : null;
+    DoubleMinMax minmaxabod = ParallelUtil.mapThreadLocal(ids, //
+        () -> new Instance(sq, fknnq, fsquared, ids, fpositions, selfsim, fseeds, stderrs), abodvalues);
+    selfsim.destroy();
+    if(positions != null) {
+      positions.destroy();
+    }
+    if(seeds != null) {
+      seeds.destroy();
+    }
+
+    if(stderrs != null && LOG.isStatistics()) {
+      // Only objects with sampled pairs, exact scores have a NaN error.
+      Mean mean = new Mean();
+      for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+        final double err = stderrs.doubleValue(iter);
+        if(err == err) { // Not NaN
+          mean.put(err);
+        }
+      }
+      if(mean.getCount() > 0) {
+        LOG.statistics(new DoubleStatistic(this.getClass().getName() + ".stderr.mean", mean.getMean()));
+      }
+    }
+
+    // Build result representation.
+    DoubleRelation scoreResult = new MaterializedDoubleRelation("Angle-Based Outlier Degree", "abod-outlier", abodvalues, ids);
+    OutlierScoreMeta scoreMeta = new InvertedOutlierScoreMeta(minmaxabod.getMin(), minmaxabod.getMax(), 0.0, Double.POSITIVE_INFINITY);
+    OutlierResult result = new OutlierResult(scoreMeta, scoreResult);
+    if(stderrs != null) {
+      result.addChildResult(new MaterializedDoubleRelation("ABOD Standard Error", "abod-stderr", stderrs, ids));
+    }
+    return result;
+  }
+
+  /**
+   * Scoring function, with scratch buffers for one thread.
+   *
+   * @author Erich Schubert
+   */
+  private class Instance implements ToDoubleFunction<DBIDRef> {
+    /**
+     * Kernel similarity query.
+     */
+    private SimilarityQuery<V> sq;
+
+    /**
+     * Optimized kNN query, may be {@code null}.
+     */
+    private KNNQuery<V> knnq;
+
+    /**
+     * Flag, if the kNN query uses squared Euclidean distance.
+     */
+    private boolean squared;
+
+    /**
+     * Objects to search the neighbors in.
+     */
+    private DBIDs ids;
+
+    /**
+     * Position of each object in the scan, if no kNN query is available.
+     */
+    private IntegerDataStore positions;
+
+    /**
+     * Similarities of the current object to all objects, when scanning.
+     */
+    private double[] row;
+
+    /**
+     * Self-similarities.
+     */
+    private DoubleDataStore selfsim;
+
+    /**
+     * Seeds for sampling, may be {@code null}.
+     */
+    private IntegerDataStore seeds;
+
+    /**
+     * Output storage for the standard error, may be {@code null}.
+     */
+    private WritableDoubleDataStore stderrs;
+
+    /**
+     * Neighbor heap.
+     */
+    private KNNHeap nn = DBIDUtil.newHeap(k);
+
+    /**
+     * Similarities to the neighbors.
+     */
+    private double[] simA = new double[k];
+
+    /**
+     * Statistics of all samples, and of each batch.
+     */
+    private MeanVariance s = new MeanVariance(), batch[], estimates = new MeanVariance();
+
+    /**
+     * Random generator.
+     */
+    private Random random = new Random();
+
+    /**
+     * Constructor.
+     *
+     * @param sq Kernel similarity query
+     * @param knnq Optimized kNN query, may be {@code null}
+     * @param squared Flag, if the kNN query uses squared Euclidean distance
+     * @param ids Objects to search the neighbors in
+     * @param positions Positions of the objects, if no kNN query is given
+     * @param selfsim Self-similarities
+     * @param seeds Seeds for sampling, may be {@code null}
+     * @param stderrs Output storage for the standard error, may be
+     *        {@code null}
+     */
+    Instance(SimilarityQuery<V> sq, KNNQuery<V> knnq, boolean squared, DBIDs ids, IntegerDataStore positions, DoubleDataStore selfsim, IntegerDataStore seeds, WritableDoubleDataStore stderrs) {
+      this.sq = sq;
+      this.knnq = knnq;
+      this.squared = squared;
+      this.ids = ids;
+      this.positions = positions;
+      this.row = knnq == null ? new double[ids.size()] : null;
+      this.selfsim = selfsim;
+      this.seeds = seeds;
+      this.stderrs = stderrs;
+      this.batch = new MeanVariance[BATCHES];
+      for(int i = 0; i < BATCHES; i++) {
+        batch[i] = new MeanVariance();
+      }
+    }
+
+    @Override
+    public double applyAsDouble(DBIDRef pA) {
+      final double simAA = selfsim.doubleValue(pA);
+      KNNList nl = knnq != null ? indexNeighbors(pA) : scanNeighbors(pA, simAA);
+      final int size = nl.size();
+      DoubleDBIDListIter iB = nl.iter(), iC = nl.iter();
+
+      s.reset();
+      if(seeds == null || samples >= (size * (long) (size - 1)) >>> 1) {
+        for(iB.seek(0); iB.valid(); iB.advance()) {
+          for(iC.seek(iB.getOffset() + 1); iC.valid(); iC.advance()) {
+            putAngle(s, null, simAA, iB, iC);
+          }
+        }
+        if(stderrs != null) {
+          stderrs.putDouble(pA, Double.NaN); // Exact, no sampling error
+        }
+        return s.getNaiveVariance();
+      }
+      final int nbatches = Math.min(BATCHES, samples);
+      for(int i = 0; i < nbatches; i++) {
+        batch[i].reset();
+      }
+      random.setSeed(seeds.intValue(pA));
+      for(int i = 0; i < samples; i++) {
+        // Uniform random pair of distinct neighbors
+        final int b = random.nextInt(size), c = random.nextInt(size - 1);
+        iB.seek(b);
+        iC.seek(c < b ? c : c + 1);
+        putAngle(s, batch[i % nbatches], simAA, iB, iC);
+      }
+      // Estimate the standard error from the batches.
+      estimates.reset();
+      for(int i = 0; i < nbatches; i++) {
+        estimates.put(batch[i].getNaiveVariance());
+      }
+      stderrs.putDouble(pA, nbatches > 1 ? FastMath.sqrt(estimates.getSampleVariance() / nbatches) : Double.NaN);
+      return s.getNaiveVariance();
+    }
+
+    /**
+     * Find the k nearest neighbors using the optimized kNN query, and compute
+     * the similarities to them.
+     *
+     * @param pA Query object
+     * @return Neighbors, by squared Euclidean distance
+     */
+    private KNNList indexNeighbors(DBIDRef pA) {
+      nn.clear();
+      // We will get the query point back by the kNN query.
+      for(DoubleDBIDListIter it = knnq.getKNNForDBID(pA, k + 1).iter(); it.valid(); it.advance()) {
+        final double d = it.doubleValue();
+        if(d > 0.) {
+          nn.insert(squared ? d : d * d, it);
+        }
+      }
+      KNNList nl = nn.toKNNList();
+      prepareSimilarities(nl.size());
+      for(DoubleDBIDListIter iB = nl.iter(); iB.valid(); iB.advance()) {
+        simA[iB.getOffset()] = sq.similarity(pA, iB);
+      }
+      return nl;
+    }
+
+    /**
+     * Find the k nearest neighbors in the kernel space by a linear scan,
+     * keeping the similarities to avoid computing them again.
+     *
+     * @param pA Query object
+     * @param simAA Self-similarity of A
+     * @return Neighbors, by squared distance in the kernel space
+     */
+    private KNNList scanNeighbors(DBIDRef pA, double simAA) {
+      nn.clear();
+      int i = 0;
+      for(DBIDIter nB = ids.iter(); nB.valid(); nB.advance(), i++) {
+        if(DBIDUtil.equal(nB, pA)) {
+          continue;
+        }
+        final double simAB = row[i] = sq.similarity(pA, nB);
+        final double sqdAB = simAA + selfsim.doubleValue(nB) - simAB - simAB;
+        if(!(sqdAB > 0.)) {
+          continue;
+        }
+        nn.insert(sqdAB, nB);
+      }
+      KNNList nl = nn.toKNNList();
+      prepareSimilarities(nl.size());
+      for(DoubleDBIDListIter iB = nl.iter(); iB.valid(); iB.advance()) {
+        simA[iB.getOffset()] = row[positions.intValue(iB)];
+      }
+      return nl;
+    }
+
+    /**
+     * Ensure the similarity buffer is large enough.
+     *
+     * @param size Number of neighbors
+     */
+    private void prepareSimilarities(int size) {
+      if(simA.length < size) {
+        simA = new double[size];
+      }
+    }
+
+    /**
+     * Add the weighted cosine of the angle between B and C, seen from A.
+     *
+     * @param s Statistics to update
+     * @param b Statistics of the current batch, may be {@code null}
+     * @param simAA Self-similarity of A
+     * @param iB First neighbor
+     * @param iC Second neighbor
+     */
+    private void putAngle(MeanVariance s, MeanVariance b, double simAA, DoubleDBIDListIter iB, DoubleDBIDListIter iC) {
+      // Exploit bilinearity of scalar product:
+      // <B-A, C-A> = <B, C-A> - <A,C-A>
+      // = <B,C> - <B,A> - <A,C> + <A,A>
+      double simBC = sq.similarity(iB, iC);
+      double numerator = simBC - simA[iB.getOffset()] - simA[iC.getOffset()] + simAA;
+      double div = 1. / (iB.doubleValue() * iC.doubleValue());
+      final double val = numerator * div, weight = FastMath.sqrt(div);
+      s.put(val, weight);
+      if(b != null) {
+        b.put(val, weight);
+      }
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <V> Vector type
+   */
+  public static class Parameterizer<V extends NumberVector> extends FastABOD.Parameterizer<V> {
+    /**
+     * Number of sampled pairs of neighbors per object, 0 to use all pairs.
+     */
+    public static final OptionID SAMPLES_ID = new OptionID("pabod.samples", "Number of sampled pairs of neighbors per object, 0 to use all pairs.");
+
+    /**
+     * Random seed for sampling.
+     */
+    public static final OptionID SEED_ID = new OptionID("pabod.seed", "Random seed for sampling pairs of neighbors.");
+
+    /**
+     * Number of sampled pairs per object.
+     */
+    protected int samples = 0;
+
+    /**
+     * Random generator.
+     */
+    protected RandomFactory rnd;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter samplesP = new IntParameter(SAMPLES_ID, 0) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ZERO_INT);
+      if(config.grab(samplesP)) {
+        samples = samplesP.intValue();
+      }
+      RandomParameter rndP = new RandomParameter(SEED_ID);
+      if(config.grab(rndP)) {
+        rnd = rndP.getValue();
+      }
+    }
+
+    @Override
+    protected ParallelFastABOD<V> makeInstance() {
+      return new ParallelFastABOD<>(kernelFunction, k, samples, rnd);
+    }
+  }
+}
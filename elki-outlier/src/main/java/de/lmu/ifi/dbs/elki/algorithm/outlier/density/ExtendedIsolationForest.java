@@ -0,0 +1,228 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.density;
+
+import java.util.Random;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+/**
+ * Extended Isolation Forest, which splits with random hyperplanes instead of
+ * axis-parallel splits, to avoid artifacts along the axes.
+ * <p>
+ * The extension level controls the number of non-zero coordinates of the
+ * normal vectors: level 0 is equivalent to the original isolation forest, and
+ * the maximum level, dimensionality - 1, uses arbitrary hyperplanes.
+ * <p>
+ * Reference:
+ * <p>
+ * Sahand Hariri, Matias Carrasco Kind, Robert J. Brunner<br>
+ * Extended Isolation Forest<br>
+ * IEEE Transactions on Knowledge and Data Engineering 33(4)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - HyperplaneTree
+ *
+ * @param <V> Vector type
+ */
+@Title("Extended Isolation Forest")
+@Reference(authors = "Sahand Hariri, Matias Carrasco Kind, Robert J. Brunner", //
+    title = "Extended Isolation Forest", //
+    booktitle = "IEEE Transactions on Knowledge and Data Engineering 33(4)", //
+    url = "https://doi.org/10.1109/TKDE.2019.2947676", //
+    bibkey = "DBLP:journals/tkde/HaririKB21")
+public class ExtendedIsolationForest<V extends NumberVector> extends IsolationForest<V> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(ExtendedIsolationForest.class);
+
+  /**
+   * Extension level, negative for the maximum.
+   */
+  protected int extension;
+
+  /**
+   * Constructor.
+   *
+   * @param numTrees Number of trees
+   * @param subsampleSize Sample size for each tree, at least 2
+   * @param extension Extension level, negative for the maximum
+   * @param rnd Random generator
+   */
+  public ExtendedIsolationForest(int numTrees, int subsampleSize, int extension, RandomFactory rnd) {
+    super(numTrees, subsampleSize, rnd);
+    this.extension = extension;
+  }
+
+  @Override
+  protected Tree buildTree(double[][] data, Random random, int maxheight) {
+    final int dim = data[0].length;
+    HyperplaneTree tree = new HyperplaneTree((2 << maxheight) - 1, dim);
+    final int nonzero = extension < 0 ? dim : Math.min(extension + 1, dim);
+    build(tree, data, 0, data.length, 0, maxheight, nonzero, random, new double[dim], new double[dim], new int[dim]);
+    return tree;
+  }
+
+  /**
+   * Build a subtree with random hyperplane splits.
+   *
+   * @param tree Tree to add to
+   * @param data Data
+   * @param start Start of the data range
+   * @param end End of the data range (exclusive)
+   * @param depth Current depth
+   * @param maxheight Maximum height
+   * @param nonzero Number of non-zero coordinates of the normal vectors
+   * @param random Random generator
+   * @param mins Scratch array for the minima
+   * @param maxs Scratch array for the maxima
+   * @param perm Scratch array for choosing coordinates
+   */
+  private static void build(HyperplaneTree tree, double[][] data, int start, int end, int depth, int maxheight, int nonzero, Random random, double[] mins, double[] maxs, int[] perm) {
+    final int node = tree.size++;
+    if(depth >= maxheight || end - start <= 1 || valueRanges(data, start, end, mins, maxs) == 0) {
+      tree.leaf(node, depth + averagePathLength(end - start));
+      return;
+    }
+    // Random normal vector, and random intercept within the bounding box.
+    final int dim = perm.length, off = node * dim;
+    final double[] normal = tree.normals;
+    for(int i = 0; i < dim; i++) {
+      perm[i] = i;
+    }
+    double threshold = 0.;
+    for(int i = 0; i < nonzero; i++) {
+      final int j = i + random.nextInt(dim - i), c = perm[j];
+      perm[j] = perm[i];
+      perm[i] = c;
+      normal[off + c] = random.nextGaussian();
+      threshold += normal[off + c] * (mins[c] + random.nextDouble() * (maxs[c] - mins[c]));
+    }
+    // Unlike axis-parallel splits, one side may remain empty.
+    int mid = start;
+    for(int i = start; i < end; i++) {
+      final double[] row = data[i];
+      double dot = 0.;
+      for(int c = 0; c < dim; c++) {
+        dot += row[c] * normal[off + c];
+      }
+      if(dot <= threshold) {
+        data[i] = data[mid];
+        data[mid++] = row;
+      }
+    }
+    tree.dim[node] = 0;
+    tree.value[node] = threshold;
+    build(tree, data, start, mid, depth + 1, maxheight, nonzero, random, mins, maxs, perm);
+    tree.right[node] = tree.size;
+    build(tree, data, mid, end, depth + 1, maxheight, nonzero, random, mins, maxs, perm);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Isolation tree with hyperplane splits, with the normal vectors stored in
+   * one flat array.
+   *
+   * @author Erich Schubert
+   */
+  protected static class HyperplaneTree extends Tree {
+    /**
+     * Normal vectors of the splits, node-major.
+     */
+    protected double[] normals;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Maximum number of nodes
+     * @param dim Dimensionality
+     */
+    protected HyperplaneTree(int capacity, int dim) {
+      super(capacity);
+      normals = new double[capacity * dim];
+    }
+
+    @Override
+    protected double pathLength(NumberVector vec) {
+      final int dim = vec.getDimensionality();
+      int node = 0;
+      while(this.dim[node] >= 0) {
+        double dot = 0.;
+        for(int c = 0, off = node * dim; c < dim; c++) {
+          dot += vec.doubleValue(c) * normals[off + c];
+        }
+        node = dot <= value[node] ? node + 1 : right[node];
+      }
+      return value[node];
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <V> Vector type
+   */
+  public static class Parameterizer<V extends NumberVector> extends IsolationForest.Parameterizer<V> {
+    /**
+     * Extension level.
+     */
+    public static final OptionID EXTENSION_ID = new OptionID("eif.extension", "Extension level: number of non-zero coordinates of the split normals minus one; -1 for arbitrary hyperplanes.");
+
+    /**
+     * Extension level, negative for the maximum.
+     */
+    protected int extension = -1;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter extensionP = new IntParameter(EXTENSION_ID, -1) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_MINUSONE_INT);
+      if(config.grab(extensionP)) {
+        extension = extensionP.intValue();
+      }
+    }
+
+    @Override
+    protected ExtendedIsolationForest<V> makeInstance() {
+      return new ExtendedIsolationForest<>(numTrees, subsampleSize, extension, rnd);
+    }
+  }
+}
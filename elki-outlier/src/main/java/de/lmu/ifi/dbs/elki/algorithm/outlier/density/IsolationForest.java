@@ -0,0 +1,481 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.density;
+
+import java.util.Random;
+import java.util.concurrent.RecursiveAction;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.outlier.OutlierAlgorithm;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.ProbabilisticOutlierScore;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.RandomParameter;
+import de.lmu.ifi.dbs.elki.utilities.random.RandomFactory;
+
+import net.jafama.FastMath;
+
+/**
+ * Isolation Forest: outliers are isolated by fewer random axis-parallel splits
+ * than inliers.
+ * <p>
+ * Every tree is built on a small random sample of the data, so the run time
+ * is linear in the data size. The trees are built in parallel, and stored in
+ * flat arrays for scoring, which is parallel, too.
+ * <p>
+ * Reference:
+ * <p>
+ * Fei Tony Liu, Kai Ming Ting, Zhi-Hua Zhou<br>
+ * Isolation-Based Anomaly Detection<br>
+ * ACM Transactions on Knowledge Discovery from Data (TKDD) 6(1)
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @has - - - Tree
+ *
+ * @param <V> Vector type
+ */
+@Title("Isolation Forest")
+@Reference(authors = "Fei Tony Liu, Kai Ming Ting, Zhi-Hua Zhou", //
+    title = "Isolation-Based Anomaly Detection", //
+    booktitle = "ACM Transactions on Knowledge Discovery from Data (TKDD) 6(1)", //
+    url = "https://doi.org/10.1145/2133360.2133363", //
+    bibkey = "DBLP:journals/tkdd/LiuTZ12")
+public class IsolationForest<V extends NumberVector> extends AbstractAlgorithm<OutlierResult> implements OutlierAlgorithm {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(IsolationForest.class);
+
+  /**
+   * Euler-Mascheroni constant, for approximating harmonic numbers.
+   */
+  private static final double EULER_MASCHERONI = 0.5772156649015329;
+
+  /**
+   * Number of trees
+   */
+  protected int numTrees;
+
+  /**
+   * Size of the sample for each tree
+   */
+  protected int subsampleSize;
+
+  /**
+   * Random generator
+   */
+  protected RandomFactory rnd;
+
+  /**
+   * Constructor.
+   *
+   * @param numTrees Number of trees
+   * @param subsampleSize Sample size for each tree, at least 2
+   * @param rnd Random generator
+   */
+  public IsolationForest(int numTrees, int subsampleSize, RandomFactory rnd) {
+    super();
+    this.numTrees = numTrees;
+    this.subsampleSize = subsampleSize;
+    this.rnd = rnd;
+  }
+
+  /**
+   * Run the isolation forest algorithm.
+   *
+   * @param relation Data relation
+   * @return Outlier result
+   */
+  public OutlierResult run(Relation<V> relation) {
+    final DBIDs ids = relation.getDBIDs();
+    final int sampleSize = Math.min(subsampleSize, ids.size());
+    final int maxheight = (int) Math.ceil(MathUtil.log2(sampleSize));
+    // Draw the seeds first, so that the results do not depend on the threads.
+    Random random = rnd.getSingleThreadedRandom();
+    long[] seeds = new long[numTrees];
+    for(int i = 0; i < numTrees; i++) {
+      seeds[i] = random.nextLong();
+    }
+    final Tree[] trees = new Tree[numTrees];
+    ParallelCore.getCore().invoke(new BuildTask(relation, seeds, trees, 0, numTrees, sampleSize, maxheight));
+
+    // Score: 2^(-mean path length / c(sample size))
+    // With a single object, c(1) = 0: use the neutral score 0.5 instead of NaN.
+    final double c = averagePathLength(sampleSize);
+    final double norm = c > 0 ? -1. / (numTrees * c) : 0.;
+    WritableDoubleDataStore scores = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_DB | DataStoreFactory.HINT_HOT);
+    DoubleMinMax minmax = ParallelUtil.map(ids, id -> {
+      final V vec = relation.get(id);
+      double sum = 0.;
+      for(Tree tree : trees) {
+        sum += tree.pathLength(vec);
+      }
+      return c > 0 ? FastMath.pow(2., sum * norm) : .5;
+    }, scores);
+
+    DoubleRelation scoreres = new MaterializedDoubleRelation("Isolation Forest", "isolation-forest-outlier", scores, ids);
+    OutlierScoreMeta meta = new ProbabilisticOutlierScore(minmax.getMin(), minmax.getMax(), 0.5);
+    return new OutlierResult(meta, scoreres);
+  }
+
+  /**
+   * Build a single tree.
+   *
+   * @param data Sample data, will be reordered
+   * @param random Random generator
+   * @param maxheight Maximum height
+   * @return Tree
+   */
+  protected Tree buildTree(double[][] data, Random random, int maxheight) {
+    final int dim = data[0].length;
+    Tree tree = new Tree((2 << maxheight) - 1);
+    build(tree, data, 0, data.length, 0, maxheight, random, new double[dim], new double[dim]);
+    return tree;
+  }
+
+  /**
+   * Build a subtree with random axis-parallel splits.
+   *
+   * @param tree Tree to add to
+   * @param data Data
+   * @param start Start of the data range
+   * @param end End of the data range (exclusive)
+   * @param depth Current depth
+   * @param maxheight Maximum height
+   * @param random Random generator
+   * @param mins Scratch array for the minima
+   * @param maxs Scratch array for the maxima
+   */
+  private static void build(Tree tree, double[][] data, int start, int end, int depth, int maxheight, Random random, double[] mins, double[] maxs) {
+    final int node = tree.size++;
+    if(depth >= maxheight || end - start <= 1) {
+      tree.leaf(node, depth + averagePathLength(end - start));
+      return;
+    }
+    // Choose a random dimension that is not constant:
+    final int nc = valueRanges(data, start, end, mins, maxs);
+    if(nc == 0) {
+      tree.leaf(node, depth + averagePathLength(end - start));
+      return;
+    }
+    int d = -1;
+    for(int r = random.nextInt(nc); r >= 0;) {
+      if(mins[++d] < maxs[d]) {
+        --r;
+      }
+    }
+    // min <= split < max, so both sides are not empty.
+    final double split = mins[d] + random.nextDouble() * (maxs[d] - mins[d]);
+    int mid = start;
+    for(int i = start; i < end; i++) {
+      if(data[i][d] <= split) {
+        double[] tmp = data[mid];
+        data[mid++] = data[i];
+        data[i] = tmp;
+      }
+    }
+    tree.dim[node] = d;
+    tree.value[node] = split;
+    build(tree, data, start, mid, depth + 1, maxheight, random, mins, maxs);
+    tree.right[node] = tree.size;
+    build(tree, data, mid, end, depth + 1, maxheight, random, mins, maxs);
+  }
+
+  /**
+   * Compute the value range of each dimension.
+   *
+   * @param data Data
+   * @param start Start of the data range
+   * @param end End of the data range (exclusive)
+   * @param mins Output minima
+   * @param maxs Output maxima
+   * @return Number of dimensions that are not constant
+   */
+  protected static int valueRanges(double[][] data, int start, int end, double[] mins, double[] maxs) {
+    System.arraycopy(data[start], 0, mins, 0, mins.length);
+    System.arraycopy(data[start], 0, maxs, 0, maxs.length);
+    for(int i = start + 1; i < end; i++) {
+      final double[] row = data[i];
+      for(int d = 0; d < row.length; d++) {
+        final double v = row[d];
+        mins[d] = v < mins[d] ? v : mins[d];
+        maxs[d] = v > maxs[d] ? v : maxs[d];
+      }
+    }
+    int nc = 0;
+    for(int d = 0; d < mins.length; d++) {
+      nc += mins[d] < maxs[d] ? 1 : 0;
+    }
+    return nc;
+  }
+
+  /**
+   * Average path length of an unsuccessful search in a binary search tree,
+   * c(n) in the paper, to estimate the remaining depth of a leaf.
+   *
+   * @param n Number of objects
+   * @return Average path length
+   */
+  protected static double averagePathLength(int n) {
+    return n > 2 ? 2. * (FastMath.log(n - 1.) + EULER_MASCHERONI) - 2. * (n - 1.) / n : n == 2 ? 1. : 0.;
+  }
+
+  @Override
+  public TypeInformation[] getInputTypeRestriction() {
+    return TypeUtil.array(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Fork-join task to build a range of trees.
+   *
+   * @author Erich Schubert
+   */
+  private class BuildTask extends RecursiveAction {
+    /**
+     * Serialization version
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Data relation
+     */
+    private Relation<V> relation;
+
+    /**
+     * Random seeds of the trees
+     */
+    private long[] seeds;
+
+    /**
+     * Output array of trees
+     */
+    private Tree[] trees;
+
+    /**
+     * Range of trees to build
+     */
+    private int start, end;
+
+    /**
+     * Sample size and maximum height
+     */
+    private int sampleSize, maxheight;
+
+    /**
+     * Constructor.
+     *
+     * @param relation Data relation
+     * @param seeds Random seeds
+     * @param trees Output array of trees
+     * @param start First tree
+     * @param end End of the range (exclusive)
+     * @param sampleSize Sample size
+     * @param maxheight Maximum height
+     */
+    BuildTask(Relation<V> relation, long[] seeds, Tree[] trees, int start, int end, int sampleSize, int maxheight) {
+      this.relation = relation;
+      this.seeds = seeds;
+      this.trees = trees;
+      this.start = start;
+      this.end = end;
+      this.sampleSize = sampleSize;
+      this.maxheight = maxheight;
+    }
+
+    @Override
+    protected void compute() {
+      if(end - start > 1) {
+        final int mid = (start + end) >>> 1;
+        invokeAll(new BuildTask(relation, seeds, trees, start, mid, sampleSize, maxheight), //
+            new BuildTask(relation, seeds, trees, mid, end, sampleSize, maxheight));
+        return;
+      }
+      Random random = new Random(seeds[start]);
+      DBIDs sample = DBIDUtil.randomSample(relation.getDBIDs(), sampleSize, random);
+      double[][] data = new double[sample.size()][];
+      int i = 0;
+      for(DBIDIter iter = sample.iter(); iter.valid(); iter.advance()) {
+        data[i++] = relation.get(iter).toArray();
+      }
+      trees[start] = buildTree(data, random, maxheight);
+    }
+  }
+
+  /**
+   * Isolation tree, stored in flat arrays in preorder: the left child of a
+   * node directly follows it.
+   *
+   * @author Erich Schubert
+   */
+  protected static class Tree {
+    /**
+     * Split dimension, or -1 for leaves.
+     */
+    protected int[] dim;
+
+    /**
+     * Split value, or the estimated path length for leaves.
+     */
+    protected double[] value;
+
+    /**
+     * Index of the right child.
+     */
+    protected int[] right;
+
+    /**
+     * Number of nodes used.
+     */
+    protected int size;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Maximum number of nodes
+     */
+    protected Tree(int capacity) {
+      dim = new int[capacity];
+      value = new double[capacity];
+      right = new int[capacity];
+    }
+
+    /**
+     * Make a node a leaf.
+     *
+     * @param node Node
+     * @param pathLength Estimated path length
+     */
+    protected void leaf(int node, double pathLength) {
+      dim[node] = -1;
+      value[node] = pathLength;
+    }
+
+    /**
+     * Get the path length of a vector.
+     *
+     * @param vec Vector
+     * @return Path length, including the estimated remainder at the leaf
+     */
+    protected double pathLength(NumberVector vec) {
+      int node = 0, d;
+      while((d = dim[node]) >= 0) {
+        node = vec.doubleValue(d) <= value[node] ? node + 1 : right[node];
+      }
+      return value[node];
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <V> Vector type
+   */
+  public static class Parameterizer<V extends NumberVector> extends AbstractParameterizer {
+    /**
+     * Number of trees.
+     */
+    public static final OptionID NUM_TREES_ID = new OptionID("iforest.numtrees", "Number of trees to use.");
+
+    /**
+     * Sample size of each tree.
+     */
+    public static final OptionID SUBSAMPLE_SIZE_ID = new OptionID("iforest.subsample", "Subsampling size of each tree.");
+
+    /**
+     * Random generator seed.
+     */
+    public static final OptionID SEED_ID = new OptionID("iforest.seed", "Random generator seed.");
+
+    /**
+     * Number of trees
+     */
+    protected int numTrees = 100;
+
+    /**
+     * Size of the sample for each tree
+     */
+    protected int subsampleSize = 256;
+
+    /**
+     * Random generator
+     */
+    protected RandomFactory rnd;
+
+    @Override
+    protected void makeOptions(Parameterization config) {
+      super.makeOptions(config);
+      IntParameter numTreesP = new IntParameter(NUM_TREES_ID, 100) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT);
+      if(config.grab(numTreesP)) {
+        numTrees = numTreesP.intValue();
+      }
+      IntParameter subsampleSizeP = new IntParameter(SUBSAMPLE_SIZE_ID, 256) //
+          .addConstraint(CommonConstraints.GREATER_THAN_ONE_INT);
+      if(config.grab(subsampleSizeP)) {
+        subsampleSize = subsampleSizeP.intValue();
+      }
+      RandomParameter rndP = new RandomParameter(SEED_ID);
+      if(config.grab(rndP)) {
+        rnd = rndP.getValue();
+      }
+    }
+
+    @Override
+    protected IsolationForest<V> makeInstance() {
+      return new IsolationForest<>(numTrees, subsampleSize, rnd);
+    }
+  }
+}
@@ -83,7 +83,7 @@ public class ODIN<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
   /**
    * Number of neighbors for kNN graph.
    */
-  int k;
+  protected int k;
 
   /**
    * Constructor.
@@ -172,7 +172,7 @@ public class ODIN<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
     /**
      * Number of nearest neighbors to use.
      */
-    int k;
+    protected int k;
 
     @Override
     protected void makeOptions(Parameterization config) {
@@ -317,7 +317,7 @@ public class SOS<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> imp
     /**
      * Perplexity.
      */
-    double perplexity = 4.5;
+    protected double perplexity = 4.5;
 
     @Override
     protected void makeOptions(Parameterization config) {
@@ -0,0 +1,123 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.distance.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.distance.ODIN;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.InvertedOutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+
+/**
+ * Parallel implementation of ODIN (Outlier Detection using Indegree Number).
+ * <p>
+ * The nearest neighbor queries are run in parallel; counting the in-degrees is
+ * a sequential pass over the materialized neighbors, linear in the number of
+ * neighbors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public class ParallelODIN<O> extends ODIN<O> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelODIN.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param k k parameter
+   */
+  public ParallelODIN(DistanceFunction<? super O> distanceFunction, int k) {
+    super(distanceFunction, k);
+  }
+
+  @Override
+  public OutlierResult run(Database database, Relation<O> relation) {
+    DBIDs ids = relation.getDBIDs();
+    // Phase one: kNN
+    DataStore<KNNList> knns = ParallelUtil.materializeKNN(ids, database.getKNNQuery(database.getDistanceQuery(relation, getDistanceFunction()), k), k);
+
+    // Phase two: in-degrees
+    WritableDoubleDataStore scores = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_DB, 0.);
+    double inc = 1. / (k - 1);
+    double min = Double.POSITIVE_INFINITY, max = 0.0;
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      // For each neighbor, except ourselves, increase the in-degree:
+      for(DBIDIter nei = knns.get(iter).iter(); nei.valid(); nei.advance()) {
+        if(DBIDUtil.equal(iter, nei)) {
+          continue;
+        }
+        final double value = scores.doubleValue(nei) + inc;
+        if(value < min) {
+          min = value;
+        }
+        if(value > max) {
+          max = value;
+        }
+        scores.put(nei, value);
+      }
+    }
+
+    OutlierScoreMeta meta = new InvertedOutlierScoreMeta(min, max, 0., inc * (ids.size() - 1), 1);
+    DoubleRelation rel = new MaterializedDoubleRelation("ODIN In-Degree", "odin", scores, ids);
+    return new OutlierResult(meta, rel);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends ODIN.Parameterizer<O> {
+    @Override
+    protected ParallelODIN<O> makeInstance() {
+      return new ParallelODIN<>(distanceFunction, k);
+    }
+  }
+}
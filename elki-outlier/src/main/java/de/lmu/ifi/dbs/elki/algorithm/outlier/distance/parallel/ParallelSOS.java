@@ -0,0 +1,186 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.distance.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.distance.SOS;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListMIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.ProbabilisticOutlierScore;
+
+import net.jafama.FastMath;
+
+/**
+ * Parallel implementation of Stochastic Outlier Selection.
+ * <p>
+ * The sequential version lets every object vote for its neighbors, which
+ * cannot be parallelized without locking. Instead, the kernel bandwidths of all
+ * objects are first computed in parallel, then every object collects the votes
+ * of all other objects. The votes are multiplied in the same order as in the
+ * sequential version, so the results are identical; but the distances are
+ * computed twice.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public class ParallelSOS<O> extends SOS<O> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelSOS.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distance Distance function
+   * @param h Perplexity
+   */
+  public ParallelSOS(DistanceFunction<? super O> distance, double h) {
+    super(distance, h);
+  }
+
+  @Override
+  public OutlierResult run(Relation<O> relation) {
+    DistanceQuery<O> dq = relation.getDistanceQuery(getDistanceFunction());
+    final DBIDs ids = relation.getDBIDs();
+    final double logPerp = FastMath.log(perplexity);
+
+    // Phase one: bandwidth and normalization of each object.
+    DataStore<double[]> params = ParallelUtil.mapObjects(ids, () -> {
+      ModifiableDoubleDBIDList dlist = DBIDUtil.newDistanceDBIDList(ids.size() - 1);
+      DoubleDBIDListMIter di = dlist.iter();
+      double[] p = new double[ids.size() - 1];
+      return it -> {
+        // Build sorted neighbors list.
+        dlist.clear();
+        for(DBIDIter i2 = ids.iter(); i2.valid(); i2.advance()) {
+          if(DBIDUtil.equal(it, i2)) {
+            continue;
+          }
+          dlist.add(dq.distance(it, i2), i2);
+        }
+        dlist.sort();
+        // Compute affinities
+        final double mbeta = -computePi(it, di, p, perplexity, logPerp);
+        // Normalization factor:
+        final double s = sumOfProbabilities(di, p);
+        // Scaling factor of the affinities:
+        double sumP = 0.;
+        for(di.seek(0); di.valid(); di.advance()) {
+          sumP += FastMath.exp(di.doubleValue() * mbeta);
+        }
+        return new double[] { mbeta, 1. / sumP, s > 0 ? 1. / s : 0. };
+      };
+    }, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, double[].class);
+
+    // Phase two: collect the votes.
+    WritableDoubleDataStore scores = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
+    DoubleMinMax minmax = ParallelUtil.map(ids, id -> collectVotes(dq, id, ids, params), scores);
+
+    DoubleRelation scoreres = new MaterializedDoubleRelation("Stoachastic Outlier Selection", "sos-outlier", scores, ids);
+    OutlierScoreMeta meta = new ProbabilisticOutlierScore(minmax.getMin(), minmax.getMax(), 0.);
+    return new OutlierResult(meta, scoreres);
+  }
+
+  /**
+   * Sum of probabilities, stop at first 0. The query object is not in the
+   * list.
+   *
+   * @param di Object list
+   * @param p Probabilities
+   * @return Sum
+   */
+  private static double sumOfProbabilities(DoubleDBIDListMIter di, double[] p) {
+    double s = 0;
+    for(di.seek(0); di.valid(); di.advance()) {
+      final double v = p[di.getOffset()];
+      if(!(v > 0)) {
+        break;
+      }
+      s += v;
+    }
+    return s;
+  }
+
+  /**
+   * Collect the votes of all other objects for one object.
+   *
+   * @param dq Distance query
+   * @param id Object
+   * @param ids All objects
+   * @param params Bandwidth parameters
+   * @return Score
+   */
+  private static double collectVotes(DistanceQuery<?> dq, DBIDRef id, DBIDs ids, DataStore<double[]> params) {
+    double score = 1.;
+    for(DBIDIter it = ids.iter(); it.valid(); it.advance()) {
+      if(DBIDUtil.equal(it, id)) {
+        continue;
+      }
+      final double[] par = params.get(it);
+      final double v = FastMath.exp(dq.distance(it, id) * par[0]) * par[1] * par[2];
+      if(v > 0) {
+        score *= 1 - v;
+      }
+    }
+    return score;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends SOS.Parameterizer<O> {
+    @Override
+    protected ParallelSOS<O> makeInstance() {
+      return new ParallelSOS<>(distanceFunction, perplexity);
+    }
+  }
+}
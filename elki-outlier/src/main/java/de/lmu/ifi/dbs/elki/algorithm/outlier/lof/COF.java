@@ -147,45 +147,7 @@ public class COF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> imp
     // Compute the chaining distances.
     // We do <i>not</i> bother to materialize the chaining order.
     for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      final KNNList neighbors = knnq.getKNNForDBID(iter, k);
-      final int r = neighbors.size();
-      DoubleDBIDListIter it1 = neighbors.iter(), it2 = neighbors.iter();
-      // Store the current lowest reachability.
-      final double[] mindists = new double[r];
-      for(int i = 0; it1.valid(); it1.advance(), ++i) {
-        mindists[i] = DBIDUtil.equal(it1, iter) ? Double.NaN : it1.doubleValue();
-      }
-
-      double acsum = 0.;
-      for(int j = ((r < k) ? r : k) - 1; j > 0; --j) {
-        // Find the minimum:
-        int minpos = -1;
-        double mindist = Double.NaN;
-        for(int i = 0; i < mindists.length; ++i) {
-          double curdist = mindists[i];
-          // Both values could be NaN, deliberately.
-          if(curdist == curdist && !(curdist > mindist)) {
-            minpos = i;
-            mindist = curdist;
-          }
-        }
-        acsum += mindist * j; // Weighted sum, decreasing weights
-        mindists[minpos] = Double.NaN;
-        it1.seek(minpos);
-        // Update distances
-        it2.seek(0);
-        for(int i = 0; it2.valid(); it2.advance(), ++i) {
-          final double curdist = mindists[i];
-          if(curdist != curdist) {
-            continue; // NaN = processed!
-          }
-          double newdist = dq.distance(it1, it2);
-          if(newdist < curdist) {
-            mindists[i] = newdist;
-          }
-        }
-      }
-      acds.putDouble(iter, acsum / (r * 0.5 * (r - 1.)));
+      acds.putDouble(iter, computeAverageChainingDistance(dq, iter, knnq.getKNNForDBID(iter, k)));
       LOG.incrementProcessed(lrdsProgress);
     }
     LOG.ensureCompleted(lrdsProgress);
@@ -203,17 +165,7 @@ public class COF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> imp
   private void computeCOFScores(KNNQuery<O> knnq, DBIDs ids, DoubleDataStore acds, WritableDoubleDataStore cofs, DoubleMinMax cofminmax) {
     FiniteProgress progressCOFs = LOG.isVerbose() ? new FiniteProgress("COF for objects", ids.size(), LOG) : null;
     for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
-      final KNNList neighbors = knnq.getKNNForDBID(iter, k);
-      // Aggregate the average chaining distances of all neighbors:
-      double sum = 0.;
-      for(DBIDIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance()) {
-        // skip the point itself
-        if(DBIDUtil.equal(neighbor, iter)) {
-          continue;
-        }
-        sum += acds.doubleValue(neighbor);
-      }
-      final double cof = (sum > 0.) ? (acds.doubleValue(iter) * k / sum) : (acds.doubleValue(iter) > 0. ? Double.POSITIVE_INFINITY : 1.);
+      final double cof = computeCOF(iter, knnq.getKNNForDBID(iter, k), acds);
       cofs.putDouble(iter, cof);
       // update minimum and maximum
       cofminmax.put(cof);
@@ -223,6 +175,76 @@ public class COF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> imp
     LOG.ensureCompleted(progressCOFs);
   }
 
+  /**
+   * Compute the average chaining distance of a single object.
+   *
+   * @param dq Distance query
+   * @param iter Object
+   * @param neighbors Neighbors, including the query point
+   * @return Average chaining distance
+   */
+  protected double computeAverageChainingDistance(DistanceQuery<O> dq, DBIDRef iter, KNNList neighbors) {
+    final int r = neighbors.size();
+    DoubleDBIDListIter it1 = neighbors.iter(), it2 = neighbors.iter();
+    // Store the current lowest reachability.
+    final double[] mindists = new double[r];
+    for(int i = 0; it1.valid(); it1.advance(), ++i) {
+      mindists[i] = DBIDUtil.equal(it1, iter) ? Double.NaN : it1.doubleValue();
+    }
+
+    double acsum = 0.;
+    for(int j = ((r < k) ? r : k) - 1; j > 0; --j) {
+      // Find the minimum:
+      int minpos = -1;
+      double mindist = Double.NaN;
+      for(int i = 0; i < mindists.length; ++i) {
+        double curdist = mindists[i];
+        // Both values could be NaN, deliberately.
+        if(curdist == curdist && !(curdist > mindist)) {
+          minpos = i;
+          mindist = curdist;
+        }
+      }
+      acsum += mindist * j; // Weighted sum, decreasing weights
+      mindists[minpos] = Double.NaN;
+      it1.seek(minpos);
+      // Update distances
+      it2.seek(0);
+      for(int i = 0; it2.valid(); it2.advance(), ++i) {
+        final double curdist = mindists[i];
+        if(curdist != curdist) {
+          continue; // NaN = processed!
+        }
+        double newdist = dq.distance(it1, it2);
+        if(newdist < curdist) {
+          mindists[i] = newdist;
+        }
+      }
+    }
+    return acsum / (r * 0.5 * (r - 1.));
+  }
+
+  /**
+   * Compute the connectivity outlier factor of a single object.
+   *
+   * @param iter Object
+   * @param neighbors Neighbors, including the query point
+   * @param acds Average chaining distances
+   * @return COF score
+   */
+  protected double computeCOF(DBIDRef iter, KNNList neighbors, DoubleDataStore acds) {
+    // Aggregate the average chaining distances of all neighbors:
+    double sum = 0.;
+    for(DBIDIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance()) {
+      // skip the point itself
+      if(DBIDUtil.equal(neighbor, iter)) {
+        continue;
+      }
+      sum += acds.doubleValue(neighbor);
+    }
+    return (sum > 0.) ? (acds.doubleValue(iter) * k / sum) : (acds.doubleValue(iter) > 0. ? Double.POSITIVE_INFINITY : 1.);
+  }
+
   @Override
   public TypeInformation[] getInputTypeRestriction() {
     return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
@@ -99,12 +99,12 @@ public class INFLO<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
   /**
    * Pruning threshold m.
    */
-  private double m;
+  protected double m;
 
   /**
    * Number of neighbors to use.
    */
-  private int kplus1;
+  protected int kplus1;
 
   /**
    * Constructor with parameters.
@@ -182,7 +182,7 @@ public class INFLO<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
    * @param pruned Pruned objects: with too many neighbors
    * @param rNNminuskNNs reverse kNN storage
    */
-  private void computeNeighborhoods(Relation<O> relation, DataStore<SetDBIDs> knns, ModifiableDBIDs pruned, WritableDataStore<ModifiableDBIDs> rNNminuskNNs) {
+  protected void computeNeighborhoods(Relation<O> relation, DataStore<SetDBIDs> knns, ModifiableDBIDs pruned, WritableDataStore<ModifiableDBIDs> rNNminuskNNs) {
     FiniteProgress prog = LOG.isVerbose() ? new FiniteProgress("Finding RkNN", relation.size(), LOG) : null;
     for(DBIDIter iter = relation.iterDBIDs(); iter.valid(); iter.advance()) {
       DBIDs knn = knns.get(iter);
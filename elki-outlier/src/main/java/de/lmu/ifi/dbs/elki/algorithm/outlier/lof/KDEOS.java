@@ -28,6 +28,7 @@ import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
 import de.lmu.ifi.dbs.elki.database.DatabaseUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
@@ -111,32 +112,32 @@ public class KDEOS<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
   /**
    * Kernel function to use for density estimation.
    */
-  KernelDensityFunction kernel;
+  protected KernelDensityFunction kernel;
 
   /**
    * Minimum and maximum number of neighbors to use.
    */
-  int kmin, kmax;
+  protected int kmin, kmax;
 
   /**
    * Kernel scaling parameter.
    */
-  double scale;
+  protected double scale;
 
   /**
    * Kernel minimum bandwidth.
    */
-  double minBandwidth = 1e-6;
+  protected double minBandwidth = 1e-6;
 
   /**
    * Intrinsic dimensionality.
    */
-  int idim = -1;
+  protected int idim = -1;
 
   /**
    * Significance cutoff when computing kernel density.
    */
-  final static double CUTOFF = 1e-20;
+  protected static final double CUTOFF = 1e-20;
 
   /**
    * Constructor.
@@ -242,7 +243,7 @@ public class KDEOS<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
    * @param rel Data relation
    * @return Dimensionality
    */
-  private int dimensionality(Relation<O> rel) {
+  protected int dimensionality(Relation<O> rel) {
     // Explicit:
     if(idim >= 0) {
       return idim;
@@ -280,30 +281,7 @@ public class KDEOS<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
         // Resize scratch. Add some extra margin again.
         scratch = new double[knum][neighbors.size() + 5];
       }
-      { // Store density matrix of neighbors
-        int i = 0;
-        for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance(), i++) {
-          double[] ndens = densities.get(neighbor);
-          for(int k = 0; k < knum; k++) {
-            scratch[k][i] = ndens[k];
-          }
-        }
-        assert (i == neighbors.size());
-      }
-      // Compute means and stddevs for each k
-      double score = 0.;
-      for(int i = 0; i < knum; i++) {
-        mv.reset();
-        for(int j = 0; j < neighbors.size(); j++) {
-          mv.put(scratch[i][j]);
-        }
-        final double mean = mv.getMean(), stddev = mv.getSampleStddev();
-        if(stddev > 0.) {
-          score += (mean - dens[i]) / stddev;
-        }
-      }
-      score /= knum; // average
-      score = NormalDistribution.standardNormalCDF(score);
+      double score = computeOutlierScore(dens, neighbors, densities, scratch, mv);
       minmax.put(score);
       kdeos.put(iter, score);
       LOG.incrementProcessed(prog);
@@ -311,6 +289,44 @@ public class KDEOS<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
     LOG.ensureCompleted(prog);
   }
 
+  /**
+   * Compute the KDEOS score of a single object.
+   *
+   * @param dens Densities of the object
+   * @param neighbors Neighbors of the object
+   * @param densities Densities of all objects
+   * @param scratch Scratch storage, for at least as many neighbors
+   * @param mv Scratch variance aggregator
+   * @return KDEOS score
+   */
+  protected double computeOutlierScore(double[] dens, KNNList neighbors, DataStore<double[]> densities, double[][] scratch, MeanVariance mv) {
+    final int knum = kmax + 1 - kmin;
+    { // Store density matrix of neighbors
+      int i = 0;
+      for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance(), i++) {
+        double[] ndens = densities.get(neighbor);
+        for(int k = 0; k < knum; k++) {
+          scratch[k][i] = ndens[k];
+        }
+      }
+      assert (i == neighbors.size());
+    }
+    // Compute means and stddevs for each k
+    double score = 0.;
+    for(int i = 0; i < knum; i++) {
+      mv.reset();
+      for(int j = 0; j < neighbors.size(); j++) {
+        mv.put(scratch[i][j]);
+      }
+      final double mean = mv.getMean(), stddev = mv.getSampleStddev();
+      if(stddev > 0.) {
+        score += (mean - dens[i]) / stddev;
+      }
+    }
+    score /= knum; // average
+    return NormalDistribution.standardNormalCDF(score);
+  }
+
   @Override
   public TypeInformation[] getInputTypeRestriction() {
     TypeInformation res = getDistanceFunction().getInputTypeRestriction();
@@ -368,32 +384,32 @@ public class KDEOS<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> i
     /**
      * Kernel function to use for density estimation.
      */
-    KernelDensityFunction kernel;
+    protected KernelDensityFunction kernel;
 
     /**
      * Minimum and maximum number of neighbors to use.
      */
-    int kmin;
+    protected int kmin;
 
     /**
      * Minimum and maximum number of neighbors to use.
      */
-    int kmax;
+    protected int kmax;
 
     /**
      * Kernel scaling parameter.
      */
-    double scale;
+    protected double scale;
 
     /**
      * Kernel minimum bandwidth.
      */
-    double minBandwidth = 0.;
+    protected double minBandwidth = 0.;
 
     /**
      * Intrinsic dimensionality.
      */
-    int idim = -1;
+    protected int idim = -1;
 
     @Override
     protected void makeOptions(Parameterization config) {
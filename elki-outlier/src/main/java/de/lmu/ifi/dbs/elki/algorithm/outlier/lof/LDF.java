@@ -109,7 +109,7 @@ public class LDF<O extends NumberVector> extends AbstractDistanceBasedAlgorithm<
   /**
    * Kernel density function
    */
-  private KernelDensityFunction kernel;
+  protected KernelDensityFunction kernel;
 
   /**
    * Constructor.
@@ -259,7 +259,7 @@ public class LDF<O extends NumberVector> extends AbstractDistanceBasedAlgorithm<
     /**
      * Kernel density function parameter
      */
-    KernelDensityFunction kernel;
+    protected KernelDensityFunction kernel;
 
     /**
      * Bandwidth scaling factor.
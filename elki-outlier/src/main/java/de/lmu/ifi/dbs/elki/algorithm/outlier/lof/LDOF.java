@@ -29,6 +29,7 @@ import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
@@ -91,7 +92,7 @@ public class LDOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
    * The baseline for LDOF values. The paper gives 0.5 for uniform
    * distributions, although one might also discuss using 1.0 as baseline.
    */
-  private static final double LDOF_BASELINE = 0.5;
+  protected static final double LDOF_BASELINE = 0.5;
 
   /**
    * Number of neighbors to query.
@@ -133,29 +134,7 @@ public class LDOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
 
     Mean dxp = new Mean(), Dxp = new Mean();
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      KNNList neighbors = knnQuery.getKNNForDBID(iditer, k);
-      dxp.reset();
-      Dxp.reset();
-      DoubleDBIDListIter neighbor1 = neighbors.iter(),
-          neighbor2 = neighbors.iter();
-      for(; neighbor1.valid(); neighbor1.advance()) {
-        // skip the point itself
-        if(DBIDUtil.equal(neighbor1, iditer)) {
-          continue;
-        }
-        dxp.put(neighbor1.doubleValue());
-        for(neighbor2.seek(neighbor1.getOffset() + 1); neighbor2.valid(); neighbor2.advance()) {
-          // skip the point itself
-          if(DBIDUtil.equal(neighbor2, iditer)) {
-            continue;
-          }
-          Dxp.put(distFunc.distance(neighbor1, neighbor2));
-        }
-      }
-      double ldof = dxp.getMean() / Dxp.getMean();
-      if(Double.isNaN(ldof) || Double.isInfinite(ldof)) {
-        ldof = 1.0;
-      }
+      double ldof = computeLDOF(distFunc, iditer, knnQuery.getKNNForDBID(iditer, k), dxp, Dxp);
       ldofs.putDouble(iditer, ldof);
       // update maximum
       ldofminmax.put(ldof);
@@ -170,6 +149,39 @@ public class LDOF<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
     return new OutlierResult(scoreMeta, scoreResult);
   }
 
+  /**
+   * Compute the LDOF score of a single object.
+   *
+   * @param distFunc Distance query
+   * @param id Object
+   * @param neighbors Neighbors, including the query point
+   * @param dxp Scratch mean for the kNN distances
+   * @param Dxp Scratch mean for the inner distances
+   * @return LDOF score
+   */
+  protected double computeLDOF(DistanceQuery<O> distFunc, DBIDRef id, KNNList neighbors, Mean dxp, Mean Dxp) {
+    dxp.reset();
+    Dxp.reset();
+    DoubleDBIDListIter neighbor1 = neighbors.iter(),
+        neighbor2 = neighbors.iter();
+    for(; neighbor1.valid(); neighbor1.advance()) {
+      // skip the point itself
+      if(DBIDUtil.equal(neighbor1, id)) {
+        continue;
+      }
+      dxp.put(neighbor1.doubleValue());
+      for(neighbor2.seek(neighbor1.getOffset() + 1); neighbor2.valid(); neighbor2.advance()) {
+        // skip the point itself
+        if(DBIDUtil.equal(neighbor2, id)) {
+          continue;
+        }
+        Dxp.put(distFunc.distance(neighbor1, neighbor2));
+      }
+    }
+    double ldof = dxp.getMean() / Dxp.getMean();
+    return Double.isNaN(ldof) || Double.isInfinite(ldof) ? 1.0 : ldof;
+  }
+
   @Override
   public TypeInformation[] getInputTypeRestriction() {
     return TypeUtil.array(getDistanceFunction().getInputTypeRestriction());
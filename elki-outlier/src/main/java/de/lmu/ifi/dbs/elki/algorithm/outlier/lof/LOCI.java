@@ -27,14 +27,19 @@ import de.lmu.ifi.dbs.elki.algorithm.outlier.OutlierAlgorithm;
 import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
@@ -44,12 +49,12 @@ import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.logging.progress.FiniteProgress;
 import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
-import de.lmu.ifi.dbs.elki.math.MeanVariance;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
 import de.lmu.ifi.dbs.elki.result.outlier.QuotientOutlierScoreMeta;
 import de.lmu.ifi.dbs.elki.utilities.Alias;
 import de.lmu.ifi.dbs.elki.utilities.datastructures.arrays.DoubleIntegerArrayQuickSort;
+import de.lmu.ifi.dbs.elki.utilities.datastructures.heap.DoubleIntegerMinHeap;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Description;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
 import de.lmu.ifi.dbs.elki.utilities.documentation.Title;
@@ -65,7 +70,14 @@ import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
  * <p>
  * Outlier detection using multiple epsilon neighborhoods.
  * <p>
- * This implementation has O(n<sup>3</sup> log n) runtime complexity!
+ * The first pass stores, for every object, the critical distances up to
+ * alpha * rmax, which is the largest radius at which neighbor counts are
+ * looked up. The second pass retrieves the neighbors within rmax once per
+ * object, sorted by distance, and sweeps over the critical radii in ascending
+ * order, updating the neighbor count statistics incrementally. Only the
+ * neighbors of the current object are held in memory. The worst case
+ * runtime remains quadratic in the neighborhood sizes, but the neighborhood
+ * is no longer rescanned for every radius.
  * <p>
  * Reference:
  * <p>
@@ -97,17 +109,17 @@ public class LOCI<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
   /**
    * Maximum radius.
    */
-  private double rmax;
+  protected double rmax;
 
   /**
    * Minimum neighborhood size.
    */
-  private int nmin = 0;
+  protected int nmin = 0;
 
   /**
    * Scaling of averaging neighborhood.
    */
-  private double alpha = 0.5;
+  protected double alpha = 0.5;
 
   /**
    * Constructor.
@@ -146,74 +158,140 @@ public class LOCI<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
     DoubleMinMax minmax = new DoubleMinMax();
 
     // Shared instance, to save allocations.
-    MeanVariance mv_n_r_alpha = new MeanVariance();
+    MDEFBuffer buffer = new MDEFBuffer();
 
     for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
-      final DoubleIntArrayList cdist = interestingDistances.get(iditer);
-      final double maxdist = cdist.getDouble(cdist.size() - 1);
-      final int maxneig = cdist.getInt(cdist.size() - 1);
-
-      double maxmdefnorm = 0.0;
-      double maxnormr = 0;
-      if(maxneig >= nmin) {
-        // Compute the largest neighborhood we will need.
-        DoubleDBIDList maxneighbors = rangeQuery.getRangeForDBID(iditer, maxdist);
-        // TODO: Ensure the result is sorted. This is currently implied.
-
-        // For any critical distance, compute the normalized MDEF score.
-        for(int i = 0, size = cdist.size(); i < size; i++) {
-          // Only start when minimum size is fulfilled
-          if(cdist.getInt(i) < nmin) {
-            continue;
-          }
-          final double r = cdist.getDouble(i);
-          final double alpha_r = alpha * r;
-          // compute n(p_i, \alpha * r) from list (note: alpha_r is not cdist!)
-          final int n_alphar = cdist.getInt(cdist.find(alpha_r));
-          // compute \hat{n}(p_i, r, \alpha) and the corresponding \simga_{MDEF}
-          mv_n_r_alpha.reset();
-          for(DoubleDBIDListIter neighbor = maxneighbors.iter(); neighbor.valid(); neighbor.advance()) {
-            // Stop at radius r
-            if(neighbor.doubleValue() > r) {
-              break;
-            }
-            DoubleIntArrayList cdist2 = interestingDistances.get(neighbor);
-            int rn_alphar = cdist2.getInt(cdist2.find(alpha_r));
-            mv_n_r_alpha.put(rn_alphar);
-          }
-          // We only use the average and standard deviation
-          final double nhat_r_alpha = mv_n_r_alpha.getMean();
-          final double sigma_nhat_r_alpha = mv_n_r_alpha.getNaiveStddev();
-
-          // Redundant divisions by nhat_r_alpha removed.
-          final double mdef = nhat_r_alpha - n_alphar;
-          final double sigmamdef = sigma_nhat_r_alpha;
-          final double mdefnorm = mdef / sigmamdef;
-
-          if(mdefnorm > maxmdefnorm) {
-            maxmdefnorm = mdefnorm;
-            maxnormr = r;
-          }
-        }
-      }
-      else {
-        // FIXME: when nmin was not fulfilled - what is the proper value then?
-        maxmdefnorm = Double.POSITIVE_INFINITY;
-        maxnormr = maxdist;
-      }
+      final double maxmdefnorm = computeMDEF(iditer, rangeQuery, interestingDistances, buffer, mdef_radius);
       mdef_norm.putDouble(iditer, maxmdefnorm);
-      mdef_radius.putDouble(iditer, maxnormr);
       minmax.put(maxmdefnorm);
       LOG.incrementProcessed(progressLOCI);
     }
     LOG.ensureCompleted(progressLOCI);
-    DoubleRelation scoreResult = new MaterializedDoubleRelation("LOCI normalized MDEF", "loci-mdef-outlier", mdef_norm, relation.getDBIDs());
+    interestingDistances.destroy();
+    return makeResult(relation.getDBIDs(), mdef_norm, mdef_radius, minmax);
+  }
+
+  /**
+   * Wrap the scores in an outlier result.
+   *
+   * @param ids Object IDs
+   * @param mdef_norm Normalized MDEF scores
+   * @param mdef_radius Radius of the maximum normalized MDEF
+   * @param minmax Score range
+   * @return Outlier result
+   */
+  protected OutlierResult makeResult(DBIDs ids, DoubleDataStore mdef_norm, DoubleDataStore mdef_radius, DoubleMinMax minmax) {
+    DoubleRelation scoreResult = new MaterializedDoubleRelation("LOCI normalized MDEF", "loci-mdef-outlier", mdef_norm, ids);
     OutlierScoreMeta scoreMeta = new QuotientOutlierScoreMeta(minmax.getMin(), minmax.getMax(), 0.0, Double.POSITIVE_INFINITY, 0.0);
     OutlierResult result = new OutlierResult(scoreMeta, scoreResult);
-    result.addChildResult(new MaterializedDoubleRelation("LOCI MDEF Radius", "loci-critical-radius", mdef_radius, relation.getDBIDs()));
+    result.addChildResult(new MaterializedDoubleRelation("LOCI MDEF Radius", "loci-critical-radius", mdef_radius, ids));
     return result;
   }
 
+  /**
+   * Largest radius at which the neighbor counts of other objects are looked
+   * up, and hence the radius of the preprocessing range queries.
+   *
+   * @return Lookup radius
+   */
+  protected double getLookupRadius() {
+    return alpha < 1 ? alpha * rmax : rmax;
+  }
+
+  /**
+   * Compute the maximum normalized MDEF of a single object.
+   * <p>
+   * The critical radii are processed in ascending order, while the sum and
+   * the sum of squares of the neighbor counts n(q, alpha r) are maintained
+   * incrementally: neighbors are added once, in the order of their distance,
+   * and the count of a neighbor is only updated when alpha r passes one of its
+   * critical distances, using a heap of the next pending change. This avoids
+   * rescanning the neighborhood for every radius.
+   *
+   * @param id Object
+   * @param rangeQuery Range query
+   * @param interestingDistances Critical distances of all objects, up to the
+   *        lookup radius
+   * @param buffer Scratch buffer, reused across objects
+   * @param mdef_radius Output storage for the radius of the maximum
+   * @return Maximum normalized MDEF
+   */
+  protected double computeMDEF(DBIDRef id, RangeQuery<O> rangeQuery, DataStore<DoubleIntArrayList> interestingDistances, MDEFBuffer buffer, WritableDoubleDataStore mdef_radius) {
+    final ModifiableDoubleDBIDList neighbors = buffer.neighbors;
+    neighbors.clear();
+    rangeQuery.getRangeForDBID(id, rmax, neighbors);
+    neighbors.sort();
+    final DoubleIntArrayList cdist = computeInterestingRadii(neighbors, rmax);
+    final int size = cdist.size();
+    if(neighbors.size() < nmin) {
+      // FIXME: when nmin was not fulfilled - what is the proper value then?
+      mdef_radius.putDouble(id, cdist.getDouble(size - 1));
+      return Double.POSITIVE_INFINITY;
+    }
+    buffer.ensureCapacity(neighbors.size());
+    final DoubleIntArrayList[] lists = buffer.lists;
+    final int[] pos = buffer.pos;
+    final DoubleIntegerMinHeap changes = buffer.changes;
+    changes.clear();
+    DoubleDBIDListIter neighbor = neighbors.iter();
+    // Number of neighbors, sum and sum of squares of their counts.
+    long n = 0, sum = 0, sumsq = 0;
+    double maxmdefnorm = 0.0;
+    double maxnormr = 0;
+    // For any critical distance, compute the normalized MDEF score.
+    for(int i = 0, own = 0; i < size; i++) {
+      // Only start when minimum size is fulfilled
+      if(cdist.getInt(i) < nmin) {
+        continue;
+      }
+      final double r = cdist.getDouble(i);
+      final double alpha_r = alpha * r;
+      // Update the counts of the neighbors that have a critical distance in
+      // (previous alpha r, alpha r].
+      while(!changes.isEmpty() && changes.peekKey() <= alpha_r) {
+        final int j = changes.peekValue();
+        final DoubleIntArrayList cdist2 = lists[j];
+        final int before = cdist2.getInt(pos[j]), after = cdist2.getInt(++pos[j]);
+        sum += after - before;
+        sumsq += (long) after * after - (long) before * before;
+        if(pos[j] + 1 < cdist2.size()) {
+          changes.replaceTopElement(cdist2.getDouble(pos[j] + 1), j);
+        }
+        else {
+          changes.poll();
+        }
+      }
+      // Add the neighbors within radius r.
+      for(; neighbor.valid() && neighbor.doubleValue() <= r; neighbor.advance()) {
+        final int j = (int) n++;
+        final DoubleIntArrayList cdist2 = lists[j] = interestingDistances.get(neighbor);
+        final int p = pos[j] = cdist2.find(alpha_r);
+        final int rn_alphar = cdist2.getInt(p);
+        sum += rn_alphar;
+        sumsq += (long) rn_alphar * rn_alphar;
+        if(p + 1 < cdist2.size()) {
+          changes.add(cdist2.getDouble(p + 1), j);
+        }
+      }
+      // compute n(p_i, \alpha * r) from list (note: alpha_r is not cdist!)
+      while(own + 1 < size && cdist.getDouble(own + 1) <= alpha_r) {
+        ++own;
+      }
+      final long n_alphar = cdist.getInt(own);
+      // MDEF / sigma_MDEF = (mean - n_alphar) / stddev, with redundant
+      // divisions by n and \hat{n}(p_i, r, \alpha) removed. This is exact,
+      // as long as n * sumsq is below 2^53.
+      final double mdefnorm = (sum - n * n_alphar) / Math.sqrt(n * (double) sumsq - sum * (double) sum);
+      if(mdefnorm > maxmdefnorm) {
+        maxmdefnorm = mdefnorm;
+        maxnormr = r;
+      }
+    }
+    Arrays.fill(lists, 0, (int) n, null); // Allow garbage collection
+    mdef_radius.putDouble(id, maxnormr);
+    return maxmdefnorm;
+  }
+
   /**
    * Preprocessing step: determine the radii of interest for each point.
    *
@@ -223,51 +301,115 @@ public class LOCI<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
    */
   protected void precomputeInterestingRadii(DBIDs ids, RangeQuery<O> rangeQuery, WritableDataStore<DoubleIntArrayList> interestingDistances) {
     FiniteProgress progressPreproc = LOG.isVerbose() ? new FiniteProgress("LOCI preprocessing", ids.size(), LOG) : null;
+    final double lookup = getLookupRadius();
+    ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
     for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
-      DoubleDBIDList neighbors = rangeQuery.getRangeForDBID(iditer, rmax);
-      // build list of critical distances
-      DoubleIntArrayList cdist = new DoubleIntArrayList(neighbors.size() << 1);
-      {
-        int i = 0;
-        DoubleDBIDListIter ni = neighbors.iter();
-        while(ni.valid()) {
-          final double curdist = ni.doubleValue();
-          ++i;
-          ni.advance();
-          // Skip, if tied to the next object:
-          if(ni.valid() && curdist == ni.doubleValue()) {
-            continue;
-          }
-          cdist.append(curdist, i);
-          // Scale radius, and reinsert
-          if(alpha != 1.) {
-            final double ri = curdist / alpha;
-            if(ri <= rmax) {
-              cdist.append(ri, Integer.MIN_VALUE);
-            }
+      neighbors.clear();
+      rangeQuery.getRangeForDBID(iditer, lookup, neighbors);
+      neighbors.sort();
+      interestingDistances.put(iditer, computeInterestingRadii(neighbors, lookup));
+      LOG.incrementProcessed(progressPreproc);
+    }
+    LOG.ensureCompleted(progressPreproc);
+  }
+
+  /**
+   * Build the list of critical distances of a single object, with the number
+   * of neighbors at each distance.
+   * <p>
+   * Only this compact list is kept, not the neighbors themselves.
+   *
+   * @param neighbors Neighbors within the maximum radius, sorted by distance
+   * @param maxradius Maximum radius
+   * @return Critical distances
+   */
+  protected DoubleIntArrayList computeInterestingRadii(DoubleDBIDList neighbors, double maxradius) {
+    // build list of critical distances
+    DoubleIntArrayList cdist = new DoubleIntArrayList(neighbors.size() << 1);
+    {
+      int i = 0;
+      DoubleDBIDListIter ni = neighbors.iter();
+      while(ni.valid()) {
+        final double curdist = ni.doubleValue();
+        ++i;
+        ni.advance();
+        // Skip, if tied to the next object:
+        if(ni.valid() && curdist == ni.doubleValue()) {
+          continue;
+        }
+        cdist.append(curdist, i);
+        // Scale radius, and reinsert
+        if(alpha != 1.) {
+          final double ri = curdist / alpha;
+          if(ri <= maxradius) {
+            cdist.append(ri, Integer.MIN_VALUE);
           }
         }
       }
-      cdist.sort();
-
-      // fill the gaps to have fast lookups of number of neighbors at a given
-      // distance.
-      int lastk = 0;
-      for(int i = 0, size = cdist.size(); i < size; i++) {
-        final int k = cdist.getInt(i);
-        if(k == Integer.MIN_VALUE) {
-          cdist.setValue(i, lastk);
-        }
-        else {
-          lastk = k;
-        }
+    }
+    cdist.sort();
+
+    // fill the gaps to have fast lookups of number of neighbors at a given
+    // distance.
+    int lastk = 0;
+    for(int i = 0, size = cdist.size(); i < size; i++) {
+      final int k = cdist.getInt(i);
+      if(k == Integer.MIN_VALUE) {
+        cdist.setValue(i, lastk);
       }
-      // TODO: shrink the list, removing duplicate radii?
+      else {
+        lastk = k;
+      }
+    }
+    cdist.compact();
+    return cdist;
+  }
 
-      interestingDistances.put(iditer, cdist);
-      LOG.incrementProcessed(progressPreproc);
+  /**
+   * Scratch buffers for computing the MDEF of one object at a time.
+   *
+   * @author Erich Schubert
+   */
+  protected static class MDEFBuffer {
+    /**
+     * Neighbors of the current object.
+     */
+    ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
+
+    /**
+     * Critical distances of the neighbors, in order of their distance.
+     */
+    DoubleIntArrayList[] lists = new DoubleIntArrayList[16];
+
+    /**
+     * Current position in the critical distances of each neighbor.
+     */
+    int[] pos = new int[16];
+
+    /**
+     * Next critical distance of each neighbor, to update its count.
+     */
+    DoubleIntegerMinHeap changes = new DoubleIntegerMinHeap();
+
+    /**
+     * Constructor.
+     */
+    public MDEFBuffer() {
+      super();
+    }
+
+    /**
+     * Ensure the buffers can hold the given number of neighbors.
+     *
+     * @param size Number of neighbors
+     */
+    void ensureCapacity(int size) {
+      if(lists.length < size) {
+        final int newsize = Math.max(size, lists.length << 1);
+        lists = new DoubleIntArrayList[newsize];
+        pos = new int[newsize];
+      }
     }
-    LOG.ensureCompleted(progressPreproc);
   }
 
   /**
@@ -275,7 +417,7 @@ public class LOCI<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
    *
    * @author Erich Schubert
    */
-  private static class DoubleIntArrayList {
+  protected static class DoubleIntArrayList {
     /**
      * Double keys
      */
@@ -384,6 +526,26 @@ public class LOCI<O> extends AbstractDistanceBasedAlgorithm<O, OutlierResult> im
     public void sort() {
       DoubleIntegerArrayQuickSort.sort(keys, vals, size);
     }
+
+    /**
+     * Remove duplicate keys of a sorted list, keeping the last value (as
+     * returned by {@link #find}), and release unused memory.
+     */
+    public void compact() {
+      int j = 0;
+      for(int i = 0; i < size; i++) {
+        if(i + 1 < size && keys[i + 1] == keys[i]) {
+          continue;
+        }
+        keys[j] = keys[i];
+        vals[j++] = vals[i];
+      }
+      size = j;
+      if(keys.length > size) {
+        keys = Arrays.copyOf(keys, size);
+        vals = Arrays.copyOf(vals, size);
+      }
+    }
   }
 
   @Override
@@ -30,8 +30,10 @@ import de.lmu.ifi.dbs.elki.database.DatabaseUtil;
 import de.lmu.ifi.dbs.elki.database.QueryUtil;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
 import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
 import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
 import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
 import de.lmu.ifi.dbs.elki.database.ids.KNNList;
@@ -111,17 +113,17 @@ public class LoOP<O> extends AbstractAlgorithm<OutlierResult> implements Outlier
   /**
    * Reachability neighborhood size.
    */
-  int kreach;
+  protected int kreach;
 
   /**
    * Comparison neighborhood size.
    */
-  int kcomp;
+  protected int kcomp;
 
   /**
    * Lambda parameter.
    */
-  double lambda;
+  protected double lambda;
 
   /**
    * Distance function for reachability.
@@ -242,21 +244,7 @@ public class LoOP<O> extends AbstractAlgorithm<OutlierResult> implements Outlier
     // computing PRDs
     FiniteProgress prdsProgress = LOG.isVerbose() ? new FiniteProgress("pdists", relation.size(), LOG) : null;
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      final KNNList neighbors = knn.getKNNForDBID(iditer, kreach + 1); // +
-                                                                       // query
-                                                                       // point
-      // use first kref neighbors as reference set
-      int ks = 0;
-      double ssum = 0.;
-      for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid() && ks < kreach; neighbor.advance()) {
-        if(DBIDUtil.equal(neighbor, iditer)) {
-          continue;
-        }
-        final double d = neighbor.doubleValue();
-        ssum += d * d;
-        ks++;
-      }
-      double pdist = ks > 0 ? FastMath.sqrt(ssum / ks) : 0.;
+      double pdist = computePDist(iditer, knn.getKNNForDBID(iditer, kreach + 1));
       pdists.putDouble(iditer, pdist);
       LOG.incrementProcessed(prdsProgress);
     }
@@ -276,22 +264,7 @@ public class LoOP<O> extends AbstractAlgorithm<OutlierResult> implements Outlier
     FiniteProgress progressPLOFs = LOG.isVerbose() ? new FiniteProgress("PLOFs for objects", relation.size(), LOG) : null;
     double nplof = 0.;
     for(DBIDIter iditer = relation.iterDBIDs(); iditer.valid(); iditer.advance()) {
-      final KNNList neighbors = knn.getKNNForDBID(iditer, kcomp + 1); // + query
-                                                                      // point
-      // use first kref neighbors as comparison set.
-      int ks = 0;
-      double sum = 0.;
-      for(DBIDIter neighbor = neighbors.iter(); neighbor.valid() && ks < kcomp; neighbor.advance()) {
-        if(DBIDUtil.equal(neighbor, iditer)) {
-          continue;
-        }
-        sum += pdists.doubleValue(neighbor);
-        ks++;
-      }
-      double plof = MathUtil.max(pdists.doubleValue(iditer) * ks / sum, 1.0);
-      if(Double.isNaN(plof) || Double.isInfinite(plof)) {
-        plof = 1.0;
-      }
+      double plof = computePLOF(iditer, knn.getKNNForDBID(iditer, kcomp + 1), pdists);
       plofs.putDouble(iditer, plof);
       nplof += (plof - 1.0) * (plof - 1.0);
 
@@ -306,6 +279,51 @@ public class LoOP<O> extends AbstractAlgorithm<OutlierResult> implements Outlier
     return nplof > 0. ? nplof : 1.;
   }
 
+  /**
+   * Compute the probabilistic distance of a single object.
+   *
+   * @param id Object
+   * @param neighbors Neighbors, including the query point
+   * @return Probabilistic distance
+   */
+  protected double computePDist(DBIDRef id, KNNList neighbors) {
+    // use first kref neighbors as reference set
+    int ks = 0;
+    double ssum = 0.;
+    for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid() && ks < kreach; neighbor.advance()) {
+      if(DBIDUtil.equal(neighbor, id)) {
+        continue;
+      }
+      final double d = neighbor.doubleValue();
+      ssum += d * d;
+      ks++;
+    }
+    return ks > 0 ? FastMath.sqrt(ssum / ks) : 0.;
+  }
+
+  /**
+   * Compute the probabilistic LOF of a single object.
+   *
+   * @param id Object
+   * @param neighbors Neighbors, including the query point
+   * @param pdists Probabilistic distances
+   * @return PLOF value
+   */
+  protected double computePLOF(DBIDRef id, KNNList neighbors, DoubleDataStore pdists) {
+    // use first kref neighbors as comparison set.
+    int ks = 0;
+    double sum = 0.;
+    for(DBIDIter neighbor = neighbors.iter(); neighbor.valid() && ks < kcomp; neighbor.advance()) {
+      if(DBIDUtil.equal(neighbor, id)) {
+        continue;
+      }
+      sum += pdists.doubleValue(neighbor);
+      ks++;
+    }
+    double plof = MathUtil.max(pdists.doubleValue(id) * ks / sum, 1.0);
+    return Double.isNaN(plof) || Double.isInfinite(plof) ? 1.0 : plof;
+  }
+
   @Override
   public TypeInformation[] getInputTypeRestriction() {
     final TypeInformation type;
@@ -369,17 +387,17 @@ public class LoOP<O> extends AbstractAlgorithm<OutlierResult> implements Outlier
     /**
      * Holds the value of {@link #KREACH_ID}.
      */
-    int kreach = 0;
+    protected int kreach = 0;
 
     /**
      * Holds the value of {@link #KCOMP_ID}.
      */
-    int kcomp = 0;
+    protected int kcomp = 0;
 
     /**
      * Hold the value of {@link #LAMBDA_ID}.
      */
-    double lambda = 2.0;
+    protected double lambda = 2.0;
 
     /**
      * Preprocessor Step 1.
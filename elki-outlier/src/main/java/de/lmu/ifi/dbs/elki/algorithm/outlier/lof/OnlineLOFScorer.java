@@ -0,0 +1,295 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.database.UpdatableDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.DoubleStatistic;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+
+/**
+ * Embeddable incremental outlier scorer for streams of objects, based on
+ * {@link OnlineLOF}.
+ * <p>
+ * Objects are buffered and inserted into the database in batches, such that
+ * the kNN and RkNN preprocessors and the LOF scores are updated once per
+ * batch, and only for the affected objects, instead of once per object.
+ * The wall-clock time of the database insertions and deletions is tracked,
+ * to report the amortized latency per object. Because the database notifies
+ * its listeners synchronously, this includes the index maintenance and the
+ * update of the LOF scores, but not the time an object waits in the buffer.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - OnlineLOF
+ *
+ * @param <O> Object type
+ */
+public class OnlineLOFScorer<O> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(OnlineLOFScorer.class);
+
+  /**
+   * Database to insert into.
+   */
+  private UpdatableDatabase database;
+
+  /**
+   * Relation of the scored objects.
+   */
+  private Relation<O> relation;
+
+  /**
+   * Result, updated by the online algorithm.
+   */
+  private OutlierResult result;
+
+  /**
+   * Number of objects to buffer before inserting.
+   */
+  private int batchsize;
+
+  /**
+   * Buffered objects.
+   */
+  private List<O> buffer;
+
+  /**
+   * Number of inserted objects.
+   */
+  private long inserted = 0;
+
+  /**
+   * Number of inserted batches.
+   */
+  private long batches = 0;
+
+  /**
+   * Time spent on insertions, in nanoseconds.
+   */
+  private long time = 0;
+
+  /**
+   * Number of deleted objects.
+   */
+  private long deleted = 0;
+
+  /**
+   * Time spent on deletions, in nanoseconds.
+   */
+  private long deltime = 0;
+
+  /**
+   * Constructor, computes the initial scores.
+   *
+   * @param lof Online LOF algorithm
+   * @param database Database
+   * @param relation Relation of the scored objects
+   * @param batchsize Number of objects to buffer before inserting
+   */
+  public OnlineLOFScorer(OnlineLOF<O> lof, UpdatableDatabase database, Relation<O> relation, int batchsize) {
+    super();
+    if(batchsize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1.");
+    }
+    this.database = database;
+    this.relation = relation;
+    this.batchsize = batchsize;
+    this.buffer = new ArrayList<>(batchsize);
+    this.result = lof.run(database, relation);
+  }
+
+  /**
+   * Add an object. The object is scored when the buffer is full, or on the
+   * next call to {@link #flush()}.
+   *
+   * @param obj Object to add
+   * @return IDs of the inserted objects, if the buffer was flushed, otherwise
+   *         empty.
+   */
+  public DBIDs add(O obj) {
+    buffer.add(obj);
+    return buffer.size() >= batchsize ? flush() : DBIDUtil.EMPTYDBIDS;
+  }
+
+  /**
+   * Insert all buffered objects as one batch.
+   *
+   * @return IDs of the inserted objects
+   */
+  public DBIDs flush() {
+    if(buffer.isEmpty()) {
+      return DBIDUtil.EMPTYDBIDS;
+    }
+    DBIDs ids = insert(buffer);
+    buffer.clear();
+    return ids;
+  }
+
+  /**
+   * Insert a batch of objects immediately, bypassing the buffer.
+   *
+   * @param objs Objects to insert
+   * @return IDs of the inserted objects
+   */
+  public DBIDs insert(List<? extends O> objs) {
+    if(objs.isEmpty()) {
+      return DBIDUtil.EMPTYDBIDS;
+    }
+    final long start = System.nanoTime();
+    DBIDs ids = database.insert(MultipleObjectsBundle.makeSimple(relation.getDataTypeInformation(), objs));
+    time += System.nanoTime() - start;
+    inserted += objs.size();
+    ++batches;
+    return ids;
+  }
+
+  /**
+   * Remove objects, e.g., when they leave the time window.
+   *
+   * @param ids Objects to remove
+   */
+  public void delete(DBIDs ids) {
+    if(ids.isEmpty()) {
+      return;
+    }
+    final long start = System.nanoTime();
+    database.delete(ids);
+    deltime += System.nanoTime() - start;
+    deleted += ids.size();
+  }
+
+  /**
+   * Get the current score of an object.
+   *
+   * @param id Object
+   * @return LOF score
+   */
+  public double score(DBIDRef id) {
+    return result.getScores().doubleValue(id);
+  }
+
+  /**
+   * Get the current scores.
+   *
+   * @return Scores
+   */
+  public DoubleRelation getScores() {
+    return result.getScores();
+  }
+
+  /**
+   * Get the outlier result, which is updated on every batch.
+   *
+   * @return Outlier result
+   */
+  public OutlierResult getResult() {
+    return result;
+  }
+
+  /**
+   * Get the number of buffered objects, not yet scored.
+   *
+   * @return Buffer size
+   */
+  public int getBufferedCount() {
+    return buffer.size();
+  }
+
+  /**
+   * Get the number of inserted objects.
+   *
+   * @return Number of objects
+   */
+  public long getInsertedCount() {
+    return inserted;
+  }
+
+  /**
+   * Get the number of inserted batches.
+   *
+   * @return Number of batches
+   */
+  public long getBatchCount() {
+    return batches;
+  }
+
+  /**
+   * Get the number of deleted objects.
+   *
+   * @return Number of objects
+   */
+  public long getDeletedCount() {
+    return deleted;
+  }
+
+  /**
+   * Get the amortized insertion time per object, measured from the call to
+   * the database until all scores are updated. Buffering time is not
+   * included.
+   *
+   * @return Latency in milliseconds, NaN if nothing was inserted yet.
+   */
+  public double getAmortizedLatency() {
+    return inserted > 0 ? time * 1e-6 / inserted : Double.NaN;
+  }
+
+  /**
+   * Get the amortized deletion time per object, including the update of the
+   * scores.
+   *
+   * @return Latency in milliseconds, NaN if nothing was deleted yet.
+   */
+  public double getAmortizedDeletionLatency() {
+    return deleted > 0 ? deltime * 1e-6 / deleted : Double.NaN;
+  }
+
+  /**
+   * Log the insertion and deletion statistics.
+   */
+  public void logStatistics() {
+    if(LOG.isStatistics()) {
+      final String key = this.getClass().getName();
+      LOG.statistics(new LongStatistic(key + ".inserted", inserted));
+      LOG.statistics(new LongStatistic(key + ".batches", batches));
+      LOG.statistics(new DoubleStatistic(key + ".insertion-time.ms", time * 1e-6));
+      LOG.statistics(new DoubleStatistic(key + ".amortized-latency.ms", getAmortizedLatency()));
+      LOG.statistics(new LongStatistic(key + ".deleted", deleted));
+      LOG.statistics(new DoubleStatistic(key + ".deletion-time.ms", deltime * 1e-6));
+      LOG.statistics(new DoubleStatistic(key + ".amortized-deletion-latency.ms", getAmortizedDeletionLatency()));
+    }
+  }
+}
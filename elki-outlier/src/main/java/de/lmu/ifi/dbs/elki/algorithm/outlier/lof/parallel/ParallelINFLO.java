@@ -0,0 +1,167 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.lof.INFLO;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.HashSetModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.SetDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.LongStatistic;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.QuotientOutlierScoreMeta;
+
+/**
+ * Parallel implementation of INFLO (Influenced Outlierness).
+ * <p>
+ * The nearest neighbors and the final scores are computed in parallel. The
+ * reverse nearest neighbors and the pruning rule are obtained in a sequential
+ * pass over the materialized neighbor sets, as each object adds itself to the
+ * lists of its neighbors; this pass is linear in the number of neighbors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public class ParallelINFLO<O> extends INFLO<O> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelINFLO.class);
+
+  /**
+   * Constructor with parameters.
+   *
+   * @param distanceFunction Distance function in use
+   * @param m m Parameter
+   * @param k k Parameter
+   */
+  public ParallelINFLO(DistanceFunction<? super O> distanceFunction, double m, int k) {
+    super(distanceFunction, m, k);
+  }
+
+  @Override
+  public OutlierResult run(Database database, Relation<O> relation) {
+    DBIDs ids = relation.getDBIDs();
+    // Phase one: kNN
+    DataStore<KNNList> knnq = ParallelUtil.materializeKNN(ids, database.getKNNQuery(database.getDistanceQuery(relation, getDistanceFunction()), kplus1), kplus1);
+
+    // Phase two: reverse kNN, minus kNN, and pruning
+    ModifiableDBIDs pruned = DBIDUtil.newHashSet();
+    WritableDataStore<SetDBIDs> knns = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, SetDBIDs.class);
+    WritableDataStore<ModifiableDBIDs> rnnMinusKNNs = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_HOT, ModifiableDBIDs.class);
+    for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
+      knns.put(iditer, DBIDUtil.ensureSet(knnq.get(iditer)));
+      rnnMinusKNNs.put(iditer, DBIDUtil.newArray());
+    }
+    computeNeighborhoods(relation, knns, pruned, rnnMinusKNNs);
+    knns.destroy();
+
+    // Phase three: INFLO scores
+    WritableDoubleDataStore inflos = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_STATIC);
+    DoubleMinMax inflominmax = ParallelUtil.mapThreadLocal(ids, () -> {
+      HashSetModifiableDBIDs set = DBIDUtil.newHashSet();
+      return id -> pruned.contains(id) ? 1. : computeINFLO(id, knnq, rnnMinusKNNs.get(id), set);
+    }, inflos);
+    LOG.statistics(new LongStatistic(ParallelINFLO.class.getName() + ".pruned", pruned.size()));
+
+    DoubleRelation scoreResult = new MaterializedDoubleRelation("Influence Outlier Score", "inflo-outlier", inflos, ids);
+    OutlierScoreMeta scoreMeta = new QuotientOutlierScoreMeta(inflominmax.getMin(), inflominmax.getMax(), 0., Double.POSITIVE_INFINITY, 1.);
+    return new OutlierResult(scoreMeta, scoreResult);
+  }
+
+  /**
+   * Compute the INFLO score of a single object.
+   *
+   * @param id Object
+   * @param knnq Materialized nearest neighbors
+   * @param rNNminuskNN Reverse nearest neighbors that are not kNN
+   * @param set Scratch set
+   * @return INFLO score
+   */
+  private static double computeINFLO(DBIDRef id, DataStore<KNNList> knnq, DBIDs rNNminuskNN, HashSetModifiableDBIDs set) {
+    final KNNList knn = knnq.get(id);
+    if(knn.getKNNDistance() == 0.) {
+      return 1.;
+    }
+    set.clear();
+    set.addDBIDs(knn);
+    set.addDBIDs(rNNminuskNN);
+    // Compute mean density of NN \cup RNN
+    double sum = 0.;
+    int c = 0;
+    for(DBIDIter niter = set.iter(); niter.valid(); niter.advance()) {
+      if(DBIDUtil.equal(id, niter)) {
+        continue;
+      }
+      final double kdist = knnq.get(niter).getKNNDistance();
+      if(kdist <= 0) {
+        sum = Double.POSITIVE_INFINITY;
+        c++;
+        break;
+      }
+      sum += 1. / kdist;
+      c++;
+    }
+    sum *= knn.getKNNDistance();
+    return sum == 0 ? 1. : sum / c;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends INFLO.Parameterizer<O> {
+    @Override
+    protected ParallelINFLO<O> makeInstance() {
+      return new ParallelINFLO<>(distanceFunction, m, k);
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.lof.KDEOS;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.math.MeanVariance;
+import de.lmu.ifi.dbs.elki.math.statistics.kernelfunctions.KernelDensityFunction;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.ProbabilisticOutlierScore;
+
+/**
+ * Parallel implementation of KDEOS: Kernel Density Estimator Outlier Score.
+ * <p>
+ * The sequential version distributes the kernel density contributions of each
+ * object to its neighbors, which cannot be parallelized without locking.
+ * Instead, the bandwidths and significance cutoffs of every object are
+ * computed in parallel first, then every object collects the contributions
+ * from its reverse nearest neighbors. As the reverse neighbors are collected
+ * in the same order as the sequential version distributes them, the results
+ * are identical.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public class ParallelKDEOS<O> extends KDEOS<O> {
+  /**
+   * Class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelKDEOS.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param kmin Minimum number of neighbors
+   * @param kmax Maximum number of neighbors
+   * @param kernel Kernel function
+   * @param minBandwidth Minimum bandwidth
+   * @param scale Kernel scaling parameter
+   * @param idim Intrinsic dimensionality (use 0 to use real dimensionality)
+   */
+  public ParallelKDEOS(DistanceFunction<? super O> distanceFunction, int kmin, int kmax, KernelDensityFunction kernel, double minBandwidth, double scale, int idim) {
+    super(distanceFunction, kmin, kmax, kernel, minBandwidth, scale, idim);
+  }
+
+  @Override
+  public OutlierResult run(Database database, Relation<O> rel) {
+    final DBIDs ids = rel.getDBIDs();
+    final int dim = dimensionality(rel), knum = kmax + 1 - kmin;
+    // Phase one: kNN
+    DataStore<KNNList> knns = ParallelUtil.materializeKNN(ids, database.getKNNQuery(database.getDistanceQuery(rel, getDistanceFunction()), kmax + 1), kmax + 1);
+
+    // Phase two: bandwidths and cutoffs
+    DataStore<Bandwidths> bandwidths = ParallelUtil.mapObjects(ids, () -> id -> computeBandwidths(knns.get(id), dim), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, Bandwidths.class);
+
+    // Phase three: reverse nearest neighbors, in the order of the database.
+    WritableDataStore<ArrayModifiableDBIDs> rknns = DataStoreUtil.makeStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, ArrayModifiableDBIDs.class);
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      rknns.put(iter, DBIDUtil.newArray());
+    }
+    for(DBIDIter iter = ids.iter(); iter.valid(); iter.advance()) {
+      final int end = bandwidths.get(iter).maxend;
+      DoubleDBIDListIter neighbor = knns.get(iter).iter();
+      for(int i = 0; i < end && neighbor.valid(); neighbor.advance(), i++) {
+        rknns.get(neighbor).add(iter);
+      }
+    }
+
+    // Phase four: collect the densities
+    DataStore<double[]> densities = ParallelUtil.mapObjects(ids, () -> id -> collectDensities(id, rknns.get(id), knns, bandwidths, knum), DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP, double[].class);
+    rknns.destroy();
+
+    // Phase five: scores
+    WritableDoubleDataStore kofs = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_DB);
+    DoubleMinMax minmax = ParallelUtil.mapThreadLocal(ids, () -> {
+      MeanVariance mv = new MeanVariance();
+      double[][][] scratch = { new double[knum][kmax + 5] };
+      return id -> {
+        KNNList neighbors = knns.get(id);
+        if(scratch[0][0].length < neighbors.size()) {
+          // Resize scratch. Add some extra margin again.
+          scratch[0] = new double[knum][neighbors.size() + 5];
+        }
+        return computeOutlierScore(densities.get(id), neighbors, densities, scratch[0], mv);
+      };
+    }, kofs);
+
+    DoubleRelation scoreres = new MaterializedDoubleRelation("Kernel Density Estimation Outlier Scores", "kdeos-outlier", kofs, ids);
+    OutlierScoreMeta meta = new ProbabilisticOutlierScore(minmax.getMin(), minmax.getMax());
+    return new OutlierResult(meta, scoreres);
+  }
+
+  /**
+   * Compute the kernel bandwidths of a single object, and the number of
+   * neighbors that receive a significant density contribution.
+   *
+   * @param neighbors Neighbors of the object
+   * @param dim Dimensionality
+   * @return Bandwidths
+   */
+  private Bandwidths computeBandwidths(KNNList neighbors, int dim) {
+    final int knum = kmax + 1 - kmin;
+    final double iminbw = (minBandwidth > 0.) ? 1. / (minBandwidth * scale) : Double.POSITIVE_INFINITY;
+    Bandwidths bw = new Bandwidths(knum);
+    int k = 1, idx = 0;
+    double sum = 0.;
+    for(DoubleDBIDListIter kneighbor = neighbors.iter(); k <= kmax && kneighbor.valid(); kneighbor.advance(), k++) {
+      sum += kneighbor.doubleValue();
+      if(k < kmin) {
+        continue;
+      }
+      final double ibw = bw.ibw[idx] = Math.min(k / (sum * scale), iminbw);
+      final double sca = bw.sca[idx] = MathUtil.powi(ibw, dim);
+      int end = 0;
+      for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance()) {
+        ++end;
+        if(density(sca, ibw, neighbor.doubleValue()) < CUTOFF) {
+          break;
+        }
+      }
+      bw.end[idx] = end;
+      bw.maxend = Math.max(bw.maxend, end);
+      ++idx; // Only if k >= kmin
+    }
+    return bw;
+  }
+
+  /**
+   * Collect the densities of a single object from its reverse neighbors.
+   *
+   * @param id Object
+   * @param rknn Reverse neighbors, in database order
+   * @param knns Nearest neighbors
+   * @param bandwidths Bandwidths
+   * @param knum Number of densities
+   * @return Densities
+   */
+  private double[] collectDensities(DBIDRef id, DBIDs rknn, DataStore<KNNList> knns, DataStore<Bandwidths> bandwidths, int knum) {
+    double[] dens = new double[knum];
+    for(DBIDIter riter = rknn.iter(); riter.valid(); riter.advance()) {
+      final Bandwidths bw = bandwidths.get(riter);
+      // Find the position of the object in the neighbors of riter:
+      int pos = 0;
+      DoubleDBIDListIter neighbor = knns.get(riter).iter();
+      while(!DBIDUtil.equal(neighbor, id)) {
+        neighbor.advance();
+        pos++;
+      }
+      final double dist = neighbor.doubleValue();
+      for(int idx = 0; idx < knum; idx++) {
+        if(pos < bw.end[idx]) {
+          dens[idx] += density(bw.sca[idx], bw.ibw[idx], dist);
+        }
+      }
+    }
+    return dens;
+  }
+
+  /**
+   * Kernel density contribution.
+   *
+   * @param sca Scaling factor
+   * @param ibw Inverse bandwidth
+   * @param dist Distance
+   * @return Density contribution
+   */
+  private double density(double sca, double ibw, double dist) {
+    if(sca < Double.POSITIVE_INFINITY) { // NaNs with duplicate points!
+      return sca * kernel.density(dist * ibw);
+    }
+    return dist == 0. ? 1. : 0.;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Kernel bandwidths of a single object.
+   *
+   * @author Erich Schubert
+   */
+  private static class Bandwidths {
+    /**
+     * Inverse bandwidth, and scaling factor, for each k.
+     */
+    final double[] ibw, sca;
+
+    /**
+     * Number of neighbors with a significant density, for each k.
+     */
+    final int[] end;
+
+    /**
+     * Maximum of end.
+     */
+    int maxend;
+
+    /**
+     * Constructor.
+     *
+     * @param knum Number of different k
+     */
+    Bandwidths(int knum) {
+      ibw = new double[knum];
+      sca = new double[knum];
+      end = new int[knum];
+    }
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends KDEOS.Parameterizer<O> {
+    @Override
+    protected ParallelKDEOS<O> makeInstance() {
+      return new ParallelKDEOS<>(distanceFunction, kmin, kmax, kernel, minBandwidth, scale, idim);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.lof.LDF;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.math.statistics.kernelfunctions.KernelDensityFunction;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.BasicOutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+
+/**
+ * Parallel implementation of the Local Density Factor.
+ * <p>
+ * Like {@link ParallelLOF}, this runs in three phases: nearest neighbors and
+ * k-distances, then the local density estimates, then the density factors.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Vector type
+ */
+public class ParallelLDF<O extends NumberVector> extends LDF<O> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelLDF.class);
+
+  /**
+   * Constructor.
+   *
+   * @param k the value of k
+   * @param distance Distance function
+   * @param kernel Kernel function
+   * @param h Kernel bandwidth scaling
+   * @param c Score scaling parameter
+   */
+  public ParallelLDF(int k, DistanceFunction<? super O> distance, KernelDensityFunction kernel, double h, double c) {
+    super(k, distance, kernel, h, c);
+  }
+
+  @Override
+  public OutlierResult run(Database database, Relation<O> relation) {
+    final int dim = RelationUtil.dimensionality(relation);
+    DBIDs ids = relation.getDBIDs();
+    // Phase one: kNN and k-dist
+    DataStore<KNNList> knns = ParallelUtil.materializeKNN(ids, database.getKNNQuery(database.getDistanceQuery(relation, getDistanceFunction()), k), k);
+    WritableDoubleDataStore kdists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    ParallelUtil.map(ids, id -> knns.get(id).getKNNDistance(), kdists);
+
+    // Phase two: local density estimates
+    WritableDoubleDataStore ldes = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    ParallelUtil.map(ids, id -> computeLDE(id, knns.get(id), kdists, dim), ldes);
+    kdists.destroy();
+
+    // Phase three: local density factors
+    WritableDoubleDataStore ldfs = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_STATIC);
+    DoubleMinMax lofminmax = ParallelUtil.map(ids, id -> computeLDF(id, knns.get(id), ldes), ldfs);
+    ldes.destroy();
+
+    DoubleRelation scoreResult = new MaterializedDoubleRelation("Local Density Factor", "ldf-outlier", ldfs, ids);
+    OutlierScoreMeta scoreMeta = new BasicOutlierScoreMeta(lofminmax.getMin(), lofminmax.getMax(), 0.0, 1. / c, 1 / (1 + c));
+    return new OutlierResult(scoreMeta, scoreResult);
+  }
+
+  /**
+   * Compute the local density estimate of a single object.
+   *
+   * @param it Object
+   * @param neighbors Neighbors, including the query point
+   * @param kdists k-distances of all objects
+   * @param dim Dimensionality
+   * @return Density estimate
+   */
+  private double computeLDE(DBIDRef it, KNNList neighbors, DoubleDataStore kdists, int dim) {
+    double sum = 0.0;
+    int count = 0;
+    for(DoubleDBIDListIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance()) {
+      if(DBIDUtil.equal(neighbor, it)) {
+        continue;
+      }
+      final double nkdist = kdists.doubleValue(neighbor);
+      if(!(nkdist > 0.) || nkdist == Double.POSITIVE_INFINITY) {
+        sum = Double.POSITIVE_INFINITY;
+        count++;
+        break;
+      }
+      final double v = MathUtil.max(nkdist, neighbor.doubleValue()) / (h * nkdist);
+      sum += kernel.density(v) / MathUtil.powi(h * nkdist, dim);
+      count++;
+    }
+    return sum / count;
+  }
+
+  /**
+   * Compute the local density factor of a single object.
+   *
+   * @param it Object
+   * @param neighbors Neighbors, including the query point
+   * @param ldes Local density estimates
+   * @return Density factor
+   */
+  private double computeLDF(DBIDRef it, KNNList neighbors, DoubleDataStore ldes) {
+    final double lrdp = ldes.doubleValue(it);
+    double sum = 0.0;
+    int count = 0;
+    for(DBIDIter neighbor = neighbors.iter(); neighbor.valid(); neighbor.advance()) {
+      // skip the point itself
+      if(DBIDUtil.equal(neighbor, it)) {
+        continue;
+      }
+      sum += ldes.doubleValue(neighbor);
+      count++;
+    }
+    sum /= count;
+    final double div = lrdp + c * sum;
+    return div == Double.POSITIVE_INFINITY ? (sum < Double.POSITIVE_INFINITY ? 0. : 1) : (div > 0) ? sum / div : 0;
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Vector type
+   */
+  public static class Parameterizer<O extends NumberVector> extends LDF.Parameterizer<O> {
+    @Override
+    protected ParallelLDF<O> makeInstance() {
+      return new ParallelLDF<>(k, distanceFunction, kernel, h, c);
+    }
+  }
+}
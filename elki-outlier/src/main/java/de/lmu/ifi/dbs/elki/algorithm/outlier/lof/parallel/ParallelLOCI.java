@@ -0,0 +1,122 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.lof.LOCI;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDoubleDBIDList;
+import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
+import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+
+/**
+ * Parallel implementation of exact LOCI.
+ * <p>
+ * Both passes of LOCI process every object independently: the first pass
+ * reduces the neighbors within the lookup radius to the compact list of
+ * critical distances, the second pass sweeps over the sorted neighbors within
+ * the maximum radius. Neighbor lists are only held by the worker threads
+ * while an object is processed. The results are identical to the sequential
+ * version.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public class ParallelLOCI<O> extends LOCI<O> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelLOCI.class);
+
+  /**
+   * Constructor.
+   *
+   * @param distanceFunction Distance function
+   * @param rmax Maximum radius
+   * @param nmin Minimum neighborhood size
+   * @param alpha Alpha value
+   */
+  public ParallelLOCI(DistanceFunction<? super O> distanceFunction, double rmax, int nmin, double alpha) {
+    super(distanceFunction, rmax, nmin, alpha);
+  }
+
+  @Override
+  public OutlierResult run(Database database, Relation<O> relation) {
+    DistanceQuery<O> distFunc = database.getDistanceQuery(relation, getDistanceFunction());
+    RangeQuery<O> rangeQuery = database.getRangeQuery(distFunc);
+    DBIDs ids = relation.getDBIDs();
+
+    // LOCI preprocessing step
+    final double lookup = getLookupRadius();
+    WritableDataStore<DoubleIntArrayList> interestingDistances = ParallelUtil.mapObjects(ids, () -> {
+      ModifiableDoubleDBIDList neighbors = DBIDUtil.newDistanceDBIDList();
+      return id -> {
+        neighbors.clear();
+        rangeQuery.getRangeForDBID(id, lookup, neighbors);
+        neighbors.sort();
+        return computeInterestingRadii(neighbors, lookup);
+      };
+    }, DataStoreFactory.HINT_TEMP | DataStoreFactory.HINT_SORTED, DoubleIntArrayList.class);
+    // LOCI main step
+    WritableDoubleDataStore mdef_norm = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_STATIC);
+    WritableDoubleDataStore mdef_radius = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_STATIC);
+    DoubleMinMax minmax = ParallelUtil.mapThreadLocal(ids, () -> {
+      MDEFBuffer buffer = new MDEFBuffer();
+      return id -> computeMDEF(id, rangeQuery, interestingDistances, buffer, mdef_radius);
+    }, mdef_norm);
+    interestingDistances.destroy();
+    return makeResult(ids, mdef_norm, mdef_radius, minmax);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends LOCI.Parameterizer<O> {
+    @Override
+    protected ParallelLOCI<O> makeInstance() {
+      return new ParallelLOCI<>(distanceFunction, rmax, nmin, alpha);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof.parallel;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.lof.LoOP;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.QueryUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStore;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDoubleDataStore;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.MaterializedDoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.DistanceFunction;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.math.DoubleMinMax;
+import de.lmu.ifi.dbs.elki.math.MathUtil;
+import de.lmu.ifi.dbs.elki.math.statistics.distribution.NormalDistribution;
+import de.lmu.ifi.dbs.elki.parallel.ParallelUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierScoreMeta;
+import de.lmu.ifi.dbs.elki.result.outlier.ProbabilisticOutlierScore;
+
+import net.jafama.FastMath;
+
+/**
+ * Parallel implementation of LoOP: Local Outlier Probabilities.
+ * <p>
+ * The neighborhoods, probabilistic distances, and probabilistic LOF values are
+ * computed in parallel; only the global normalization is a sequential sum.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @param <O> Object type
+ */
+public class ParallelLoOP<O> extends LoOP<O> {
+  /**
+   * Class logger
+   */
+  private static final Logging LOG = Logging.getLogger(ParallelLoOP.class);
+
+  /**
+   * Constructor.
+   *
+   * @param kreach k for reachability
+   * @param kcomp k for comparison
+   * @param reachabilityDistanceFunction distance function for reachability
+   * @param comparisonDistanceFunction distance function for comparison
+   * @param lambda Lambda parameter
+   */
+  public ParallelLoOP(int kreach, int kcomp, DistanceFunction<? super O> reachabilityDistanceFunction, DistanceFunction<? super O> comparisonDistanceFunction, double lambda) {
+    super(kreach, kcomp, reachabilityDistanceFunction, comparisonDistanceFunction, lambda);
+  }
+
+  @Override
+  public OutlierResult run(Database database, Relation<O> relation) {
+    DBIDs ids = relation.getDBIDs();
+    // Phase one: kNN
+    final DataStore<KNNList> knnComp, knnReach;
+    if(comparisonDistanceFunction.equals(reachabilityDistanceFunction)) {
+      final int k = MathUtil.max(kcomp, kreach) + 1;
+      knnComp = knnReach = ParallelUtil.materializeKNN(ids, QueryUtil.getKNNQuery(relation, comparisonDistanceFunction, k), k);
+    }
+    else {
+      knnComp = ParallelUtil.materializeKNN(ids, QueryUtil.getKNNQuery(relation, comparisonDistanceFunction, kcomp + 1), kcomp + 1);
+      knnReach = ParallelUtil.materializeKNN(ids, QueryUtil.getKNNQuery(relation, reachabilityDistanceFunction, kreach + 1), kreach + 1);
+    }
+
+    // Phase two: probabilistic distances
+    WritableDoubleDataStore pdists = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_TEMP);
+    ParallelUtil.map(ids, id -> computePDist(id, knnReach.get(id)), pdists);
+
+    // Phase three: PLOF values
+    WritableDoubleDataStore plofs = DataStoreUtil.makeDoubleStorage(ids, DataStoreFactory.HINT_HOT | DataStoreFactory.HINT_DB);
+    ParallelUtil.map(ids, id -> computePLOF(id, knnComp.get(id), pdists), plofs);
+    pdists.destroy();
+
+    double nplof = 0.;
+    for(DBIDIter iditer = ids.iter(); iditer.valid(); iditer.advance()) {
+      final double plof = plofs.doubleValue(iditer);
+      nplof += (plof - 1.0) * (plof - 1.0);
+    }
+    nplof = lambda * FastMath.sqrt(nplof / ids.size());
+    final double norm = 1. / ((nplof > 0. ? nplof : 1.) * MathUtil.SQRT2);
+
+    // Phase four: LoOP scores
+    DoubleMinMax mm = ParallelUtil.map(ids, id -> NormalDistribution.erf((plofs.doubleValue(id) - 1.) * norm), plofs);
+
+    DoubleRelation scoreResult = new MaterializedDoubleRelation("Local Outlier Probabilities", "loop-outlier", plofs, ids);
+    OutlierScoreMeta scoreMeta = new ProbabilisticOutlierScore(mm.getMin(), mm.getMax(), 0.);
+    return new OutlierResult(scoreMeta, scoreResult);
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * Parameterization class.
+   *
+   * @author Erich Schubert
+   *
+   * @hidden
+   *
+   * @param <O> Object type
+   */
+  public static class Parameterizer<O> extends LoOP.Parameterizer<O> {
+    @Override
+    protected ParallelLoOP<O> makeInstance() {
+      DistanceFunction<O> realreach = (reachabilityDistanceFunction != null) ? reachabilityDistanceFunction : comparisonDistanceFunction;
+      return new ParallelLoOP<>(kreach, kcomp, realreach, comparisonDistanceFunction, lambda);
+    }
+  }
+}
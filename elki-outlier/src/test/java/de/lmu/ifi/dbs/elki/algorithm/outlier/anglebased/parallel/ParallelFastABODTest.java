@@ -0,0 +1,148 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.anglebased.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.AbstractOutlierAlgorithmTest;
+import de.lmu.ifi.dbs.elki.algorithm.outlier.anglebased.FastABOD;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.database.AbstractDatabase;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDRef;
+import de.lmu.ifi.dbs.elki.database.query.knn.PreprocessorKNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.SquaredEuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.similarityfunction.kernel.LinearKernelFunction;
+import de.lmu.ifi.dbs.elki.index.preprocessed.knn.MaterializeKNNPreprocessor;
+import de.lmu.ifi.dbs.elki.result.ResultUtil;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Regression test for the parallel Fast-ABOD algorithm.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ParallelFastABODTest extends AbstractOutlierAlgorithmTest {
+  @Test
+  public void testParallelFastABODLinear() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    OutlierResult result = new ELKIBuilder<ParallelFastABOD<DoubleVector>>(ParallelFastABOD.class) //
+        .with(FastABOD.Parameterizer.K_ID, 5)//
+        .with(FastABOD.Parameterizer.KERNEL_FUNCTION_ID, LinearKernelFunction.STATIC) //
+        .build().run(db);
+    testAUC(db, "Noise", result, 0.993814148);
+    testSingleScore(result, 945, 0.498653289);
+  }
+
+  @Test
+  public void testParallelFastABODLinearIndexSquared() {
+    ListParameterization pars = new ListParameterization();
+    pars.addParameter(AbstractDatabase.Parameterizer.INDEX_ID, MaterializeKNNPreprocessor.Factory.class);
+    pars.addParameter(MaterializeKNNPreprocessor.Factory.DISTANCE_FUNCTION_ID, SquaredEuclideanDistanceFunction.STATIC);
+    pars.addParameter(MaterializeKNNPreprocessor.Factory.K_ID, 6);
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960, pars);
+    assertTrue(db.getKNNQuery(db.getDistanceQuery(db.getRelation(DoubleVector.FIELD), SquaredEuclideanDistanceFunction.STATIC), 5) instanceof PreprocessorKNNQuery);
+    withThreads(4, () -> {
+      OutlierResult result = new ELKIBuilder<ParallelFastABOD<DoubleVector>>(ParallelFastABOD.class) //
+          .with(FastABOD.Parameterizer.K_ID, 5)//
+          .with(FastABOD.Parameterizer.KERNEL_FUNCTION_ID, LinearKernelFunction.STATIC) //
+          .build().run(db);
+      testAUC(db, "Noise", result, 0.993814148);
+      testSingleScore(result, 945, 0.498653289);
+    });
+  }
+
+  @Test
+  public void testParallelFastABODLinearIndexEuclidean() {
+    ListParameterization pars = new ListParameterization();
+    pars.addParameter(AbstractDatabase.Parameterizer.INDEX_ID, MaterializeKNNPreprocessor.Factory.class);
+    pars.addParameter(MaterializeKNNPreprocessor.Factory.DISTANCE_FUNCTION_ID, EuclideanDistanceFunction.STATIC);
+    pars.addParameter(MaterializeKNNPreprocessor.Factory.K_ID, 6);
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960, pars);
+    assertTrue(db.getKNNQuery(db.getDistanceQuery(db.getRelation(DoubleVector.FIELD), EuclideanDistanceFunction.STATIC), 5) instanceof PreprocessorKNNQuery);
+    OutlierResult result = new ELKIBuilder<ParallelFastABOD<DoubleVector>>(ParallelFastABOD.class) //
+        .with(FastABOD.Parameterizer.K_ID, 5)//
+        .with(FastABOD.Parameterizer.KERNEL_FUNCTION_ID, LinearKernelFunction.STATIC) //
+        .build().run(db);
+    testAUC(db, "Noise", result, 0.993814148);
+    testSingleScore(result, 945, 0.498653289);
+  }
+
+  @Test
+  public void testParallelFastABODPoly2() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    OutlierResult result = new ELKIBuilder<ParallelFastABOD<DoubleVector>>(ParallelFastABOD.class) //
+        .with(FastABOD.Parameterizer.K_ID, 5).build().run(db);
+    testAUC(db, "Noise", result, 0.94626962962);
+    testSingleScore(result, 945, 3.28913914467E-4);
+  }
+
+  @Test
+  public void testParallelFastABODSampled() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    for(int threads : new int[] { 1, 4 }) {
+      withThreads(threads, () -> {
+        OutlierResult result = new ELKIBuilder<ParallelFastABOD<DoubleVector>>(ParallelFastABOD.class) //
+            .with(FastABOD.Parameterizer.K_ID, 10)//
+            .with(FastABOD.Parameterizer.KERNEL_FUNCTION_ID, LinearKernelFunction.STATIC) //
+            .with(ParallelFastABOD.Parameterizer.SAMPLES_ID, 20) //
+            .with(ParallelFastABOD.Parameterizer.SEED_ID, 0) //
+            .build().run(db);
+        testAUC(db, "Noise", result, 0.9920185185185185);
+        testSingleScore(result, 945, 0.7785855990244606);
+        testStandardError(db, result);
+      });
+    }
+  }
+
+  /**
+   * Check that the standard errors are reported.
+   *
+   * @param db Database
+   * @param result Outlier result
+   */
+  private void testStandardError(Database db, OutlierResult result) {
+    DoubleRelation stderrs = null;
+    for(DoubleRelation rel : ResultUtil.<DoubleRelation> filterResults(db.getHierarchy(), result, DoubleRelation.class)) {
+      if("abod-stderr".equals(rel.getShortName())) {
+        stderrs = rel;
+      }
+    }
+    assertNotNull("No standard error result found.", stderrs);
+    for(DBIDIter it = stderrs.iterDBIDs(); it.valid(); it.advance()) {
+      final double err = stderrs.doubleValue(it);
+      assertTrue("Invalid standard error: " + err, err >= 0 && err < Double.POSITIVE_INFINITY);
+    }
+    DBIDRef dbid = ((ArrayDBIDs) stderrs.getDBIDs()).iter().seek(945 - 1);
+    assertEquals("Standard error of object 945 doesn't match.", 0.07706651092231581, stderrs.doubleValue(dbid), 1e-10);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.density;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.AbstractOutlierAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Tests the ExtendedIsolationForest algorithm.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class ExtendedIsolationForestTest extends AbstractOutlierAlgorithmTest {
+  @Test
+  public void testExtendedIsolationForest() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    OutlierResult result = new ELKIBuilder<ExtendedIsolationForest<DoubleVector>>(ExtendedIsolationForest.class) //
+        .with(IsolationForest.Parameterizer.SEED_ID, 0).build().run(db);
+    testAUC(db, "Noise", result, 0.9672222222222222);
+    testSingleScore(result, 945, 0.46176848774739865);
+  }
+
+  @Test
+  public void testSingleObject() {
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(new double[][] { { 1, 0 } }), null);
+    db.initialize();
+    OutlierResult result = new ELKIBuilder<ExtendedIsolationForest<DoubleVector>>(ExtendedIsolationForest.class) //
+        .with(IsolationForest.Parameterizer.SEED_ID, 0).build().run(db);
+    DoubleRelation scores = result.getScores();
+    assertEquals("Single object should have a neutral score.", .5, scores.doubleValue(scores.iterDBIDs()), 0.);
+  }
+}
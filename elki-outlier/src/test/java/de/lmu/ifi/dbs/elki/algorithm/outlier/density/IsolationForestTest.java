@@ -0,0 +1,65 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.density;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.AbstractOutlierAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Tests the IsolationForest algorithm.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class IsolationForestTest extends AbstractOutlierAlgorithmTest {
+  @Test
+  public void testIsolationForest() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    for(int threads : new int[] { 1, 4 }) {
+      withThreads(threads, () -> {
+        OutlierResult result = new ELKIBuilder<IsolationForest<DoubleVector>>(IsolationForest.class) //
+            .with(IsolationForest.Parameterizer.SEED_ID, 0).build().run(db);
+        testAUC(db, "Noise", result, 0.9646666666666667);
+        testSingleScore(result, 945, 0.458570285004381);
+      });
+    }
+  }
+
+  @Test
+  public void testSingleObject() {
+    Database db = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(new double[][] { { 1, 0 } }), null);
+    db.initialize();
+    OutlierResult result = new ELKIBuilder<IsolationForest<DoubleVector>>(IsolationForest.class) //
+        .with(IsolationForest.Parameterizer.SEED_ID, 0).build().run(db);
+    DoubleRelation scores = result.getScores();
+    assertEquals("Single object should have a neutral score.", .5, scores.doubleValue(scores.iterDBIDs()), 0.);
+  }
+}
@@ -26,6 +26,7 @@ import de.lmu.ifi.dbs.elki.algorithm.outlier.AbstractOutlierAlgorithmTest;
 import de.lmu.ifi.dbs.elki.algorithm.outlier.distance.KNNOutlier;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
 import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
 
@@ -44,4 +45,21 @@ public class ParallelKNNOutlierTest extends AbstractOutlierAlgorithmTest {
     testSingleScore(result, 945, 0.4793554700168577);
     testAUC(db, "Noise", result, 0.991462962962963);
   }
+
+  @Test
+  public void testKNNOutlierBlocks() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    ParallelCore core = ParallelCore.getCore();
+    boolean ws = core.isWorkStealing();
+    try {
+      core.setWorkStealing(!ws);
+      OutlierResult result = new ELKIBuilder<ParallelKNNOutlier<DoubleVector>>(ParallelKNNOutlier.class) //
+          .with(KNNOutlier.Parameterizer.K_ID, 1).build().run(db);
+      testSingleScore(result, 945, 0.4793554700168577);
+      testAUC(db, "Noise", result, 0.991462962962963);
+    }
+    finally {
+      core.setWorkStealing(ws);
+    }
+  }
 }
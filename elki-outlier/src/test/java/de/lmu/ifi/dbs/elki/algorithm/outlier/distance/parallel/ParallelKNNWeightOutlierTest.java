@@ -20,12 +20,15 @@
  */
 package de.lmu.ifi.dbs.elki.algorithm.outlier.distance.parallel;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.Test;
 
 import de.lmu.ifi.dbs.elki.algorithm.outlier.AbstractOutlierAlgorithmTest;
 import de.lmu.ifi.dbs.elki.algorithm.outlier.distance.KNNWeightOutlier;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 import de.lmu.ifi.dbs.elki.result.outlier.OutlierResult;
 import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
 
@@ -44,4 +47,17 @@ public class ParallelKNNWeightOutlierTest extends AbstractOutlierAlgorithmTest {
     testSingleScore(result, 945, 2.384117261027324);
     testAUC(db, "Noise", result, 0.9912777777777778);
   }
+
+  @Test
+  public void testKNNWeightOutlierScoped() {
+    Database db = makeSimpleDatabase(UNITTEST + "outlier-3d-3clusters.ascii", 960);
+    withThreads(2, () -> {
+      assertEquals(2, ParallelCore.getCore().getParallelism());
+      OutlierResult result = new ELKIBuilder<ParallelKNNWeightOutlier<DoubleVector>>(ParallelKNNWeightOutlier.class) //
+          .with(KNNWeightOutlier.Parameterizer.K_ID, 4).build().run(db);
+      testSingleScore(result, 945, 2.384117261027324);
+      testAUC(db, "Noise", result, 0.9912777777777778);
+    });
+    assertEquals(ParallelCore.ALL_PROCESSORS, ParallelCore.getCore().getParallelism());
+  }
 }
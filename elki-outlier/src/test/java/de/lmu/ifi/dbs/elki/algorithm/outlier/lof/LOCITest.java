@@ -43,4 +43,15 @@ public class LOCITest extends AbstractOutlierAlgorithmTest {
     testAUC(db, "Noise", result, 0.982444);
     testSingleScore(result, 146, 3.8054382);
   }
+
+  @Test
+  public void testLOCIAlpha() {
+    Database db = makeSimpleDatabase(UNITTEST + "3clusters-and-noise-2d.csv", 330);
+    OutlierResult result = new ELKIBuilder<LOCI<DoubleVector>>(LOCI.class) //
+        .with(LOCI.Parameterizer.RMAX_ID, 0.8) //
+        .with(LOCI.Parameterizer.NMIN_ID, 10) //
+        .with(LOCI.Parameterizer.ALPHA_ID, 0.25).build().run(db);
+    testAUC(db, "Noise", result, 0.995444);
+    testSingleScore(result, 146, 2.5518003);
+  }
 }
@@ -0,0 +1,103 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.algorithm.outlier.lof;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.outlier.AbstractOutlierAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.VectorUtil;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.AbstractDatabase;
+import de.lmu.ifi.dbs.elki.database.HashmapDatabase;
+import de.lmu.ifi.dbs.elki.database.UpdatableDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.ids.ModifiableDBIDs;
+import de.lmu.ifi.dbs.elki.database.relation.DoubleRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.database.relation.RelationUtil;
+import de.lmu.ifi.dbs.elki.datasource.InputStreamDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.CosineDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Tests the batched incremental LOF scorer against the static LOF algorithm.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class OnlineLOFScorerTest extends AbstractOutlierAlgorithmTest {
+  @Test
+  public void testBatchedInsertions() throws IOException {
+    try (InputStream is = open(UNITTEST + "3clusters-and-noise-2d.csv")) {
+      UpdatableDatabase db = new ELKIBuilder<>(HashmapDatabase.class) //
+          .with(AbstractDatabase.Parameterizer.DATABASE_CONNECTION_ID, InputStreamDatabaseConnection.class) //
+          .with(InputStreamDatabaseConnection.Parameterizer.STREAM_ID, is) //
+          .build();
+      db.initialize();
+      Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+
+      final int k = 5;
+      FlexibleLOF<DoubleVector> lof = new FlexibleLOF<>(k, k, EuclideanDistanceFunction.STATIC, CosineDistanceFunction.STATIC);
+      DoubleRelation scores1 = lof.run(db).getScores();
+
+      OnlineLOFScorer<DoubleVector> scorer = new OnlineLOFScorer<>(new OnlineLOF<>(k, k, EuclideanDistanceFunction.STATIC, CosineDistanceFunction.STATIC), db, rep, 20);
+
+      // Stream synthetic new objects.
+      ModifiableDBIDs inserted = DBIDUtil.newArray();
+      int dim = RelationUtil.dimensionality(rep);
+      Random random = new Random(5);
+      for(int i = 0; i < 50; i++) {
+        inserted.addDBIDs(scorer.add(VectorUtil.randomVector(DoubleVector.FACTORY, dim, random)));
+      }
+      assertEquals("Objects not buffered", 10, scorer.getBufferedCount());
+      inserted.addDBIDs(scorer.flush());
+      assertEquals("Objects not inserted", 50, inserted.size());
+      assertEquals("Wrong number of objects", 50, scorer.getInsertedCount());
+      assertEquals("Wrong number of batches", 3, scorer.getBatchCount());
+      assertTrue("No latency", scorer.getAmortizedLatency() >= 0);
+
+      // Scores must agree with a full recomputation.
+      DoubleRelation scores2 = lof.run(db).getScores();
+      DoubleRelation online = scorer.getScores();
+      for(DBIDIter id = scores2.getDBIDs().iter(); id.valid(); id.advance()) {
+        assertEquals("lof(" + DBIDUtil.toString(id) + ")", scores2.doubleValue(id), online.doubleValue(id), 1e-10);
+      }
+
+      // Removing the objects again restores the original scores.
+      scorer.delete(inserted);
+      assertEquals("Wrong number of deleted objects", 50, scorer.getDeletedCount());
+      assertTrue("No deletion latency", scorer.getAmortizedDeletionLatency() >= 0);
+      for(DBIDIter id = scores1.getDBIDs().iter(); id.valid(); id.advance()) {
+        assertEquals("lof(" + DBIDUtil.toString(id) + ")", scores1.doubleValue(id), scorer.score(id), 1e-10);
+      }
+    }
+  }
+}
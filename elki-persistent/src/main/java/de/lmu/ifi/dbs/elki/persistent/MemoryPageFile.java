@@ -20,12 +20,17 @@
  */
 package de.lmu.ifi.dbs.elki.persistent;
 
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 /**
  * A memory based implementation of a PageFile that simulates I/O-access.
  * Implemented as a Map with keys representing the ids of the saved pages.
+ * <p>
+ * Pages can be read by multiple threads concurrently, e.g., for parallel
+ * queries on a static index; writes are exclusive.
  *
  * @author Elke Achtert
  * @since 0.1
@@ -43,6 +48,11 @@ public class MemoryPageFile<P extends Page> extends AbstractStoringPageFile<P> {
    */
   private final Int2ObjectOpenHashMap<P> file;
 
+  /**
+   * Lock, to allow concurrent readers.
+   */
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
   /**
    * Creates a new MemoryPageFile that is supported by a cache with the
    * specified parameters.
@@ -55,15 +65,27 @@ public class MemoryPageFile<P extends Page> extends AbstractStoringPageFile<P> {
   }
 
   @Override
-  public synchronized P readPage(int pageID) {
+  public P readPage(int pageID) {
     countRead();
-    return file.get(pageID);
+    lock.readLock().lock();
+    try {
+      return file.get(pageID);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
   }
 
   @Override
   protected void writePage(int pageID, P page) {
     countWrite();
-    file.put(pageID, page);
+    lock.writeLock().lock();
+    try {
+      file.put(pageID, page);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
     page.setDirty(false);
   }
 
@@ -75,12 +97,24 @@ public class MemoryPageFile<P extends Page> extends AbstractStoringPageFile<P> {
 
     // delete from file
     countWrite();
-    file.remove(pageID);
+    lock.writeLock().lock();
+    try {
+      file.remove(pageID);
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
   }
 
   @Override
   public void clear() {
-    file.clear();
+    lock.writeLock().lock();
+    try {
+      file.clear();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
   }
 
   @Override
@@ -34,6 +34,7 @@ import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.AbstractDatabaseConnection;
 import de.lmu.ifi.dbs.elki.datasource.InputStreamDatabaseConnection;
 import de.lmu.ifi.dbs.elki.datasource.filter.FixedDBIDsFilter;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
 
@@ -119,4 +120,20 @@ public abstract class AbstractSimpleAlgorithmTest {
     }
     return filename.endsWith(".gz") ? new GZIPInputStream(is) : is;
   }
+
+  /**
+   * Run a test with a fixed number of threads.
+   *
+   * @param threads Number of threads
+   * @param test Test to run
+   */
+  public static void withThreads(int threads, Runnable test) {
+    ParallelCore core = new ParallelCore(threads);
+    try (ParallelCore.Scope scope = core.enter()) {
+      test.run();
+    }
+    finally {
+      core.shutdown();
+    }
+  }
 }
@@ -29,17 +29,27 @@ import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
 import de.lmu.ifi.dbs.elki.data.DoubleVector;
 import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.HashmapDatabase;
 import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreFactory;
+import de.lmu.ifi.dbs.elki.database.datastore.DataStoreUtil;
+import de.lmu.ifi.dbs.elki.database.datastore.WritableDataStore;
 import de.lmu.ifi.dbs.elki.database.ids.*;
 import de.lmu.ifi.dbs.elki.database.query.distance.DistanceQuery;
 import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.query.knn.LinearScanDistanceKNNQuery;
 import de.lmu.ifi.dbs.elki.database.query.range.RangeQuery;
 import de.lmu.ifi.dbs.elki.database.relation.Relation;
 import de.lmu.ifi.dbs.elki.datasource.AbstractDatabaseConnection;
 import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.bundle.MultipleObjectsBundle;
 import de.lmu.ifi.dbs.elki.datasource.filter.FixedDBIDsFilter;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.CosineDistanceFunction;
 import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.parallel.ParallelExecutor;
+import de.lmu.ifi.dbs.elki.parallel.processor.KNNProcessor;
+import de.lmu.ifi.dbs.elki.parallel.processor.WriteDataStoreProcessor;
+import de.lmu.ifi.dbs.elki.parallel.variables.SharedObject;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
 
 /**
@@ -224,6 +234,43 @@ public abstract class AbstractIndexStructureTest {
     }
   }
 
+  /**
+   * Test concurrent kNN queries of all objects, using multiple threads, against
+   * a linear scan.
+   *
+   * @param factory Index factory
+   * @param expectKNNQuery Expected kNN query class
+   */
+  protected void testParallelKNN(IndexFactory<?> factory, Class<?> expectKNNQuery) {
+    ListParameterization inputparams = new ListParameterization() //
+        .addParameter(AbstractDatabaseConnection.Parameterizer.FILTERS_ID, new FixedDBIDsFilter(1)) //
+        .addParameter(StaticArrayDatabase.Parameterizer.INDEX_ID, factory);
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(dataset, shoulds, inputparams);
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DistanceQuery<DoubleVector> dist = db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC);
+    KNNQuery<DoubleVector> knnq = db.getKNNQuery(dist, k);
+    assertTrue("Returned knn query is not of expected class: expected " + expectKNNQuery + " got " + knnq.getClass(), expectKNNQuery.isAssignableFrom(knnq.getClass()));
+
+    WritableDataStore<KNNList> knns = DataStoreUtil.makeStorage(rep.getDBIDs(), DataStoreFactory.HINT_TEMP, KNNList.class);
+    KNNProcessor<DoubleVector> knnm = new KNNProcessor<>(k, knnq);
+    SharedObject<KNNList> knnv = new SharedObject<>();
+    WriteDataStoreProcessor<KNNList> storek = new WriteDataStoreProcessor<>(knns);
+    knnm.connectKNNOutput(knnv);
+    storek.connectInput(knnv);
+    AbstractSimpleAlgorithmTest.withThreads(4, () -> {
+      ParallelExecutor.run(rep.getDBIDs(), knnm, storek);
+    });
+
+    KNNQuery<DoubleVector> scan = new LinearScanDistanceKNNQuery<>(dist);
+    for(DBIDIter iter = rep.iterDBIDs(); iter.valid(); iter.advance()) {
+      KNNList expect = scan.getKNNForDBID(iter, k), knn = knns.get(iter);
+      assertEquals("Result size does not match expectation!", expect.size(), knn.size());
+      for(DoubleDBIDListIter a = expect.iter(), b = knn.iter(); a.valid(); a.advance(), b.advance()) {
+        assertEquals("Expected distance doesn't match.", a.doubleValue(), b.doubleValue(), 1e-15);
+      }
+    }
+  }
+
   /**
    * Test degenerate case: single point.
    * 
@@ -251,4 +298,32 @@ public abstract class AbstractIndexStructureTest {
       assertTrue("Wrong range result", DBIDUtil.equal(range.iter(), first));
     }
   }
+
+  /**
+   * Test inserting a single object into a dynamic index.
+   *
+   * @param factory Index factory
+   * @param expectRangeQuery Expected range query class
+   */
+  protected void testSingleInsertion(IndexFactory<?> factory, Class<?> expectRangeQuery) {
+    double[][] data = new double[100][];
+    for(int i = 0; i < data.length; i++) {
+      data[i] = new double[] { (i / 10) * .1, (i % 10) * .1 };
+    }
+    HashmapDatabase db = new HashmapDatabase(new ArrayAdapterDatabaseConnection(data), Arrays.asList(factory));
+    db.initialize();
+    Relation<DoubleVector> rep = db.getRelation(TypeUtil.DOUBLE_VECTOR_FIELD);
+    DoubleVector obj = DoubleVector.wrap(new double[] { 5, 5 });
+    DBIDs inserted = db.insert(MultipleObjectsBundle.makeSimple(rep.getDataTypeInformation(), Arrays.asList(obj)));
+    assertEquals("Wrong number of inserted objects", 1, inserted.size());
+    assertEquals("Wrong relation size", 101, rep.size());
+
+    DistanceQuery<DoubleVector> dist = db.getDistanceQuery(rep, EuclideanDistanceFunction.STATIC);
+    RangeQuery<DoubleVector> rangeq = rep.getRangeQuery(dist);
+    assertTrue("Returned range query is not of expected class: expected " + expectRangeQuery + " got " + rangeq.getClass(), expectRangeQuery.isAssignableFrom(rangeq.getClass()));
+    DoubleDBIDList range = rangeq.getRangeForObject(obj, 1.);
+    assertEquals("Inserted object not found in index", 1, range.size());
+    assertTrue("Wrong range result", DBIDUtil.equal(range.iter(), inserted.iter()));
+    assertEquals("Wrong number of range results", 100, rangeq.getRangeForObject(DoubleVector.wrap(new double[] { .45, .45 }), 1.).size());
+  }
 }
@@ -24,12 +24,16 @@ import java.util.Collection;
 
 import de.lmu.ifi.dbs.elki.application.KDDCLIApplication;
 import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.parallel.ParallelCore;
 import de.lmu.ifi.dbs.elki.result.ResultHierarchy;
 import de.lmu.ifi.dbs.elki.result.SettingsResult;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.AbstractParameterizer;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.OptionID;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.constraints.CommonConstraints;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.Parameterization;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.TrackParameters;
 import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.TrackedParameter;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameters.IntParameter;
 import de.lmu.ifi.dbs.elki.workflow.AlgorithmStep;
 import de.lmu.ifi.dbs.elki.workflow.EvaluationStep;
 import de.lmu.ifi.dbs.elki.workflow.InputStep;
@@ -78,6 +82,11 @@ public class KDDTask {
    */
   private ResultHierarchy hier;
 
+  /**
+   * Number of threads for parallel algorithms, 0 to use the shared core.
+   */
+  private int processors;
+
   /**
    * Constructor.
    *
@@ -88,12 +97,28 @@ public class KDDTask {
    * @param settings
    */
   public KDDTask(InputStep inputStep, AlgorithmStep algorithmStep, EvaluationStep evaluationStep, OutputStep outputStep, Collection<TrackedParameter> settings) {
+    this(inputStep, algorithmStep, evaluationStep, outputStep, settings, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param inputStep
+   * @param algorithmStep
+   * @param evaluationStep
+   * @param outputStep
+   * @param settings
+   * @param processors Number of threads for parallel algorithms, 0 to use the
+   *        shared core
+   */
+  public KDDTask(InputStep inputStep, AlgorithmStep algorithmStep, EvaluationStep evaluationStep, OutputStep outputStep, Collection<TrackedParameter> settings, int processors) {
     super();
     this.inputStep = inputStep;
     this.algorithmStep = algorithmStep;
     this.evaluationStep = evaluationStep;
     this.outputStep = outputStep;
     this.settings = settings;
+    this.processors = processors;
   }
 
   /**
@@ -101,6 +126,26 @@ public class KDDTask {
    * connection.
    */
   public void run() {
+    if(processors <= 0) {
+      runSteps();
+      return;
+    }
+    // Use a thread pool private to this task.
+    ParallelCore core = new ParallelCore(processors);
+    ParallelCore.Scope scope = core.enter();
+    try {
+      runSteps();
+    }
+    finally {
+      scope.close();
+      core.shutdown();
+    }
+  }
+
+  /**
+   * Run the individual steps.
+   */
+  private void runSteps() {
     // Input step
     Database db = inputStep.getDatabase();
     hier = db.getHierarchy();
@@ -133,6 +178,11 @@ public class KDDTask {
    * @author Erich Schubert
    */
   public static class Parameterizer extends AbstractParameterizer {
+    /**
+     * Number of threads to use for parallel algorithms.
+     */
+    public static final OptionID PROCESSORS_ID = new OptionID("parallel.processors", "Number of threads to use for parallel algorithms. By default, a thread pool shared with all tasks is used, which uses all available processors.");
+
     InputStep inputStep = null;
 
     AlgorithmStep algorithmStep = null;
@@ -143,12 +193,21 @@ public class KDDTask {
 
     OutputStep outputStep = null;
 
+    int processors = 0;
+
     @Override
     protected void makeOptions(Parameterization config) {
       super.makeOptions(config);
       // Track the key parameters for reporting the settings.
       TrackParameters track = new TrackParameters(config);
 
+      IntParameter processorsP = new IntParameter(PROCESSORS_ID) //
+          .addConstraint(CommonConstraints.GREATER_EQUAL_ONE_INT) //
+          .setOptional(true);
+      if(track.grab(processorsP)) {
+        processors = processorsP.intValue();
+      }
+
       inputStep = track.tryInstantiate(InputStep.class);
       algorithmStep = track.tryInstantiate(AlgorithmStep.class);
       evaluationStep = track.tryInstantiate(EvaluationStep.class);
@@ -161,7 +220,7 @@ public class KDDTask {
 
     @Override
     protected KDDTask makeInstance() {
-      return new KDDTask(inputStep, algorithmStep, evaluationStep, outputStep, settings);
+      return new KDDTask(inputStep, algorithmStep, evaluationStep, outputStep, settings, processors);
     }
   }
 
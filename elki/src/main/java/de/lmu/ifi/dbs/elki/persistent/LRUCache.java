@@ -34,6 +34,9 @@ import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
  * This cache has a fixed maximum number of objects (<code>cacheSize</code>). If
  * the cache is full and another object is added, the LRU (least recently used)
  * object is dropped.
+ * <p>
+ * All accesses are serialized; for concurrent queries, {@link SLRUCache}
+ * scales better.
  * 
  * @author Elke Achtert
  * @since 0.1
@@ -119,7 +122,7 @@ public class LRUCache<P extends Page> extends AbstractPageFile<P> {
   }
 
   @Override
-  public void deletePage(int pageID) {
+  public synchronized void deletePage(int pageID) {
     countWrite();
     map.remove(pageID);
     file.deletePage(pageID);
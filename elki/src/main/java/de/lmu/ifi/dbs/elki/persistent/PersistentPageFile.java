@@ -20,24 +20,35 @@
  */
 package de.lmu.ifi.dbs.elki.persistent;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 import de.lmu.ifi.dbs.elki.index.tree.TreeIndexHeader;
 import de.lmu.ifi.dbs.elki.logging.Logging;
 import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteArrayUtil;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferObjectInput;
+import de.lmu.ifi.dbs.elki.utilities.io.ByteBufferObjectOutput;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
 /**
  * A PersistentPageFile stores objects persistently that implement the
- * <code>Page</code> interface. For convenience each page is represented by a
- * single file. All pages are stored in a specified directory.
+ * <code>Page</code> interface. All pages are stored in a single file, after
+ * the header.
+ * <p>
+ * Pages are read and written with positional {@link FileChannel} operations
+ * using reusable direct buffers, and serialized without the overhead of
+ * {@link java.io.ObjectOutputStream}. Written pages are collected in a batch,
+ * and flushed with one write per run of consecutive pages; use {@link #sync}
+ * to force them to disk.
  * 
  * @author Elke Achtert
+ * @author Erich Schubert
  * @since 0.1
  * 
  * @composed - - - PageHeader
@@ -61,11 +72,26 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    */
   private static final int FILLED_PAGE = 1;
 
+  /**
+   * Maximum number of pages to collect before writing.
+   */
+  private static final int WRITE_BATCH = 64;
+
+  /**
+   * Maximum size of the write batch in bytes.
+   */
+  private static final int WRITE_BATCH_BYTES = 1 << 22;
+
   /**
    * The file storing the pages.
    */
   private final RandomAccessFile file;
 
+  /**
+   * Channel of the file, for positional reads and writes.
+   */
+  private final FileChannel channel;
+
   /**
    * The header of this page file.
    */
@@ -81,6 +107,46 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    */
   private boolean existed;
 
+  /**
+   * Buffer for reading pages.
+   */
+  private ByteBuffer readbuf;
+
+  /**
+   * Buffer for serializing a page, before it is added to the write batch.
+   */
+  private ByteBuffer stagebuf;
+
+  /**
+   * Buffer of pending writes.
+   */
+  private ByteBuffer batch;
+
+  /**
+   * Page ids of pending writes, by slot.
+   */
+  private int[] batchids;
+
+  /**
+   * Number of pending writes.
+   */
+  private int batchsize;
+
+  /**
+   * Slot of each pending page.
+   */
+  private final Int2IntOpenHashMap pending = new Int2IntOpenHashMap();
+
+  /**
+   * Serialization adapters.
+   */
+  private final ByteBufferObjectOutput out = new ByteBufferObjectOutput(null);
+
+  /**
+   * Deserialization adapters.
+   */
+  private final ByteBufferObjectInput in = new ByteBufferObjectInput(null);
+
   /**
    * Creates a new PersistentPageFile from an existing file.
    * 
@@ -90,6 +156,7 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
   public PersistentPageFile(int pageSize, String fileName, Class<P> pageclass) {
     super(pageSize);
     this.pageclass = pageclass;
+    this.pending.defaultReturnValue(-1);
     // init the file
     File f = new File(fileName);
 
@@ -97,6 +164,7 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
     existed = f.exists();
     try {
       file = new RandomAccessFile(f, "rw");
+      channel = file.getChannel();
     }
     catch(IOException e) {
       throw new AbortException("IO error in loading persistent page file.", e);
@@ -110,14 +178,28 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    * @return the page with the given pageId
    */
   @Override
-  public P readPage(int pageID) {
+  public synchronized P readPage(int pageID) {
     try {
       countRead();
-      long offset = ((long) (header.getReservedPages() + pageID)) * (long) pageSize;
-      byte[] buffer = new byte[pageSize];
-      file.seek(offset);
-      file.read(buffer);
-      return byteArrayToPage(buffer);
+      final int slot = pending.get(pageID);
+      if(slot >= 0) {
+        return bufferToPage(slot(slot));
+      }
+      if(readbuf == null || readbuf.capacity() != pageSize) {
+        readbuf = ByteBuffer.allocateDirect(pageSize);
+      }
+      readbuf.clear();
+      final long offset = offset(pageID);
+      while(readbuf.hasRemaining()) {
+        if(channel.read(readbuf, offset + readbuf.position()) < 0) {
+          // Beyond the end of file: treat as empty page.
+          while(readbuf.hasRemaining()) {
+            readbuf.put((byte) 0);
+          }
+        }
+      }
+      readbuf.flip();
+      return bufferToPage(readbuf);
     }
     catch(IOException e) {
       throw new RuntimeException("IOException occurred during reading of page " + pageID + "\n", e);
@@ -130,21 +212,13 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    * @param pageID the id of the node to be deleted
    */
   @Override
-  public void deletePage(int pageID) {
-    try {
-      // / put id to empty pages list
-      super.deletePage(pageID);
-
-      // delete from file
-      countWrite();
-      byte[] array = pageToByteArray(null);
-      long offset = ((long) (header.getReservedPages() + pageID)) * (long) pageSize;
-      file.seek(offset);
-      file.write(array);
-    }
-    catch(IOException e) {
-      throw new RuntimeException(e);
-    }
+  public synchronized void deletePage(int pageID) {
+    // / put id to empty pages list
+    super.deletePage(pageID);
+
+    // delete from file
+    countWrite();
+    stage(pageID, null);
   }
 
   /**
@@ -154,15 +228,19 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    * @param page the page which has to be written to disk
    */
   @Override
-  public void writePage(int pageID, P page) {
+  public synchronized void writePage(int pageID, P page) {
+    countWrite();
+    stage(pageID, page);
+    page.setDirty(false);
+  }
+
+  /**
+   * Write all pending pages, and force them to the storage device.
+   */
+  public synchronized void sync() {
     try {
-      countWrite();
-      byte[] array = pageToByteArray(page);
-      long offset = ((long) (header.getReservedPages() + pageID)) * (long) pageSize;
-      assert offset >= 0 : header.getReservedPages() + " " + pageID + " " + pageSize + " " + offset;
-      file.seek(offset);
-      file.write(array);
-      page.setDirty(false);
+      flush();
+      channel.force(false);
     }
     catch(IOException e) {
       throw new RuntimeException("Error writing to page file.", e);
@@ -193,8 +271,11 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
    * Clears this PageFile.
    */
   @Override
-  public void clear() {
+  public synchronized void clear() {
     try {
+      // Discard pending writes.
+      pending.clear();
+      batchsize = 0;
       file.setLength(header.size());
     }
     catch(IOException e) {
@@ -203,16 +284,107 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
   }
 
   /**
-   * Reconstruct a serialized object from the specified byte array.
+   * Compute the file offset of a page.
+   * 
+   * @param pageID Page id
+   * @return Offset
+   */
+  private long offset(int pageID) {
+    return ((long) (header.getReservedPages() + pageID)) * (long) pageSize;
+  }
+
+  /**
+   * Get the buffer of a slot of the write batch.
+   * 
+   * @param slot Slot
+   * @return Buffer, positioned at the beginning of the page
+   */
+  private ByteBuffer slot(int slot) {
+    ByteBuffer buf = batch.duplicate();
+    buf.limit((slot + 1) * pageSize).position(slot * pageSize);
+    return buf.slice();
+  }
+
+  /**
+   * Serialize a page into the write batch, flushing the batch if necessary.
+   * <p>
+   * The page is serialized into a separate buffer first, so that a page that
+   * fails to serialize does not leave a partial page in the batch.
+   * 
+   * @param pageID Page id
+   * @param page Page, {@code null} for empty pages
+   */
+  private synchronized void stage(int pageID, P page) {
+    try {
+      if(stagebuf == null || stagebuf.capacity() != pageSize) {
+        stagebuf = ByteBuffer.allocate(pageSize);
+      }
+      stagebuf.clear();
+      pageToBuffer(page, stagebuf);
+      stagebuf.flip();
+      int slot = pending.get(pageID);
+      if(slot < 0) {
+        if(batch == null || batch.capacity() != batchids.length * pageSize) {
+          batchids = new int[Math.max(1, Math.min(WRITE_BATCH, WRITE_BATCH_BYTES / pageSize))];
+          batch = ByteBuffer.allocateDirect(batchids.length * pageSize);
+        }
+        if(batchsize == batchids.length) {
+          flush();
+        }
+        slot = batchsize++;
+        batchids[slot] = pageID;
+        pending.put(pageID, slot);
+      }
+      slot(slot).put(stagebuf);
+    }
+    catch(IOException e) {
+      throw new RuntimeException("Error writing to page file.", e);
+    }
+  }
+
+  /**
+   * Write all pending pages, coalescing consecutive pages into a single
+   * write operation.
+   * 
+   * @throws IOException on IO errors
+   */
+  private void flush() throws IOException {
+    if(batchsize == 0) {
+      return;
+    }
+    // Sort slots by page id:
+    long[] order = new long[batchsize];
+    for(int i = 0; i < batchsize; i++) {
+      order[i] = (((long) batchids[i]) << 32) | i;
+    }
+    Arrays.sort(order);
+    ByteBuffer[] run = new ByteBuffer[batchsize];
+    for(int i = 0; i < batchsize;) {
+      final int first = (int) (order[i] >>> 32);
+      int len = 0;
+      do {
+        run[len++] = slot((int) order[i++]);
+      }
+      while(i < batchsize && (int) (order[i] >>> 32) == first + len);
+      channel.position(offset(first));
+      long remaining = len * (long) pageSize;
+      while(remaining > 0) {
+        remaining -= channel.write(run, 0, len);
+      }
+    }
+    pending.clear();
+    batchsize = 0;
+  }
+
+  /**
+   * Reconstruct a serialized page from the specified buffer.
    * 
-   * @param array the byte array from which the object should be reconstructed
-   * @return a serialized object from the specified byte array
+   * @param buf the buffer from which the page should be reconstructed
+   * @return a page from the specified buffer
    */
-  private P byteArrayToPage(byte[] array) {
+  private P bufferToPage(ByteBuffer buf) {
     try {
-      ByteArrayInputStream bais = new ByteArrayInputStream(array);
-      ObjectInputStream ois = new ObjectInputStream(bais);
-      int type = ois.readInt();
+      int type = buf.getInt();
       if(type == EMPTY_PAGE) {
         return null;
       }
@@ -220,15 +392,15 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
         P page;
         try {
           page = pageclass.newInstance();
-          page.readExternal(ois);
+          page.readExternal(in.reset(buf));
         }
-        catch(InstantiationException|IllegalAccessException|ClassNotFoundException e) {
+        catch(InstantiationException | IllegalAccessException | ClassNotFoundException e) {
           throw new AbortException("Error instanciating an index page", e);
         }
         return page;
       }
       else {
-        throw new IllegalArgumentException("Unknown type: " + type);
+        throw new IllegalArgumentException("Unknown type: " + type + " - incompatible page file?");
       }
     }
     catch(IOException e) {
@@ -237,48 +409,23 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
   }
 
   /**
-   * Serializes an object into a byte array.
+   * Serializes a page into a buffer of page size.
    * 
-   * @param page the object to be serialized
-   * @return the byte array
+   * @param page the page to be serialized, {@code null} for empty pages
+   * @param buf the target buffer
+   * @throws IOException on IO errors
    */
-  private byte[] pageToByteArray(P page) {
+  private void pageToBuffer(P page, ByteBuffer buf) throws IOException {
     try {
       if(page == null) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(baos);
-        oos.writeInt(EMPTY_PAGE);
-        oos.close();
-        baos.close();
-        byte[] array = baos.toByteArray();
-        byte[] result = new byte[pageSize];
-        System.arraycopy(array, 0, result, 0, array.length);
-        return result;
-      }
-      else {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(baos);
-        oos.writeInt(FILLED_PAGE);
-        page.writeExternal(oos);
-        oos.close();
-        baos.close();
-        byte[] array = baos.toByteArray();
-        if(array.length > this.pageSize) {
-          throw new IllegalArgumentException("Size of page " + page + " is greater than specified" + " pagesize: " + array.length + " > " + pageSize);
-        }
-        else if(array.length == this.pageSize) {
-          return array;
-        }
-
-        else {
-          byte[] result = new byte[pageSize];
-          System.arraycopy(array, 0, result, 0, array.length);
-          return result;
-        }
+        buf.putInt(EMPTY_PAGE);
+        return;
       }
+      buf.putInt(FILLED_PAGE);
+      page.writeExternal(out.reset(buf));
     }
-    catch(IOException e) {
-      throw new RuntimeException("IOException occurred! ", e);
+    catch(BufferOverflowException e) {
+      throw new IllegalArgumentException("Size of page " + page + " is greater than specified pagesize: " + pageSize, e);
     }
   }
 
@@ -335,16 +482,12 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
           }
         }
         else { // must scan complete file
-          int i = 0;
-          while(file.getFilePointer() + pageSize <= file.length()) {
-            long offset = ((long) (header.getReservedPages() + i)) * (long) pageSize;
-            byte[] buffer = new byte[pageSize];
-            file.seek(offset);
-            file.read(buffer);
-
-            ByteArrayInputStream bais = new ByteArrayInputStream(buffer);
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            int type = ois.readInt();
+          final long size = channel.size();
+          ByteBuffer buffer = ByteBuffer.allocate(ByteArrayUtil.SIZE_INT);
+          for(int i = 0; offset(i) + pageSize <= size; i++) {
+            buffer.clear();
+            channel.read(buffer, offset(i));
+            int type = buffer.getInt(0);
             if(type == EMPTY_PAGE) {
               emptyPages.push(i);
             }
@@ -354,7 +497,6 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
             else {
               throw new IllegalArgumentException("Unknown type: " + type);
             }
-            i++;
           }
         }
       }
@@ -379,4 +521,4 @@ public class PersistentPageFile<P extends ExternalizablePage> extends AbstractSt
   protected Logging getLogger() {
     return LOG;
   }
-}
\ No newline at end of file
+}
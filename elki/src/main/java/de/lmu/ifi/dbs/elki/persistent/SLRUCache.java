@@ -0,0 +1,483 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.index.tree.Node;
+import de.lmu.ifi.dbs.elki.logging.Logging;
+import de.lmu.ifi.dbs.elki.logging.statistics.AtomicLongCounter;
+import de.lmu.ifi.dbs.elki.logging.statistics.Counter;
+import de.lmu.ifi.dbs.elki.utilities.documentation.Reference;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Scan-resistant page cache using a segmented LRU strategy, which can be
+ * shared by concurrent threads.
+ * <p>
+ * Pages enter a probationary segment, and are only promoted to the protected
+ * segment when they are accessed again. Therefore, a single sweep over many
+ * pages (e.g., a kNN query visiting many leaves) only displaces other
+ * probationary pages, but not the frequently used pages. Additionally,
+ * directory pages of tree indexes can be pinned, up to a fraction of the
+ * cache, so that the upper levels of a tree remain in memory.
+ * <p>
+ * The cache is split into independently locked stripes by page id, and the
+ * backing file is accessed outside of the locks when reading. A page read
+ * concurrently to a write of the same stripe is read again under the lock.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ *
+ * @assoc - - - PageFile
+ *
+ * @param <P> Page type
+ */
+@Reference(authors = "R. Karedla, J. S. Love, B. G. Wherry", //
+    title = "Caching strategies to improve disk system performance", //
+    booktitle = "Computer 27(3)", //
+    url = "https://doi.org/10.1109/2.268884", //
+    bibkey = "doi:10.1109/2.268884")
+public class SLRUCache<P extends Page> extends AbstractPageFile<P> {
+  /**
+   * Our class logger.
+   */
+  private static final Logging LOG = Logging.getLogger(SLRUCache.class);
+
+  /**
+   * Fraction of each stripe used for protected pages.
+   */
+  private static final double PROTECTED_FRACTION = 0.8;
+
+  /**
+   * Minimum number of pages per stripe.
+   */
+  private static final int MIN_STRIPE_SIZE = 16;
+
+  /**
+   * Maximum number of stripes.
+   */
+  private static final int MAX_STRIPES = 16;
+
+  /**
+   * Cache size in bytes.
+   */
+  protected int cacheSizeBytes;
+
+  /**
+   * Fraction of the cache to use for pinned directory pages.
+   */
+  protected double pinFraction;
+
+  /**
+   * The underlying file of this cache. If an object is dropped it is written to
+   * the file.
+   */
+  protected PageFile<P> file;
+
+  /**
+   * Cache stripes.
+   */
+  private Stripe[] stripes;
+
+  /**
+   * Statistics.
+   */
+  private Counter hits, misses, evictions;
+
+  /**
+   * Constructor.
+   *
+   * @param cacheSizeBytes the maximum number of bytes for this cache
+   * @param pinFraction fraction of the cache for pinned directory pages
+   * @param file the underlying file of this cache, if a page is dropped it is
+   *        written to the file
+   */
+  public SLRUCache(int cacheSizeBytes, double pinFraction, PageFile<P> file) {
+    super();
+    this.file = file;
+    this.cacheSizeBytes = cacheSizeBytes;
+    this.pinFraction = pinFraction;
+    if(LOG.isStatistics()) {
+      final String prefix = this.getClass().getName();
+      hits = new AtomicLongCounter(prefix + ".hits");
+      misses = new AtomicLongCounter(prefix + ".misses");
+      evictions = new AtomicLongCounter(prefix + ".evictions");
+    }
+  }
+
+  /**
+   * Get the stripe responsible for a page.
+   *
+   * @param pageID Page id
+   * @return Stripe
+   */
+  private Stripe stripe(int pageID) {
+    // Spread the bits, as consecutive pages are often used together.
+    final int h = pageID * 0x9E3779B9;
+    return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+  }
+
+  @Override
+  public P readPage(int pageID) {
+    countRead();
+    final Stripe stripe = stripe(pageID);
+    P page;
+    final long modCount;
+    synchronized(stripe) {
+      page = stripe.get(pageID);
+      modCount = stripe.modCount;
+    }
+    if(page != null) {
+      count(hits);
+      return page;
+    }
+    count(misses);
+    // Read from the backing file without holding the lock.
+    page = file.readPage(pageID);
+    synchronized(stripe) {
+      // Another thread may have loaded or written the page concurrently.
+      P other = stripe.get(pageID);
+      if(other != null) {
+        return other;
+      }
+      if(stripe.modCount != modCount) {
+        // A concurrent write may have been expired to the file after our
+        // read, so our copy can be stale. Read again while holding the lock.
+        page = file.readPage(pageID);
+      }
+      if(page == null) {
+        return null;
+      }
+      stripe.insert(pageID, page);
+    }
+    return page;
+  }
+
+  @Override
+  public void writePage(int pageID, P page) {
+    countWrite();
+    page.setDirty(true);
+    final Stripe stripe = stripe(pageID);
+    synchronized(stripe) {
+      ++stripe.modCount;
+      if(!stripe.replace(pageID, page)) {
+        stripe.insert(pageID, page);
+      }
+    }
+  }
+
+  @Override
+  public void deletePage(int pageID) {
+    countWrite();
+    final Stripe stripe = stripe(pageID);
+    synchronized(stripe) {
+      ++stripe.modCount;
+      stripe.remove(pageID);
+      // Delete while locked, so concurrent reads cannot resurrect the page.
+      file.deletePage(pageID);
+    }
+  }
+
+  /**
+   * Write page through to disk.
+   *
+   * @param page page
+   */
+  protected void expirePage(P page) {
+    if(LOG.isDebuggingFine()) {
+      LOG.debugFine("Write to backing:" + page.getPageID());
+    }
+    if(page.isDirty()) {
+      file.writePage(page);
+    }
+  }
+
+  @Override
+  public int setPageID(P page) {
+    return file.setPageID(page);
+  }
+
+  @Override
+  public int getNextPageID() {
+    return file.getNextPageID();
+  }
+
+  @Override
+  public void setNextPageID(int nextPageID) {
+    file.setNextPageID(nextPageID);
+  }
+
+  @Override
+  public int getPageSize() {
+    return file.getPageSize();
+  }
+
+  @Override
+  public boolean initialize(PageHeader header) {
+    boolean created = file.initialize(header);
+    // Compute the actual cache size.
+    final int cacheSize = cacheSizeBytes / header.getPageSize();
+    if(cacheSize <= 0) {
+      throw new AbortException("Invalid cache size: " + cacheSizeBytes + " / " + header.getPageSize() + " = " + cacheSize);
+    }
+    int nstripes = 1;
+    while(nstripes < MAX_STRIPES && (nstripes << 1) * MIN_STRIPE_SIZE <= cacheSize) {
+      nstripes <<= 1;
+    }
+    if(LOG.isDebugging()) {
+      LOG.debug("SLRU cache size is " + cacheSize + " pages in " + nstripes + " stripes.");
+    }
+    stripes = newStripes(nstripes);
+    for(int i = 0; i < nstripes; i++) {
+      // Distribute the remainder onto the first stripes.
+      stripes[i] = new Stripe(cacheSize / nstripes + (i < cacheSize % nstripes ? 1 : 0));
+    }
+    return created;
+  }
+
+  /**
+   * Allocate the stripes array; generic arrays cannot be created directly.
+   *
+   * @param n Number of stripes
+   * @return Array
+   */
+  @SuppressWarnings("unchecked")
+  private Stripe[] newStripes(int n) {
+    return (Stripe[]) new SLRUCache<?>.Stripe[n];
+  }
+
+  @Override
+  public void close() {
+    flush();
+    file.close();
+  }
+
+  /**
+   * Flushes this caches by writing any entry to the underlying file.
+   */
+  public void flush() {
+    for(Stripe stripe : stripes) {
+      synchronized(stripe) {
+        for(P page : stripe.drain()) {
+          expirePage(page);
+        }
+      }
+    }
+  }
+
+  /**
+   * Clears this cache.
+   */
+  @Override
+  public void clear() {
+    for(Stripe stripe : stripes) {
+      synchronized(stripe) {
+        stripe.drain();
+      }
+    }
+  }
+
+  @Override
+  public void logStatistics() {
+    super.logStatistics();
+    if(hits != null) {
+      LOG.statistics(hits);
+      LOG.statistics(misses);
+      LOG.statistics(evictions);
+    }
+    file.logStatistics();
+  }
+
+  /**
+   * Increment a counter, if statistics are enabled.
+   *
+   * @param c Counter, may be {@code null}
+   */
+  private static void count(Counter c) {
+    if(c != null) {
+      c.increment();
+    }
+  }
+
+  @Override
+  protected Logging getLogger() {
+    return LOG;
+  }
+
+  /**
+   * A stripe of the cache. All methods must be called while holding the lock
+   * of the stripe.
+   *
+   * @author Erich Schubert
+   */
+  private class Stripe {
+    /**
+     * Pages seen once, in insertion order.
+     */
+    private final LinkedHashMap<Integer, P> probation = new LinkedHashMap<>();
+
+    /**
+     * Pages accessed repeatedly, in access order.
+     */
+    private final LinkedHashMap<Integer, P> protect = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Pinned directory pages.
+     */
+    private final HashMap<Integer, P> pinned = new HashMap<>();
+
+    /**
+     * Capacity of the stripe, of the protected segment, and for pinned pages.
+     */
+    private final int capacity, protectCapacity, pinCapacity;
+
+    /**
+     * Number of writes and deletions, to detect writes concurrent to reading
+     * from the backing file.
+     */
+    long modCount;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Capacity in pages
+     */
+    Stripe(int capacity) {
+      this.capacity = Math.max(1, capacity);
+      this.pinCapacity = (int) (this.capacity * pinFraction);
+      this.protectCapacity = (int) ((this.capacity - pinCapacity) * PROTECTED_FRACTION);
+    }
+
+    /**
+     * Get a page, and promote it if necessary.
+     *
+     * @param pageID Page id
+     * @return Page, or {@code null}
+     */
+    P get(int pageID) {
+      P page = pinned.get(pageID);
+      if(page != null) {
+        return page;
+      }
+      page = protect.get(pageID); // Updates the access order
+      if(page != null) {
+        return page;
+      }
+      page = probation.remove(pageID);
+      if(page != null) {
+        // Second access: promote to the protected segment.
+        protect.put(pageID, page);
+        if(protect.size() > protectCapacity) {
+          // Demote the least recently used protected page.
+          Iterator<P> it = protect.values().iterator();
+          P demoted = it.next();
+          it.remove();
+          probation.put(demoted.getPageID(), demoted);
+          evict();
+        }
+      }
+      return page;
+    }
+
+    /**
+     * Insert a new page.
+     *
+     * @param pageID Page id
+     * @param page Page
+     */
+    void insert(int pageID, P page) {
+      if(pinned.size() < pinCapacity && page instanceof Node && !((Node<?>) page).isLeaf()) {
+        pinned.put(pageID, page);
+        return;
+      }
+      probation.put(pageID, page);
+      evict();
+    }
+
+    /**
+     * Replace a page, if it is cached.
+     *
+     * @param pageID Page id
+     * @param page New page
+     * @return {@code true} if the page was cached
+     */
+    boolean replace(int pageID, P page) {
+      if(pinned.containsKey(pageID)) {
+        pinned.put(pageID, page);
+        return true;
+      }
+      if(protect.containsKey(pageID)) {
+        protect.put(pageID, page);
+        return true;
+      }
+      if(probation.containsKey(pageID)) {
+        probation.put(pageID, page);
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Remove a page.
+     *
+     * @param pageID Page id
+     */
+    void remove(int pageID) {
+      if(pinned.remove(pageID) == null && protect.remove(pageID) == null) {
+        probation.remove(pageID);
+      }
+    }
+
+    /**
+     * Evict probationary pages while the stripe is over capacity.
+     */
+    private void evict() {
+      while(pinned.size() + protect.size() + probation.size() > capacity && !probation.isEmpty()) {
+        Iterator<P> it = probation.values().iterator();
+        P page = it.next();
+        it.remove();
+        count(evictions);
+        expirePage(page);
+      }
+    }
+
+    /**
+     * Remove all pages.
+     *
+     * @return Removed pages
+     */
+    List<P> drain() {
+      List<P> all = new ArrayList<>(pinned.size() + protect.size() + probation.size());
+      all.addAll(pinned.values());
+      all.addAll(protect.values());
+      all.addAll(probation.values());
+      pinned.clear();
+      protect.clear();
+      probation.clear();
+      return all;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.bundle.FixedVectorWriter;
+import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
+import de.lmu.ifi.dbs.elki.utilities.exceptions.AbortException;
+
+/**
+ * Unit test for the memory-mapped vector database.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class MappedVectorDatabaseTest {
+  public static final String filename = "elki/testdata/unittests/hierarchical-3d2d1d.csv";
+
+  @Test
+  public void testMappedDouble() throws IOException {
+    check(false);
+  }
+
+  @Test
+  public void testMappedFloat() throws IOException {
+    check(true);
+  }
+
+  @Test(expected = AbortException.class)
+  public void testTruncated() throws IOException {
+    File file = write(false);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+    try {
+      new MappedVectorDatabase(file, null).initialize();
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Convert the test data to a temporary file.
+   *
+   * @param single Use single precision
+   * @return Temporary file
+   * @throws IOException on IO errors
+   */
+  private File write(boolean single) throws IOException {
+    File file = File.createTempFile("ELKIUnitTest", null);
+    file.deleteOnExit();
+    NumberVectorLabelParser<DoubleVector> parser = new NumberVectorLabelParser<>(DoubleVector.FACTORY);
+    try (InputStream in = AbstractSimpleAlgorithmTest.open(filename); //
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      parser.initStream(in);
+      assertEquals("Number of vectors written.", 600, new FixedVectorWriter(single).writeStream(parser, channel));
+    }
+    return file;
+  }
+
+  /**
+   * Convert the test data, map it, and compare to the regular database.
+   *
+   * @param single Use single precision
+   * @throws IOException on IO errors
+   */
+  private void check(boolean single) throws IOException {
+    File file = write(single);
+    Database mapped = new MappedVectorDatabase(file, null);
+    mapped.initialize();
+    Relation<NumberVector> rel = mapped.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    Relation<NumberVector> plain = AbstractSimpleAlgorithmTest.makeSimpleDatabase(filename, 600).getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    assertEquals("Size differs.", plain.size(), rel.size());
+    for(DBIDIter it = plain.iterDBIDs(), it2 = rel.iterDBIDs(); it.valid(); it.advance(), it2.advance()) {
+      NumberVector a = plain.get(it), b = rel.get(it2);
+      assertEquals("Dimensionality differs.", a.getDimensionality(), b.getDimensionality());
+      for(int d = 0; d < a.getDimensionality(); d++) {
+        assertEquals("Value differs.", single ? (float) a.doubleValue(d) : a.doubleValue(d), b.doubleValue(d), 0.);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.algorithm.AbstractSimpleAlgorithmTest;
+import de.lmu.ifi.dbs.elki.data.DoubleVector;
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDIter;
+import de.lmu.ifi.dbs.elki.database.ids.DoubleDBIDListIter;
+import de.lmu.ifi.dbs.elki.database.ids.KNNList;
+import de.lmu.ifi.dbs.elki.database.query.knn.KNNQuery;
+import de.lmu.ifi.dbs.elki.database.relation.PackedVectorRelation;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.datasource.AbstractDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.InputStreamDatabaseConnection;
+import de.lmu.ifi.dbs.elki.datasource.filter.FixedDBIDsFilter;
+import de.lmu.ifi.dbs.elki.datasource.parser.NumberVectorLabelParser;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.minkowski.EuclideanDistanceFunction;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+
+/**
+ * Unit test for packed vector storage in the static database.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class PackedVectorRelationTest {
+  public static final String filename = "elki/testdata/unittests/hierarchical-3d2d1d.csv";
+
+  @Test
+  public void testPackedDouble() {
+    Relation<NumberVector> plain = load(StaticArrayDatabase.Packing.NONE);
+    Relation<NumberVector> packed = load(StaticArrayDatabase.Packing.DOUBLE);
+    assertTrue("Relation not packed.", packed instanceof PackedVectorRelation);
+    assertEquals("Size differs.", plain.size(), packed.size());
+    for(DBIDIter it = plain.iterDBIDs(); it.valid(); it.advance()) {
+      NumberVector a = plain.get(it), b = packed.get(it);
+      assertEquals("Dimensionality differs.", a.getDimensionality(), b.getDimensionality());
+      for(int d = 0; d < a.getDimensionality(); d++) {
+        assertEquals("Value differs.", a.doubleValue(d), b.doubleValue(d), 0.);
+      }
+      assertEquals("Format differs.", a.toString(), b.toString());
+    }
+    // Queries must yield identical results.
+    KNNQuery<NumberVector> q1 = plain.getKNNQuery(plain.getDistanceQuery(EuclideanDistanceFunction.STATIC), 10);
+    KNNQuery<NumberVector> q2 = packed.getKNNQuery(packed.getDistanceQuery(EuclideanDistanceFunction.STATIC), 10);
+    for(DBIDIter it = plain.iterDBIDs(); it.valid(); it.advance()) {
+      KNNList k1 = q1.getKNNForDBID(it, 10), k2 = q2.getKNNForDBID(it, 10);
+      assertEquals("kNN size differs.", k1.size(), k2.size());
+      for(DoubleDBIDListIter i1 = k1.iter(), i2 = k2.iter(); i1.valid(); i1.advance(), i2.advance()) {
+        assertEquals("kNN distance differs.", i1.doubleValue(), i2.doubleValue(), 0.);
+      }
+    }
+  }
+
+  @Test
+  public void testPackedFloat() {
+    Relation<NumberVector> plain = load(StaticArrayDatabase.Packing.NONE);
+    Relation<NumberVector> packed = load(StaticArrayDatabase.Packing.FLOAT);
+    assertTrue("Relation not packed.", packed instanceof PackedVectorRelation);
+    for(DBIDIter it = plain.iterDBIDs(); it.valid(); it.advance()) {
+      NumberVector a = plain.get(it), b = packed.get(it);
+      for(int d = 0; d < a.getDimensionality(); d++) {
+        assertEquals("Value differs.", (float) a.doubleValue(d), b.floatValue(d), 0.);
+      }
+    }
+  }
+
+  @Test
+  public void testPackedStream() {
+    Relation<NumberVector> plain = load(StaticArrayDatabase.Packing.NONE);
+    // Without a bundle filter, the parser output is packed as it streams.
+    ListParameterization params = new ListParameterization();
+    params.addParameter(StaticArrayDatabase.Parameterizer.PACKING_ID, StaticArrayDatabase.Packing.DOUBLE);
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(filename, 600, params);
+    Relation<NumberVector> packed = db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+    assertTrue("Relation not packed.", packed instanceof PackedVectorRelation);
+    for(DBIDIter it = plain.iterDBIDs(), it2 = packed.iterDBIDs(); it.valid(); it.advance(), it2.advance()) {
+      NumberVector a = plain.get(it), b = packed.get(it2);
+      for(int d = 0; d < a.getDimensionality(); d++) {
+        assertEquals("Value differs.", a.doubleValue(d), b.doubleValue(d), 0.);
+      }
+    }
+  }
+
+  @Test
+  public void testVaryingDimensionality() {
+    InputStream in = new ByteArrayInputStream("1 2 3\n4 5 6\n7 8\n".getBytes(StandardCharsets.UTF_8));
+    Database db = new StaticArrayDatabase(new InputStreamDatabaseConnection(in, null, new NumberVectorLabelParser<>(DoubleVector.FACTORY)), null, StaticArrayDatabase.Packing.DOUBLE);
+    db.initialize();
+    Relation<NumberVector> rel = db.getRelation(TypeUtil.NUMBER_VECTOR_VARIABLE_LENGTH);
+    assertFalse("Relation must not be packed.", rel instanceof PackedVectorRelation);
+    assertEquals("Size differs.", 3, rel.size());
+    double v = 0;
+    for(DBIDIter it = rel.iterDBIDs(); it.valid(); it.advance()) {
+      NumberVector vec = rel.get(it);
+      assertTrue("Not a vector object.", vec instanceof DoubleVector);
+      for(int d = 0; d < vec.getDimensionality(); d++) {
+        assertEquals("Value differs.", ++v, vec.doubleValue(d), 0.);
+      }
+    }
+    assertEquals("Values missing.", 8., v, 0.);
+  }
+
+  /**
+   * Load the test data set.
+   *
+   * @param packing Packing mode
+   * @return Vector relation
+   */
+  private static Relation<NumberVector> load(StaticArrayDatabase.Packing packing) {
+    ListParameterization params = new ListParameterization();
+    params.addParameter(AbstractDatabaseConnection.Parameterizer.FILTERS_ID, new FixedDBIDsFilter(1));
+    params.addParameter(StaticArrayDatabase.Parameterizer.PACKING_ID, packing);
+    Database db = AbstractSimpleAlgorithmTest.makeSimpleDatabase(filename, 600, params);
+    return db.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+  }
+}
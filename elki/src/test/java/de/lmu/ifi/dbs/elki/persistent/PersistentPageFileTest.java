@@ -0,0 +1,84 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.data.NumberVector;
+import de.lmu.ifi.dbs.elki.index.AbstractIndexStructureTest;
+import de.lmu.ifi.dbs.elki.index.PagedIndexFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeKNNQuery;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.query.RStarTreeRangeQuery;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.utilities.ELKIBuilder;
+
+/**
+ * Unit test for the disk-based page file, using a small cache so that most
+ * page accesses go to the file.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class PersistentPageFileTest extends AbstractIndexStructureTest {
+  @Test
+  public void testRStarTree() throws IOException {
+    File file = tempFile();
+    RStarTreeFactory<NumberVector> factory = new ELKIBuilder<>(RStarTreeFactory.class) //
+        .with(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300) //
+        .with(PagedIndexFactory.Parameterizer.PAGEFILE_ID, LRUCachePageFileFactory.class) //
+        .with(LRUCachePageFileFactory.Parameterizer.CACHE_SIZE_ID, 3000) //
+        .with(LRUCachePageFileFactory.Parameterizer.PAGEFILE_ID, PersistentPageFileFactory.class) //
+        .with(PersistentPageFileFactory.Parameterizer.FILE_ID, file.getPath()) //
+        .build();
+    testExactEuclidean(factory, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+    file.delete();
+  }
+
+  @Test
+  public void testRStarTreeSLRU() throws IOException {
+    File file = tempFile();
+    RStarTreeFactory<NumberVector> factory = new ELKIBuilder<>(RStarTreeFactory.class) //
+        .with(AbstractPageFileFactory.Parameterizer.PAGE_SIZE_ID, 300) //
+        .with(PagedIndexFactory.Parameterizer.PAGEFILE_ID, SLRUCachePageFileFactory.class) //
+        .with(LRUCachePageFileFactory.Parameterizer.CACHE_SIZE_ID, 3000) //
+        .with(LRUCachePageFileFactory.Parameterizer.PAGEFILE_ID, PersistentPageFileFactory.class) //
+        .with(PersistentPageFileFactory.Parameterizer.FILE_ID, file.getPath()) //
+        .build();
+    testExactEuclidean(factory, RStarTreeKNNQuery.class, RStarTreeRangeQuery.class);
+    file.delete();
+  }
+
+  /**
+   * Get the name of a new temporary file, which must not exist yet.
+   *
+   * @return File
+   * @throws IOException on errors
+   */
+  private static File tempFile() throws IOException {
+    File file = File.createTempFile("ELKIUnitTest", null);
+    file.delete();
+    file.deleteOnExit();
+    return file;
+  }
+}
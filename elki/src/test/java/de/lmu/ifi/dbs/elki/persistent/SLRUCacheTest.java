@@ -0,0 +1,235 @@
+/*
+ * This file is part of ELKI:
+ * Environment for Developing KDD-Applications Supported by Index-Structures
+ *
+ * Copyright (C) 2019
+ * ELKI Development Team
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.lmu.ifi.dbs.elki.persistent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeNode;
+
+/**
+ * Unit test for the segmented LRU cache.
+ *
+ * @author Erich Schubert
+ * @since 0.7.5
+ */
+public class SLRUCacheTest {
+  /**
+   * Page size used.
+   */
+  private static final int PAGESIZE = 100;
+
+  @Test
+  public void testScanResistance() {
+    CountingPageFile backing = new CountingPageFile(200, 0);
+    SLRUCache<RStarTreeNode> cache = makeCache(16, 0., backing);
+    // Access the hot pages twice, to promote them to the protected segment.
+    for(int r = 0; r < 2; r++) {
+      for(int i = 0; i < 4; i++) {
+        assertEquals("Wrong page.", i, cache.readPage(i).getPageID());
+      }
+    }
+    assertEquals("Hot pages not read once.", 4, backing.reads.get());
+    // A single sweep over many pages:
+    for(int i = 100; i < 200; i++) {
+      cache.readPage(i);
+    }
+    backing.reads.set(0);
+    for(int i = 0; i < 4; i++) {
+      cache.readPage(i);
+    }
+    assertEquals("Sweep displaced protected pages.", 0, backing.reads.get());
+    // But the sweep itself was not retained.
+    cache.readPage(100);
+    assertEquals("Early sweep page was not evicted.", 1, backing.reads.get());
+  }
+
+  @Test
+  public void testPinning() {
+    CountingPageFile backing = new CountingPageFile(200, 4);
+    SLRUCache<RStarTreeNode> cache = makeCache(16, .25, backing);
+    // Directory pages are pinned on first access.
+    for(int i = 0; i < 4; i++) {
+      cache.readPage(i);
+    }
+    // Pages accessed twice flood the protected segment:
+    for(int i = 100; i < 200; i++) {
+      cache.readPage(i);
+      cache.readPage(i);
+    }
+    backing.reads.set(0);
+    for(int i = 0; i < 4; i++) {
+      cache.readPage(i);
+    }
+    assertEquals("Pinned pages were evicted.", 0, backing.reads.get());
+  }
+
+  @Test
+  public void testEvictionWritesDirty() {
+    CountingPageFile backing = new CountingPageFile(200, 0);
+    SLRUCache<RStarTreeNode> cache = makeCache(16, 0., backing);
+    RStarTreeNode page = new RStarTreeNode(4, true);
+    final int id = cache.writePage(page);
+    assertNull("Dirty page written to the backing file early.", backing.readPage(id));
+    for(int i = 0; i < 100; i++) {
+      cache.readPage(i);
+    }
+    assertTrue("Dirty page was not written on eviction.", backing.readPage(id) == page);
+    assertFalse("Page still dirty.", page.isDirty());
+  }
+
+  @Test
+  public void testConcurrentStripes() throws InterruptedException, ExecutionException {
+    final int npages = 1000;
+    CountingPageFile backing = new CountingPageFile(npages, 10);
+    // Large enough for multiple stripes, small enough to evict.
+    final SLRUCache<RStarTreeNode> cache = makeCache(256, .1, backing);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for(int t = 0; t < 4; t++) {
+        final Random rnd = new Random(t);
+        futures.add(pool.submit(() -> {
+          for(int i = 0; i < 20000; i++) {
+            // Skewed accesses, to exercise promotions and demotions.
+            final int id = rnd.nextBoolean() ? rnd.nextInt(50) : rnd.nextInt(npages);
+            RStarTreeNode page = cache.readPage(id);
+            assertNotNull("Page not found.", page);
+            assertEquals("Wrong page.", id, page.getPageID());
+          }
+        }));
+      }
+      for(Future<?> f : futures) {
+        f.get(); // Rethrows assertion errors
+      }
+    }
+    finally {
+      pool.shutdown();
+    }
+    assertTrue("Cache had no hits.", backing.reads.get() < 4 * 20000);
+  }
+
+  @Test
+  public void testConcurrentReadWrite() throws InterruptedException, ExecutionException {
+    final int id = 5;
+    final CountDownLatch reading = new CountDownLatch(1), written = new CountDownLatch(1);
+    final AtomicBoolean stall = new AtomicBoolean(true);
+    // Stall the first read of the page, after the old version was read.
+    CountingPageFile backing = new CountingPageFile(200, 0) {
+      @Override
+      public RStarTreeNode readPage(int pageID) {
+        RStarTreeNode page = super.readPage(pageID);
+        if(pageID == id && stall.compareAndSet(true, false)) {
+          reading.countDown();
+          try {
+            written.await();
+          }
+          catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return page;
+      }
+    };
+    final SLRUCache<RStarTreeNode> cache = makeCache(16, 0., backing);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<RStarTreeNode> reader = pool.submit(() -> cache.readPage(id));
+      reading.await();
+      RStarTreeNode page = new RStarTreeNode(4, true);
+      page.setPageID(id);
+      cache.writePage(id, page);
+      // Evict the new page, which writes it to the backing file.
+      for(int i = 100; i < 200; i++) {
+        cache.readPage(i);
+      }
+      assertTrue("Page was not written on eviction.", backing.readPage(id) == page);
+      written.countDown();
+      assertTrue("Reader returned a stale page.", reader.get() == page);
+      assertTrue("Stale page was cached.", cache.readPage(id) == page);
+    }
+    finally {
+      written.countDown();
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Build and initialize a cache.
+   *
+   * @param pages Cache size in pages
+   * @param pinFraction Pinning fraction
+   * @param backing Backing file
+   * @return Cache
+   */
+  private static SLRUCache<RStarTreeNode> makeCache(int pages, double pinFraction, CountingPageFile backing) {
+    SLRUCache<RStarTreeNode> cache = new SLRUCache<>(pages * PAGESIZE, pinFraction, backing);
+    cache.initialize(new DefaultPageHeader(PAGESIZE));
+    return cache;
+  }
+
+  /**
+   * In-memory page file counting the read accesses.
+   *
+   * @author Erich Schubert
+   */
+  private static class CountingPageFile extends MemoryPageFile<RStarTreeNode> {
+    /**
+     * Number of reads.
+     */
+    AtomicInteger reads = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param n Number of pages to create
+     * @param dirs Number of directory pages, at the beginning
+     */
+    CountingPageFile(int n, int dirs) {
+      super(PAGESIZE);
+      for(int i = 0; i < n; i++) {
+        writePage(new RStarTreeNode(4, i >= dirs));
+      }
+    }
+
+    @Override
+    public RStarTreeNode readPage(int pageID) {
+      reads.incrementAndGet();
+      return super.readPage(pageID);
+    }
+  }
+}